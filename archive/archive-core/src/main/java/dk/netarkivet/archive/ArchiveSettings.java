@@ -108,6 +108,30 @@ public class ArchiveSettings {
      */
     public static String BITARCHIVE_BATCH_JOB_TIMEOUT = "settings.archive.bitarchive.batchMessageTimeout";
 
+    /**
+     * <b>settings.archive.bitarchive.batchStreamResults</b>: <br>
+     * true/false - If true, the BitarchiveMonitorServer does not download and concatenate the batch results of the
+     * bitarchives into a local file. The result files are instead forwarded to the requester as one concatenated
+     * RemoteFile, or streamed directly into the post processing of the batch job. This requires that the remote files
+     * of the bitarchives can be read by the requester. Default false.
+     */
+    public static String BITARCHIVE_BATCH_STREAM_RESULTS = "settings.archive.bitarchive.batchStreamResults";
+
+    /**
+     * <b>settings.archive.bitarchive.openFiles.max</b>: <br>
+     * The maximum number of archive files the bitarchive keeps open between get requests, so records from frequently
+     * requested files can be read without opening the file again. 0 means that files are opened and closed for each
+     * request. Default 32.
+     */
+    public static String BITARCHIVE_OPEN_FILES_MAX = "settings.archive.bitarchive.openFiles.max";
+
+    /**
+     * <b>settings.archive.bitarchive.openFiles.idleTimeout</b>: <br>
+     * The time in milliseconds an archive file kept open by the bitarchive may go unused before it is closed. Default
+     * 60000 (1 minute).
+     */
+    public static String BITARCHIVE_OPEN_FILES_IDLE_TIMEOUT = "settings.archive.bitarchive.openFiles.idleTimeout";
+
     /**
      * <b>settings.archive.bitarchive.thisCredentials</b>: <br>
      * Credentials to enter in the GUI for "deleting" ARC files in this bit archive.
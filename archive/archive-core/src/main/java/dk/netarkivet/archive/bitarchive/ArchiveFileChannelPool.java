@@ -0,0 +1,345 @@
+/*
+ * #%L
+ * Netarchivesuite - archive
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.archive.bitarchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * A bounded pool of open, read-only channels to archive files. Records are read through streams doing positional reads
+ * on a shared channel, so any number of requests can read from the same file concurrently without reopening it.
+ * <p>
+ * A channel is kept open after use until it has been unused for longer than the idle timeout, or until more than the
+ * maximum number of files are open, in which case the least recently used unused channels are closed. Idle channels
+ * are closed when the pool is next used. A channel is reopened if the file has changed size or modification time since
+ * it was opened.
+ */
+class ArchiveFileChannelPool {
+
+    /** The class logger. */
+    private static final Logger log = LoggerFactory.getLogger(ArchiveFileChannelPool.class);
+
+    /** The maximum number of files kept open. */
+    private final int maxOpenFiles;
+
+    /** The time in milliseconds an unused file is kept open. */
+    private final long idleTimeout;
+
+    /** The open files by path, in least recently used order. */
+    private final Map<File, PooledChannel> channels = new LinkedHashMap<File, PooledChannel>(16, 0.75f, true);
+
+    /** The number of requests served by an already open channel. */
+    private long hits;
+
+    /** The number of requests that had to open the file. */
+    private long misses;
+
+    /** The number of bytes read through streams from the pool. Updated without holding the pool lock. */
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /** The number of times a stream from the pool was positioned in a file. Updated without holding the pool lock. */
+    private final AtomicLong seeks = new AtomicLong();
+
+    /**
+     * Create a pool.
+     *
+     * @param maxOpenFiles The maximum number of files kept open.
+     * @param idleTimeout The time in milliseconds an unused file is kept open.
+     * @throws ArgumentNotValid if maxOpenFiles or idleTimeout is negative.
+     */
+    ArchiveFileChannelPool(int maxOpenFiles, long idleTimeout) {
+        ArgumentNotValid.checkNotNegative(maxOpenFiles, "int maxOpenFiles");
+        ArgumentNotValid.checkNotNegative(idleTimeout, "long idleTimeout");
+        this.maxOpenFiles = maxOpenFiles;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Get a channel for the given file, opening it if necessary. The channel must be given back with
+     * {@link #release(PooledChannel)}.
+     *
+     * @param file An archive file.
+     * @return An open channel for the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    synchronized PooledChannel acquire(File file) throws IOException {
+        ArgumentNotValid.checkNotNull(file, "File file");
+        long now = System.currentTimeMillis();
+        closeIdle(now);
+        PooledChannel pooled = channels.get(file);
+        if (pooled != null && !pooled.isCurrent()) {
+            log.debug("Reopening '{}', which has been closed or changed since it was opened", file);
+            channels.remove(file);
+            pooled.evicted = true;
+            if (pooled.users == 0) {
+                pooled.close();
+            }
+            pooled = null;
+        }
+        if (pooled == null) {
+            ++misses;
+            pooled = new PooledChannel(file, bytesRead, seeks);
+            channels.put(file, pooled);
+        } else {
+            ++hits;
+        }
+        pooled.users++;
+        pooled.lastUsed = now;
+        return pooled;
+    }
+
+    /**
+     * Give back a channel obtained from {@link #acquire(File)}.
+     *
+     * @param pooled The channel that is no longer used by the caller.
+     */
+    synchronized void release(PooledChannel pooled) {
+        ArgumentNotValid.checkNotNull(pooled, "PooledChannel pooled");
+        pooled.users--;
+        pooled.lastUsed = System.currentTimeMillis();
+        if (pooled.users == 0 && pooled.evicted) {
+            pooled.close();
+        }
+        closeIdle(pooled.lastUsed);
+    }
+
+    /**
+     * Close all channels. Channels in use are closed when they are released.
+     */
+    synchronized void close() {
+        Iterator<PooledChannel> it = channels.values().iterator();
+        while (it.hasNext()) {
+            PooledChannel pooled = it.next();
+            it.remove();
+            pooled.evicted = true;
+            if (pooled.users == 0) {
+                pooled.close();
+            }
+        }
+    }
+
+    /**
+     * @return The number of requests that were served by an already open file.
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of requests that had to open the file.
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of bytes read through streams from the pool.
+     */
+    long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return The number of times a stream from the pool was positioned in a file, i.e. the number of streams made
+     * plus the number of skips.
+     */
+    long getSeeks() {
+        return seeks.get();
+    }
+
+    /**
+     * @return The number of files currently open.
+     */
+    synchronized int getOpenFiles() {
+        return channels.size();
+    }
+
+    /**
+     * Close the unused channels that have been idle for too long, and the least recently used unused channels while
+     * too many files are open.
+     *
+     * @param now The current time in milliseconds.
+     */
+    private void closeIdle(long now) {
+        int excess = channels.size() - maxOpenFiles;
+        // Iteration order is least recently used first.
+        Iterator<PooledChannel> it = channels.values().iterator();
+        while (it.hasNext()) {
+            PooledChannel pooled = it.next();
+            if (pooled.users == 0 && (excess > 0 || now - pooled.lastUsed > idleTimeout)) {
+                it.remove();
+                pooled.close();
+                excess--;
+            }
+        }
+    }
+
+    /** An open channel in the pool. The fields apart from the channel are guarded by the pool. */
+    static final class PooledChannel {
+        /** The file the channel reads. */
+        private final File file;
+        /** The modification time of the file when it was opened. */
+        private final long lastModified;
+        /** The length of the file when it was opened. */
+        private final long length;
+        /** The open file. */
+        private final RandomAccessFile raf;
+        /** The channel of the open file. */
+        private final FileChannel channel;
+        /** The number of current users of the channel. */
+        private int users;
+        /** The last time the channel was acquired or released. */
+        private long lastUsed;
+        /** True if the channel is no longer in the pool and must be closed when its last user releases it. */
+        private boolean evicted;
+        /** The count of bytes read through streams of the pool. */
+        private final AtomicLong bytesRead;
+        /** The count of stream positionings of the pool. */
+        private final AtomicLong seeks;
+
+        /**
+         * Open a file.
+         *
+         * @param file The file to open.
+         * @param bytesRead The count of bytes read through streams of the pool.
+         * @param seeks The count of stream positionings of the pool.
+         * @throws IOException If the file cannot be opened.
+         */
+        private PooledChannel(File file, AtomicLong bytesRead, AtomicLong seeks) throws IOException {
+            this.file = file;
+            this.bytesRead = bytesRead;
+            this.seeks = seeks;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.raf = new RandomAccessFile(file, "r");
+            this.channel = raf.getChannel();
+        }
+
+        /**
+         * @return true if the channel is open and the file has not changed since it was opened.
+         */
+        private boolean isCurrent() {
+            return channel.isOpen() && file.lastModified() == lastModified && file.length() == length;
+        }
+
+        /** Close the file, logging any problems. */
+        private void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                log.warn("Unable to close '{}'", file, e);
+            }
+        }
+
+        /**
+         * Get a stream reading the file from the given position. Closing the stream does not close the channel.
+         *
+         * @param position The position in the file to start reading from.
+         * @return A stream reading from the position.
+         */
+        InputStream getInputStream(long position) {
+            seeks.incrementAndGet();
+            return new PositionalInputStream(channel, position, bytesRead, seeks);
+        }
+    }
+
+    /**
+     * A stream reading a channel from a given position using positional reads, so several streams can read from the
+     * same channel concurrently. Skipping is done without reading.
+     */
+    private static final class PositionalInputStream extends InputStream {
+        /** The channel read from. */
+        private final FileChannel channel;
+        /** The position of the next byte to read. */
+        private long position;
+        /** The buffer used by single byte reads. */
+        private final byte[] single = new byte[1];
+        /** The count of bytes read, shared by all streams of the pool. */
+        private final AtomicLong bytesRead;
+        /** The count of stream positionings, shared by all streams of the pool. */
+        private final AtomicLong seeks;
+
+        /**
+         * Create a stream.
+         *
+         * @param channel The channel to read from.
+         * @param position The position to start reading from.
+         * @param bytesRead The count to add the number of bytes read to.
+         * @param seeks The count to add skips to.
+         */
+        private PositionalInputStream(FileChannel channel, long position, AtomicLong bytesRead, AtomicLong seeks) {
+            this.channel = channel;
+            this.position = position;
+            this.bytesRead = bytesRead;
+            this.seeks = seeks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, len), position);
+            if (read > 0) {
+                position += read;
+                bytesRead.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = Math.max(0, Math.min(n, channel.size() - position));
+            if (skipped > 0) {
+                position += skipped;
+                seeks.incrementAndGet();
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.max(0, Math.min(Integer.MAX_VALUE, channel.size() - position));
+        }
+    }
+
+}
@@ -27,6 +27,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.archive.io.ArchiveReader;
 import org.archive.io.ArchiveReaderFactory;
@@ -34,6 +36,7 @@ import org.archive.io.ArchiveRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.netarkivet.archive.ArchiveSettings;
 import dk.netarkivet.common.distribute.RemoteFile;
 import dk.netarkivet.common.distribute.RemoteFileFactory;
 import dk.netarkivet.common.distribute.arcrepository.BatchStatus;
@@ -43,6 +46,7 @@ import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.exceptions.UnknownID;
 import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.batch.BatchLocalFiles;
 import dk.netarkivet.common.utils.batch.FileBatchJob;
 
@@ -61,6 +65,18 @@ public class Bitarchive {
     /** The instance of the bitarchive. */
     private static Bitarchive instance;
 
+    /** The archive files kept open between get requests. */
+    private final ArchiveFileChannelPool openFiles;
+
+    /** The number of get requests served. */
+    private final AtomicLong getRequests = new AtomicLong();
+
+    /** The total time spent serving get requests, in nanoseconds. */
+    private final AtomicLong getRequestsTime = new AtomicLong();
+
+    /** The number of get requests between each logging of the get request statistics. */
+    private static final long GET_STATISTICS_LOG_INTERVAL = 1000;
+
     /**
      * Create a new Bitarchive with files stored on local disk in one or more directories. This can reopen an existing
      * bit archive or create a Bitarchive from scratch, with no files on disk.
@@ -70,18 +86,24 @@ public class Bitarchive {
     private Bitarchive() throws PermissionDenied {
         log.debug("Starting bit archive");
         admin = BitarchiveAdmin.getInstance();
+        openFiles = new ArchiveFileChannelPool(Settings.getInt(ArchiveSettings.BITARCHIVE_OPEN_FILES_MAX),
+                Settings.getLong(ArchiveSettings.BITARCHIVE_OPEN_FILES_IDLE_TIMEOUT));
     }
 
     /**
      * Release all resources allocated by the bitarchive Ensures that all admin data and log data are flushed.
      */
     public void close() {
+        openFiles.close();
         admin.close();
         instance = null;
     }
 
     /**
      * Get an ARC or WARC record out of the archive. Returns null if the archive file is not found in this bitarchive.
+     * <p>
+     * The archive file is read through a pool of open files, so repeated requests for records in the same file do not
+     * reopen it, and concurrent requests read the file independently of each other.
      *
      * @param arcfile The name of an Archive file.
      * @param index Index of the Archive record in the file
@@ -101,6 +123,8 @@ public class Bitarchive {
             log.debug("Get request for file not on this machine: {}", arcfile);
             return null;
         }
+        long startTime = System.nanoTime();
+        ArchiveFileChannelPool.PooledChannel channel = null;
         ArchiveReader arcReader = null;
         ArchiveRecord arc = null;
         try {
@@ -110,17 +134,16 @@ public class Bitarchive {
                         + barc.getSize());
             }
             File in = barc.getFilePath();
-            arcReader = ArchiveReaderFactory.get(in);
-            arc = arcReader.get(index);
+            channel = openFiles.acquire(in);
+            // Only the record at the start of the file is read as the file header.
+            arcReader = ArchiveReaderFactory.get(in.getName(), channel.getInputStream(index), index == 0);
+            arc = arcReader.get();
             BitarchiveRecord result = new BitarchiveRecord(arc, arcfile);
 
-            // release resources locked
-            log.info("GET: Got {} bytes of data from {}:{}", result.getLength(), arcfile, index);
-            // try {
-            // Thread.sleep(1000);
-            // } catch (InterruptedException e) {
-            //
-            // }
+            long elapsed = System.nanoTime() - startTime;
+            log.info("GET: Got {} bytes of data from {}:{} in {} ms", result.getLength(), arcfile, index,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+            logGetStatistics(elapsed);
             return result;
         } catch (IOException e) {
             log.warn("Could not get data from {} at: {}; Stored at: {}", arcfile, index, barc.getFilePath());
@@ -141,9 +164,56 @@ public class Bitarchive {
             } catch (IOException e) {
                 log.warn("Could not close ARCReader or ARCRecord!", e);
             }
+            if (channel != null) {
+                openFiles.release(channel);
+            }
+        }
+    }
+
+    /**
+     * Count a served get request, and log the accumulated get request statistics at regular intervals.
+     *
+     * @param elapsed The time spent serving the request, in nanoseconds.
+     */
+    private void logGetStatistics(long elapsed) {
+        long requests = getRequests.incrementAndGet();
+        long time = getRequestsTime.addAndGet(elapsed);
+        if (requests % GET_STATISTICS_LOG_INTERVAL == 0) {
+            log.info("GET statistics: {} requests served in {} ms on average. Open files: {}, requests served by an "
+                    + "open file: {}, requests opening the file: {}, bytes read: {}, seeks: {}", requests,
+                    TimeUnit.NANOSECONDS.toMillis(time) / requests, openFiles.getOpenFiles(), openFiles.getHits(),
+                    openFiles.getMisses(), openFiles.getBytesRead(), openFiles.getSeeks());
         }
     }
 
+    /**
+     * @return The number of get requests served since the bitarchive was started.
+     */
+    public long getGetRequests() {
+        return getRequests.get();
+    }
+
+    /**
+     * @return The total time in milliseconds spent serving get requests since the bitarchive was started.
+     */
+    public long getGetRequestsTime() {
+        return TimeUnit.NANOSECONDS.toMillis(getRequestsTime.get());
+    }
+
+    /**
+     * @return The number of bytes read from archive files by get requests since the bitarchive was started.
+     */
+    public long getGetBytesRead() {
+        return openFiles.getBytesRead();
+    }
+
+    /**
+     * @return The number of times get requests positioned a read in an archive file since the bitarchive was started.
+     */
+    public long getGetSeeks() {
+        return openFiles.getSeeks();
+    }
+
     /**
      * Upload an ARC file to this archive.
      *
@@ -199,7 +269,7 @@ public class Bitarchive {
             try {
                 // Run the batch job
                 log.debug("Batch: Job {} started at {}", job, new Date());
-                File[] processFiles = admin.getFilesMatching(job.getFilenamePattern());
+                File[] processFiles = admin.getFilesToProcess(job);
 
                 final BatchLocalFiles localBatchRunner = new BatchLocalFiles(processFiles);
                 localBatchRunner.run(job, os);
@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -45,6 +46,7 @@ import dk.netarkivet.common.exceptions.UnknownID;
 import dk.netarkivet.common.utils.ApplicationUtils;
 import dk.netarkivet.common.utils.FileUtils;
 import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.batch.FileBatchJob;
 
 /**
  * This class handles file lookup and encapsulates the actual placement of files.
@@ -67,6 +69,13 @@ public final class BitarchiveAdmin {
      */
     private Map<File, Long> archiveTime = Collections.synchronizedMap(new HashMap<File, Long>());
 
+    /**
+     * Map containing the catalog of the files in each archive directory, used for finding the files of a batch job.
+     * The file must be the CanonicalFile (use getCanonicalFile() before access).
+     */
+    private Map<File, BitarchiveFileCatalog> fileCatalogs = Collections
+            .synchronizedMap(new HashMap<File, BitarchiveFileCatalog>());
+
     /** Singleton instance. */
     private static BitarchiveAdmin instance;
 
@@ -198,6 +207,7 @@ public final class BitarchiveAdmin {
             }
         }
         archivedFiles.put(basedir, filenames);
+        fileCatalogs.put(basedir, new BitarchiveFileCatalog(filenames));
         archiveTime.put(basedir, filedir.lastModified());
     }
 
@@ -309,6 +319,12 @@ public final class BitarchiveAdmin {
             throw new UnknownID("The directory " + basedir.getAbsolutePath() + " was not found in the map of known directories and files.");
         }
         fileList.add(arcFileName);
+        final BitarchiveFileCatalog catalog = fileCatalogs.get(canonicalFile);
+        if (catalog != null) {
+            synchronized (this) {
+                catalog.add(arcFileName);
+            }
+        }
         archiveTime.put(canonicalFile, storagePath.lastModified());
         return storageFile;
     }
@@ -408,6 +424,38 @@ public final class BitarchiveAdmin {
         return files.toArray(new File[files.size()]);
     }
 
+    /**
+     * Return an array of the files in this archive that should be processed by a given batch job. If the job has been
+     * restricted to exact filenames or to the files of certain jobs, the files are looked up in the catalog of each
+     * archive directory instead of matching the filename pattern against every file.
+     *
+     * @param job The batch job.
+     * @return An array of the files in this bitarchive that the job should process.
+     * @throws ArgumentNotValid if job is null.
+     */
+    public File[] getFilesToProcess(FileBatchJob job) {
+        ArgumentNotValid.checkNotNull(job, "FileBatchJob job");
+        // Ensure that the filelist is up to date.
+        verifyFilelistUpToDate();
+        Set<String> names = job.getFilenamesToProcess();
+        Set<Long> jobIds = job.getJobIdsToProcess();
+        List<File> files = new ArrayList<File>();
+        synchronized (this) {
+            for (File archivePath : archivedFiles.keySet()) {
+                File archiveDir = new File(archivePath, Constants.FILE_DIRECTORY_NAME);
+                BitarchiveFileCatalog catalog = fileCatalogs.get(archivePath);
+                if (catalog != null && checkArchiveDir(archiveDir)) {
+                    for (String filename : catalog.getCandidates(names, jobIds)) {
+                        if (job.matchesFilename(filename)) {
+                            files.add(new File(archiveDir, filename));
+                        }
+                    }
+                }
+            }
+        }
+        return files.toArray(new File[files.size()]);
+    }
+
     /**
      * Return the path that a given arc file can be found in.
      *
@@ -501,6 +549,7 @@ public final class BitarchiveAdmin {
      */
     public void close() {
         archivedFiles.clear();
+        fileCatalogs.clear();
         archiveTime.clear();
         instance = null;
     }
@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * Netarchivesuite - archive
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+package dk.netarkivet.archive.bitarchive;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.utils.batch.FileBatchJob;
+
+/**
+ * Catalog of the files in one bitarchive directory, indexed by the job ID fields of the filenames. This allows the
+ * files of a batch job given by exact filenames or job IDs to be found without matching the filename pattern against
+ * every file in the directory.
+ * <p>
+ * The catalog is not thread safe; access is synchronized by the BitarchiveAdmin.
+ */
+class BitarchiveFileCatalog {
+
+    /** The names of all files in the directory, in the order they were added. */
+    private final Set<String> filenames = new LinkedHashSet<String>();
+
+    /** The names of the files in the directory, by the job ID of their names. */
+    private final Map<Long, Set<String>> filenamesByJobId = new HashMap<Long, Set<String>>();
+
+    /**
+     * Create a catalog of the given files.
+     *
+     * @param filenames The names of the files in the directory.
+     * @throws ArgumentNotValid if filenames is null.
+     */
+    BitarchiveFileCatalog(Collection<String> filenames) {
+        ArgumentNotValid.checkNotNull(filenames, "Collection<String> filenames");
+        for (String filename : filenames) {
+            add(filename);
+        }
+    }
+
+    /**
+     * Add a file to the catalog. Adding a file already in the catalog has no effect.
+     *
+     * @param filename The name of the file.
+     * @throws ArgumentNotValid if filename is null or empty.
+     */
+    void add(String filename) {
+        ArgumentNotValid.checkNotNullOrEmpty(filename, "String filename");
+        if (!filenames.add(filename)) {
+            return;
+        }
+        Long jobId = FileBatchJob.getJobIdOfFilename(filename);
+        if (jobId != null) {
+            Set<String> filesOfJob = filenamesByJobId.get(jobId);
+            if (filesOfJob == null) {
+                filesOfJob = new LinkedHashSet<String>();
+                filenamesByJobId.put(jobId, filesOfJob);
+            }
+            filesOfJob.add(filename);
+        }
+    }
+
+    /**
+     * Find the files in the catalog that may be processed by a batch job restricted to the given filenames and job
+     * IDs. The result must still be checked against the filename pattern of the job.
+     *
+     * @param names The exact names of the files to process, or null if not restricted by name.
+     * @param jobIds The IDs of the jobs whose files should be processed, or null if not restricted by job.
+     * @return The names of the candidate files in the catalog.
+     */
+    Collection<String> getCandidates(Set<String> names, Set<Long> jobIds) {
+        if (names != null) {
+            List<String> candidates = new ArrayList<String>(names.size());
+            for (String name : names) {
+                if (filenames.contains(name)) {
+                    candidates.add(name);
+                }
+            }
+            return candidates;
+        }
+        if (jobIds != null) {
+            Set<String> candidates = new LinkedHashSet<String>();
+            for (Long jobId : jobIds) {
+                Set<String> filesOfJob = filenamesByJobId.get(jobId);
+                if (filesOfJob != null) {
+                    candidates.addAll(filesOfJob);
+                }
+            }
+            return candidates;
+        }
+        return filenames;
+    }
+
+    /**
+     * @return The number of files in the catalog.
+     */
+    int size() {
+        return filenames.size();
+    }
+}
@@ -25,7 +25,6 @@ package dk.netarkivet.archive.bitarchive;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -43,6 +42,7 @@ import org.slf4j.LoggerFactory;
 
 import dk.netarkivet.archive.ArchiveSettings;
 import dk.netarkivet.common.distribute.ChannelID;
+import dk.netarkivet.common.distribute.ConcatenatedRemoteFile;
 import dk.netarkivet.common.distribute.RemoteFile;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
@@ -74,6 +74,9 @@ public class BitarchiveMonitor extends Observable implements CleanupIF {
     /** The acceptable delay in milliseconds between signs of life. */
     private  long acceptableSignOfLifeDelay;
 
+    /** Whether batch results are forwarded as they are received instead of being concatenated in a local file. */
+    private final boolean streamResults;
+
     /**
      * Map from the ID of batch jobs sent to bitarchives, to tuple class of status for this batch job. The Map contains
      * all batch jobs currently running.
@@ -97,6 +100,8 @@ public class BitarchiveMonitor extends Observable implements CleanupIF {
     private BitarchiveMonitor() {
         acceptableSignOfLifeDelay = Settings.getLong(ArchiveSettings.BITARCHIVE_ACCEPTABLE_HEARTBEAT_DELAY);
         log.info("Bitarchive liveness times out after {} milliseconds.", acceptableSignOfLifeDelay);
+        streamResults = Settings.getBoolean(ArchiveSettings.BITARCHIVE_BATCH_STREAM_RESULTS);
+        log.info("Batch results from the bitarchives are {}.", streamResults ? "streamed" : "concatenated locally");
     }
 
     /**
@@ -276,12 +281,18 @@ public class BitarchiveMonitor extends Observable implements CleanupIF {
         /** A string with a concatenation of errors. This error message is null, if the job is successful. */
         public String errorMessages;
 
-        /** A File with a concatenation of results from replies received so far. */
+        /**
+         * A File with a concatenation of results from replies received so far. When batch results are streamed, this
+         * file only holds results after a call to {@link #materialiseStreamedResults()}.
+         */
         public final File batchResultFile;
 
         /** A list of the exceptions that occurred during processing. */
         public final List<FileBatchJob.ExceptionOccurrence> exceptions;
 
+        /** The results from replies received so far, when batch results are streamed rather than concatenated. */
+        private final List<RemoteFile> streamedResults = new ArrayList<RemoteFile>();
+
         /** The timeout for batch jobs in milliseconds. */
         private long batchTimeout;
 
@@ -369,7 +380,13 @@ public class BitarchiveMonitor extends Observable implements CleanupIF {
                 this.filesFailed.addAll(failedFiles);
             }
 
-            appendRemoteFileToAggregateFile(remoteFile);
+            if (streamResults) {
+                if (remoteFile != null) {
+                    streamedResults.add(remoteFile);
+                }
+            } else {
+                appendRemoteFileToAggregateFile(remoteFile);
+            }
             this.exceptions.addAll(this.exceptions);
 
             // In case the batch reply contains an error, the final
@@ -394,10 +411,17 @@ public class BitarchiveMonitor extends Observable implements CleanupIF {
          */
         private void appendRemoteFileToAggregateFile(RemoteFile rf) {
             if (rf != null) {
-                OutputStream aggregateStream = null;
+                FileOutputStream aggregateStream = null;
+                // The length to truncate to if the transfer fails, so no partial results are left in the file
+                long lengthBefore = batchResultFile.length();
                 try {
                     aggregateStream = new FileOutputStream(batchResultFile, true);
-                    rf.appendTo(aggregateStream);
+                    try {
+                        rf.appendTo(aggregateStream);
+                    } catch (IOFailure e) {
+                        aggregateStream.getChannel().truncate(lengthBefore);
+                        throw e;
+                    }
 
                     try {
                         rf.cleanup();
@@ -427,6 +451,33 @@ public class BitarchiveMonitor extends Observable implements CleanupIF {
             }
         }
 
+        /**
+         * Hands over the results received so far when batch results are streamed. The results are not downloaded;
+         * the returned RemoteFile reads them directly from the bitarchives. After this call, this status no longer
+         * holds any streamed results.
+         *
+         * @return A RemoteFile concatenating the results of all replies, or null if there are no streamed results.
+         */
+        public synchronized RemoteFile takeStreamedResults() {
+            if (streamedResults.isEmpty()) {
+                return null;
+            }
+            RemoteFile results = new ConcatenatedRemoteFile(bitarchiveBatchID, streamedResults);
+            streamedResults.clear();
+            return results;
+        }
+
+        /**
+         * Appends any streamed results that have not been handed over to the batch result file, for the cases where
+         * the complete result is needed locally. Does nothing if batch results are not streamed.
+         */
+        public synchronized void materialiseStreamedResults() {
+            for (RemoteFile rf : streamedResults) {
+                appendRemoteFileToAggregateFile(rf);
+            }
+            streamedResults.clear();
+        }
+
         /**
          * Checks whether this batch job is already being notified about. If not, it notifies observers with this batch
          * status.
@@ -25,12 +25,15 @@ package dk.netarkivet.archive.bitarchive.distribute;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -468,42 +471,48 @@ public class BitarchiveMonitorServer extends ArchiveMessageHandler implements Ob
      * status.
      * <p>
      * It will concatenate the results from all the bitarchives in one file, and construct a reply to the originating
-     * requester with all information.
+     * requester with all information. If batch results are streamed, the results are instead forwarded or post
+     * processed directly from the bitarchives.
      *
      * @param bjs Status of received messages from bitarchives.
      */
     private void doBatchReply(BitarchiveMonitor.BatchJobStatus bjs) {
         RemoteFile resultsFile = null;
-        try {
-            // Post process the file.
-            File postFile = File.createTempFile("post", "batch", FileUtils.getTempDir());
+        RemoteFile streamedResults = bjs.takeStreamedResults();
+        if (streamedResults != null) {
+            resultsFile = postProcessStreamedResults(bjs, streamedResults);
+        } else {
             try {
-                // retrieve the batchjob
-                FileBatchJob bj = batchjobs.remove(bjs.originalRequestID);
-                if (bj == null) {
-                    throw new UnknownID("Only knows: " + batchjobs.keySet());
-                }
-                log.info("Post processing batchjob results for '{}' with id '{}'", bj.getClass().getName(),
-                        bjs.originalRequestID);
-                // perform the post process, and handle whether it succeeded.
-                if (bj.postProcess(new FileInputStream(bjs.batchResultFile), new FileOutputStream(postFile))) {
-                    log.debug("Post processing finished.");
-                } else {
-                    log.debug("No post processing. Using concatenated file.");
+                // Post process the file.
+                File postFile = File.createTempFile("post", "batch", FileUtils.getTempDir());
+                try {
+                    // retrieve the batchjob
+                    FileBatchJob bj = batchjobs.remove(bjs.originalRequestID);
+                    if (bj == null) {
+                        throw new UnknownID("Only knows: " + batchjobs.keySet());
+                    }
+                    log.info("Post processing batchjob results for '{}' with id '{}'", bj.getClass().getName(),
+                            bjs.originalRequestID);
+                    // perform the post process, and handle whether it succeeded.
+                    if (bj.postProcess(new FileInputStream(bjs.batchResultFile), new FileOutputStream(postFile))) {
+                        log.debug("Post processing finished.");
+                    } else {
+                        log.debug("No post processing. Using concatenated file.");
+                        tryAndDeleteTemporaryFile(postFile);
+                        postFile = bjs.batchResultFile;
+                    }
+                } catch (Exception e) {
+                    log.warn("Exception caught during post processing batchjob. Concatenated file used instead.", e);
                     tryAndDeleteTemporaryFile(postFile);
                     postFile = bjs.batchResultFile;
                 }
+
+                // Get remote file for batch result
+                resultsFile = RemoteFileFactory.getMovefileInstance(postFile);
             } catch (Exception e) {
-                log.warn("Exception caught during post processing batchjob. Concatenated file used instead.", e);
-                tryAndDeleteTemporaryFile(postFile);
-                postFile = bjs.batchResultFile;
+                log.warn("Make remote file from {}", bjs.batchResultFile, e);
+                bjs.appendError("Could not append batch results: " + e);
             }
-
-            // Get remote file for batch result
-            resultsFile = RemoteFileFactory.getMovefileInstance(postFile);
-        } catch (Exception e) {
-            log.warn("Make remote file from {}", bjs.batchResultFile, e);
-            bjs.appendError("Could not append batch results: " + e);
         }
 
         // Make batch reply message
@@ -519,6 +528,59 @@ public class BitarchiveMonitorServer extends ArchiveMessageHandler implements Ob
         log.info("BatchReplyMessage: '{}' sent from BA monitor to queue: '{}'", brMsg, brMsg.getTo());
     }
 
+    /**
+     * Post processes batch results that are read directly from the bitarchives, without first being concatenated in a
+     * local file. If the batch job does not post process its results, the results are forwarded unchanged to the
+     * requester.
+     *
+     * @param bjs Status of received messages from bitarchives.
+     * @param streamedResults The results of the bitarchives.
+     * @return The results to send to the requester, or null if post processing failed.
+     */
+    private RemoteFile postProcessStreamedResults(BitarchiveMonitor.BatchJobStatus bjs, RemoteFile streamedResults) {
+        // The local aggregation file is not used for streamed results.
+        tryAndDeleteTemporaryFile(bjs.batchResultFile);
+        FileBatchJob bj = batchjobs.remove(bjs.originalRequestID);
+        if (bj == null) {
+            log.warn("Unknown batchjob '{}', forwarding results without post processing. Only knows: {}",
+                    bjs.originalRequestID, batchjobs.keySet());
+            return streamedResults;
+        }
+        log.info("Post processing streamed batchjob results for '{}' with id '{}'", bj.getClass().getName(),
+                bjs.originalRequestID);
+        File postFile = null;
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            postFile = File.createTempFile("post", "batch", FileUtils.getTempDir());
+            in = streamedResults.getInputStream();
+            out = new FileOutputStream(postFile);
+            boolean postProcessed = bj.postProcess(in, out);
+            in.close();
+            out.close();
+            if (postProcessed) {
+                log.debug("Post processing finished.");
+                streamedResults.cleanup();
+                return RemoteFileFactory.getMovefileInstance(postFile);
+            } else {
+                log.debug("No post processing. Forwarding the streamed results.");
+                tryAndDeleteTemporaryFile(postFile);
+                return streamedResults;
+            }
+        } catch (Exception e) {
+            // The results from the bitarchives can only be read once, so there is nothing to fall back to.
+            log.warn("Exception caught during post processing of streamed batchjob results.", e);
+            bjs.appendError("Could not post process streamed batch results: " + e);
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(out);
+            if (postFile != null) {
+                tryAndDeleteTemporaryFile(postFile);
+            }
+            streamedResults.cleanup();
+            return null;
+        }
+    }
+
     /**
      * Helper method to delete temporary files. Logs at level debug, if it couldn't delete the file.
      *
@@ -541,6 +603,8 @@ public class BitarchiveMonitorServer extends ArchiveMessageHandler implements Ob
     private void replyConvertedBatch(BitarchiveMonitor.BatchJobStatus bjs) {
         // Retrieve the message corresponding to the converted batchjob.
         NetarkivetMessage msg = batchConversions.remove(bjs.originalRequestID);
+        // The converted messages are answered from the local batch result file.
+        bjs.materialiseStreamedResults();
         log.info("replying to converted batchjob message : {}", msg);
         if (msg instanceof GetAllChecksumsMessage) {
             replyToGetAllChecksumsMessage(bjs, (GetAllChecksumsMessage) msg);
@@ -39,6 +39,7 @@ import dk.netarkivet.archive.distribute.ArchiveMessageHandler;
 import dk.netarkivet.common.CommonSettings;
 import dk.netarkivet.common.distribute.ChannelID;
 import dk.netarkivet.common.distribute.Channels;
+import dk.netarkivet.common.distribute.ConcurrentMessageListener;
 import dk.netarkivet.common.distribute.JMSConnection;
 import dk.netarkivet.common.distribute.JMSConnectionFactory;
 import dk.netarkivet.common.distribute.NullRemoteFile;
@@ -60,7 +61,7 @@ import dk.netarkivet.common.utils.SystemUtils;
  * Bitarchive container responsible for processing the different classes of message which can be received by a
  * bitarchive and returning appropriate data.
  */
-public class BitarchiveServer extends ArchiveMessageHandler implements CleanupIF {
+public class BitarchiveServer extends ArchiveMessageHandler implements ConcurrentMessageListener, CleanupIF {
 
     /** The bitarchive serviced by this server. */
     private Bitarchive ba;
@@ -147,6 +147,30 @@ public class ARCLookupTester {
         lookup.setIndex(TestInfo.DISTRIBUTE_ARCREPOSITORY_INDEX_DIR_2_3);
     }
 
+    /**
+     * Test that an index is warmed up before use, and that replacing it with another index keeps lookups working.
+     */
+    @Test
+    public void testSetIndexWithWarmUp() throws Exception {
+        Method luceneLookup = ReflectUtils.getPrivateMethod(ARCLookup.class, "luceneLookup", String.class);
+        File otherIndex = new File(TestInfo.DISTRIBUTE_ARCREPOSITORY_WORKING_DIR, "2-3-cache-copy");
+        FileUtils.copyDirectory(TestInfo.DISTRIBUTE_ARCREPOSITORY_INDEX_DIR_2_3, otherIndex);
+        ARCLookup warmLookup = new ARCLookup(realArcRepos);
+        warmLookup.setWarmUpTerms(10);
+        warmLookup.setIndex(TestInfo.DISTRIBUTE_ARCREPOSITORY_INDEX_DIR_2_3);
+        ARCKey key = (ARCKey) luceneLookup.invoke(warmLookup, "http://www.raeder.dk/robots.txt");
+        assertEquals("Should find the URL in the warmed up index", 1941, key.getOffset());
+        warmLookup.setIndex(otherIndex);
+        key = (ARCKey) luceneLookup.invoke(warmLookup, "http://www.raeder.dk/robots.txt");
+        assertEquals("Should find the URL in the replacing index", 1941, key.getOffset());
+        try {
+            warmLookup.setWarmUpTerms(-1);
+            fail("Should not accept a negative number of warm-up terms");
+        } catch (ArgumentNotValid e) {
+            // expected
+        }
+    }
+
     /**
      * Test that lookup returns real arcrecord data, and that it is correct TODO: This test is bad: It may not clean up
      * properly on fail, and it is really an integrity test. Move and clean up!
@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * Netarchivesuite - archive
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.archive.bitarchive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.utils.FileUtils;
+
+/**
+ * Unit tests for the ArchiveFileChannelPool class.
+ */
+public class ArchiveFileChannelPoolTester {
+
+    private File workDir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        workDir = File.createTempFile("channelpool", "files");
+        FileUtils.remove(workDir);
+        FileUtils.createDir(workDir);
+        file = new File(workDir, "file.arc");
+        FileUtils.writeBinaryFile(file, "0123456789".getBytes());
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(workDir);
+    }
+
+    private static String read(InputStream in, int count) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testConcurrentStreamsReadIndependently() throws IOException {
+        ArchiveFileChannelPool pool = new ArchiveFileChannelPool(4, 60000);
+        ArchiveFileChannelPool.PooledChannel first = pool.acquire(file);
+        ArchiveFileChannelPool.PooledChannel second = pool.acquire(file);
+        assertSame("The open file should be shared", first, second);
+        InputStream in1 = first.getInputStream(2);
+        InputStream in2 = second.getInputStream(7);
+        assertEquals("23", read(in1, 2));
+        assertEquals("78", read(in2, 2));
+        assertEquals("45", read(in1, 2));
+        assertEquals(3, in1.skip(3));
+        assertEquals("9", read(in1, 2));
+        assertEquals("Skipping should stop at the end of the file", 0, in1.skip(5));
+        assertEquals("9", read(in2, 5));
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getOpenFiles());
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.getHits());
+        assertEquals("Bytes read by both streams should be counted", 8, pool.getBytesRead());
+        assertEquals("Opening two streams and one skip should be counted as seeks", 3, pool.getSeeks());
+        pool.close();
+        assertEquals(0, pool.getOpenFiles());
+    }
+
+    @Test
+    public void testFilesAreClosedWhenNotKeptOpen() throws IOException {
+        ArchiveFileChannelPool pool = new ArchiveFileChannelPool(0, 60000);
+        ArchiveFileChannelPool.PooledChannel channel = pool.acquire(file);
+        assertEquals(1, pool.getOpenFiles());
+        pool.release(channel);
+        assertEquals("File should be closed when not in use", 0, pool.getOpenFiles());
+    }
+
+    @Test
+    public void testIdleAndChangedFilesAreReopened() throws Exception {
+        ArchiveFileChannelPool pool = new ArchiveFileChannelPool(4, 60000);
+        ArchiveFileChannelPool.PooledChannel channel = pool.acquire(file);
+        pool.release(channel);
+        FileUtils.writeBinaryFile(file, "abcdefghijklmnop".getBytes());
+        ArchiveFileChannelPool.PooledChannel reopened = pool.acquire(file);
+        assertNotSame("Changed file should be reopened", channel, reopened);
+        assertEquals("abc", read(reopened.getInputStream(0), 3));
+        pool.release(reopened);
+
+        ArchiveFileChannelPool idlePool = new ArchiveFileChannelPool(4, 0);
+        channel = idlePool.acquire(file);
+        idlePool.release(channel);
+        Thread.sleep(10);
+        assertNotSame("Idle file should be reopened", channel, idlePool.acquire(file));
+        assertEquals(2, idlePool.getMisses());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * Netarchivesuite - archive
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+package dk.netarkivet.archive.bitarchive;
+
+import static dk.netarkivet.testutils.CollectionUtils.list;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the BitarchiveFileCatalog class.
+ */
+public class BitarchiveFileCatalogTester {
+
+    private final BitarchiveFileCatalog catalog = new BitarchiveFileCatalog(list("42-117-20051212141240-00000-host.arc",
+            "42-metadata-1.warc", "prefix-43-metadata-1.warc", "142-metadata-1.warc", "notes.txt"));
+
+    @Test
+    public void testGetCandidatesUnrestricted() {
+        assertEquals("Should give all files in the order added", list("42-117-20051212141240-00000-host.arc",
+                "42-metadata-1.warc", "prefix-43-metadata-1.warc", "142-metadata-1.warc", "notes.txt"),
+                new ArrayList<String>(catalog.getCandidates(null, null)));
+        assertEquals("Should know the number of files", 5, catalog.size());
+    }
+
+    @Test
+    public void testGetCandidatesByName() {
+        assertEquals("Should only give the named files that exist", list("notes.txt"),
+                new ArrayList<String>(catalog.getCandidates(new HashSet<String>(list("notes.txt", "missing.arc")),
+                        null)));
+    }
+
+    @Test
+    public void testOnlyTheJobIdFieldIsIndexed() {
+        BitarchiveFileCatalog serials = new BitarchiveFileCatalog(list("1-2-20051212141240-00000-host.arc",
+                "2-1-20051212141241-00001-host.arc", "prefix-3-1-20051212141242-00001-host.warc", "4-metadata-1.warc"));
+        assertEquals("Only the file starting with job ID 1 belongs to job 1", list("1-2-20051212141240-00000-host.arc"),
+                new ArrayList<String>(serials.getCandidates(null, Collections.singleton(1L))));
+        assertEquals("Only the file starting with job ID 2 belongs to job 2", list("2-1-20051212141241-00001-host.arc"),
+                new ArrayList<String>(serials.getCandidates(null, Collections.singleton(2L))));
+        assertEquals("The job ID follows a collection prefix", list("prefix-3-1-20051212141242-00001-host.warc"),
+                new ArrayList<String>(serials.getCandidates(null, Collections.singleton(3L))));
+        assertEquals("Serial numbers are not job IDs", 0, serials.getCandidates(null, Collections.singleton(0L))
+                .size());
+        assertEquals("Timestamps are not job IDs", 0, serials.getCandidates(null,
+                Collections.singleton(20051212141240L)).size());
+    }
+
+    @Test
+    public void testGetCandidatesByJobId() {
+        List<String> candidates = new ArrayList<String>(catalog.getCandidates(null,
+                new HashSet<Long>(list(42L, 43L))));
+        Collections.sort(candidates);
+        assertEquals("Should give the files of the jobs",
+                list("42-117-20051212141240-00000-host.arc", "42-metadata-1.warc", "prefix-43-metadata-1.warc"),
+                candidates);
+        assertEquals("Should give no files for an unknown job", 0,
+                catalog.getCandidates(null, Collections.singleton(7L)).size());
+        assertEquals("The harvest ID, timestamp and serial number are not job IDs", 0, catalog.getCandidates(null,
+                new HashSet<Long>(list(117L, 20051212141240L, 0L, 1L))).size());
+
+        catalog.add("7-metadata-1.arc");
+        catalog.add("7-metadata-1.arc");
+        assertEquals("Should give files added later, once", list("7-metadata-1.arc"),
+                new ArrayList<String>(catalog.getCandidates(null, Collections.singleton(7L))));
+    }
+}
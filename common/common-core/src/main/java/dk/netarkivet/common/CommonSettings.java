@@ -79,6 +79,44 @@ public class CommonSettings {
      */
     public static String JMS_BROKER_RETRIES = "settings.common.jms.retries";
 
+    /**
+     * <b>settings.common.jms.sendSessions</b>: <br>
+     * The number of JMS sessions used for sending messages. Each session is used by only one sending thread at a
+     * time, so this is the number of messages that can be sent concurrently from one application. Default 1.
+     */
+    public static String JMS_SEND_SESSIONS = "settings.common.jms.sendSessions";
+
+    /**
+     * <b>settings.common.jms.concurrentConsumers</b>: <br>
+     * The number of consumers, each with its own JMS session, created for a queue when a listener that implements
+     * {@link dk.netarkivet.common.distribute.ConcurrentMessageListener} is added. Messages on the queue are then
+     * handled concurrently. Other listeners, and all listeners on topics, always get a single consumer, so their
+     * messages are handled one at a time in the order they are received. Default 1.
+     */
+    public static String JMS_CONCURRENT_CONSUMERS = "settings.common.jms.concurrentConsumers";
+
+    /**
+     * <b>settings.common.jms.messageCodec.class</b>: <br>
+     * The {@link dk.netarkivet.common.distribute.MessageCodec} used to encode the messages given by
+     * settings.common.jms.messageCodec.messageClass before sending them. If empty, all messages are sent using default
+     * serialization. Receivers must have the codec class on their classpath. Default empty.
+     */
+    public static String JMS_MESSAGE_CODEC_CLASS = "settings.common.jms.messageCodec.class";
+
+    /**
+     * <b>settings.common.jms.messageCodec.messageClass</b>: <br>
+     * The class names of the messages that are encoded with the message codec. May be repeated. Only exact classes are
+     * matched, not subclasses.
+     */
+    public static String JMS_MESSAGE_CODEC_MESSAGE_CLASSES = "settings.common.jms.messageCodec.messageClass";
+
+    /**
+     * <b>settings.common.jms.messageCodec.compressionThreshold</b>: <br>
+     * The size in bytes above which {@link dk.netarkivet.common.distribute.CompressingMessageCodec} compresses a
+     * serialized message. Default 4096.
+     */
+    public static String JMS_MESSAGE_CODEC_COMPRESSION_THRESHOLD = "settings.common.jms.messageCodec.compressionThreshold";
+
     /**
      * <b>settings.common.http.port</b>: <br>
      * The *unique* (per host) port number that may or may not be used to serve http.
@@ -112,6 +150,58 @@ public class CommonSettings {
      */
     public static String BATCH_DEFAULT_TIMEOUT = "settings.common.batch.defaultBatchTimeout";
 
+    /**
+     * <b>settings.common.batch.cdxDir</b>: <br/>
+     * A directory with CDX files for the archive files, named as the archive file with the extension .cdx. Batch jobs
+     * restricted to records with certain URLs use these to read only the matching records of an archive file. The CDX
+     * files must list every record the batch jobs may look for. If empty (the default), the archive files are always
+     * read completely.
+     */
+    public static String BATCH_CDX_DIR = "settings.common.batch.cdxDir";
+
+    /**
+     * <b>settings.common.batch.readAhead.records</b>: <br/>
+     * The number of records of a compressed archive file which batch jobs inflate ahead of the record being processed,
+     * on a separate thread. If 0 (the default), the records are inflated on the thread processing them.
+     */
+    public static String BATCH_READ_AHEAD_RECORDS = "settings.common.batch.readAhead.records";
+
+    /**
+     * <b>settings.common.batch.readAhead.maxRecordSize</b>: <br/>
+     * The largest inflated size in bytes of a record held in memory while reading ahead. Larger records are inflated
+     * again when they are processed. The default is 1 MiB.
+     */
+    public static String BATCH_READ_AHEAD_MAX_RECORD_SIZE = "settings.common.batch.readAhead.maxRecordSize";
+
+    /**
+     * <b>settings.common.batch.readAhead.maxBytes</b>: <br/>
+     * The largest total inflated size in bytes of the records held in memory while reading ahead, for each batch job
+     * thread. One record is always read ahead, even if it is larger. The default is 8 MiB.
+     */
+    public static String BATCH_READ_AHEAD_MAX_BYTES = "settings.common.batch.readAhead.maxBytes";
+
+    /**
+     * <b>settings.common.cdx.generationThreads</b>: <br/>
+     * The number of archive files indexed at the same time when generating CDX files for a directory of archive files.
+     * If 0 (the default), one file is indexed for each available processor.
+     */
+    public static String CDX_GENERATION_THREADS = "settings.common.cdx.generationThreads";
+
+    /**
+     * <b>settings.common.cdx.writeBloomFilters</b>: <br/>
+     * If true, the index server stores a Bloom filter of the URLs of each sorted CDX index it makes next to the index,
+     * which lets a CDXReader reading several of these indices skip those that cannot contain a URL. Default is false.
+     */
+    public static String CDX_WRITE_BLOOM_FILTERS = "settings.common.cdx.writeBloomFilters";
+
+    /**
+     * <b>settings.common.cdx.searchThreads</b>: <br/>
+     * The number of threads used by CDXReader to search several CDX files at the same time. If 1 (the default), the
+     * files are searched one after another. With more than one thread, the CDXRecordFilters given to the CDXReader
+     * must be thread-safe.
+     */
+    public static String CDX_SEARCH_THREADS = "settings.common.cdx.searchThreads";
+
     /**
      * <b>settings.common.monitorregistryClient.class</b>: <br>
      * Which class to use for monitor registry. Must implement the interface
@@ -546,4 +636,11 @@ public class CommonSettings {
      */
     public static String METADATAFILE_REGEX_SUFFIX = "settings.common.metadata.fileregexsuffix";
     
+    /**
+     * <b>settings.common.lucene.searcherCache.maxIdle</b>: <br>
+     * The number of Lucene indexes (e.g. viewerproxy or deduplication indexes) that are kept open by the shared
+     * searcher cache when they are no longer in use, so they can be reused without reopening them. The default is 3.
+     */
+    public static String LUCENE_SEARCHER_CACHE_MAX_IDLE = "settings.common.lucene.searcherCache.maxIdle";
+
 }
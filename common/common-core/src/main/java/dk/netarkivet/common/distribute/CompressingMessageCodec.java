@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.utils.Settings;
+
+/**
+ * A MessageCodec that serializes messages and compresses the result when it is larger than the threshold given by
+ * {@link CommonSettings#JMS_MESSAGE_CODEC_COMPRESSION_THRESHOLD}. Progress reports, frontier reports and batch replies
+ * consist mostly of repetitive text, and typically shrink to a fraction of their serialized size.
+ * <p>
+ * The encoded data starts with a format version and a flag telling whether the rest is compressed, so the format can
+ * evolve while old data can still be read.
+ */
+public class CompressingMessageCodec implements MessageCodec {
+
+    /** The version of the format written by this codec. */
+    static final byte FORMAT_VERSION = 1;
+
+    /** Flag for uncompressed data. */
+    private static final byte UNCOMPRESSED = 0;
+
+    /** Flag for deflate compressed data. */
+    private static final byte DEFLATED = 1;
+
+    /** The length of the header before the message data. */
+    private static final int HEADER_LENGTH = 2;
+
+    /** Serialized messages of at least this many bytes are compressed. */
+    private final int compressionThreshold;
+
+    /**
+     * Create a codec with the compression threshold from settings.
+     */
+    public CompressingMessageCodec() {
+        this(Settings.getInt(CommonSettings.JMS_MESSAGE_CODEC_COMPRESSION_THRESHOLD));
+    }
+
+    /**
+     * Create a codec with the given compression threshold.
+     *
+     * @param compressionThreshold Serialized messages of at least this many bytes are compressed.
+     * @throws ArgumentNotValid If the threshold is negative.
+     */
+    public CompressingMessageCodec(int compressionThreshold) {
+        ArgumentNotValid.checkNotNegative(compressionThreshold, "int compressionThreshold");
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @see MessageCodec#encode(NetarkivetMessage)
+     */
+    @Override
+    public byte[] encode(NetarkivetMessage msg) throws IOFailure {
+        ArgumentNotValid.checkNotNull(msg, "NetarkivetMessage msg");
+        try {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(serialized);
+            oos.writeObject(msg);
+            oos.close();
+            if (serialized.size() < compressionThreshold) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(serialized.size() + HEADER_LENGTH);
+                out.write(FORMAT_VERSION);
+                out.write(UNCOMPRESSED);
+                serialized.writeTo(out);
+                return out.toByteArray();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(serialized.size() / 4 + HEADER_LENGTH);
+            out.write(FORMAT_VERSION);
+            out.write(DEFLATED);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DeflaterOutputStream dos = new DeflaterOutputStream(out, deflater);
+                serialized.writeTo(dos);
+                dos.close();
+            } finally {
+                deflater.end();
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IOFailure("Could not encode message " + msg, e);
+        }
+    }
+
+    /**
+     * @see MessageCodec#decode(byte[])
+     */
+    @Override
+    public NetarkivetMessage decode(byte[] data) throws ArgumentNotValid, IOFailure {
+        ArgumentNotValid.checkNotNull(data, "byte[] data");
+        ArgumentNotValid.checkTrue(data.length > HEADER_LENGTH, "Encoded message too short: " + data.length
+                + " bytes");
+        ArgumentNotValid.checkTrue(data[0] == FORMAT_VERSION, "Unknown format version " + data[0]);
+        InputStream in = new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        if (data[1] == DEFLATED) {
+            in = new InflaterInputStream(in);
+        } else if (data[1] != UNCOMPRESSED) {
+            throw new ArgumentNotValid("Unknown compression flag " + data[1]);
+        }
+        try {
+            ObjectInputStream ois = new ObjectInputStream(in);
+            try {
+                return (NetarkivetMessage) ois.readObject();
+            } finally {
+                ois.close();
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Could not decode message", e);
+        } catch (ClassNotFoundException e) {
+            throw new IOFailure("Could not decode message", e);
+        } catch (ClassCastException e) {
+            throw new ArgumentNotValid("Encoded object is not a NetarkivetMessage", e);
+        }
+    }
+
+}
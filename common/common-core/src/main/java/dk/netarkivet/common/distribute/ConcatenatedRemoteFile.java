@@ -0,0 +1,255 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * A RemoteFile that represents the concatenation of a number of other remote files. No data is transferred when the
+ * object is created; the parts are fetched one after another from their original locations when the data is read.
+ * <p>
+ * This allows e.g. the bitarchive monitor to forward the batch results of all bitarchives without first downloading
+ * them into a single local file.
+ */
+@SuppressWarnings({"serial"})
+public class ConcatenatedRemoteFile implements RemoteFile {
+
+    /** The logger for this class. */
+    private static final Logger log = LoggerFactory.getLogger(ConcatenatedRemoteFile.class);
+
+    /** The name of this remote file. */
+    private final String name;
+
+    /** The remote files that make up the data, in order. */
+    private final List<RemoteFile> parts;
+
+    /**
+     * Create a remote file concatenating the given remote files.
+     *
+     * @param name The name of the concatenated file.
+     * @param parts The remote files to concatenate, in order. Null entries are not allowed.
+     * @throws ArgumentNotValid If name is null or empty, or parts is null or contains null.
+     */
+    public ConcatenatedRemoteFile(String name, List<RemoteFile> parts) {
+        ArgumentNotValid.checkNotNullOrEmpty(name, "String name");
+        ArgumentNotValid.checkNotNull(parts, "List<RemoteFile> parts");
+        for (RemoteFile part : parts) {
+            ArgumentNotValid.checkNotNull(part, "RemoteFile part");
+        }
+        this.name = name;
+        this.parts = new ArrayList<RemoteFile>(parts);
+    }
+
+    /**
+     * Copies the parts to a file. If a part cannot be copied, the partially written file is deleted.
+     *
+     * @see RemoteFile#copyTo(File)
+     */
+    @Override
+    public void copyTo(File destFile) {
+        ArgumentNotValid.checkNotNull(destFile, "File destFile");
+        OutputStream out = null;
+        boolean copied = false;
+        try {
+            out = new FileOutputStream(destFile);
+            appendTo(out);
+            out.close();
+            copied = true;
+        } catch (IOException e) {
+            throw new IOFailure("Unable to copy '" + name + "' to '" + destFile + "'", e);
+        } finally {
+            IOUtils.closeQuietly(out);
+            if (!copied && destFile.exists() && !destFile.delete()) {
+                log.warn("Could not delete the partially copied file '{}'", destFile);
+            }
+        }
+    }
+
+    /**
+     * @see RemoteFile#appendTo(OutputStream)
+     */
+    @Override
+    public void appendTo(OutputStream out) {
+        ArgumentNotValid.checkNotNull(out, "OutputStream out");
+        for (RemoteFile part : parts) {
+            part.appendTo(out);
+        }
+    }
+
+    /**
+     * Returns a stream reading the parts one after another. A part is not opened until data is read from it, so
+     * obtaining and closing the stream without reading leaves the parts untouched.
+     *
+     * @see RemoteFile#getInputStream()
+     */
+    @Override
+    public InputStream getInputStream() {
+        return new PartsInputStream(parts.iterator());
+    }
+
+    /**
+     * @see RemoteFile#getName()
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checksums are not supported for concatenated files.
+     *
+     * @return null
+     * @see RemoteFile#getChecksum()
+     */
+    @Override
+    public String getChecksum() {
+        return null;
+    }
+
+    /**
+     * Cleans up all the parts. Failure to clean up one part is logged, and does not prevent cleanup of the rest.
+     *
+     * @see RemoteFile#cleanup()
+     */
+    @Override
+    public void cleanup() {
+        for (RemoteFile part : parts) {
+            try {
+                part.cleanup();
+            } catch (IOFailure e) {
+                log.warn("Could not clean up remote file '{}'", part.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @see RemoteFile#getSize()
+     */
+    @Override
+    public long getSize() {
+        long size = 0;
+        for (RemoteFile part : parts) {
+            size += part.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of parts in this concatenated file.
+     */
+    public int getNumberOfParts() {
+        return parts.size();
+    }
+
+    /**
+     * An input stream reading the streams of a number of remote files one after another, opening each when needed.
+     */
+    private static class PartsInputStream extends InputStream {
+
+        /** The parts not yet opened. */
+        private final Iterator<RemoteFile> remaining;
+
+        /** The stream currently read from, or null if none is open. */
+        private InputStream current;
+
+        /**
+         * Create a stream reading the given parts.
+         *
+         * @param remaining Iterator over the parts to read.
+         */
+        PartsInputStream(Iterator<RemoteFile> remaining) {
+            this.remaining = remaining;
+        }
+
+        /**
+         * Make sure a stream with data is open, closing exhausted streams.
+         *
+         * @return false if all parts have been read.
+         */
+        private boolean openNext() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (!remaining.hasNext()) {
+                return false;
+            }
+            current = remaining.next().getInputStream();
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (current != null || openNext()) {
+                int b = current.read();
+                if (b != -1) {
+                    return b;
+                }
+                if (!openNext()) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current != null || openNext()) {
+                int read = current.read(b, off, len);
+                if (read > 0) {
+                    return read;
+                }
+                if (!openNext()) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import javax.jms.MessageListener;
+
+/**
+ * Marker interface for message listeners that can handle several messages at the same time.
+ * <p>
+ * When such a listener is added to a queue, the JMSConnection creates the number of consumers given by the setting
+ * {@link dk.netarkivet.common.CommonSettings#JMS_CONCURRENT_CONSUMERS}, each on its own session, so the listener may be
+ * called from several threads at once, and messages are not necessarily handled in the order they were sent. Listeners
+ * that do not implement this interface get exactly one consumer per channel.
+ */
+public interface ConcurrentMessageListener extends MessageListener {
+}
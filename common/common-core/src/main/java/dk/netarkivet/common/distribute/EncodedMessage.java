@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import java.io.Serializable;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * The payload of a JMS ObjectMessage carrying a NetarkivetMessage encoded by a {@link MessageCodec}. Only the name of
+ * the codec and the encoded bytes are serialized by the JMS broker.
+ */
+@SuppressWarnings({"serial"})
+class EncodedMessage implements Serializable {
+
+    /** The class name of the codec used to encode the message. */
+    private final String codecClass;
+
+    /** The encoded message. */
+    private final byte[] data;
+
+    /**
+     * Create an encoded message.
+     *
+     * @param codecClass The class name of the codec used to encode the message.
+     * @param data The encoded message.
+     * @throws ArgumentNotValid If codecClass is null or empty, or data is null.
+     */
+    EncodedMessage(String codecClass, byte[] data) {
+        ArgumentNotValid.checkNotNullOrEmpty(codecClass, "String codecClass");
+        ArgumentNotValid.checkNotNull(data, "byte[] data");
+        this.codecClass = codecClass;
+        this.data = data;
+    }
+
+    /**
+     * @return The class name of the codec used to encode the message.
+     */
+    String getCodecClass() {
+        return codecClass;
+    }
+
+    /**
+     * @return The encoded message.
+     */
+    byte[] getData() {
+        return data;
+    }
+
+}
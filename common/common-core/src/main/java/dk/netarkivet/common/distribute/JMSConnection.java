@@ -22,10 +22,19 @@
  */
 package dk.netarkivet.common.distribute;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.jms.Connection;
@@ -53,13 +62,16 @@ import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.utils.CleanupHook;
 import dk.netarkivet.common.utils.CleanupIF;
 import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.SettingsFactory;
 import dk.netarkivet.common.utils.TimeUtils;
 
 /**
- * Handles the communication with a JMS broker. Note on Thread-safety: the methods and fields of JMSConnection are not
- * accessed by multiple threads (though JMSConnection itself creates threads). Thus no synchronization is needed on
- * methods and fields of JMSConnection. A shutdown hook is also added, which closes the connection. Class JMSConnection
- * is now also a exceptionhandler for the JMS Connections
+ * Handles the communication with a JMS broker. Note on Thread-safety: messages may be sent from several threads.
+ * Sending uses a pool of sessions (see {@link CommonSettings#JMS_SEND_SESSIONS}), and a session is only used by one
+ * sending thread at a time. Listeners implementing {@link ConcurrentMessageListener} get several consumers on queues,
+ * each on its own session (see {@link CommonSettings#JMS_CONCURRENT_CONSUMERS}); all other listeners share the main
+ * session. A shutdown hook is also added, which closes the connection. Class JMSConnection is now also a
+ * exceptionhandler for the JMS Connections
  */
 public abstract class JMSConnection implements ExceptionListener, CleanupIF {
 
@@ -80,10 +92,23 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
      */
     protected Session session;
 
-    /** Map for caching message producers. */
+    /** Map for caching message producers of the main session. */
     protected final Map<String, MessageProducer> producers = Collections
             .synchronizedMap(new HashMap<String, MessageProducer>());
 
+    /**
+     * The sessions available for sending messages. The main session is always one of them. A sending thread takes a
+     * session from this queue and returns it when the message has been sent.
+     */
+    private final BlockingQueue<SendSession> sendSessions = new LinkedBlockingQueue<SendSession>();
+
+    /**
+     * Map from consumer keys to the extra sessions created for concurrent consumers of a queue. Closing a session
+     * closes its consumer.
+     */
+    private final Map<String, List<Session>> concurrentConsumerSessions = Collections
+            .synchronizedMap(new HashMap<String, List<Session>>());
+
     /** Map for caching message consumers (topic-subscribers and queue-receivers). */
     protected final Map<String, MessageConsumer> consumers = Collections
             .synchronizedMap(new HashMap<String, MessageConsumer>());
@@ -98,6 +123,18 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
      */
     protected final ReentrantReadWriteLock connectionLock = new ReentrantReadWriteLock();
 
+    /** The number of consumers to create for concurrent listeners on queues. */
+    private int concurrentConsumers = 1;
+
+    /** The codec used for encoding messages before sending them, or null if messages are not encoded. */
+    private MessageCodec messageCodec;
+
+    /** The class names of the messages encoded with the message codec. */
+    private Set<String> encodedMessageClasses = Collections.emptySet();
+
+    /** The codecs used for decoding received messages, by class name. */
+    private static final Map<String, MessageCodec> decoders = new ConcurrentHashMap<String, MessageCodec>();
+
     /** Shutdown hook that closes the JMS connection. */
     protected Thread closeHook;
 
@@ -142,6 +179,7 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
      */
     protected void initConnection() throws IOFailure {
         log.debug("Initializing a JMS connection {}", getClass().getName());
+        initMessageCodec();
 
         connectionLock.writeLock().lock();
         try {
@@ -175,6 +213,21 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         }
     }
 
+    /**
+     * Reads the message codec settings. Messages are sent using default serialization if no codec is set.
+     */
+    private void initMessageCodec() {
+        if (Settings.get(CommonSettings.JMS_MESSAGE_CODEC_CLASS).isEmpty()) {
+            messageCodec = null;
+            encodedMessageClasses = Collections.emptySet();
+        } else {
+            messageCodec = SettingsFactory.getInstance(CommonSettings.JMS_MESSAGE_CODEC_CLASS);
+            encodedMessageClasses = new HashSet<String>(Arrays.asList(Settings
+                    .getAll(CommonSettings.JMS_MESSAGE_CODEC_MESSAGE_CLASSES)));
+            log.info("Encoding messages of types {} with {}", encodedMessageClasses, messageCodec.getClass().getName());
+        }
+    }
+
     /**
      * Submit an object to the destination queue. This method shouldn't be overridden. Override the method sendMessage
      * to change functionality.
@@ -327,6 +380,8 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         session = null;
         consumers.clear();
         producers.clear();
+        sendSessions.clear();
+        concurrentConsumerSessions.clear();
     }
 
     /**
@@ -350,8 +405,12 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         NetarkivetMessage netMsg;
         String classname = "Unknown class"; // for error reporting purposes
         try {
-            classname = objMsg.getObject().getClass().getName();
-            netMsg = (NetarkivetMessage) objMsg.getObject();
+            Object payload = objMsg.getObject();
+            if (payload instanceof EncodedMessage) {
+                payload = decode((EncodedMessage) payload);
+            }
+            classname = payload.getClass().getName();
+            netMsg = (NetarkivetMessage) payload;
             // Note: Id is only updated if the message does not already have an
             // id. On unpack, this means the first time the message is received.
 
@@ -372,6 +431,53 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         return netMsg;
     }
 
+    /**
+     * Decode a message encoded by a MessageCodec, using the codec named in the encoded message. The named class is
+     * only instantiated if it is a MessageCodec.
+     *
+     * @param encoded The encoded message.
+     * @return The decoded message.
+     * @throws IOFailure If the codec cannot be created or fails decoding.
+     * @throws ArgumentNotValid If the named class is not a MessageCodec, or the data cannot be decoded by the codec.
+     */
+    private static NetarkivetMessage decode(EncodedMessage encoded) {
+        String codecClassName = encoded.getCodecClass();
+        MessageCodec codec = decoders.get(codecClassName);
+        if (codec == null) {
+            Class<?> codecClass;
+            try {
+                codecClass = Class.forName(codecClassName, false, JMSConnection.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IOFailure("Could not find message codec '" + codecClassName + "'", e);
+            }
+            if (!MessageCodec.class.isAssignableFrom(codecClass)) {
+                throw new ArgumentNotValid("The class '" + codecClassName + "' named by the message is not a "
+                        + MessageCodec.class.getName());
+            }
+            try {
+                codec = codecClass.asSubclass(MessageCodec.class).newInstance();
+            } catch (Exception e) {
+                throw new IOFailure("Could not create message codec '" + codecClassName + "'", e);
+            }
+            decoders.put(codecClassName, codec);
+        }
+        return codec.decode(encoded.getData());
+    }
+
+    /**
+     * Get the object to send in an ObjectMessage for the given message. This is the message itself, or the message
+     * encoded by the message codec, if one is set for this type of message.
+     *
+     * @param msg The message to send.
+     * @return The object to send.
+     */
+    private Serializable getPayload(NetarkivetMessage msg) {
+        if (messageCodec != null && encodedMessageClasses.contains(msg.getClass().getName())) {
+            return new EncodedMessage(messageCodec.getClass().getName(), messageCodec.encode(msg));
+        }
+        return msg;
+    }
+
     /**
      * Submit an ObjectMessage to the destination channel.
      *
@@ -452,21 +558,42 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
     }
 
     /**
-     * Helper method for getting the right producer for a queue or topic.
+     * Take a session for sending messages, waiting until one is available. The session must be returned with
+     * {@link #releaseSendSession(SendSession)} afterwards. Will try reconnecting if there is no session.
+     * <p>
+     * Waiting is not interrupted, as e.g. interrupted batch threads must still be able to report that they ended; the
+     * interrupt status of the thread is preserved.
      *
-     * @param queueName The name of the channel
-     * @return The producer for that channel. A new one is created, if none exists.
-     * @throws JMSException If a new producer cannot be created.
+     * @return A session for sending, which no other thread uses until it is released.
+     * @throws IOFailure if no session is available, and reconnect does not help.
      */
-    private MessageProducer getProducer(String queueName) throws JMSException {
-        // Check if producer is in cache
-        // If it is not, it is created and stored in cache:
-        MessageProducer producer = producers.get(queueName);
-        if (producer == null) {
-            producer = getSession().createProducer(getDestination(queueName));
-            producers.put(queueName, producer);
+    private SendSession takeSendSession() {
+        getSession();
+        SendSession sendSession = sendSessions.poll();
+        boolean interrupted = false;
+        while (sendSession == null) {
+            try {
+                sendSession = sendSessions.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return sendSession;
+    }
+
+    /**
+     * Return a session taken with {@link #takeSendSession()} to the pool. Sessions from before a reconnect are
+     * discarded.
+     *
+     * @param sendSession The session to return.
+     */
+    private void releaseSendSession(SendSession sendSession) {
+        if (sendSession.connection == connection) {
+            sendSessions.offer(sendSession);
         }
-        return producer;
     }
 
     /**
@@ -504,6 +631,50 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         return consumer;
     }
 
+    /**
+     * Adds the extra consumers for a listener that can handle messages concurrently. Each consumer gets its own
+     * session, as a session delivers its messages one at a time. Nothing is done for topics, for listeners not
+     * implementing {@link ConcurrentMessageListener}, or if the consumers have already been added.
+     *
+     * @param channelName The name of the channel
+     * @param ml The message listener to add as listener to the channel
+     * @throws JMSException If a session or consumer cannot be created.
+     */
+    private void addConcurrentConsumers(String channelName, MessageListener ml) throws JMSException {
+        if (!(ml instanceof ConcurrentMessageListener) || Channels.isTopic(channelName) || concurrentConsumers <= 1) {
+            return;
+        }
+        String key = getConsumerKey(channelName, ml);
+        if (concurrentConsumerSessions.containsKey(key)) {
+            return;
+        }
+        List<Session> sessions = new ArrayList<Session>();
+        for (int i = 1; i < concurrentConsumers; i++) {
+            Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            consumerSession.createConsumer(getDestination(channelName)).setMessageListener(ml);
+            sessions.add(consumerSession);
+        }
+        concurrentConsumerSessions.put(key, sessions);
+        log.info("Added {} consumers for {} on {}", concurrentConsumers, ml, channelName);
+    }
+
+    /**
+     * Closes the extra consumers added for a listener by {@link #addConcurrentConsumers(String, MessageListener)}, if
+     * any.
+     *
+     * @param channelName The name of the channel
+     * @param ml The message listener
+     * @throws JMSException If a session cannot be closed.
+     */
+    private void removeConcurrentConsumers(String channelName, MessageListener ml) throws JMSException {
+        List<Session> sessions = concurrentConsumerSessions.remove(getConsumerKey(channelName, ml));
+        if (sessions != null) {
+            for (Session consumerSession : sessions) {
+                consumerSession.close();
+            }
+        }
+    }
+
     /**
      * Generate a consumerkey based on the given channel name and messageListener.
      *
@@ -535,6 +706,14 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         // Establish a queue connection and a session
         connection = getConnectionFactory().createConnection();
         session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        sendSessions.clear();
+        sendSessions.add(new SendSession(connection, session, producers));
+        int numberOfSendSessions = Settings.getInt(CommonSettings.JMS_SEND_SESSIONS);
+        for (int i = 1; i < numberOfSendSessions; i++) {
+            sendSessions.add(new SendSession(connection, connection.createSession(false, Session.AUTO_ACKNOWLEDGE),
+                    new HashMap<String, MessageProducer>()));
+        }
+        concurrentConsumers = Settings.getInt(CommonSettings.JMS_CONCURRENT_CONSUMERS);
         connection.setExceptionListener(this);
         connection.start();
     }
@@ -548,10 +727,12 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
      */
     private void doSend(NetarkivetMessage msg, ChannelID to) throws JMSException {
         connectionLock.readLock().lock();
+        SendSession sendSession = null;
         try {
-            ObjectMessage message = getSession().createObjectMessage(msg);
+            sendSession = takeSendSession();
+            ObjectMessage message = sendSession.session.createObjectMessage(getPayload(msg));
             synchronized (msg) {
-                getProducer(to.getName()).send(message);
+                sendSession.getProducer(to.getName()).send(message);
                 // Note: Id is only updated if the message does not already have
                 // an id. This ensures that resent messages keep the same ID
                 // TODO Is it always OK for resent messages to keep the same ID
@@ -563,6 +744,9 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
 
             }
         } finally {
+            if (sendSession != null) {
+                releaseSendSession(sendSession);
+            }
             connectionLock.readLock().unlock();
         }
         log.trace("Sent message '{}'", msg.toString());
@@ -588,6 +772,7 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
                 connectionLock.readLock().lock();
                 try {
                     getConsumer(channelName, ml).setMessageListener(ml);
+                    addConcurrentConsumers(channelName, ml);
                 } finally {
                     connectionLock.readLock().unlock();
                 }
@@ -637,6 +822,7 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
                 try {
                     MessageConsumer messageConsumer = getConsumer(channelName, ml);
                     messageConsumer.close();
+                    removeConcurrentConsumers(channelName, ml);
                     consumers.remove(getConsumerKey(channelName, ml));
                     listeners.remove(getConsumerKey(channelName, ml));
                 } finally {
@@ -679,4 +865,50 @@ public abstract class JMSConnection implements ExceptionListener, CleanupIF {
         log.info("Reconnect successful");
     }
 
+    /**
+     * A session used for sending messages, together with its cache of message producers.
+     */
+    private final class SendSession {
+
+        /** The connection the session belongs to. */
+        private final Connection connection;
+
+        /** The session. */
+        private final Session session;
+
+        /** Map for caching the message producers of the session. */
+        private final Map<String, MessageProducer> sessionProducers;
+
+        /**
+         * Create a send session.
+         *
+         * @param connection The connection the session belongs to.
+         * @param session The session.
+         * @param sessionProducers The cache for the message producers of the session.
+         */
+        private SendSession(Connection connection, Session session, Map<String, MessageProducer> sessionProducers) {
+            this.connection = connection;
+            this.session = session;
+            this.sessionProducers = sessionProducers;
+        }
+
+        /**
+         * Helper method for getting the right producer for a queue or topic.
+         *
+         * @param queueName The name of the channel
+         * @return The producer for that channel. A new one is created, if none exists.
+         * @throws JMSException If a new producer cannot be created.
+         */
+        private MessageProducer getProducer(String queueName) throws JMSException {
+            // Check if producer is in cache
+            // If it is not, it is created and stored in cache:
+            MessageProducer producer = sessionProducers.get(queueName);
+            if (producer == null) {
+                producer = session.createProducer(getDestination(queueName));
+                sessionProducers.put(queueName, producer);
+            }
+            return producer;
+        }
+    }
+
 }
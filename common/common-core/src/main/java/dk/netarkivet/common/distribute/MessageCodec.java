@@ -0,0 +1,58 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * A codec for turning NetarkivetMessages into bytes for transport over JMS, and back again.
+ * <p>
+ * The JMSConnection uses the codec given by {@link dk.netarkivet.common.CommonSettings#JMS_MESSAGE_CODEC_CLASS} for the
+ * message classes given by {@link dk.netarkivet.common.CommonSettings#JMS_MESSAGE_CODEC_MESSAGE_CLASSES}. All other
+ * messages are sent using default serialization. The receiver decodes a message with the codec the sender used, so
+ * implementations must have a public no-argument constructor, and must be able to decode data written by older
+ * versions of themselves.
+ */
+public interface MessageCodec {
+
+    /**
+     * Encode a message.
+     *
+     * @param msg The message to encode.
+     * @return The encoded message.
+     * @throws IOFailure If the message cannot be encoded.
+     */
+    byte[] encode(NetarkivetMessage msg) throws IOFailure;
+
+    /**
+     * Decode a message encoded by this codec.
+     *
+     * @param data The encoded message.
+     * @return The decoded message.
+     * @throws ArgumentNotValid If the data is not a message encoded by this codec.
+     * @throws IOFailure If the data cannot be decoded.
+     */
+    NetarkivetMessage decode(byte[] data) throws ArgumentNotValid, IOFailure;
+
+}
@@ -29,13 +29,17 @@ import java.net.URI;
 import java.util.List;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DocsEnum;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermRangeFilter;
-import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +48,7 @@ import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.IllegalState;
 import dk.netarkivet.common.utils.AllDocsCollector;
+import dk.netarkivet.common.utils.LuceneSearcherCache;
 import dk.netarkivet.common.utils.arc.ARCKey;
 import is.hi.bok.deduplicator.DigestIndexer;
 
@@ -59,10 +64,19 @@ public class ARCLookup {
     /** The ArcRepositoryClient we use to retrieve records. */
     private final ViewerArcRepositoryClient arcRepositoryClient;
 
-    /** The currently active lucene search engine. */
-    private IndexSearcher luceneSearcher;
-    /** The Indexreader used by the index-searcher. */
-    private IndexReader luceneReader;
+    /** The number of documents between those whose stored fields are read when warming up an index. */
+    private static final int WARM_UP_STORED_FIELDS_INTERVAL = 100;
+
+    /**
+     * The currently active lucene search engine. Lookups hold a reference on its reader while searching, so an index
+     * replaced during a lookup is not closed until the lookup is done.
+     */
+    private volatile IndexSearcher luceneSearcher;
+    /** The lease on the shared searcher, released when the index is replaced. Guarded by this. */
+    private LuceneSearcherCache.Lease luceneIndex;
+
+    /** The maximal number of URL terms read to warm up a new index before it is used. */
+    private int warmUpTerms = 0;
 
     /** If the value is true, we will try to lookup w/ ftp instead of http, if we don't get a hit in the index. */
     private boolean tryToLookupUriAsFtp;
@@ -91,32 +105,76 @@ public class ARCLookup {
     }
 
     /**
-     * This method sets the current Lucene index this object works on, replacing and closing the current index if one is
-     * already set.
+     * Set the number of URL terms read from a new index to warm it up before it replaces the current index. Reading the
+     * terms loads the term dictionary and postings of the URLs, so the first lookups on the new index are not slowed
+     * down by reading them from disk.
+     *
+     * @param warmUpTerms The maximal number of terms to read, 0 to use a new index without warming it up.
+     * @throws ArgumentNotValid if warmUpTerms is negative.
+     */
+    public void setWarmUpTerms(int warmUpTerms) {
+        ArgumentNotValid.checkNotNegative(warmUpTerms, "int warmUpTerms");
+        this.warmUpTerms = warmUpTerms;
+    }
+
+    /**
+     * This method sets the current Lucene index this object works on, replacing the current index if one is already
+     * set. The index is obtained from the shared {@link LuceneSearcherCache}, so switching back to a recently used
+     * index does not reopen it.
+     * <p>
+     * The new index is opened and warmed up while lookups continue on the current index, and then replaces it in a
+     * single step. Lookups in progress on the replaced index finish on it.
      *
      * @param indexDir The new index, a directory containing Lucene files.
      * @throws ArgumentNotValid If argument is null
+     * @throws IOFailure If the index cannot be opened
      */
-    public void setIndex(File indexDir) {
+    public synchronized void setIndex(File indexDir) {
         ArgumentNotValid.checkNotNull(indexDir, "File indexDir");
         ArgumentNotValid.checkTrue(indexDir.isDirectory(), "indexDir '" + indexDir + "' should be a directory");
-        if (luceneSearcher != null) {
-            try {
-                // Existing lucene indices must be shut down
-                luceneReader.close();
-            } catch (IOException e) {
-                throw new IOFailure("Unable to close index " + luceneSearcher, e);
-            } finally {
-                // Must be careful to shut down only once.
-                luceneSearcher = null;
-            }
+        // Acquire the new index before releasing the old, so an unchanged index is not closed in between.
+        LuceneSearcherCache.Lease newIndex = LuceneSearcherCache.getInstance().acquire(indexDir);
+        IndexSearcher newSearcher = newIndex.getSearcher();
+        if (warmUpTerms > 0 && newSearcher != luceneSearcher) {
+            warmUp(newSearcher, indexDir);
+        }
+        luceneSearcher = newSearcher;
+        if (luceneIndex != null) {
+            luceneIndex.close();
         }
+        luceneIndex = newIndex;
+    }
+
+    /**
+     * Warm up an index by reading up to {@link #warmUpTerms} URL terms with their postings, and the stored fields of
+     * some of the documents. Errors are logged, but otherwise ignored, as they only make the first lookups slower.
+     *
+     * @param searcher A searcher on the index.
+     * @param indexDir The directory of the index, for logging.
+     */
+    private void warmUp(IndexSearcher searcher, File indexDir) {
+        long start = System.currentTimeMillis();
+        int termsRead = 0;
         try {
-            luceneReader = org.apache.lucene.index.DirectoryReader.open(FSDirectory.open(indexDir));
-            luceneSearcher = new IndexSearcher(luceneReader);
+            IndexReader reader = searcher.getIndexReader();
+            Terms terms = MultiFields.getTerms(reader, DigestIndexer.FIELD_URL);
+            if (terms != null) {
+                TermsEnum termsEnum = terms.iterator(null);
+                DocsEnum docs = null;
+                while (termsRead < warmUpTerms && termsEnum.next() != null) {
+                    docs = termsEnum.docs(null, docs, DocsEnum.FLAG_NONE);
+                    int doc = docs.nextDoc();
+                    if (doc != DocIdSetIterator.NO_MORE_DOCS && termsRead % WARM_UP_STORED_FIELDS_INTERVAL == 0) {
+                        reader.document(doc);
+                    }
+                    termsRead++;
+                }
+            }
         } catch (IOException e) {
-            throw new IOFailure("Unable to find/open index " + indexDir, e);
+            log.warn("Error warming up index '{}', continuing without warm-up", indexDir, e);
         }
+        log.info("Warmed up index '{}' by reading {} terms in {} ms", indexDir, termsRead,
+                System.currentTimeMillis() - start);
     }
 
     /**
@@ -189,19 +247,40 @@ public class ARCLookup {
      * @throws IOFailure if no index is set or Lucene gives problems.
      */
     private ARCKey luceneLookup(String uri) {
-        if (luceneSearcher == null) {
-            throw new IOFailure("No index set while searching for '" + uri + "'");
+        IndexSearcher searcher;
+        // Take a reference on the reader of the current index. If the index is replaced and closed in between, try
+        // again with the new one.
+        do {
+            searcher = luceneSearcher;
+            if (searcher == null) {
+                throw new IOFailure("No index set while searching for '" + uri + "'");
+            }
+            if (searcher.getIndexReader().tryIncRef()) {
+                break;
+            }
+            if (searcher == luceneSearcher) {
+                throw new IOFailure("Index closed while searching for '" + uri + "'");
+            }
+        } while (true);
+        try {
+            return luceneLookUp(searcher, uri);
+        } finally {
+            try {
+                searcher.getIndexReader().decRef();
+            } catch (IOException e) {
+                log.warn("Error releasing index after searching for '{}'", uri, e);
+            }
         }
-        return luceneLookUp(uri);
     }
 
     /**
      * Lucene Lookup. 
      *
+     * @param luceneSearcher The searcher to look in.
      * @param uri A URI to look for.
      * @return The file and offset where that URI can be found, or null if it doesn't exist. 
      */
-    private ARCKey luceneLookUp(String uri) {
+    private ARCKey luceneLookUp(IndexSearcher luceneSearcher, String uri) {
         BytesRef uriRef = new BytesRef(uri.getBytes()); // Should we decide which charset?
 
         Query query = new ConstantScoreQuery(new TermRangeFilter(DigestIndexer.FIELD_URL, uriRef, uriRef, true, true));
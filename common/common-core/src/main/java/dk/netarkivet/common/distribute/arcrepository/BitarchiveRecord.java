@@ -22,6 +22,7 @@
  */
 package dk.netarkivet.common.distribute.arcrepository;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -120,7 +121,13 @@ public class BitarchiveRecord implements Serializable {
                 File localTmpFile = null;
                 try {
                     localTmpFile = File.createTempFile("BitarchiveRecord-" + fileName, ".tmp", FileUtils.getTempDir());
-                    record.dump(new FileOutputStream(localTmpFile));
+                    // The record is streamed to the file, so it is never held in memory.
+                    OutputStream out = new BufferedOutputStream(new FileOutputStream(localTmpFile));
+                    try {
+                        record.dump(out);
+                    } finally {
+                        out.close();
+                    }
                     objectAsRemoteFile = RemoteFileFactory.getMovefileInstance(localTmpFile);
                     isStoredAsRemoteFile = true;
                 } catch (IOException e) {
@@ -31,7 +31,6 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import org.archive.io.ArchiveReader;
 import org.archive.io.ArchiveReaderFactory;
@@ -211,9 +210,7 @@ public class LocalArcRepositoryClient implements ArcRepositoryClient {
             List<File> files = new ArrayList<File>();
             final FilenameFilter filenameFilter = new FilenameFilter() {
                 public boolean accept(File dir, String name) {
-                    Pattern filenamePattern = job.getFilenamePattern();
-                    return new File(dir, name).isFile()
-                            && (filenamePattern == null || filenamePattern.matcher(name).matches());
+                    return new File(dir, name).isFile() && job.matchesFilename(name);
                 }
             };
             for (File dir : storageDirs) {
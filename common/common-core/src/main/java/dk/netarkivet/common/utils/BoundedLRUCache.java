@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library,
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * A thread safe map holding at most a fixed number of entries, evicting the least recently used entry when a new entry
+ * is added to a full map.
+ * <p>
+ * The entries are spread over a number of segments by the hash of their keys. Each segment is an access ordered
+ * LinkedHashMap behind its own lock, holding its share of the maximal number of entries, so threads using different
+ * segments do not wait for each other. With a single segment the least recently used entry of the whole map is
+ * evicted; with more segments it is the least recently used entry of the segment the new entry is added to.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class BoundedLRUCache<K, V> {
+
+    /** The segments of the map. */
+    private final Segment<K, V>[] segments;
+    /** The maximal number of entries in the map. */
+    private final int maxSize;
+    /** The number of entries evicted to make room for new entries. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a map.
+     *
+     * @param maxSize The maximal number of entries in the map.
+     * @param segmentCount The number of segments. At most maxSize segments are used.
+     * @throws ArgumentNotValid if maxSize or segmentCount is not positive.
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedLRUCache(int maxSize, int segmentCount) {
+        ArgumentNotValid.checkPositive(maxSize, "int maxSize");
+        ArgumentNotValid.checkPositive(segmentCount, "int segmentCount");
+        this.maxSize = maxSize;
+        int count = Math.min(segmentCount, maxSize);
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Spread the maximal size so the segments together hold exactly maxSize entries.
+            segments[i] = new Segment<K, V>(maxSize / count + (i < maxSize % count ? 1 : 0), evictions);
+        }
+    }
+
+    /**
+     * Get the value of a key, marking the entry as recently used.
+     *
+     * @param key A key.
+     * @return The value, or null if the key is not in the map.
+     * @throws ArgumentNotValid if key is null.
+     */
+    public V get(K key) {
+        ArgumentNotValid.checkNotNull(key, "K key");
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Add or replace the value of a key. If the segment of the key is full, its least recently used entry is evicted.
+     *
+     * @param key A key.
+     * @param value The value.
+     * @throws ArgumentNotValid if key or value is null.
+     */
+    public void put(K key, V value) {
+        ArgumentNotValid.checkNotNull(key, "K key");
+        ArgumentNotValid.checkNotNull(value, "V value");
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Remove a key from the map.
+     *
+     * @param key A key.
+     * @return The value that was removed, or null if the key was not in the map.
+     * @throws ArgumentNotValid if key is null.
+     */
+    public V remove(K key) {
+        ArgumentNotValid.checkNotNull(key, "K key");
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    /**
+     * Remove all entries. Removed entries are not counted as evictions.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return The number of entries in the map.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The maximal number of entries in the map.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of entries evicted to make room for new entries.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Find the segment of a key.
+     *
+     * @param key A key.
+     * @return The segment holding the key, if it is in the map.
+     */
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        // Spread the high bits, as HashMap does, so keys differing only there do not share a segment.
+        h ^= (h >>> 16);
+        return segments[(h & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * A segment of the map: an access ordered map evicting its eldest entry when it grows beyond its maximal size.
+     * Guarded by its own lock.
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        /** The maximal number of entries in the segment. */
+        private final int maxSize;
+        /** The eviction count of the map. */
+        private final AtomicLong evictions;
+
+        /**
+         * Create a segment.
+         *
+         * @param maxSize The maximal number of entries in the segment.
+         * @param evictions The eviction count of the map.
+         */
+        private Segment(int maxSize, AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
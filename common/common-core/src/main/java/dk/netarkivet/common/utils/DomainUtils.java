@@ -22,9 +22,6 @@
  */
 package dk.netarkivet.common.utils;
 
-import java.util.regex.Matcher;
-
-import dk.netarkivet.common.Constants;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 
 /**
@@ -48,7 +45,7 @@ public final class DomainUtils {
      */
     public static boolean isValidDomainName(String domainName) {
         ArgumentNotValid.checkNotNull(domainName, "String domainName");
-        return TLD.getInstance().getValidDomainMatcher().matcher(domainName).matches();      
+        return PublicSuffixMatcher.isIpAddress(domainName) || TLD.getInstance().getSuffixMatcher().isDomain(domainName);
     }
 
     /**
@@ -64,18 +61,15 @@ public final class DomainUtils {
      */
     public static String domainNameFromHostname(String hostname) {
         ArgumentNotValid.checkNotNull(hostname, "String hostname");
-        String result = hostname;
         // IP addresses are kept as-is, others are trimmed down.
-        if (!Constants.IP_KEY_REGEXP.matcher(hostname).matches()) {
-            Matcher matcher = TLD.getInstance().getHostnamePattern().matcher(hostname);
-            if (matcher.matches()) {
-                result = matcher.group(2);
-            }
+        if (PublicSuffixMatcher.isIpAddress(hostname)) {
+            return hostname;
         }
-        if (isValidDomainName(result)) {
-            return result;
+        int domainStart = TLD.getInstance().getSuffixMatcher().getDomainStart(hostname);
+        if (domainStart < 0) {
+            return null;
         }
-        return null;
+        return hostname.substring(domainStart);
     }
 
     /**
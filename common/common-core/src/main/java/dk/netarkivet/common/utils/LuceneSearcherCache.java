@@ -0,0 +1,293 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.exceptions.IllegalState;
+
+/**
+ * A JVM-wide cache of open Lucene indexes. Indexes are opened memory-mapped and shared between all users of the same
+ * index directory, so e.g. switching back to a recently used job set in the viewerproxy, or starting several crawls
+ * with the same deduplication index, does not pay the cost of opening the index again.
+ * <p>
+ * Users obtain a {@link Lease} with {@link #acquire(File)} and must close it when they are done with the searcher. An
+ * index is kept open as long as it is leased. When it is no longer leased it stays open until more than
+ * {@link CommonSettings#LUCENE_SEARCHER_CACHE_MAX_IDLE} unleased indexes are open, at which point the least recently
+ * used unleased indexes are closed.
+ * <p>
+ * An index directory is assumed not to change while it is open. If the directory has been replaced (its modification
+ * time has changed) when it is acquired again, a fresh searcher is opened, and the old one is closed when its last
+ * lease is closed.
+ */
+public final class LuceneSearcherCache {
+
+    /** The class logger. */
+    private static final Logger log = LoggerFactory.getLogger(LuceneSearcherCache.class);
+
+    /** The singleton instance. */
+    private static LuceneSearcherCache instance;
+
+    /** The number of unleased indexes to keep open. */
+    private final int maxIdle;
+
+    /** The open indexes by canonical index directory, in least recently used order. */
+    private final Map<File, OpenIndex> indexes = new LinkedHashMap<File, OpenIndex>(16, 0.75f, true);
+
+    /**
+     * Create a cache keeping at most the given number of unleased indexes open.
+     *
+     * @param maxIdle The number of unleased indexes to keep open.
+     * @throws ArgumentNotValid if maxIdle is negative.
+     */
+    LuceneSearcherCache(int maxIdle) {
+        ArgumentNotValid.checkNotNegative(maxIdle, "int maxIdle");
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Get the JVM-wide searcher cache, sized from the setting {@link CommonSettings#LUCENE_SEARCHER_CACHE_MAX_IDLE}.
+     *
+     * @return The searcher cache.
+     */
+    public static synchronized LuceneSearcherCache getInstance() {
+        if (instance == null) {
+            instance = new LuceneSearcherCache(Settings.getInt(CommonSettings.LUCENE_SEARCHER_CACHE_MAX_IDLE));
+        }
+        return instance;
+    }
+
+    /**
+     * Lease a searcher on the Lucene index in the given directory, opening the index if it is not already open.
+     *
+     * @param indexDir A directory containing a Lucene index.
+     * @return A lease on a searcher for the index. The lease must be closed when the searcher is no longer used.
+     * @throws ArgumentNotValid if indexDir is null or not a directory.
+     * @throws IOFailure if the index cannot be opened.
+     */
+    public synchronized Lease acquire(File indexDir) {
+        ArgumentNotValid.checkNotNull(indexDir, "File indexDir");
+        ArgumentNotValid.checkTrue(indexDir.isDirectory(), "indexDir '" + indexDir + "' should be a directory");
+        File key = getKey(indexDir);
+        OpenIndex index = indexes.get(key);
+        if (index != null && index.lastModified != key.lastModified()) {
+            log.info("Index '{}' has changed since it was opened, reopening it", key);
+            indexes.remove(key);
+            index.detached = true;
+            if (index.leases == 0) {
+                index.close();
+            }
+            index = null;
+        }
+        if (index == null) {
+            index = new OpenIndex(key);
+            indexes.put(key, index);
+            log.debug("Opened index '{}', {} indexes now open", key, indexes.size());
+        }
+        index.leases++;
+        return new Lease(index);
+    }
+
+    /**
+     * @return The number of indexes currently held open by this cache, leased or not.
+     */
+    public synchronized int getOpenIndexCount() {
+        return indexes.size();
+    }
+
+    /**
+     * Close all unleased indexes. Leased indexes are closed when their last lease is closed.
+     */
+    public synchronized void clear() {
+        Iterator<OpenIndex> it = indexes.values().iterator();
+        while (it.hasNext()) {
+            OpenIndex index = it.next();
+            it.remove();
+            index.detached = true;
+            if (index.leases == 0) {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Give back a lease on an index, closing indexes as needed to stay within the idle limit.
+     *
+     * @param index The index that was leased.
+     */
+    private synchronized void release(OpenIndex index) {
+        index.leases--;
+        if (index.leases > 0) {
+            return;
+        }
+        if (index.detached) {
+            index.close();
+            return;
+        }
+        int idle = 0;
+        for (OpenIndex i : indexes.values()) {
+            if (i.leases == 0) {
+                idle++;
+            }
+        }
+        // Iteration order is least recently used first.
+        Iterator<OpenIndex> it = indexes.values().iterator();
+        while (idle > maxIdle && it.hasNext()) {
+            OpenIndex candidate = it.next();
+            if (candidate.leases == 0) {
+                it.remove();
+                candidate.close();
+                idle--;
+            }
+        }
+    }
+
+    /**
+     * Get the key identifying an index directory.
+     *
+     * @param indexDir An index directory.
+     * @return The canonical form of the directory, or the absolute form if it cannot be canonicalised.
+     */
+    private static File getKey(File indexDir) {
+        try {
+            return indexDir.getCanonicalFile();
+        } catch (IOException e) {
+            log.debug("Could not canonicalise '{}'", indexDir, e);
+            return indexDir.getAbsoluteFile();
+        }
+    }
+
+    /** An index opened by the cache. All fields are guarded by the cache. */
+    private static final class OpenIndex {
+        /** The directory the index was read from. */
+        private final File indexDir;
+        /** The modification time of the directory when it was opened. */
+        private final long lastModified;
+        /** The memory-mapped Lucene directory. */
+        private final Directory directory;
+        /** The reader for the index. */
+        private final DirectoryReader reader;
+        /** The shared searcher. */
+        private final IndexSearcher searcher;
+        /** The number of open leases. */
+        private int leases;
+        /** True if the index is no longer in the cache and should be closed when its last lease is closed. */
+        private boolean detached;
+
+        /**
+         * Open an index.
+         *
+         * @param indexDir The canonical index directory.
+         * @throws IOFailure if the index cannot be opened.
+         */
+        private OpenIndex(File indexDir) {
+            this.indexDir = indexDir;
+            this.lastModified = indexDir.lastModified();
+            try {
+                directory = new MMapDirectory(indexDir);
+                reader = DirectoryReader.open(directory);
+            } catch (IOException e) {
+                throw new IOFailure("Unable to find/open index " + indexDir, e);
+            }
+            searcher = new IndexSearcher(reader);
+        }
+
+        /** Close the index, logging any problems. */
+        private void close() {
+            try {
+                reader.close();
+                directory.close();
+                log.debug("Closed index '{}'", indexDir);
+            } catch (IOException e) {
+                log.warn("Unable to close index '{}'", indexDir, e);
+            }
+        }
+    }
+
+    /**
+     * A lease on a shared searcher. The searcher must not be used after the lease is closed. Closing a lease more than
+     * once has no effect.
+     */
+    public final class Lease implements Closeable {
+        /** The leased index. */
+        private final OpenIndex index;
+        /** Whether this lease has been closed. */
+        private boolean closed;
+
+        /**
+         * Create a lease on an index whose lease count has already been incremented.
+         *
+         * @param index The leased index.
+         */
+        private Lease(OpenIndex index) {
+            this.index = index;
+        }
+
+        /**
+         * @return The shared searcher for the index.
+         * @throws IllegalState if the lease has been closed.
+         */
+        public IndexSearcher getSearcher() {
+            synchronized (LuceneSearcherCache.this) {
+                if (closed) {
+                    throw new IllegalState("Lease on index '" + index.indexDir + "' is closed");
+                }
+            }
+            return index.searcher;
+        }
+
+        /**
+         * @return The directory of the leased index.
+         */
+        public File getIndexDir() {
+            return index.indexDir;
+        }
+
+        @Override
+        public void close() {
+            synchronized (LuceneSearcherCache.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                release(index);
+            }
+        }
+    }
+
+}
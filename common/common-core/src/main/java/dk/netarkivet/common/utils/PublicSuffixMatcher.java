@@ -0,0 +1,222 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * Matches host names against a set of public suffixes (TLDs) using a trie of the reversed suffixes. Host names are
+ * matched by walking the trie from the last character of the host name, so a lookup allocates no objects and takes
+ * time proportional to the length of the host name, independent of the number of suffixes.
+ * <p>
+ * The matching is case sensitive and has the same semantics as the regular expressions in {@link TLD}: a domain is a
+ * single domain name part, consisting of the characters allowed by
+ * {@link DomainUtils#DOMAINNAME_CHAR_REGEX_STRING}, followed by a dot and a suffix.
+ */
+public final class PublicSuffixMatcher {
+
+    /** The root of the trie, corresponding to the empty suffix. */
+    private final Node root = new Node();
+
+    /**
+     * Create a matcher for the given suffixes.
+     *
+     * @param suffixes The suffixes without a leading dot, e.g. "dk" and "co.uk".
+     * @throws ArgumentNotValid if suffixes is null.
+     */
+    public PublicSuffixMatcher(Collection<String> suffixes) {
+        ArgumentNotValid.checkNotNull(suffixes, "Collection<String> suffixes");
+        for (String suffix : suffixes) {
+            Node node = root;
+            for (int i = suffix.length() - 1; i >= 0; i--) {
+                node = node.getOrAddChild(suffix.charAt(i));
+            }
+            node.isSuffix = true;
+        }
+    }
+
+    /**
+     * Find the domain of a host name: the longest postfix of the host name that consists of a domain name part
+     * followed by a dot and a suffix. This corresponds to group 2 of {@link TLD#getHostnamePattern()}.
+     *
+     * @param hostname A host name, e.g. news.bbc.co.uk.
+     * @return The index in the host name where the domain starts, or -1 if the host name has no domain.
+     */
+    public int getDomainStart(String hostname) {
+        int domainStart = -1;
+        Node node = root;
+        // A suffix starting at i must be preceded by a dot and a non-empty domain name part.
+        for (int i = hostname.length() - 1; i > 1; i--) {
+            node = node.getChild(hostname.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.isSuffix && hostname.charAt(i - 1) == '.') {
+                int labelStart = getLabelStart(hostname, i - 1);
+                if (labelStart >= 0) {
+                    domainStart = labelStart;
+                }
+            }
+        }
+        // The part of the host name before the domain is matched by '.*?', which does not match line terminators.
+        for (int i = 0; i < domainStart; i++) {
+            if (isLineTerminator(hostname.charAt(i))) {
+                return -1;
+            }
+        }
+        return domainStart;
+    }
+
+    /**
+     * Check whether a name is a domain: a domain name part followed by a dot and a suffix. IP addresses are not
+     * checked here.
+     *
+     * @param name A name, e.g. bbc.co.uk.
+     * @return true if the name is a domain.
+     */
+    public boolean isDomain(String name) {
+        int dot = name.indexOf('.');
+        if (dot <= 0 || getLabelStart(name, dot) != 0) {
+            return false;
+        }
+        Node node = root;
+        for (int i = name.length() - 1; i > dot; i--) {
+            node = node.getChild(name.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.isSuffix;
+    }
+
+    /**
+     * Check whether a name is an IP address as matched by {@link dk.netarkivet.common.Constants#IP_KEY_REGEXP}: four
+     * groups of one to three digits separated by dots.
+     *
+     * @param name A name.
+     * @return true if the name is an IP address.
+     */
+    public static boolean isIpAddress(String name) {
+        int groups = 0;
+        int digits = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) {
+                    return false;
+                }
+            } else if (c == '.' && digits > 0 && groups < 3) {
+                groups++;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        return groups == 3 && digits > 0;
+    }
+
+    /**
+     * Find the start of the domain name part that ends just before the given dot.
+     *
+     * @param name A name.
+     * @param dot The index of a dot in the name.
+     * @return The index of the first character of the domain name part, or -1 if the part is empty or contains
+     * characters not allowed in domain names.
+     */
+    private static int getLabelStart(String name, int dot) {
+        int start = dot;
+        while (start > 0 && name.charAt(start - 1) != '.') {
+            if (!isDomainNameChar(name.charAt(start - 1))) {
+                return -1;
+            }
+            start--;
+        }
+        return start < dot ? start : -1;
+    }
+
+    /**
+     * Check whether a character is allowed in a domain name part, as given by
+     * {@link DomainUtils#DOMAINNAME_CHAR_REGEX_STRING}: letters, digits and hyphen, and all non-ASCII characters.
+     *
+     * @param c A character.
+     * @return true if the character is allowed.
+     */
+    private static boolean isDomainNameChar(char c) {
+        return c > '\u007f' || c == '-' || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    /**
+     * Check whether a character is a line terminator, as used by '.' in regular expressions.
+     *
+     * @param c A character.
+     * @return true if the character is a line terminator.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** A node in the trie, with its children sorted by character. */
+    private static final class Node {
+        /** The characters leading to the children, sorted. */
+        private char[] chars = new char[0];
+        /** The children, in the order of chars. */
+        private Node[] children = new Node[0];
+        /** Whether the characters leading to this node form a suffix. */
+        private boolean isSuffix;
+
+        /**
+         * @param c A character.
+         * @return The child for the character, or null if there is none.
+         */
+        Node getChild(char c) {
+            int i = Arrays.binarySearch(chars, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        /**
+         * @param c A character.
+         * @return The child for the character, added if there was none.
+         */
+        Node getOrAddChild(char c) {
+            int i = Arrays.binarySearch(chars, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int insertAt = -i - 1;
+            char[] newChars = new char[chars.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(chars, 0, newChars, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newChars[insertAt] = c;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(chars, insertAt, newChars, insertAt + 1, chars.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            chars = newChars;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+    }
+}
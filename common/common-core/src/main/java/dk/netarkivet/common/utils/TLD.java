@@ -47,6 +47,9 @@ public class TLD {
      */
     private final Pattern VALID_DOMAIN_MATCHER;
 
+    /** Matcher for the TLDs, used instead of the regular expressions when looking up domains. */
+    private final PublicSuffixMatcher suffixMatcher;
+
     /**
      * GetInstance method for the TLD. Ensures singleton usage of the TLD class.
      * @return the current instance of the TLD class.
@@ -76,7 +79,7 @@ public class TLD {
 	
 	/**
 	 * Private constructor of the TLD class. This constructor reads the TLDs from both settings and public suffix file.
-	 * both quoted and unquoted. Sets the TLD_REGEX_STRING,HOSTNAME_REGEX, and  VALID_DOMAIN_MATCHER.
+	 * both quoted and unquoted. Sets the TLD_REGEX_STRING,HOSTNAME_REGEX, VALID_DOMAIN_MATCHER and the suffix matcher.
 	 */
 	private TLD() {	
 		tldListQuoted = new ArrayList<String>();
@@ -89,6 +92,7 @@ public class TLD {
 	            + TLD_REGEX_STRING + ")");
 		VALID_DOMAIN_MATCHER = Pattern.compile("^(" + Constants.IP_REGEX_STRING + "|"
 	    		+ DOMAINNAME_CHAR_REGEX_STRING + "+" + TLD_REGEX_STRING + ")$");
+		suffixMatcher = new PublicSuffixMatcher(tldList);
 	}
 	
 	/**
@@ -198,6 +202,13 @@ public class TLD {
 		return HOSTNAME_REGEX;
 	}
 	
+	/**
+	 * @return the matcher for the TLDs, with the same semantics as the HOSTNAME_REGEX and VALID_DOMAIN_MATCHER patterns.
+	 */
+	public PublicSuffixMatcher getSuffixMatcher() {
+		return suffixMatcher;
+	}
+	
 	/**
 	 * GetAllTlds method.
 	 * @param quoted do you want the quoted, or unquoted list.
@@ -49,7 +49,6 @@ import org.archive.util.ArchiveUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import dk.netarkivet.common.Constants;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.utils.InputStreamUtils;
@@ -248,16 +247,17 @@ public final class ARCUtils {
         // The arcreader has a number of "features" that complicates the read
         // 1) the record at offset 0, returns too large a length
         // 2) readfully does not work
-        // 3) ARCRecord.read(buf, offset, length) is broken.
         // TODO verify if these "features" are still around: See bugs #903, #904,
         // #905
+        // The data is read directly into the result array, so small records are not copied through an
+        // intermediate buffer.
         int dataLength = (int) in.getMetaData().getLength();
         byte[] tmpbuffer = new byte[dataLength];
-        byte[] buffer = new byte[Constants.IO_BUFFER_SIZE];
         int bytesRead;
         int totalBytes = 0;
-        for (; (totalBytes < dataLength) && ((bytesRead = in.read(buffer)) != -1); totalBytes += bytesRead) {
-            System.arraycopy(buffer, 0, tmpbuffer, totalBytes, bytesRead);
+        while ((totalBytes < dataLength)
+                && ((bytesRead = in.read(tmpbuffer, totalBytes, dataLength - totalBytes)) != -1)) {
+            totalBytes += bytesRead;
         }
         // Check if the number of bytes read (=i) matches the
         // size of the buffer.
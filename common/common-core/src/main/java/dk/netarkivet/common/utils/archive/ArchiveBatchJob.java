@@ -22,9 +22,13 @@
  */
 package dk.netarkivet.common.utils.archive;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.archive.io.ArchiveReader;
@@ -33,9 +37,12 @@ import org.archive.io.ArchiveRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.netarkivet.common.CommonSettings;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.NetarkivetException;
+import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.batch.ArchiveBatchFilter;
+import dk.netarkivet.common.utils.cdx.CDXRecord;
 
 /**
  * Abstract class defining a batch job to run on a set of ARC/WARC files. Each implementation is required to define
@@ -47,6 +54,9 @@ public abstract class ArchiveBatchJob extends ArchiveBatchJobBase {
 
     private static final Logger log = LoggerFactory.getLogger(ArchiveBatchJob.class);
 
+    /** The predicate on record headers restricting the records to process, or null if all records are processed. */
+    private ArchiveHeaderPredicate headerPredicate = null;
+
     /**
      * Exceptions should be handled with the handleException() method.
      *
@@ -65,6 +75,28 @@ public abstract class ArchiveBatchJob extends ArchiveBatchJobBase {
         return ArchiveBatchFilter.NO_FILTER;
     }
 
+    /**
+     * Restrict the records given to getFilter() and processRecord() to those whose header matches the given predicate.
+     * Unlike the filter, the predicate is declarative, so it is checked before the record is wrapped and, if the
+     * predicate has a URL pattern and a CDX file for the archive file is found in the directory given by the setting
+     * {@link CommonSettings#BATCH_CDX_DIR}, the matching records are read directly at their CDX offsets instead of
+     * reading the whole file.
+     *
+     * @param predicate The predicate on the record headers.
+     * @throws ArgumentNotValid if predicate is null.
+     */
+    public void processOnlyRecordsMatching(ArchiveHeaderPredicate predicate) {
+        ArgumentNotValid.checkNotNull(predicate, "ArchiveHeaderPredicate predicate");
+        headerPredicate = predicate;
+    }
+
+    /**
+     * @return The predicate restricting the records to process, or null if all records are processed.
+     */
+    public ArchiveHeaderPredicate getHeaderPredicate() {
+        return headerPredicate;
+    }
+
     /**
      * Accepts only arc(.gz) and warc(.gz) files. Runs through all records and calls processRecord() on every record
      * that is allowed by getFilter(). Does nothing on a non-(w)arc file.
@@ -80,21 +112,38 @@ public abstract class ArchiveBatchJob extends ArchiveBatchJobBase {
         long arcFileIndex = 0;
         boolean success = true;
         log.info("Processing archive file: {}", archiveFile.getName());
+        final ArchiveBatchFilter filter = getFilter();
+        if (headerPredicate != null && headerPredicate.hasUrlPattern()) {
+            long[] offsets = getOffsetsFromCDX(archiveFile);
+            if (offsets != null) {
+                return processRecordsAt(archiveFile, offsets, filter, os);
+            }
+        }
 
         try { // This outer try-catch block catches all unexpected exceptions
-              // Create an ArchiveReader and retrieve its Iterator:
-            ArchiveReader archiveReader = null;
-
-            try {
-                archiveReader = ArchiveReaderFactory.get(archiveFile);
-            } catch (IOException e) { // Some IOException
-                handleException(e, archiveFile, arcFileIndex);
+              // Create a reader and retrieve its Iterator:
+            Closeable archiveReader = null;
+            Iterator<? extends ArchiveRecord> it;
+            int readAhead = Settings.getInt(CommonSettings.BATCH_READ_AHEAD_RECORDS);
+            if (readAhead > 0 && PipelinedArchiveReader.canRead(archiveFile)) {
+                PipelinedArchiveReader pipelinedReader = new PipelinedArchiveReader(archiveFile, readAhead,
+                        Settings.getInt(CommonSettings.BATCH_READ_AHEAD_MAX_RECORD_SIZE),
+                        Settings.getLong(CommonSettings.BATCH_READ_AHEAD_MAX_BYTES));
+                archiveReader = pipelinedReader;
+                it = pipelinedReader;
+            } else {
+                try {
+                    ArchiveReader heritrixReader = ArchiveReaderFactory.get(archiveFile);
+                    archiveReader = heritrixReader;
+                    it = heritrixReader.iterator();
+                } catch (IOException e) { // Some IOException
+                    handleException(e, archiveFile, arcFileIndex);
 
-                return false; // Can't process file after exception
+                    return false; // Can't process file after exception
+                }
             }
 
             try {
-                Iterator<? extends ArchiveRecord> it = archiveReader.iterator();
                 /* Process all records from this Iterator: */
                 log.debug("Starting processing records in archive file '{}'.", archiveFile.getName());
                 if (!it.hasNext()) {
@@ -103,13 +152,18 @@ public abstract class ArchiveBatchJob extends ArchiveBatchJobBase {
                 ArchiveRecord archiveRecord = null;
                 ArchiveRecordBase record;
                 while (it.hasNext()) {
+                    if (hasEnoughResults()) {
+                        log.debug("Enough records processed, skipping the rest of archive file '{}'.",
+                                archiveFile.getName());
+                        break;
+                    }
                     log.trace("At begin of processing-loop");
                     // Get a record from the file
                     archiveRecord = (ArchiveRecord) it.next();
                     record = ArchiveRecordBase.wrapArchiveRecord(archiveRecord);
                     // Process with the job
                     try {
-                        if (!getFilter().accept(record)) {
+                        if (!acceptRecord(record, filter)) {
                             continue;
                         }
                         log.debug("Processing record #{} in archive file '{}'.", noOfRecordsProcessed,
@@ -171,4 +225,129 @@ public abstract class ArchiveBatchJob extends ArchiveBatchJobBase {
         return success;
     }
 
+    /**
+     * Check whether a record should be given to processRecord().
+     *
+     * @param record The record.
+     * @param filter The filter of the job.
+     * @return true if the header of the record matches the predicate of the job, if any, and the filter accepts it.
+     */
+    private boolean acceptRecord(ArchiveRecordBase record, ArchiveBatchFilter filter) {
+        if (headerPredicate != null && !headerPredicate.matches(record.getHeader())) {
+            return false;
+        }
+        return filter.accept(record);
+    }
+
+    /**
+     * Process the records at the given offsets in an archive file, opening the file at each offset.
+     *
+     * @param archiveFile The arc(.gz) or warc(.gz) file to be processed.
+     * @param offsets The offsets of the records, in increasing order.
+     * @param filter The filter of the job.
+     * @param os the OutputStream to which output is to be written
+     * @return true, if all the records were processed successfully, otherwise false
+     */
+    private boolean processRecordsAt(File archiveFile, long[] offsets, ArchiveBatchFilter filter, OutputStream os) {
+        log.debug("Processing {} records found in the CDX of archive file '{}'.", offsets.length,
+                archiveFile.getName());
+        boolean success = true;
+        for (long offset : offsets) {
+            if (hasEnoughResults()) {
+                log.debug("Enough records processed, skipping the rest of archive file '{}'.", archiveFile.getName());
+                break;
+            }
+            ArchiveReader archiveReader = null;
+            try {
+                archiveReader = ArchiveReaderFactory.get(archiveFile, offset);
+                ArchiveRecord archiveRecord = archiveReader.get();
+                ArchiveRecordBase record = ArchiveRecordBase.wrapArchiveRecord(archiveRecord);
+                if (acceptRecord(record, filter)) {
+                    processRecord(record, os);
+                    ++noOfRecordsProcessed;
+                }
+                archiveRecord.close();
+            } catch (NetarkivetException e) {
+                success = false;
+                handleOurException(e, archiveFile, offset);
+            } catch (Exception e) {
+                // As each record is read from its own offset, we can go on with the next one
+                success = false;
+                handleException(e, archiveFile, offset);
+            } finally {
+                if (archiveReader != null) {
+                    try {
+                        archiveReader.close();
+                    } catch (IOException e) {
+                        handleException(e, archiveFile, offset);
+                    }
+                }
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Find the offsets of the records matching the URL pattern of the header predicate, using a CDX file for the
+     * archive file. The CDX file must be named as the archive file with the extension .cdx, and be placed in the
+     * directory given by the setting {@link CommonSettings#BATCH_CDX_DIR}. It must list every record of the archive
+     * file which the job could be interested in, and be at least as new as the archive file.
+     *
+     * @param archiveFile The archive file.
+     * @return The offsets of the matching records in increasing order, or null if no usable CDX file is found.
+     */
+    private long[] getOffsetsFromCDX(File archiveFile) {
+        String cdxDir = Settings.get(CommonSettings.BATCH_CDX_DIR);
+        if (cdxDir.isEmpty()) {
+            return null;
+        }
+        File cdxFile = new File(cdxDir, archiveFile.getName() + ".cdx");
+        if (!cdxFile.isFile() || cdxFile.lastModified() < archiveFile.lastModified()) {
+            log.debug("No current CDX file '{}' for archive file '{}'.", cdxFile, archiveFile.getName());
+            return null;
+        }
+        long[] offsets = new long[16];
+        int count = 0;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(cdxFile));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty() || line.startsWith(" CDX")) {
+                    continue;
+                }
+                CDXRecord cdxRecord = new CDXRecord(line);
+                if (headerPredicate.matchesUrl(cdxRecord.getURL())) {
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    offsets[count++] = cdxRecord.getOffset();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read CDX file '{}', reading all of archive file '{}'.", cdxFile,
+                    archiveFile.getName(), e);
+            return null;
+        } catch (ArgumentNotValid e) {
+            log.warn("Invalid line in CDX file '{}', reading all of archive file '{}'.", cdxFile,
+                    archiveFile.getName(), e);
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close CDX file '{}'.", cdxFile, e);
+                }
+            }
+        }
+        Arrays.sort(offsets, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || offsets[i] != offsets[distinct - 1]) {
+                offsets[distinct++] = offsets[i];
+            }
+        }
+        return Arrays.copyOf(offsets, distinct);
+    }
+
 }
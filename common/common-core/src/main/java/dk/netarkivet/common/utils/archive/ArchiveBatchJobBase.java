@@ -41,6 +41,9 @@ public abstract class ArchiveBatchJobBase extends FileBatchJob {
     /** The total number of records processed. */
     protected int noOfRecordsProcessed = 0;
 
+    /** The maximum number of records to process, or 0 if there is no limit. */
+    private long maxResults = 0;
+
     /**
      * Initialize the job before running. This is called before the processRecord() calls start coming.
      *
@@ -100,6 +103,35 @@ public abstract class ArchiveBatchJobBase extends FileBatchJob {
         return exceptionList;
     }
 
+    /**
+     * Limit the number of records given to processRecord(). Once the limit is reached, the rest of the current file
+     * and the remaining files are skipped. The limit applies to each bitarchive the job runs on.
+     *
+     * @param maxResults The maximum number of records to process.
+     * @throws ArgumentNotValid if maxResults is not positive.
+     */
+    public void setMaxResults(long maxResults) {
+        ArgumentNotValid.checkPositive(maxResults, "long maxResults");
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * @return The maximum number of records to process, or 0 if there is no limit.
+     */
+    public long getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Check whether the maximum number of records has been processed.
+     *
+     * @return true if there is a limit on the number of records, and it has been reached.
+     */
+    @Override
+    public boolean hasEnoughResults() {
+        return maxResults > 0 && noOfRecordsProcessed >= maxResults;
+    }
+
     /**
      * Returns the number of records processed.
      *
@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.archive;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ * A declarative predicate on the header fields of archive records. Unlike an
+ * {@link dk.netarkivet.common.utils.batch.ArchiveBatchFilter}, the predicate only looks at the URL and mimetype of
+ * the record header, so it can be evaluated before the payload of a record is read, and the URL part can be evaluated
+ * on the entries of a CDX file to find the records of interest without reading the archive file.
+ */
+@SuppressWarnings({"serial"})
+public class ArchiveHeaderPredicate implements Serializable {
+
+    /** The pattern the URL of a record must match, or null if any URL is accepted. */
+    private final Pattern urlPattern;
+
+    /** The pattern the mimetype of a record must match, or null if any mimetype is accepted. */
+    private final Pattern mimetypePattern;
+
+    /**
+     * Create a predicate on the URL and mimetype of records.
+     *
+     * @param urlPattern A pattern the whole URL of a record must match, or null if any URL is accepted.
+     * @param mimetypePattern A pattern the whole mimetype of a record must match, or null if any mimetype is accepted.
+     */
+    public ArchiveHeaderPredicate(Pattern urlPattern, Pattern mimetypePattern) {
+        this.urlPattern = urlPattern;
+        this.mimetypePattern = mimetypePattern;
+    }
+
+    /**
+     * Check whether a record header matches the predicate. Records without a URL, such as warcinfo records, only match
+     * a predicate without a URL pattern.
+     *
+     * @param header The header of a record.
+     * @return true if the header matches.
+     */
+    public boolean matches(ArchiveHeaderBase header) {
+        if (!matchesUrl(header.getUrl())) {
+            return false;
+        }
+        if (mimetypePattern == null) {
+            return true;
+        }
+        String mimetype = header.getMimetype();
+        return mimetype != null && mimetypePattern.matcher(mimetype).matches();
+    }
+
+    /**
+     * Check whether a URL matches the URL part of the predicate.
+     *
+     * @param url The URL of a record, possibly null.
+     * @return true if the predicate has no URL pattern, or the URL matches it.
+     */
+    public boolean matchesUrl(String url) {
+        if (urlPattern == null) {
+            return true;
+        }
+        return url != null && urlPattern.matcher(url).matches();
+    }
+
+    /**
+     * @return true if the predicate restricts the URL of the records, so a CDX file can be used to find them.
+     */
+    public boolean hasUrlPattern() {
+        return urlPattern != null;
+    }
+
+    /**
+     * Human readable representation of the predicate.
+     *
+     * @return The patterns of the predicate.
+     */
+    @Override
+    public String toString() {
+        return "ArchiveHeaderPredicate(url = " + urlPattern + ", mimetype = " + mimetypePattern + ")";
+    }
+
+}
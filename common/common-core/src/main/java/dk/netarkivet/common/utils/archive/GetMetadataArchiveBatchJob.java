@@ -51,11 +51,13 @@ public class GetMetadataArchiveBatchJob extends ArchiveBatchJob {
      * @param urlMatcher A pattern for matching URLs of the desired entries. If null, a .* pattern will be used.
      * @param mimeMatcher A pattern for matching mime-types of the desired entries. If null, a .* pattern will be used.
      * <p>
-     * The batchJobTimeout is set to one day.
+     * The batchJobTimeout is set to one day. The records are restricted to those matching the patterns before they are
+     * processed, see {@link #processOnlyRecordsMatching(ArchiveHeaderPredicate)}.
      */
     public GetMetadataArchiveBatchJob(Pattern urlMatcher, Pattern mimeMatcher) {
         this.urlMatcher = urlMatcher;
         this.mimeMatcher = mimeMatcher;
+        processOnlyRecordsMatching(new ArchiveHeaderPredicate(urlMatcher, mimeMatcher));
 
         batchJobTimeout = Constants.ONE_DAY_IN_MILLIES;
     }
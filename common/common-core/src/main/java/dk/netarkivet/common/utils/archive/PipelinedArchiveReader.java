@@ -0,0 +1,490 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.archive.io.ArchiveReader;
+import org.archive.io.ArchiveReaderFactory;
+import org.archive.io.ArchiveRecord;
+import org.archive.io.arc.ARCRecord;
+import org.archive.io.warc.WARCRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * Reads the records of a compressed ARC or WARC file with one gzip member per record, inflating the members on a
+ * separate thread ahead of the records being processed. The records are returned in the order of the file, with the
+ * same headers and offsets as when read with an {@link ArchiveReader}.
+ * <p>
+ * The gzip format does not record the length of a member, so the end of a member is only known after inflating it.
+ * The members are therefore inflated one after another by a single thread, which allows the inflation of a file to run
+ * in parallel with the processing of its records, but not with itself. A record larger than the given maximum size is
+ * not kept in memory, but read again from its offset in the file when it is reached. The records inflated ahead are
+ * limited both in number and in total size, but one record is always inflated ahead, whatever its size.
+ * <p>
+ * The reader must be closed after use to stop the inflating thread.
+ */
+public class PipelinedArchiveReader implements Iterator<ArchiveRecord>, Closeable {
+
+    /** The logger for this class. */
+    private static final Logger log = LoggerFactory.getLogger(PipelinedArchiveReader.class);
+
+    /** The size of the buffer used when reading the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The gzip compression method and header flags, see RFC 1952. */
+    private static final int DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /** Marks the end of the file in the queue of members. */
+    private static final Member END = new Member(-1, null, 0, null);
+
+    /** The file being read. */
+    private final File archiveFile;
+    /** The identifier given to the records, the same as an ArchiveReader gives them. */
+    private final String identifier;
+    /** True if the file is a WARC file, false if it is an ARC file. */
+    private final boolean isWarc;
+    /** The largest inflated record kept in memory. */
+    private final int maxRecordSize;
+    /** The largest total inflated size of the records kept in memory ahead of the one being returned. */
+    private final long maxBufferedBytes;
+    /** The inflated members not yet returned. */
+    private final BlockingQueue<Member> queue;
+    /** The total size of the inflated members in the queue, guarded by the queue. */
+    private long bufferedBytes = 0;
+    /** The thread inflating the members. */
+    private final Thread inflatingThread;
+
+    /** Set when the reader is closed, to stop the inflating thread. */
+    private volatile boolean closed = false;
+    /** The member to be returned by the next call to next(), if already taken from the queue. */
+    private Member nextMember = null;
+    /** True when the end of the file has been taken from the queue. */
+    private boolean atEnd = false;
+    /** The reader used for the current record, if it was too large to be kept in memory. */
+    private ArchiveReader directReader = null;
+
+    /**
+     * Create a reader, and start inflating the records of the file.
+     *
+     * @param archiveFile A compressed ARC or WARC file, see {@link #canRead(File)}.
+     * @param readAhead The number of records to inflate ahead of the one being returned.
+     * @param maxRecordSize The largest inflated size of a record kept in memory.
+     * @param maxBufferedBytes The largest total inflated size of the records inflated ahead of the one being
+     * returned.
+     * @throws ArgumentNotValid if the file cannot be read by this reader or if readAhead, maxRecordSize or
+     * maxBufferedBytes is not positive.
+     */
+    public PipelinedArchiveReader(File archiveFile, int readAhead, int maxRecordSize, long maxBufferedBytes) {
+        ArgumentNotValid.checkNotNull(archiveFile, "File archiveFile");
+        ArgumentNotValid.checkTrue(canRead(archiveFile), "File '" + archiveFile
+                + "' must be a compressed arc or warc file");
+        ArgumentNotValid.checkPositive(readAhead, "int readAhead");
+        ArgumentNotValid.checkPositive(maxRecordSize, "int maxRecordSize");
+        ArgumentNotValid.checkPositive(maxBufferedBytes, "long maxBufferedBytes");
+        this.archiveFile = archiveFile;
+        this.identifier = archiveFile.getAbsolutePath();
+        this.isWarc = archiveFile.getName().toLowerCase().endsWith(".warc.gz");
+        this.maxRecordSize = maxRecordSize;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.queue = new ArrayBlockingQueue<Member>(readAhead);
+        this.inflatingThread = new Thread(new Runnable() {
+            public void run() {
+                inflateMembers();
+            }
+        }, "Inflating " + archiveFile.getName());
+        inflatingThread.setDaemon(true);
+        inflatingThread.start();
+    }
+
+    /**
+     * Check whether a file can be read by this reader. Only the extension of the file is checked.
+     *
+     * @param archiveFile A file.
+     * @return true if the file is named as a compressed ARC or WARC file.
+     */
+    public static boolean canRead(File archiveFile) {
+        String name = archiveFile.getName().toLowerCase();
+        return name.endsWith(".arc.gz") || name.endsWith(".warc.gz");
+    }
+
+    /**
+     * @return true if there are more records in the file.
+     * @throws IOFailure if the file could not be read up to the next record.
+     */
+    public boolean hasNext() {
+        if (nextMember == null && !atEnd) {
+            Member member;
+            try {
+                member = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOFailure("Interrupted while reading '" + archiveFile + "'", e);
+            }
+            release(member);
+            if (member == END) {
+                atEnd = true;
+            } else if (member.error != null) {
+                atEnd = true;
+                throw new IOFailure("Error reading '" + archiveFile + "' at offset " + member.offset, member.error);
+            } else {
+                nextMember = member;
+            }
+        }
+        return nextMember != null;
+    }
+
+    /**
+     * @return The next record of the file. It is only valid until next() is called again or the reader is closed.
+     * @throws NoSuchElementException if there are no more records.
+     * @throws IOFailure if the record could not be read.
+     */
+    public ArchiveRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more records in '" + archiveFile + "'");
+        }
+        Member member = nextMember;
+        nextMember = null;
+        closeDirectReader();
+        try {
+            if (member.data == null) {
+                log.debug("Reading record at offset {} of '{}' directly, as it is larger than {} bytes.",
+                        member.offset, archiveFile.getName(), maxRecordSize);
+                directReader = ArchiveReaderFactory.get(archiveFile, member.offset);
+                return directReader.get();
+            }
+            InputStream in = new ByteArrayInputStream(member.data, 0, member.length);
+            if (isWarc) {
+                return new WARCRecord(in, identifier, member.offset, true, false);
+            } else {
+                return new ARCRecord(in, identifier, member.offset, true, false, true, true, null);
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Error reading record at offset " + member.offset + " of '" + archiveFile + "'", e);
+        }
+    }
+
+    /**
+     * Stop inflating the file and release the records not yet returned.
+     */
+    public void close() {
+        closed = true;
+        inflatingThread.interrupt();
+        queue.clear();
+        nextMember = null;
+        atEnd = true;
+        closeDirectReader();
+    }
+
+    /**
+     * Close the reader used for the current record, if any.
+     */
+    private void closeDirectReader() {
+        if (directReader != null) {
+            try {
+                directReader.close();
+            } catch (IOException e) {
+                log.debug("Error closing reader of '{}'", archiveFile, e);
+            }
+            directReader = null;
+        }
+    }
+
+    /**
+     * Inflate the members of the file and put them on the queue, followed by END or a member with an error.
+     */
+    private void inflateMembers() {
+        try {
+            try {
+                MemberInflater inflater = new MemberInflater(new FileInputStream(archiveFile));
+                try {
+                    Member member;
+                    while (!closed && (member = inflater.inflateNextMember()) != null) {
+                        reserve(member);
+                        queue.put(member);
+                    }
+                } finally {
+                    inflater.close();
+                }
+                queue.put(END);
+            } catch (IOException e) {
+                queue.put(new Member(-1, null, 0, e));
+            }
+        } catch (InterruptedException e) {
+            log.debug("Stopped inflating '{}'", archiveFile);
+        }
+    }
+
+    /**
+     * Wait until there is room for an inflated member among the members inflated ahead. There is always room for a
+     * member when no other members are waiting to be returned.
+     *
+     * @param member A member about to be put on the queue.
+     * @throws InterruptedException if the reader is closed while waiting.
+     */
+    private void reserve(Member member) throws InterruptedException {
+        synchronized (queue) {
+            while (bufferedBytes > 0 && bufferedBytes + member.size() > maxBufferedBytes) {
+                queue.wait();
+            }
+            bufferedBytes += member.size();
+        }
+    }
+
+    /**
+     * Make the room used by a member taken from the queue available for inflating more members.
+     *
+     * @param member A member taken from the queue.
+     */
+    private void release(Member member) {
+        synchronized (queue) {
+            bufferedBytes -= member.size();
+            queue.notifyAll();
+        }
+    }
+
+    /**
+     * An inflated gzip member of the file.
+     */
+    private static class Member {
+        /** The offset of the member in the file. */
+        final long offset;
+        /** The inflated member, or null if it is too large to keep in memory. */
+        final byte[] data;
+        /** The number of bytes of data used. */
+        final int length;
+        /** The error which stopped the inflation, if any. */
+        final IOException error;
+
+        Member(long offset, byte[] data, int length, IOException error) {
+            this.offset = offset;
+            this.data = data;
+            this.length = length;
+            this.error = error;
+        }
+
+        /**
+         * @return The number of bytes of memory held by the member.
+         */
+        long size() {
+            return data == null ? 0 : data.length;
+        }
+    }
+
+    /**
+     * Inflates the gzip members of a stream one by one, keeping track of their offsets.
+     */
+    private class MemberInflater implements Closeable {
+        /** The stream being read. */
+        private final InputStream in;
+        /** The buffer of bytes read from the stream. */
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        /** The offset in the stream of the start of the buffer. */
+        private long bufferOffset = 0;
+        /** The next unused position in the buffer. */
+        private int pos = 0;
+        /** The number of bytes in the buffer. */
+        private int limit = 0;
+        /** The inflater, reused for all the members. */
+        private final Inflater inflater = new Inflater(true);
+        /** The checksum of the inflated member. */
+        private final CRC32 crc = new CRC32();
+        /** Buffer for the output of members too large to keep in memory. */
+        private byte[] discardBuffer;
+
+        MemberInflater(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Inflate the next member of the stream.
+         *
+         * @return The inflated member, or null at the end of the stream.
+         * @throws IOException if the stream could not be read or is not a sequence of gzip members.
+         */
+        Member inflateNextMember() throws IOException {
+            long offset = bufferOffset + pos;
+            int b = read();
+            if (b == -1) {
+                return null;
+            }
+            if (b != 0x1f || readByte() != 0x8b || readByte() != DEFLATE) {
+                throw new IOException("No gzip member at offset " + offset);
+            }
+            int flags = readByte();
+            skip(6); // Modification time, extra flags and operating system
+            if ((flags & FEXTRA) != 0) {
+                skip(readByte() | (readByte() << 8));
+            }
+            if ((flags & FNAME) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FCOMMENT) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FHCRC) != 0) {
+                skip(2);
+            }
+
+            inflater.reset();
+            crc.reset();
+            byte[] data = new byte[Math.min(BUFFER_SIZE, maxRecordSize)];
+            int length = 0;
+            long totalLength = 0;
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        if (pos == limit && !fill()) {
+                            throw new IOException("Unexpected end of gzip member at offset " + offset);
+                        }
+                        inflater.setInput(buffer, pos, limit - pos);
+                        pos = limit;
+                    }
+                    if (data != null && length == data.length) {
+                        if (length < maxRecordSize) {
+                            byte[] larger = new byte[(int) Math.min(2L * length, maxRecordSize)];
+                            System.arraycopy(data, 0, larger, 0, length);
+                            data = larger;
+                        } else {
+                            data = null;
+                            if (discardBuffer == null) {
+                                discardBuffer = new byte[BUFFER_SIZE];
+                            }
+                        }
+                    }
+                    int inflated;
+                    if (data != null) {
+                        inflated = inflater.inflate(data, length, data.length - length);
+                        crc.update(data, length, inflated);
+                        length += inflated;
+                    } else {
+                        inflated = inflater.inflate(discardBuffer);
+                        crc.update(discardBuffer, 0, inflated);
+                    }
+                    totalLength += inflated;
+                    if (inflated == 0 && inflater.needsDictionary()) {
+                        throw new IOException("Unsupported gzip member at offset " + offset);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt gzip member at offset " + offset, e);
+            }
+            pos = limit - inflater.getRemaining();
+
+            long checksum = readInt();
+            long size = readInt();
+            if (checksum != crc.getValue() || size != (totalLength & 0xffffffffL)) {
+                throw new IOException("Checksum error in gzip member at offset " + offset);
+            }
+            return new Member(offset, data, length, null);
+        }
+
+        /**
+         * @return The next byte of the stream, or -1 at the end of the stream.
+         */
+        private int read() throws IOException {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            return buffer[pos++] & 0xff;
+        }
+
+        /**
+         * @return The next byte of the stream.
+         * @throws IOException at the end of the stream.
+         */
+        private int readByte() throws IOException {
+            int b = read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of gzip member at offset " + (bufferOffset + pos));
+            }
+            return b;
+        }
+
+        /**
+         * @return The next four bytes of the stream as an unsigned little-endian integer.
+         */
+        private long readInt() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= ((long) readByte()) << (8 * i);
+            }
+            return value;
+        }
+
+        private void skip(int n) throws IOException {
+            for (int i = 0; i < n; i++) {
+                readByte();
+            }
+        }
+
+        private void skipZeroTerminated() throws IOException {
+            while (readByte() != 0) {
+                // Skip the byte
+            }
+        }
+
+        /**
+         * Read more bytes into the buffer, discarding the bytes in it.
+         *
+         * @return false at the end of the stream.
+         */
+        private boolean fill() throws IOException {
+            bufferOffset += limit;
+            pos = 0;
+            limit = 0;
+            int read = in.read(buffer);
+            if (read <= 0) {
+                return false;
+            }
+            limit = read;
+            return true;
+        }
+
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+    }
+
+}
@@ -90,8 +90,13 @@ public class BatchLocalFiles {
             startTime = new Date().getTime();
             // Process each file:
             for (File file : files) {
+                if (job.hasEnoughResults()) {
+                    log.info("The batchjob '{}' has enough results after {} out of {} files, skipping the rest",
+                            job.getClass(), fileCount, files.length);
+                    break;
+                }
                 fileCount++;
-                if (job.getFilenamePattern().matcher(file.getName()).matches()) {
+                if (job.matchesFilename(file.getName())) {
                     long currentTime = new Date().getTime();
                     // perform logging if necessary.
                     if (lastLoggingDate + logInterval < currentTime) {
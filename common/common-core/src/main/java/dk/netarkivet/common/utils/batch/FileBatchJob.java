@@ -28,6 +28,7 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -60,6 +61,18 @@ public abstract class FileBatchJob implements Serializable {
      */
     private Pattern filesToProcess = Pattern.compile(EVERYTHING_REGEXP);
 
+    /**
+     * The exact names of the files to process with this job, or null if the files are only given by the pattern. Lets
+     * the files be looked up directly instead of matching the pattern against every filename.
+     */
+    private Set<String> filenamesToProcess = null;
+
+    /**
+     * The IDs of the jobs whose files this job should process, or null if all files matching the pattern should be
+     * processed. See {@link #processOnlyFilesOfJobs(Collection)}.
+     */
+    private Set<Long> jobIdsToProcess = null;
+
     /** The total number of files processed (including any that generated errors). */
     protected int noOfFilesProcessed = 0;
 
@@ -114,6 +127,7 @@ public abstract class FileBatchJob implements Serializable {
                 quoted.add(Pattern.quote(name));
             }
             processOnlyFilesMatching(quoted);
+            filenamesToProcess = new HashSet<String>(specifiedFilenames);
         } else {
             processOnlyFilesMatching(EVERYTHING_REGEXP);
         }
@@ -128,6 +142,7 @@ public abstract class FileBatchJob implements Serializable {
     public void processOnlyFileNamed(String specifiedFilename) {
         ArgumentNotValid.checkNotNullOrEmpty(specifiedFilename, "specificedFilename");
         processOnlyFilesMatching(Pattern.quote(specifiedFilename));
+        filenamesToProcess = Collections.singleton(specifiedFilename);
     }
 
     /**
@@ -151,6 +166,93 @@ public abstract class FileBatchJob implements Serializable {
     public void processOnlyFilesMatching(String specifiedPattern) {
         ArgumentNotValid.checkNotNullOrEmpty(specifiedPattern, "specificedPattern");
         filesToProcess = Pattern.compile(specifiedPattern);
+        filenamesToProcess = null;
+        jobIdsToProcess = null;
+    }
+
+    /**
+     * Restrict the files selected by the current filename pattern to the files of the given harvest jobs. A file
+     * belongs to the job given by the job ID field of its name, see {@link #getJobIdOfFilename(String)}. Setting the
+     * pattern afterwards removes this restriction.
+     * <p>
+     * This lets the archive look up the files of the jobs directly instead of matching the pattern against every
+     * filename.
+     *
+     * @param jobIds The IDs of the jobs whose files should be processed.
+     * @throws ArgumentNotValid if jobIds is null or empty.
+     */
+    public void processOnlyFilesOfJobs(Collection<Long> jobIds) {
+        ArgumentNotValid.checkNotNullOrEmpty(jobIds, "Collection<Long> jobIds");
+        jobIdsToProcess = new HashSet<Long>(jobIds);
+    }
+
+    /**
+     * Check whether a file should be processed by this job. This is the case if the name matches the filename
+     * pattern, and is among the names or belongs to one of the jobs the job has been restricted to, if any.
+     *
+     * @param filename The name of a file, without path.
+     * @return true if the file should be processed by this job.
+     */
+    public boolean matchesFilename(String filename) {
+        ArgumentNotValid.checkNotNull(filename, "String filename");
+        if (filenamesToProcess != null && !filenamesToProcess.contains(filename)) {
+            return false;
+        }
+        if (jobIdsToProcess != null && !belongsToJobs(filename)) {
+            return false;
+        }
+        return filesToProcess.matcher(filename).matches();
+    }
+
+    /**
+     * Check whether a file belongs to one of the jobs this job has been restricted to.
+     *
+     * @param filename The name of a file, without path.
+     * @return true if the job ID field of the filename is one of the job IDs.
+     */
+    private boolean belongsToJobs(String filename) {
+        Long jobId = getJobIdOfFilename(filename);
+        return jobId != null && jobIdsToProcess.contains(jobId);
+    }
+
+    /**
+     * Get the ID of the harvest job a file belongs to from its name. Files written by NetarchiveSuite are named
+     * starting with the job ID, e.g. 42-117-20051212141240-00000-host.arc or 42-metadata-1.warc, possibly after a
+     * collection prefix, e.g. netarkivet-42-117-20051212141240-00000-host.warc. The job ID is therefore the first
+     * numeric '-'-separated part of the name. Later parts, such as the harvest ID, timestamps and serial numbers, are
+     * not job IDs.
+     *
+     * @param filename The name of a file, without path.
+     * @return The job ID, or null if no part of the name is a number.
+     * @throws ArgumentNotValid if filename is null.
+     */
+    public static Long getJobIdOfFilename(String filename) {
+        ArgumentNotValid.checkNotNull(filename, "String filename");
+        // The last part ends with the file extension, so only the parts followed by a '-' are checked.
+        int start = 0;
+        int end;
+        while ((end = filename.indexOf('-', start)) >= 0) {
+            if (end > start && end - start <= 18 && isDigits(filename, start, end)) {
+                return Long.valueOf(filename.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * @param s A string.
+     * @param start The index of the first character to check.
+     * @param end The index after the last character to check.
+     * @return true if all the characters from start to end are digits.
+     */
+    private static boolean isDigits(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -162,6 +264,35 @@ public abstract class FileBatchJob implements Serializable {
         return filesToProcess;
     }
 
+    /**
+     * Check whether the job already has all the results it needs, so the remaining files need not be processed. The
+     * batch runner checks this before each file.
+     *
+     * @return false, as a job by default processes all files. Jobs with a limit on the number of results override
+     * this.
+     */
+    public boolean hasEnoughResults() {
+        return false;
+    }
+
+    /**
+     * Get the exact names of the files that should be processed, if the job has been given them.
+     *
+     * @return The names of the files to process, or null if the files are only given by the filename pattern.
+     */
+    public Set<String> getFilenamesToProcess() {
+        return filenamesToProcess == null ? null : Collections.unmodifiableSet(filenamesToProcess);
+    }
+
+    /**
+     * Get the IDs of the jobs whose files should be processed, if the job has been restricted to these.
+     *
+     * @return The job IDs, or null if all files matching the filename pattern should be processed.
+     */
+    public Set<Long> getJobIdsToProcess() {
+        return jobIdsToProcess == null ? null : Collections.unmodifiableSet(jobIdsToProcess);
+    }
+
     /**
      * Return the number of files processed in this job.
      *
@@ -0,0 +1,328 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.cdx;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * Reads CDX files written by {@link BlockCDXWriter}. The index of the blocks is read when the reader is created, and
+ * each lookup only decompresses the blocks which may contain matching lines, normally a single block.
+ */
+public class BlockCDXReader {
+
+    /** The logger for this class. */
+    private static final Logger log = LoggerFactory.getLogger(BlockCDXReader.class);
+
+    /** The block file. */
+    private final File blockFile;
+    /** The first line of each block. */
+    private final String[] firstLines;
+    /** The offset of each block in the block file. */
+    private final long[] offsets;
+    /** The compressed length of each block. */
+    private final int[] lengths;
+
+    /**
+     * Create a reader of a block file, reading its index.
+     *
+     * @param blockFile A block file written by BlockCDXWriter.
+     * @throws ArgumentNotValid if blockFile is null.
+     * @throws IOFailure if the block file or its index file cannot be read, or the index file is malformed.
+     */
+    public BlockCDXReader(File blockFile) {
+        ArgumentNotValid.checkNotNull(blockFile, "File blockFile");
+        if (!isBlockCDXFile(blockFile)) {
+            throw new IOFailure("Can't find block CDX file '" + blockFile.getAbsolutePath() + "' and its index");
+        }
+        this.blockFile = blockFile;
+        List<String> lines = new ArrayList<String>();
+        List<Long> blockOffsets = new ArrayList<Long>();
+        List<Integer> blockLengths = new ArrayList<Integer>();
+        File indexFile = BlockCDXWriter.getIndexFile(blockFile);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+                    BlockCDXWriter.CHARSET));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int lengthStart = line.lastIndexOf(BlockCDXWriter.INDEX_SEPARATOR);
+                    int offsetStart = line.lastIndexOf(BlockCDXWriter.INDEX_SEPARATOR, lengthStart - 1);
+                    if (offsetStart < 0) {
+                        throw new IOFailure("Malformed line in block cdx index '" + indexFile + "': " + line);
+                    }
+                    lines.add(line.substring(0, offsetStart));
+                    blockOffsets.add(Long.parseLong(line.substring(offsetStart + 1, lengthStart)));
+                    blockLengths.add(Integer.parseInt(line.substring(lengthStart + 1)));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Could not read block cdx index '" + indexFile + "'", e);
+        } catch (NumberFormatException e) {
+            throw new IOFailure("Malformed block cdx index '" + indexFile + "'", e);
+        }
+        firstLines = lines.toArray(new String[lines.size()]);
+        offsets = new long[blockOffsets.size()];
+        lengths = new int[blockLengths.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = blockOffsets.get(i);
+            lengths[i] = blockLengths.get(i);
+        }
+        log.debug("Read index of {} blocks of block cdx file '{}'", firstLines.length, blockFile);
+    }
+
+    /**
+     * Check whether a file is a block CDX file, that is whether it exists together with its index file.
+     *
+     * @param file A file.
+     * @return true if the file and its index file can be read.
+     */
+    public static boolean isBlockCDXFile(File file) {
+        File indexFile = BlockCDXWriter.getIndexFile(file);
+        return file.isFile() && file.canRead() && indexFile.isFile() && indexFile.canRead();
+    }
+
+    /**
+     * @return The number of blocks in the file.
+     */
+    public int getBlockCount() {
+        return firstLines.length;
+    }
+
+    /**
+     * Find the lines starting with a given prefix, in the same way as {@link BinSearch#getLinesInFile(File, String)}.
+     * The blocks are read lazily when iterating.
+     *
+     * @param prefix The line prefix to search for.
+     * @return An Iterable returning the lines starting with the prefix in sorted order.
+     * @throws ArgumentNotValid if prefix is null.
+     */
+    public Iterable<String> getLinesInFile(final String prefix) {
+        ArgumentNotValid.checkNotNull(prefix, "String prefix");
+        final int firstBlock = findFirstBlock(prefix);
+        if (firstBlock == -1) {
+            return Collections.emptyList();
+        }
+        return new Iterable<String>() {
+            public Iterator<String> iterator() {
+                return new PrefixIterator(firstBlock, prefix);
+            }
+        };
+    }
+
+    /**
+     * Find the records for URLs starting with a given prefix, which are accepted by all the given filters. Lines which
+     * are not valid CDX records are skipped.
+     *
+     * @param prefix The URL prefix to search for.
+     * @param filters The filters the records must be accepted by.
+     * @return An iterator of the matching records in sorted order.
+     * @throws ArgumentNotValid if either argument is null.
+     */
+    public Iterator<CDXRecord> getRecords(String prefix, final Collection<CDXRecordFilter> filters) {
+        ArgumentNotValid.checkNotNull(filters, "Collection<CDXRecordFilter> filters");
+        final Iterator<String> lines = getLinesInFile(prefix).iterator();
+        return new Iterator<CDXRecord>() {
+            private CDXRecord nextRecord = null;
+
+            public boolean hasNext() {
+                RECORDS: while (nextRecord == null && lines.hasNext()) {
+                    String line = lines.next();
+                    CDXRecord record;
+                    try {
+                        record = new CDXRecord(line.split(CDXReader.SEPARATOR_REGEX));
+                    } catch (RuntimeException e) {
+                        log.trace("Skipping invalid line '{}' in '{}'", line, blockFile);
+                        continue;
+                    }
+                    for (CDXRecordFilter filter : filters) {
+                        if (!filter.process(record)) {
+                            continue RECORDS;
+                        }
+                    }
+                    nextRecord = record;
+                }
+                return nextRecord != null;
+            }
+
+            public CDXRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                CDXRecord record = nextRecord;
+                nextRecord = null;
+                return record;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Find the first block which may contain lines starting with the prefix. That is the last block whose first line
+     * comes before the prefix, or the first block if no such block exists.
+     *
+     * @param prefix The prefix.
+     * @return The index of the block, or -1 if there are no blocks.
+     */
+    private int findFirstBlock(String prefix) {
+        if (firstLines.length == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = firstLines.length - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(firstLines[middle], prefix) < 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Compare the start of a line with a prefix.
+     *
+     * @param line A line.
+     * @param prefix A prefix.
+     * @return A result equivalent to String.compareTo, but only for a prefix.
+     */
+    private static int compare(String line, String prefix) {
+        return line.substring(0, Math.min(prefix.length(), line.length())).compareTo(prefix);
+    }
+
+    /**
+     * Read and decompress a block.
+     *
+     * @param block The index of the block.
+     * @return The lines of the block.
+     * @throws IOFailure if the block could not be read.
+     */
+    private List<String> readBlock(int block) {
+        byte[] compressed = new byte[lengths[block]];
+        List<String> lines = new ArrayList<String>();
+        try {
+            RandomAccessFile in = new RandomAccessFile(blockFile, "r");
+            try {
+                in.seek(offsets[block]);
+                in.readFully(compressed);
+            } finally {
+                in.close();
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                    new ByteArrayInputStream(compressed)), BlockCDXWriter.CHARSET));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            String message = "Could not read block " + block + " of '" + blockFile + "'";
+            log.warn(message, e);
+            throw new IOFailure(message, e);
+        }
+        return lines;
+    }
+
+    /**
+     * An iterator of the lines starting with a prefix, reading the blocks as needed.
+     */
+    private class PrefixIterator implements Iterator<String> {
+        /** The prefix of the lines returned. */
+        private final String prefix;
+        /** The index of the block being read. */
+        private int block;
+        /** The lines of the block being read. */
+        private Iterator<String> linesInBlock;
+        /** The next line to return, if already read. */
+        private String nextLine = null;
+        /** True when a line after the matching lines or the end of the file is reached. */
+        private boolean finished = false;
+
+        PrefixIterator(int firstBlock, String prefix) {
+            this.block = firstBlock;
+            this.prefix = prefix;
+            this.linesInBlock = readBlock(firstBlock).iterator();
+        }
+
+        public boolean hasNext() {
+            while (nextLine == null && !finished) {
+                if (!linesInBlock.hasNext()) {
+                    if (++block >= firstLines.length || compare(firstLines[block], prefix) > 0) {
+                        finished = true;
+                        break;
+                    }
+                    linesInBlock = readBlock(block).iterator();
+                    continue;
+                }
+                String line = linesInBlock.next();
+                int cmp = compare(line, prefix);
+                if (cmp == 0) {
+                    nextLine = line;
+                } else if (cmp > 0) {
+                    finished = true;
+                }
+            }
+            return nextLine != null;
+        }
+
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            return line;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.cdx;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * Writes a sorted CDX file in a block-compressed format. The lines are written in blocks of a fixed number of lines,
+ * each block compressed as a separate gzip member, so the file as a whole can still be read as a gzip file. An index
+ * file with the first line, offset and compressed length of each block is written next to it, named as the block file
+ * with the extension {@link #INDEX_SUFFIX}. Lookups with {@link BlockCDXReader} only need to decompress the blocks
+ * that may contain the lines looked for.
+ * <p>
+ * The lines must be given in the order of the sorted CDX files, that is the byte order of their characters, as read by
+ * {@link BinSearch}.
+ */
+public class BlockCDXWriter implements Closeable {
+
+    /** The logger for this class. */
+    private static final Logger log = LoggerFactory.getLogger(BlockCDXWriter.class);
+
+    /** The extension of the index file of a block file. */
+    public static final String INDEX_SUFFIX = ".idx";
+
+    /** The default number of lines in a block. */
+    public static final int DEFAULT_LINES_PER_BLOCK = 3000;
+
+    /** The encoding of the lines, which maps each byte of a line to a char as BinSearch does. */
+    static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+    /** The separator between the fields of a line of the index file. */
+    static final char INDEX_SEPARATOR = '\t';
+
+    /** The block file. */
+    private final File blockFile;
+    /** The number of lines in a block. */
+    private final int linesPerBlock;
+    /** The stream to the block file. */
+    private final OutputStream blockOut;
+    /** The writer of the index file. */
+    private final Writer indexOut;
+    /** The lines of the block being written, uncompressed. */
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+    /** The number of lines in the current block. */
+    private int linesInBlock = 0;
+    /** The first line of the current block. */
+    private String firstLineInBlock;
+    /** The last line written, to check the order of the lines. */
+    private String lastLine;
+    /** The offset in the block file of the current block. */
+    private long offset = 0;
+
+    /**
+     * Create a writer of a block file and its index file.
+     *
+     * @param blockFile The block file to write.
+     * @param linesPerBlock The number of lines in a block.
+     * @throws ArgumentNotValid if blockFile is null or linesPerBlock is not positive.
+     * @throws IOFailure if the files could not be created.
+     */
+    public BlockCDXWriter(File blockFile, int linesPerBlock) {
+        ArgumentNotValid.checkNotNull(blockFile, "File blockFile");
+        ArgumentNotValid.checkPositive(linesPerBlock, "int linesPerBlock");
+        this.blockFile = blockFile;
+        this.linesPerBlock = linesPerBlock;
+        try {
+            blockOut = new FileOutputStream(blockFile);
+            indexOut = new OutputStreamWriter(new FileOutputStream(getIndexFile(blockFile)), CHARSET);
+        } catch (IOException e) {
+            throw new IOFailure("Could not create block cdx file '" + blockFile + "'", e);
+        }
+    }
+
+    /**
+     * Get the index file of a block file.
+     *
+     * @param blockFile A block file.
+     * @return The index file belonging to the block file.
+     */
+    public static File getIndexFile(File blockFile) {
+        ArgumentNotValid.checkNotNull(blockFile, "File blockFile");
+        return new File(blockFile.getPath() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Write a sorted CDX file in the block format. Empty lines are skipped.
+     *
+     * @param sortedCDXFile A sorted CDX file.
+     * @param blockFile The block file to write.
+     * @param linesPerBlock The number of lines in a block.
+     * @throws ArgumentNotValid if the CDX file is not sorted.
+     * @throws IOFailure if the files could not be read or written.
+     */
+    public static void compress(File sortedCDXFile, File blockFile, int linesPerBlock) {
+        ArgumentNotValid.checkNotNull(sortedCDXFile, "File sortedCDXFile");
+        BlockCDXWriter writer = new BlockCDXWriter(blockFile, linesPerBlock);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(sortedCDXFile),
+                    CHARSET));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        writer.writeLine(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Could not read cdx file '" + sortedCDXFile + "'", e);
+        } finally {
+            writer.close();
+        }
+        log.debug("Wrote '{}' of {} bytes as '{}' of {} bytes", sortedCDXFile, sortedCDXFile.length(), blockFile,
+                blockFile.length());
+    }
+
+    /**
+     * Write a line. Lines must be written in sorted order.
+     *
+     * @param line A CDX line, without line terminator.
+     * @throws ArgumentNotValid if the line contains a line terminator or comes before the previous line.
+     * @throws IOFailure if the block file could not be written.
+     */
+    public void writeLine(String line) {
+        ArgumentNotValid.checkNotNull(line, "String line");
+        ArgumentNotValid.checkTrue(line.indexOf('\n') == -1 && line.indexOf('\r') == -1,
+                "Line must not contain line terminators");
+        if (lastLine != null && line.compareTo(lastLine) < 0) {
+            throw new ArgumentNotValid("The lines of '" + blockFile + "' are not sorted: '" + line + "' comes after '"
+                    + lastLine + "'");
+        }
+        lastLine = line;
+        if (linesInBlock == 0) {
+            firstLineInBlock = line;
+        }
+        byte[] bytes = line.getBytes(CHARSET);
+        block.write(bytes, 0, bytes.length);
+        block.write('\n');
+        if (++linesInBlock == linesPerBlock) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Write the current block, if it has any lines, and its entry in the index.
+     *
+     * @throws IOFailure if the files could not be written.
+     */
+    private void writeBlock() {
+        if (linesInBlock == 0) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.size() / 4);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            block.writeTo(gzip);
+            gzip.close();
+            compressed.writeTo(blockOut);
+            indexOut.write(firstLineInBlock + INDEX_SEPARATOR + offset + INDEX_SEPARATOR + compressed.size() + "\n");
+            offset += compressed.size();
+        } catch (IOException e) {
+            throw new IOFailure("Could not write block cdx file '" + blockFile + "'", e);
+        }
+        block.reset();
+        linesInBlock = 0;
+    }
+
+    /**
+     * Write the last block and close the files.
+     *
+     * @throws IOFailure if the files could not be written.
+     */
+    public void close() {
+        try {
+            try {
+                writeBlock();
+            } finally {
+                blockOut.close();
+                indexOut.close();
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Could not close block cdx file '" + blockFile + "'", e);
+        }
+    }
+
+}
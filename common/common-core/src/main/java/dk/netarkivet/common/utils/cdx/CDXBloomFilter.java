@@ -0,0 +1,306 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.cdx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * A Bloom filter of the URLs in a CDX file, used by {@link CDXReader} to skip CDX files which cannot contain a URL. The
+ * filter never rejects a URL which {@link CDXReader#getKey(String)} would find in the file, but may accept URLs which
+ * are not in it.
+ * <p>
+ * The filter of a CDX file is stored next to it, named as the CDX file with the extension {@link #FILTER_SUFFIX}.
+ */
+public class CDXBloomFilter {
+
+    /** The logger for this class. */
+    private static final Logger log = LoggerFactory.getLogger(CDXBloomFilter.class);
+
+    /** The extension of the filter file of a CDX file. */
+    public static final String FILTER_SUFFIX = ".bloom";
+
+    /** The rate of false positives the filters are sized for. */
+    public static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /** Identifies the format of a filter file. */
+    private static final int MAGIC = 0x43444246;
+
+    /** The bits of the filter. */
+    private final long[] bits;
+    /** The number of bits of the filter. */
+    private final long bitCount;
+    /** The number of bits set for each URL. */
+    private final int hashCount;
+
+    /**
+     * Create an empty filter sized for a number of URLs.
+     *
+     * @param expectedUrls The number of URLs expected to be added.
+     * @param falsePositiveRate The rate of false positives wanted, when the expected number of URLs are added.
+     * @throws ArgumentNotValid if expectedUrls is negative or falsePositiveRate is not between 0 and 1.
+     */
+    public CDXBloomFilter(long expectedUrls, double falsePositiveRate) {
+        ArgumentNotValid.checkNotNegative(expectedUrls, "long expectedUrls");
+        ArgumentNotValid.checkTrue(falsePositiveRate > 0 && falsePositiveRate < 1,
+                "falsePositiveRate must be between 0 and 1");
+        long wantedBits = (long) Math.ceil(-Math.max(expectedUrls, 1) * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        bits = new long[(int) Math.max(1, (wantedBits + 63) / 64)];
+        bitCount = 64L * bits.length;
+        hashCount = (int) Math.max(1, Math.round((double) bitCount / Math.max(expectedUrls, 1) * Math.log(2)));
+    }
+
+    /**
+     * Create a filter from the stored state.
+     *
+     * @param bits The bits of the filter.
+     * @param hashCount The number of bits set for each URL.
+     */
+    private CDXBloomFilter(long[] bits, int hashCount) {
+        this.bits = bits;
+        this.bitCount = 64L * bits.length;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Get the filter file of a CDX file.
+     *
+     * @param cdxFile A CDX file.
+     * @return The file the filter of the CDX file is stored in.
+     */
+    public static File getFilterFile(File cdxFile) {
+        ArgumentNotValid.checkNotNull(cdxFile, "File cdxFile");
+        return new File(cdxFile.getPath() + FILTER_SUFFIX);
+    }
+
+    /**
+     * Create a filter of the URLs in a CDX file, and store it in the filter file of the CDX file. Both plain CDX files
+     * and block CDX files written by {@link BlockCDXWriter} can be read.
+     *
+     * @param cdxFile A CDX file.
+     * @return The filter.
+     * @throws IOFailure if the CDX file could not be read or the filter could not be written.
+     */
+    public static CDXBloomFilter writeFilterFor(File cdxFile) {
+        ArgumentNotValid.checkNotNull(cdxFile, "File cdxFile");
+        long lines = 0;
+        try {
+            BufferedReader reader = openCDXFile(cdxFile);
+            try {
+                while (reader.readLine() != null) {
+                    lines++;
+                }
+            } finally {
+                reader.close();
+            }
+            CDXBloomFilter filter = new CDXBloomFilter(lines, FALSE_POSITIVE_RATE);
+            reader = openCDXFile(cdxFile);
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(CDXReader.SEPARATOR_REGEX, 2);
+                    if (!fields[0].isEmpty()) {
+                        filter.add(fields[0]);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            filter.write(getFilterFile(cdxFile));
+            log.debug("Wrote bloom filter of {} lines of '{}'", lines, cdxFile);
+            return filter;
+        } catch (IOException e) {
+            throw new IOFailure("Could not create bloom filter of '" + cdxFile + "'", e);
+        }
+    }
+
+    /**
+     * Read the stored filter of a CDX file, if it exists and is not older than the CDX file.
+     *
+     * @param cdxFile A CDX file.
+     * @return The filter of the CDX file, or null if there is no current filter file.
+     * @throws IOFailure if the filter file could not be read.
+     */
+    public static CDXBloomFilter readFilterFor(File cdxFile) {
+        ArgumentNotValid.checkNotNull(cdxFile, "File cdxFile");
+        File filterFile = getFilterFile(cdxFile);
+        if (!filterFile.isFile() || filterFile.lastModified() < cdxFile.lastModified()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filterFile)));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOFailure("'" + filterFile + "' is not a bloom filter file");
+                }
+                int hashCount = in.readInt();
+                long[] bits = new long[in.readInt()];
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = in.readLong();
+                }
+                return new CDXBloomFilter(bits, hashCount);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Could not read bloom filter file '" + filterFile + "'", e);
+        }
+    }
+
+    /**
+     * Store the filter in a file.
+     *
+     * @param filterFile The file to write.
+     * @throws IOFailure if the file could not be written.
+     */
+    public void write(File filterFile) {
+        ArgumentNotValid.checkNotNull(filterFile, "File filterFile");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filterFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(hashCount);
+                out.writeInt(bits.length);
+                for (long word : bits) {
+                    out.writeLong(word);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Could not write bloom filter file '" + filterFile + "'", e);
+        }
+    }
+
+    /**
+     * Add a URL to the filter.
+     *
+     * @param url A URL, as given in a CDX line.
+     */
+    public void add(String url) {
+        ArgumentNotValid.checkNotNull(url, "String url");
+        long hash = hash(getKey(url));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Check whether a URL may be in the CDX file.
+     *
+     * @param url A URL to look up.
+     * @return false if the URL cannot be found in the CDX file by {@link CDXReader#getKey(String)}.
+     */
+    public boolean mightContain(String url) {
+        ArgumentNotValid.checkNotNull(url, "String url");
+        long hash = hash(getKey(url));
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the key of a URL in the filter. URLs considered equal by {@link CDXRecord#URLsEqual(String, String)} have the
+     * same key, that is the URL with its query part URL-unescaped.
+     *
+     * @param url A URL.
+     * @return The key of the URL.
+     */
+    private static String getKey(String url) {
+        int queryStart = url.indexOf('?');
+        if (queryStart == -1) {
+            return url;
+        }
+        try {
+            return url.substring(0, queryStart + 1) + URLDecoder.decode(url.substring(queryStart + 1), "UTF-8");
+        } catch (IllegalArgumentException e) {
+            // Such a URL only equals itself
+            return url;
+        } catch (UnsupportedEncodingException e) {
+            throw new ArgumentNotValid("UTF-8 is an unknown encoding. This should never happen!");
+        }
+    }
+
+    /**
+     * A 64-bit hash of a string, with the bits mixed as in the finalizer of MurmurHash3.
+     *
+     * @param s A string.
+     * @return The hash.
+     */
+    private static long hash(String s) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Open a plain or block CDX file for reading its lines.
+     *
+     * @param cdxFile A CDX file.
+     * @return A reader of the lines of the file.
+     * @throws IOException if the file could not be opened.
+     */
+    private static BufferedReader openCDXFile(File cdxFile) throws IOException {
+        InputStream in = new FileInputStream(cdxFile);
+        if (BlockCDXReader.isBlockCDXFile(cdxFile)) {
+            in = new GZIPInputStream(in);
+        }
+        return new BufferedReader(new InputStreamReader(in, BlockCDXWriter.CHARSET));
+    }
+
+}
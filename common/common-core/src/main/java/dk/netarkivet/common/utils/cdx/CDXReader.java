@@ -28,13 +28,21 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.netarkivet.common.CommonSettings;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.UnknownID;
+import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.arc.ARCKey;
 
 /**
@@ -49,6 +57,18 @@ public class CDXReader {
     /** The CDX files that we want to iterate over. */
     private List<File> files = new ArrayList<File>();
 
+    /** Readers of the CDX files in the block-compressed format written by BlockCDXWriter. */
+    private Map<File, BlockCDXReader> blockReaders = new HashMap<File, BlockCDXReader>();
+
+    /** The Bloom filters of the CDX files which have one. */
+    private Map<File, CDXBloomFilter> bloomFilters = new HashMap<File, CDXBloomFilter>();
+
+    /** The executor for searching CDX files concurrently, shared by all CDXReaders. */
+    private static ExecutorService searchExecutor;
+
+    /** The number of threads of the search executor. */
+    private static int searchExecutorThreads;
+
     /** Any filters we want to apply. */
     private Map<String, CDXRecordFilter> cdxrecordfilters = new HashMap<String, CDXRecordFilter>();
 
@@ -70,7 +90,10 @@ public class CDXReader {
     }
 
     /**
-     * Add another CDX file to those being searched.
+     * Add another CDX file to those being searched. The file may be a sorted CDX file or a block CDX file written by
+     * {@link BlockCDXWriter}, which is recognised by having an index file next to it. If a Bloom filter of the file has
+     * been stored next to it by {@link CDXBloomFilter#writeFilterFor(File)}, the file is only searched for the URLs
+     * which the filter may contain.
      *
      * @param cdxFile A CDX file to search.
      * @throws IOFailure If the file cannot be found or read
@@ -82,6 +105,13 @@ public class CDXReader {
             log.debug(message);
             throw new IOFailure(message);
         }
+        if (BlockCDXReader.isBlockCDXFile(cdxFile)) {
+            blockReaders.put(cdxFile, new BlockCDXReader(cdxFile));
+        }
+        CDXBloomFilter bloomFilter = CDXBloomFilter.readFilterFor(cdxFile);
+        if (bloomFilter != null) {
+            bloomFilters.put(cdxFile, bloomFilter);
+        }
         files.add(cdxFile);
     }
 
@@ -90,10 +120,14 @@ public class CDXReader {
      */
     public void clearCDXFiles() {
         files.clear();
+        blockReaders.clear();
+        bloomFilters.clear();
     }
 
     /**
-     * Add another CDXRecordFilter to the list of filters to use when searching.
+     * Add another CDXRecordFilter to the list of filters to use when searching. If the setting
+     * {@link CommonSettings#CDX_SEARCH_THREADS} is more than 1, the filter may be called from several threads at the
+     * same time, and must be thread-safe.
      *
      * @param cdxrecfilter A CDXRecordFilter to use when searching.
      * @throws ArgumentNotValid If the filter is invalid or another filter exists with the same name.
@@ -148,47 +182,138 @@ public class CDXReader {
     }
 
     /**
-     * Look up an entry in CDX files. Notice that only full match search is allowed, not prefix search.
+     * Look up an entry in CDX files. Notice that only full match search is allowed, not prefix search. The files whose
+     * Bloom filters rule out the URI are skipped, and if more than one file remains they are searched concurrently by
+     * the number of threads given by the setting {@link CommonSettings#CDX_SEARCH_THREADS}. The entry is taken from
+     * the first file it is found in, in the order the files were added. The filters and files must not be changed
+     * while searching.
      *
      * @param uri A URI to find in the CDX files.
      * @return A key indicating the place where the entry can be found, or null if no such entry was found;
      */
-    public ARCKey getKey(String uri) {
+    public ARCKey getKey(final String uri) {
+        List<File> candidates = new ArrayList<File>();
         for (File f : files) {
-            String firstBrokenLine = null;
-            long numBrokenLines = 0;
-            try {
-                CDXLINES: for (String s : BinSearch.getLinesInFile(f, uri)) {
-                    String[] fieldParts = s.split(SEPARATOR_REGEX);
-                    CDXRecord cdxrec;
-                    try {
-                        cdxrec = new CDXRecord(fieldParts);
-                    } catch (RuntimeException e) {
-                        // Skip lines with wrong format
-                        numBrokenLines++;
-                        if (firstBrokenLine == null) {
-                            firstBrokenLine = s;
-                        }
-                        continue CDXLINES;
+            CDXBloomFilter bloomFilter = bloomFilters.get(f);
+            if (bloomFilter == null || bloomFilter.mightContain(uri)) {
+                candidates.add(f);
+            }
+        }
+        log.trace("Searching {} of {} cdx files for '{}'", candidates.size(), files.size(), uri);
+        int searchThreads = Settings.getInt(CommonSettings.CDX_SEARCH_THREADS);
+        if (candidates.size() <= 1 || searchThreads <= 1) {
+            for (File f : candidates) {
+                ARCKey key = getKey(f, uri);
+                if (key != null) {
+                    return key;
+                }
+            }
+            return null;
+        }
+        // Search the files concurrently, but return the match in the first file as when searching them in order
+        List<Future<ARCKey>> searches = new ArrayList<Future<ARCKey>>();
+        for (final File f : candidates) {
+            searches.add(getSearchExecutor(searchThreads).submit(new Callable<ARCKey>() {
+                public ARCKey call() {
+                    return getKey(f, uri);
+                }
+            }));
+        }
+        try {
+            for (Future<ARCKey> search : searches) {
+                ARCKey key = search.get();
+                if (key != null) {
+                    return key;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOFailure("Interrupted while searching for '" + uri + "'", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOFailure("Error searching for '" + uri + "'", e.getCause());
+        } finally {
+            for (Future<ARCKey> search : searches) {
+                search.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Look up an entry in a CDX file.
+     *
+     * @param f The CDX file.
+     * @param uri A URI to find in the CDX file.
+     * @return A key indicating the place where the entry can be found, or null if no such entry was found;
+     */
+    private ARCKey getKey(File f, String uri) {
+        String firstBrokenLine = null;
+        long numBrokenLines = 0;
+        try {
+            BlockCDXReader blockReader = blockReaders.get(f);
+            Iterable<String> lines = (blockReader != null) ? blockReader.getLinesInFile(uri) : BinSearch
+                    .getLinesInFile(f, uri);
+            CDXLINES: for (String s : lines) {
+                String[] fieldParts = s.split(SEPARATOR_REGEX);
+                CDXRecord cdxrec;
+                try {
+                    cdxrec = new CDXRecord(fieldParts);
+                } catch (RuntimeException e) {
+                    // Skip lines with wrong format
+                    numBrokenLines++;
+                    if (firstBrokenLine == null) {
+                        firstBrokenLine = s;
                     }
-                    String cdxuri = cdxrec.getURL();
-                    if (CDXRecord.URLsEqual(uri, cdxuri)) {
-                        for (CDXRecordFilter cdxrecf : cdxrecordfilters.values()) {
-                            if (!cdxrecf.process(cdxrec)) {
-                                continue CDXLINES;
-                            }
+                    continue CDXLINES;
+                }
+                String cdxuri = cdxrec.getURL();
+                if (CDXRecord.URLsEqual(uri, cdxuri)) {
+                    for (CDXRecordFilter cdxrecf : cdxrecordfilters.values()) {
+                        if (!cdxrecf.process(cdxrec)) {
+                            continue CDXLINES;
                         }
-                        return new ARCKey(cdxrec.getArcfile(), cdxrec.getOffset());
                     }
+                    return new ARCKey(cdxrec.getArcfile(), cdxrec.getOffset());
                 }
-            } finally {
-                if (numBrokenLines > 0) {
-                    log.warn("CDX file '{}' contains {} invalid CDX lines, first one is\n{}", f, numBrokenLines,
-                            firstBrokenLine);
-                }
+            }
+        } finally {
+            if (numBrokenLines > 0) {
+                log.warn("CDX file '{}' contains {} invalid CDX lines, first one is\n{}", f, numBrokenLines,
+                        firstBrokenLine);
             }
         }
         return null;
     }
 
+    /**
+     * Get the executor shared by all CDXReaders for searching CDX files concurrently. It is created on first use, and
+     * replaced when the number of threads given by the setting {@link CommonSettings#CDX_SEARCH_THREADS} changes. A
+     * replaced executor finishes the searches already given to it.
+     *
+     * @param threads The number of threads the executor should have.
+     * @return The executor.
+     */
+    private static synchronized ExecutorService getSearchExecutor(int threads) {
+        if (searchExecutor == null || searchExecutorThreads != threads) {
+            if (searchExecutor != null) {
+                searchExecutor.shutdown();
+            }
+            searchExecutorThreads = threads;
+            searchExecutor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactory() {
+                        private int threadNumber = 0;
+
+                        public synchronized Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "CDX search " + threadNumber++);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return searchExecutor;
+    }
+
 }
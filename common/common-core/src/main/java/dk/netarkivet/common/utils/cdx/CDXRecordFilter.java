@@ -26,7 +26,9 @@ package dk.netarkivet.common.utils.cdx;
 import java.io.Serializable;
 
 /**
- * Interface defining a filter to use in CDXReader when finding CDXRecords.
+ * Interface defining a filter to use in CDXReader when finding CDXRecords. A CDXReader searching several CDX files
+ * concurrently, see {@link dk.netarkivet.common.CommonSettings#CDX_SEARCH_THREADS}, calls its filters from several
+ * threads at the same time, so filters used with more than one search thread must be thread-safe.
  */
 public interface CDXRecordFilter extends Serializable {
 
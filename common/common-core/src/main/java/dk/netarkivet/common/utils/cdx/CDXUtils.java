@@ -23,18 +23,31 @@
 
 package dk.netarkivet.common.utils.cdx;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.netarkivet.common.CommonSettings;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.utils.ExceptionUtils;
 import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.StreamUtils;
 import dk.netarkivet.common.utils.archive.ArchiveProfile;
 import dk.netarkivet.common.utils.batch.BatchLocalFiles;
 
@@ -75,7 +88,8 @@ public class CDXUtils {
      * Applies createCDXRecord() to all ARC/WARC files in a directory, creating one CDX file per ARC/WARC file. Note,
      * any exceptions during index generation are logged at level FINE but otherwise ignored. Exceptions creating any
      * cdx file are logged at level WARNING but otherwise ignored. CDX files are named as the ARC/WARC files except
-     * ".(w)arc" or ".(w)arc.gz" is extended with ".cdx"
+     * ".(w)arc" or ".(w)arc.gz" is extended with ".cdx". The files are indexed concurrently by the number of threads
+     * given by the setting {@link CommonSettings#CDX_GENERATION_THREADS}.
      *
      * @param archiveProfile archive profile including filters, patterns, etc.
      * @param archiveFileDirectory A directory with archive files to generate index for
@@ -85,6 +99,25 @@ public class CDXUtils {
      */
     public static void generateCDX(ArchiveProfile archiveProfile, File archiveFileDirectory, File cdxFileDirectory)
             throws ArgumentNotValid {
+        generateCDX(archiveProfile, archiveFileDirectory, cdxFileDirectory, null);
+    }
+
+    /**
+     * Applies createCDXRecord() to all ARC/WARC files in a directory as {@link #generateCDX(ArchiveProfile, File,
+     * File)}, and also writes all the CDX lines, sorted, to a single merged CDX file. The merged file is placed in the
+     * given location, which should not be in the cdxFileDirectory, and is empty if no CDX lines are generated.
+     *
+     * @param archiveProfile archive profile including filters, patterns, etc.
+     * @param archiveFileDirectory A directory with archive files to generate index for
+     * @param cdxFileDirectory A directory to generate CDX files in
+     * @param mergedCDXFile The file to write the sorted CDX lines of all the files to, or null if no merged CDX file
+     * should be written.
+     * @throws ArgumentNotValid if any of directories are null or is not an existing directory, or if cdxFileDirectory
+     * is not writable.
+     * @throws IOFailure if the merged CDX file could not be written.
+     */
+    public static void generateCDX(ArchiveProfile archiveProfile, File archiveFileDirectory, File cdxFileDirectory,
+            File mergedCDXFile) throws ArgumentNotValid {
         ArgumentNotValid.checkNotNull(archiveProfile, "ArchiveProfile archiveProfile");
         ArgumentNotValid.checkNotNull(archiveFileDirectory, "File archiveFileDirectory");
         ArgumentNotValid.checkNotNull(cdxFileDirectory, "File cdxFileDirectory");
@@ -96,7 +129,7 @@ public class CDXUtils {
             throw new ArgumentNotValid("The directory for cdx files '" + archiveFileDirectory
                     + "' is not a writable directory");
         }
-        Map<File, Exception> exceptions = new HashMap<File, Exception>();
+        final Map<File, Exception> exceptions = new ConcurrentHashMap<File, Exception>();
         File[] filesToProcess = archiveFileDirectory.listFiles(archiveProfile.filename_filter);
         if (filesToProcess.length == 0) {
             log.warn("Found no related arcfiles to process in the archive dir '{}'.",
@@ -105,20 +138,39 @@ public class CDXUtils {
             log.debug("Found {} related arcfiles to process in the archive dir '{}'.", filesToProcess.length,
                     archiveFileDirectory.getAbsolutePath());
         }
-        for (File arcfile : filesToProcess) {
-            File cdxfile = new File(cdxFileDirectory, arcfile.getName() + FileUtils.CDX_EXTENSION);
-            try {
-                OutputStream cdxstream = null;
-                try {
-                    cdxstream = new FileOutputStream(cdxfile);
-                    writeCDXInfo(arcfile, cdxstream);
-                } finally {
-                    if (cdxstream != null) {
-                        cdxstream.close();
+        // Index the largest files first, so that no thread is left with a large file at the end
+        Arrays.sort(filesToProcess, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                return Long.compare(f2.length(), f1.length());
+            }
+        });
+        final Queue<File> filesLeft = new ConcurrentLinkedQueue<File>(Arrays.asList(filesToProcess));
+        final File cdxDir = cdxFileDirectory;
+        int threadCount = Math.min(getGenerationThreads(), filesToProcess.length);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread("CDX generation " + i) {
+                public void run() {
+                    File arcfile;
+                    while ((arcfile = filesLeft.poll()) != null) {
+                        File cdxfile = new File(cdxDir, arcfile.getName() + FileUtils.CDX_EXTENSION);
+                        try {
+                            writeCDXFile(arcfile, cdxfile);
+                        } catch (Exception e) {
+                            exceptions.put(cdxfile, e);
+                        }
                     }
                 }
-            } catch (Exception e) {
-                exceptions.put(cdxfile, e);
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOFailure("Interrupted while generating cdx files in '" + cdxFileDirectory + "'", e);
             }
         }
         // Log any errors
@@ -133,6 +185,79 @@ public class CDXUtils {
             }
             log.debug(errorMsg.toString());
         }
+        if (mergedCDXFile != null) {
+            mergeCDXFiles(filesToProcess, cdxFileDirectory, mergedCDXFile);
+        }
+    }
+
+    /**
+     * Write the CDX lines of an archive file to a CDX file.
+     *
+     * @param arcfile The archive file.
+     * @param cdxfile The CDX file to write.
+     * @throws IOException if the CDX file could not be written.
+     */
+    private static void writeCDXFile(File arcfile, File cdxfile) throws IOException {
+        OutputStream cdxstream = null;
+        try {
+            cdxstream = new BufferedOutputStream(new FileOutputStream(cdxfile));
+            writeCDXInfo(arcfile, cdxstream);
+        } finally {
+            if (cdxstream != null) {
+                cdxstream.close();
+            }
+        }
+    }
+
+    /**
+     * Write the lines of the CDX files generated for the given archive files, sorted, to a single CDX file. CDX files
+     * which were not generated are skipped.
+     *
+     * @param archiveFiles The archive files.
+     * @param cdxFileDirectory The directory with the CDX files.
+     * @param mergedCDXFile The file to write the merged CDX to.
+     * @throws IOFailure if the merged CDX file could not be written.
+     */
+    private static void mergeCDXFiles(File[] archiveFiles, File cdxFileDirectory, File mergedCDXFile) {
+        List<File> cdxFiles = new ArrayList<File>();
+        for (File arcfile : archiveFiles) {
+            File cdxfile = new File(cdxFileDirectory, arcfile.getName() + FileUtils.CDX_EXTENSION);
+            if (cdxfile.isFile()) {
+                cdxFiles.add(cdxfile);
+            }
+        }
+        File unsorted = new File(mergedCDXFile.getAbsolutePath() + ".unsorted");
+        try {
+            OutputStream out = null;
+            try {
+                out = new FileOutputStream(unsorted);
+                for (File cdxfile : cdxFiles) {
+                    StreamUtils.copyInputStreamToOutputStream(new FileInputStream(cdxfile), out);
+                }
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+            FileUtils.sortCDX(unsorted, mergedCDXFile);
+        } catch (IOException e) {
+            throw new IOFailure("Could not write merged cdx file '" + mergedCDXFile + "'", e);
+        } finally {
+            FileUtils.remove(unsorted);
+        }
+        log.debug("Merged {} cdx files into '{}'", cdxFiles.size(), mergedCDXFile);
+    }
+
+    /**
+     * @return The number of threads to generate CDX files with, as given by the setting
+     * {@link CommonSettings#CDX_GENERATION_THREADS}.
+     */
+    private static int getGenerationThreads() {
+        int threads = Settings.getInt(CommonSettings.CDX_GENERATION_THREADS);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        return threads;
     }
 
 }
@@ -54,7 +54,6 @@ import org.archive.util.anvl.ANVLRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import dk.netarkivet.common.Constants;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.IllegalState;
@@ -285,14 +284,15 @@ public class WARCUtils {
 
         int payloadLength = (int) (length - header.getContentBegin());
 
-        // read from stream
+        // read from stream directly into the result array, so small records are not copied through an
+        // intermediate buffer.
         byte[] tmpbuffer = new byte[payloadLength];
-        byte[] buffer = new byte[Constants.IO_BUFFER_SIZE];
         int bytesRead;
         int totalBytes = 0;
         try {
-            for (; (totalBytes < payloadLength) && ((bytesRead = record.read(buffer)) != -1); totalBytes += bytesRead) {
-                System.arraycopy(buffer, 0, tmpbuffer, totalBytes, bytesRead);
+            while ((totalBytes < payloadLength)
+                    && ((bytesRead = record.read(tmpbuffer, totalBytes, payloadLength - totalBytes)) != -1)) {
+                totalBytes += bytesRead;
             }
         } catch (IOException e) {
             throw new IOFailure("Failure when reading the WARC-record", e);
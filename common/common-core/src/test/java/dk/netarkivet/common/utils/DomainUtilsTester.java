@@ -10,11 +10,18 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
 
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.Constants;
 
 public class DomainUtilsTester {
+    private static final Logger log = LoggerFactory.getLogger(DomainUtilsTester.class);
+
 	@Test
 	public void canRetrieveTLDsFromPublisuffixFile() {
 		final int tldcount = 8381;
@@ -80,6 +87,73 @@ public class DomainUtilsTester {
         }
     }
     
+    /**
+     * Test that the suffix matcher gives the same results as the TLD regular expressions on host names made from a
+     * sample of the TLDs, as the regular expressions are too slow to try them all. The time taken by each is logged.
+     */
+    @Test
+    public void testSuffixMatcherAgreesWithRegexp() {
+        String[] prefixes = new String[] {"", ".", "a.", "www.example.", "news.bbc.", "a_b.", "www.a_b.", "x.y.æøå.",
+                "192.168.0.", "-.", "line\nbreak.", "UPPER."};
+        String[] postfixes = new String[] {"", ".", "x", ".a_b"};
+        List<String> tlds = TLD.getInstance().getAllTlds(false);
+        List<String> hostnames = new ArrayList<String>();
+        for (int t = 0; t < tlds.size(); t += 50) {
+            String tld = tlds.get(t);
+            for (String prefix : prefixes) {
+                for (String postfix : postfixes) {
+                    hostnames.add(prefix + tld + postfix);
+                }
+            }
+            hostnames.add(tld.toUpperCase());
+        }
+        hostnames.add("news.bbc.co.uk");
+        hostnames.add("192.168.0.1");
+        hostnames.add("1.2.3.4.5");
+        hostnames.add("");
+
+        long regexpNanos = -System.nanoTime();
+        List<String> expected = new ArrayList<String>(hostnames.size());
+        for (String hostname : hostnames) {
+            expected.add(domainNameFromHostnameByRegexp(hostname));
+        }
+        regexpNanos += System.nanoTime();
+        long matcherNanos = -System.nanoTime();
+        List<String> actual = new ArrayList<String>(hostnames.size());
+        for (String hostname : hostnames) {
+            actual.add(DomainUtils.domainNameFromHostname(hostname));
+        }
+        matcherNanos += System.nanoTime();
+        log.info("Found domains of {} host names in {} ms by regexp and in {} ms by suffix matcher", hostnames.size(),
+                regexpNanos / 1000000, matcherNanos / 1000000);
+
+        for (int i = 0; i < hostnames.size(); i++) {
+            String hostname = hostnames.get(i);
+            assertEquals("Should get the same domain as the regexp for '" + hostname + "'", expected.get(i),
+                    actual.get(i));
+            assertEquals("Should get the same validity as the regexp for '" + hostname + "'",
+                    TLD.getInstance().getValidDomainMatcher().matcher(hostname).matches(),
+                    DomainUtils.isValidDomainName(hostname));
+        }
+    }
+
+    /**
+     * The implementation of DomainUtils.domainNameFromHostname using the TLD regular expressions.
+     */
+    private static String domainNameFromHostnameByRegexp(String hostname) {
+        String result = hostname;
+        if (!Constants.IP_KEY_REGEXP.matcher(hostname).matches()) {
+            Matcher matcher = TLD.getInstance().getHostnamePattern().matcher(hostname);
+            if (matcher.matches()) {
+                result = matcher.group(2);
+            }
+        }
+        if (TLD.getInstance().getValidDomainMatcher().matcher(result).matches()) {
+            return result;
+        }
+        return null;
+    }
+
     @Test
     public void testExtraTLDInSettingsFiles() {
     	String oldprop = System.getProperty(Settings.SETTINGS_FILE_PROPERTY);
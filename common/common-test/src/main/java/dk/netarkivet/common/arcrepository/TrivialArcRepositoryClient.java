@@ -28,7 +28,6 @@ import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.regex.Pattern;
 
 import org.archive.io.ArchiveReader;
 import org.archive.io.ArchiveReaderFactory;
@@ -158,9 +157,7 @@ public class TrivialArcRepositoryClient implements ArcRepositoryClient {
             os = new FileOutputStream(resultFile);
             File[] files = dir.listFiles(new FilenameFilter() {
                 public boolean accept(File dir, String name) {
-                    Pattern filenamePattern = job.getFilenamePattern();
-                    return new File(dir, name).isFile()
-                            && (filenamePattern == null || filenamePattern.matcher(name).matches());
+                    return new File(dir, name).isFile() && job.matchesFilename(name);
                 }
             });
             BatchLocalFiles batcher = new BatchLocalFiles(files);
@@ -341,7 +341,7 @@ public class JMSConnectionMockupMQ extends JMSConnection {
         }
 
         public void close() throws JMSException {
-            throw new NotImplementedException("Not implemented");
+            // Nothing to release
         }
 
         public void recover() throws JMSException {
@@ -586,11 +586,12 @@ public class JMSConnectionMockupMQ extends JMSConnection {
     protected static class TestDestination implements Destination {
         protected String name;
         protected Set<MessageListener> listeners = new HashSet<MessageListener>();
-        protected List<TestObjectMessage> sent = new ArrayList<TestObjectMessage>();
+        protected List<TestObjectMessage> sent = Collections.synchronizedList(new ArrayList<TestObjectMessage>());
     }
 
     protected static class TestQueue extends TestDestination implements Queue {
-        protected List<TestObjectMessage> messageQueue = new ArrayList<TestObjectMessage>();
+        protected List<TestObjectMessage> messageQueue = Collections
+                .synchronizedList(new ArrayList<TestObjectMessage>());
 
         public TestQueue(String name) {
             this.name = name;
@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * Netarchivesuite - common - test
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Unit tests for the CompressingMessageCodec, and its use in JMSConnection.
+ */
+@SuppressWarnings({"serial"})
+public class CompressingMessageCodecTester {
+
+    ReloadSettings rs = new ReloadSettings();
+
+    @Before
+    public void setUp() {
+        rs.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        JMSConnectionMockupMQ.getInstance().cleanup();
+        rs.tearDown();
+    }
+
+    @Test
+    public void testSmallMessageIsNotCompressed() {
+        CompressingMessageCodec codec = new CompressingMessageCodec(4096);
+        TestMessage msg = new TestMessage(Channels.getTheRepos(), Channels.getError(), "small");
+        byte[] encoded = codec.encode(msg);
+        assertEquals(CompressingMessageCodec.FORMAT_VERSION, encoded[0]);
+        assertEquals("Small messages should not be compressed", 0, encoded[1]);
+        assertEquals("small", ((TestMessage) codec.decode(encoded)).getPayload());
+    }
+
+    @Test
+    public void testLargeMessageIsCompressed() throws IOException {
+        CompressingMessageCodec codec = new CompressingMessageCodec(4096);
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            payload.append("http://www.example.org/page").append(i).append(" 200 text/html\n");
+        }
+        TestMessage msg = new TestMessage(Channels.getTheRepos(), Channels.getError(), payload.toString());
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(serialized);
+        oos.writeObject(msg);
+        oos.close();
+
+        byte[] encoded = codec.encode(msg);
+        assertEquals("Large messages should be compressed", 1, encoded[1]);
+        assertTrue("Encoded message (" + encoded.length + " bytes) should be much smaller than the serialized message ("
+                + serialized.size() + " bytes)", encoded.length * 4 < serialized.size());
+        TestMessage decoded = (TestMessage) codec.decode(encoded);
+        assertEquals(payload.toString(), decoded.getPayload());
+        assertEquals(msg.getTo(), decoded.getTo());
+        assertEquals(msg.getReplyTo(), decoded.getReplyTo());
+    }
+
+    @Test
+    public void testDecodeRejectsUnknownFormat() {
+        CompressingMessageCodec codec = new CompressingMessageCodec(0);
+        byte[] encoded = codec.encode(new TestMessage(Channels.getTheRepos(), Channels.getError(), "x"));
+        encoded[0] = (byte) (CompressingMessageCodec.FORMAT_VERSION + 1);
+        try {
+            codec.decode(encoded);
+            fail("Should not decode an unknown format version");
+        } catch (ArgumentNotValid e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Messages of the configured types are encoded when sent, and decoded by JMSConnection.unpack.
+     */
+    @Test
+    public void testSendWithCodec() {
+        Settings.set(CommonSettings.JMS_MESSAGE_CODEC_CLASS, CompressingMessageCodec.class.getName());
+        Settings.set(CommonSettings.JMS_MESSAGE_CODEC_MESSAGE_CLASSES, TestMessage.class.getName());
+        Settings.set(CommonSettings.JMS_MESSAGE_CODEC_COMPRESSION_THRESHOLD, "0");
+        JMSConnectionMockupMQ.useJMSConnectionMockupMQ();
+        JMSConnectionMockupMQ con = (JMSConnectionMockupMQ) JMSConnectionFactory.getInstance();
+        final List<NetarkivetMessage> received = new ArrayList<NetarkivetMessage>();
+        con.setListener(Channels.getTheRepos(), new MessageListener() {
+            public void onMessage(Message message) {
+                received.add(JMSConnection.unpack(message));
+            }
+        });
+
+        TestMessage msg = new TestMessage(Channels.getTheRepos(), Channels.getError(), "encoded");
+        con.send(msg);
+        con.waitForConcurrentTasksToFinish();
+
+        assertEquals(1, received.size());
+        assertNotSame("The message should have been through the codec", msg, received.get(0));
+        assertEquals("encoded", ((TestMessage) received.get(0)).getPayload());
+        assertEquals(msg.getID(), received.get(0).getID());
+    }
+
+    /**
+     * A received message naming a class that is not a MessageCodec is rejected without creating the class.
+     */
+    @Test
+    public void testUnpackRejectsCodecThatIsNotAMessageCodec() {
+        EncodedMessage encoded = new EncodedMessage(NotACodec.class.getName(), new byte[0]);
+        try {
+            JMSConnection.unpack(new JMSConnectionMockupMQ.TestObjectMessage(encoded));
+            fail("Should not decode with a class that is not a MessageCodec");
+        } catch (ArgumentNotValid e) {
+            // Expected
+        }
+        assertFalse("The named class should not have been instantiated", NotACodec.instantiated);
+    }
+
+    /**
+     * A class with a public no-arg constructor that is not a MessageCodec.
+     */
+    public static class NotACodec {
+        static boolean instantiated = false;
+
+        public NotACodec() {
+            instantiated = true;
+        }
+    }
+
+    /**
+     * A message with a public constructor and some content.
+     */
+    private static class TestMessage extends NetarkivetMessage {
+        private final String payload;
+
+        public TestMessage(ChannelID to, ChannelID replyTo, String payload) {
+            super(to, replyTo);
+            this.payload = payload;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+    }
+}
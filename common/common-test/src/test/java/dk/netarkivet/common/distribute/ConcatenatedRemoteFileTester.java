@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * Netarchivesuite - common - test
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.StreamUtils;
+
+/**
+ * Unit tests for the ConcatenatedRemoteFile class.
+ */
+public class ConcatenatedRemoteFileTester {
+
+    private File workDir;
+    private List<File> partFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        workDir = File.createTempFile("concatenated", "remotefile");
+        FileUtils.remove(workDir);
+        FileUtils.createDir(workDir);
+        partFiles = new ArrayList<File>();
+        String[] contents = {"first\n", "", "second\nthird\n"};
+        for (int i = 0; i < contents.length; i++) {
+            File part = new File(workDir, "part" + i);
+            FileUtils.writeBinaryFile(part, contents[i].getBytes());
+            partFiles.add(part);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(workDir);
+    }
+
+    private ConcatenatedRemoteFile makeConcatenatedFile() {
+        List<RemoteFile> parts = new ArrayList<RemoteFile>();
+        for (File part : partFiles) {
+            parts.add(new FileRemoteFile(part));
+        }
+        return new ConcatenatedRemoteFile("results", parts);
+    }
+
+    @Test
+    public void testReadsPartsInOrder() throws IOException {
+        ConcatenatedRemoteFile rf = makeConcatenatedFile();
+        assertEquals("results", rf.getName());
+        assertEquals(3, rf.getNumberOfParts());
+        assertEquals(19L, rf.getSize());
+
+        InputStream in = rf.getInputStream();
+        assertEquals("first\nsecond\nthird\n", StreamUtils.getInputStreamAsString(in));
+        in.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rf.appendTo(out);
+        assertEquals("first\nsecond\nthird\n", out.toString());
+
+        File copy = new File(workDir, "copy");
+        rf.copyTo(copy);
+        assertEquals(Arrays.asList("first", "second", "third"), FileUtils.readListFromFile(copy));
+    }
+
+    @Test
+    public void testFailedCopyLeavesNoPartialFile() {
+        ConcatenatedRemoteFile rf = makeConcatenatedFile();
+        FileUtils.remove(partFiles.get(2));
+        File copy = new File(workDir, "copy");
+        try {
+            rf.copyTo(copy);
+            fail("Copying a missing part should fail");
+        } catch (IOFailure e) {
+            // expected
+        }
+        assertFalse("The partially copied file should have been deleted", copy.exists());
+    }
+
+    @Test
+    public void testCleanupRemovesAllParts() {
+        ConcatenatedRemoteFile rf = makeConcatenatedFile();
+        rf.cleanup();
+        for (File part : partFiles) {
+            assertFalse("Part " + part + " should have been removed", part.exists());
+        }
+    }
+
+    @Test
+    public void testUnreadStreamLeavesPartsUntouched() throws IOException {
+        ConcatenatedRemoteFile rf = makeConcatenatedFile();
+        rf.getInputStream().close();
+        for (File part : partFiles) {
+            assertTrue("Part " + part + " should still exist", part.exists());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * Netarchivesuite - common - test
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.distribute;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jms.Message;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Tests of the pooled send sessions and the concurrent consumers of JMSConnection.
+ */
+@SuppressWarnings({"serial"})
+public class JMSConnectionSessionsTester {
+
+    private static final int SENDING_THREADS = 5;
+    private static final int MESSAGES_PER_THREAD = 20;
+
+    ReloadSettings rs = new ReloadSettings();
+
+    private JMSConnectionMockupMQ con;
+
+    @Before
+    public void setUp() {
+        rs.setUp();
+        Settings.set(CommonSettings.JMS_SEND_SESSIONS, "3");
+        Settings.set(CommonSettings.JMS_CONCURRENT_CONSUMERS, "3");
+        JMSConnectionMockupMQ.useJMSConnectionMockupMQ();
+        con = (JMSConnectionMockupMQ) JMSConnectionFactory.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        con.cleanup();
+        rs.tearDown();
+    }
+
+    /**
+     * Messages sent concurrently from several threads through the session pool are all delivered, each with its own
+     * id.
+     */
+    @Test
+    public void testConcurrentSendsAreAllDelivered() throws InterruptedException {
+        CollectingListener listener = new CollectingListener();
+        con.setListener(Channels.getAnyBa(), listener);
+
+        List<Thread> senders = new ArrayList<Thread>();
+        for (int i = 0; i < SENDING_THREADS; i++) {
+            Thread sender = new Thread() {
+                public void run() {
+                    for (int j = 0; j < MESSAGES_PER_THREAD; j++) {
+                        con.send(new TestMessage(Channels.getAnyBa(), Channels.getError()));
+                    }
+                }
+            };
+            senders.add(sender);
+            sender.start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        con.waitForConcurrentTasksToFinish();
+
+        assertEquals("All messages should have been received", SENDING_THREADS * MESSAGES_PER_THREAD,
+                listener.received.size());
+        assertEquals("All messages should have distinct ids", SENDING_THREADS * MESSAGES_PER_THREAD,
+                new HashSet<String>(listener.received).size());
+    }
+
+    /**
+     * A concurrent listener can be added to and removed from a queue, after which it receives no more messages.
+     */
+    @Test
+    public void testAddAndRemoveConcurrentListener() {
+        CollectingListener listener = new CollectingListener();
+        con.setListener(Channels.getAnyBa(), listener);
+        con.send(new TestMessage(Channels.getAnyBa(), Channels.getError()));
+        con.waitForConcurrentTasksToFinish();
+        assertEquals(1, listener.received.size());
+
+        con.removeListener(Channels.getAnyBa(), listener);
+        assertEquals("No listeners should remain", 0, con.getListeners(Channels.getAnyBa()).size());
+        con.send(new TestMessage(Channels.getAnyBa(), Channels.getError()));
+        con.waitForConcurrentTasksToFinish();
+        assertEquals("Removed listener should receive no more messages", 1, listener.received.size());
+    }
+
+    /**
+     * A listener collecting the ids of the messages it receives.
+     */
+    private static class CollectingListener implements ConcurrentMessageListener {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+        public void onMessage(Message message) {
+            received.add(JMSConnection.unpack(message).getID());
+        }
+    }
+
+    /**
+     * An extension of NetarkivetMessage that does not add functionality (except public constructor).
+     */
+    private static class TestMessage extends NetarkivetMessage {
+        public TestMessage(ChannelID to, ChannelID replyTo) {
+            super(to, replyTo);
+        }
+    }
+}
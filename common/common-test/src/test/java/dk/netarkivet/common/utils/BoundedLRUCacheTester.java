@@ -0,0 +1,80 @@
+/*
+ * #%L
+ * Netarchivesuite - common - test
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * Unit tests for the BoundedLRUCache class.
+ */
+public class BoundedLRUCacheTester {
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        BoundedLRUCache<String, Integer> cache = new BoundedLRUCache<String, Integer>(2, 1);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals("Getting an entry should mark it as used", Integer.valueOf(1), cache.get("a"));
+        cache.put("c", 3);
+        assertEquals("Should not hold more than the maximal number of entries", 2, cache.size());
+        assertNull("Should evict the least recently used entry", cache.get("b"));
+        assertEquals("Should keep the recently used entry", Integer.valueOf(1), cache.get("a"));
+        assertEquals("Should keep the new entry", Integer.valueOf(3), cache.get("c"));
+        assertEquals("Should count evictions", 1, cache.getEvictions());
+
+        cache.put("c", 4);
+        assertEquals("Replacing an entry should not evict", 1, cache.getEvictions());
+        assertEquals(Integer.valueOf(4), cache.remove("c"));
+        assertNull(cache.get("c"));
+        cache.clear();
+        assertEquals("Should be empty after clearing", 0, cache.size());
+        assertEquals("Clearing should not count as evictions", 1, cache.getEvictions());
+    }
+
+    @Test
+    public void testSegmentsHoldTheMaximalNumberOfEntries() {
+        BoundedLRUCache<Integer, Integer> cache = new BoundedLRUCache<Integer, Integer>(100, 16);
+        assertEquals(100, cache.getMaxSize());
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        assertEquals("Every segment should be full", 100, cache.size());
+        assertEquals("Should have evicted the rest", 900, cache.getEvictions());
+
+        BoundedLRUCache<Integer, Integer> tiny = new BoundedLRUCache<Integer, Integer>(3, 16);
+        for (int i = 0; i < 100; i++) {
+            tiny.put(i, i);
+        }
+        assertEquals("Should not use more segments than entries", 3, tiny.size());
+    }
+
+    @Test(expected = ArgumentNotValid.class)
+    public void testNullKey() {
+        new BoundedLRUCache<String, String>(10, 1).get(null);
+    }
+}
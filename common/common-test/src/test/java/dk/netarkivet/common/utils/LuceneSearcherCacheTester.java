@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.Constants;
+import dk.netarkivet.common.exceptions.IllegalState;
+
+/**
+ * Unit tests for the LuceneSearcherCache class.
+ */
+public class LuceneSearcherCacheTester {
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws IOException {
+        workDir = File.createTempFile("searchercache", "indexes");
+        FileUtils.remove(workDir);
+        FileUtils.createDir(workDir);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(workDir);
+    }
+
+    private File makeIndex(String name) throws IOException {
+        File indexDir = new File(workDir, name);
+        IndexWriterConfig config = new IndexWriterConfig(Constants.LUCENE_VERSION, new WhitespaceAnalyzer(
+                Constants.LUCENE_VERSION));
+        IndexWriter writer = new IndexWriter(FSDirectory.open(indexDir), config);
+        Document doc = new Document();
+        doc.add(new StringField("name", name, Field.Store.YES));
+        writer.addDocument(doc);
+        writer.close();
+        return indexDir;
+    }
+
+    @Test
+    public void testSearcherIsSharedWhileLeased() throws IOException {
+        LuceneSearcherCache cache = new LuceneSearcherCache(0);
+        File index = makeIndex("one");
+        LuceneSearcherCache.Lease first = cache.acquire(index);
+        LuceneSearcherCache.Lease second = cache.acquire(new File(workDir, "../" + workDir.getName() + "/one"));
+        assertSame("Leases on the same directory should share the searcher", first.getSearcher(),
+                second.getSearcher());
+        IndexSearcher searcher = first.getSearcher();
+        assertEquals(1, searcher.search(new TermQuery(new Term("name", "one")), 1).totalHits);
+        first.close();
+        first.close();
+        assertEquals("Index should stay open while leased", 1, cache.getOpenIndexCount());
+        assertEquals(1, second.getSearcher().search(new TermQuery(new Term("name", "one")), 1).totalHits);
+        second.close();
+        assertEquals("Index should be closed when no idle indexes are kept", 0, cache.getOpenIndexCount());
+        try {
+            first.getSearcher();
+            fail("Closed lease should not give out its searcher");
+        } catch (IllegalState e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIdleIndexesAreEvictedLeastRecentlyUsedFirst() throws IOException {
+        LuceneSearcherCache cache = new LuceneSearcherCache(2);
+        File one = makeIndex("one");
+        File two = makeIndex("two");
+        File three = makeIndex("three");
+        LuceneSearcherCache.Lease lease = cache.acquire(one);
+        IndexSearcher oneSearcher = lease.getSearcher();
+        lease.close();
+        lease = cache.acquire(two);
+        IndexSearcher twoSearcher = lease.getSearcher();
+        lease.close();
+        // Touch one, making two the least recently used.
+        lease = cache.acquire(one);
+        assertSame("Idle index should be reused", oneSearcher, lease.getSearcher());
+        lease.close();
+        cache.acquire(three).close();
+        assertEquals(2, cache.getOpenIndexCount());
+
+        lease = cache.acquire(one);
+        assertSame("Recently used index should still be open", oneSearcher, lease.getSearcher());
+        lease.close();
+        lease = cache.acquire(two);
+        assertNotSame("Least recently used index should have been reopened", twoSearcher, lease.getSearcher());
+        lease.close();
+    }
+
+    @Test
+    public void testClearClosesOnlyIdleIndexes() throws IOException {
+        LuceneSearcherCache cache = new LuceneSearcherCache(2);
+        File one = makeIndex("one");
+        LuceneSearcherCache.Lease lease = cache.acquire(one);
+        IndexSearcher oneSearcher = lease.getSearcher();
+        cache.acquire(makeIndex("two")).close();
+        cache.clear();
+        assertEquals(0, cache.getOpenIndexCount());
+        assertEquals("Leased index should remain usable after clear", 1,
+                oneSearcher.search(new TermQuery(new Term("name", "one")), 1).totalHits);
+        lease.close();
+        lease = cache.acquire(one);
+        assertNotSame("Index should be reopened after clear", oneSearcher, lease.getSearcher());
+        lease.close();
+    }
+}
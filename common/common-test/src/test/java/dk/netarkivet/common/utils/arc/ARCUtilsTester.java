@@ -22,11 +22,13 @@
  */
 package dk.netarkivet.common.utils.arc;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -34,6 +36,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.archive.format.arc.ARCConstants;
@@ -304,6 +307,69 @@ public class ARCUtilsTester {
         assertTrue("Header-mimetype should be text/plain", arh.getMimetype().equals("text/plain"));
     }
 
+    /**
+     * Test, that readARCRecord reads the same bytes as reading the record a byte at a time, for a record spanning
+     * many reads, both in an uncompressed and in a gzipped ARC file.
+     *
+     * @throws Exception If the ARC files cannot be written or read
+     */
+    @Test
+    public void testReadARCRecordOfLargeRecord() throws Exception {
+        byte[] payload = new byte[300 * 1024 + 17];
+        new Random(42L).nextBytes(payload);
+        File payloadFile = new File(TestInfo.WORKING_DIR, "large-payload.bin");
+        FileUtils.writeBinaryFile(payloadFile, payload);
+
+        for (boolean compress : new boolean[] {false, true}) {
+            File arcFile = new File(TestInfo.WORKING_DIR, compress ? "large.arc.gz" : "large.arc");
+            PrintStream stream = new PrintStream(arcFile);
+            WriterPoolSettings settings = new WriterPoolSettingsData(ARCConstants.ARC_FILE_EXTENSION, null,
+                    ARCConstants.DEFAULT_MAX_ARC_FILE_SIZE, compress, null, null);
+            ARCWriter aw = new ARCWriter(new AtomicInteger(), stream, arcFile, settings);
+            ARCUtils.writeFileToARC(aw, payloadFile, "metadata://tests.netarkivet.dk/large", "application/binary");
+            aw.close();
+            stream.close();
+
+            byte[] bulkRead = ARCUtils.readARCRecord(getSecondRecord(arcFile));
+            byte[] byteRead = readByteAtATime(getSecondRecord(arcFile));
+            assertArrayEquals("Bulk read should give the same bytes as reading a byte at a time (compressed: "
+                    + compress + ")", byteRead, bulkRead);
+            assertArrayEquals("Bulk read should give the inserted payload (compressed: " + compress + ")", payload,
+                    bulkRead);
+        }
+    }
+
+    /**
+     * Get the first record after the file header record of an ARC file.
+     *
+     * @param arcFile An ARC file
+     * @return The second record of the file
+     * @throws IOException If the file cannot be read
+     */
+    private static ARCRecord getSecondRecord(File arcFile) throws IOException {
+        Iterator<ArchiveRecord> it = ARCReaderFactory.get(arcFile).iterator();
+        it.next(); // Skip ARC file header
+        assertTrue("Should contain more than the header record", it.hasNext());
+        return (ARCRecord) it.next();
+    }
+
+    /**
+     * Read the data of a record a byte at a time, as a reference for readARCRecord.
+     *
+     * @param record An ARC record
+     * @return The data of the record
+     * @throws IOException If the record cannot be read
+     */
+    private static byte[] readByteAtATime(ARCRecord record) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long dataLength = record.getMetaData().getLength();
+        int b;
+        while (out.size() < dataLength && (b = record.read()) != -1) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+
     /**
      * Encapsulate ARCWriter creation for test-purposes.
      *
@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.batch.BatchLocalFiles;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Unit tests for the record selection of the ArchiveBatchJob class.
+ */
+@SuppressWarnings({"serial"})
+public class ArchiveBatchJobTester {
+    private static final File ARC_DIR = new File("tests/dk/netarkivet/common/utils/cdx/data/input/");
+    private static final File ARC_FILE1 = new File(ARC_DIR, "fyensdk.arc");
+    private static final File ARC_FILE2 = new File(ARC_DIR, "input-2.arc");
+    private static final File WORKING_DIR = new File("tests/dk/netarkivet/common/utils/archive/working");
+
+    private ReloadSettings rs = new ReloadSettings();
+
+    @Before
+    public void setUp() {
+        rs.setUp();
+        FileUtils.createDir(WORKING_DIR);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(WORKING_DIR);
+        rs.tearDown();
+    }
+
+    @Test
+    public void testMaxResults() {
+        UrlListingJob job = new UrlListingJob();
+        assertTrue("Should process the file", job.processFile(ARC_FILE1, new ByteArrayOutputStream()));
+        assertEquals("Should process all records without a limit", 7, job.urls.size());
+        assertFalse("Should never have enough results without a limit", job.hasEnoughResults());
+
+        job = new UrlListingJob();
+        job.setMaxResults(3);
+        job.processFile(ARC_FILE1, new ByteArrayOutputStream());
+        assertEquals("Should stop when the limit is reached", 3, job.urls.size());
+        assertTrue("Should have enough results", job.hasEnoughResults());
+
+        job = new UrlListingJob();
+        job.setMaxResults(8);
+        new BatchLocalFiles(new File[] {ARC_FILE1, ARC_FILE2, ARC_FILE1}).run(job, new ByteArrayOutputStream());
+        assertEquals("Should stop in the second file", 8, job.urls.size());
+        assertEquals("Should not start on the third file", 2, job.getNoOfFilesProcessed());
+    }
+
+    @Test
+    public void testHeaderPredicate() {
+        UrlListingJob job = new UrlListingJob();
+        job.processOnlyRecordsMatching(new ArchiveHeaderPredicate(Pattern.compile(".*imageseries.*"),
+                Pattern.compile("image/jpeg")));
+        job.processFile(ARC_FILE1, new ByteArrayOutputStream());
+        assertEquals("Should only process the matching records", 4, job.urls.size());
+
+        job = new UrlListingJob();
+        job.processOnlyRecordsMatching(new ArchiveHeaderPredicate(null, Pattern.compile("text/html")));
+        job.processFile(ARC_FILE1, new ByteArrayOutputStream());
+        assertEquals("Should not process records of other mimetypes", 0, job.urls.size());
+    }
+
+    @Test
+    public void testHeaderPredicateUsesCDX() {
+        Settings.set(CommonSettings.BATCH_CDX_DIR, WORKING_DIR.getAbsolutePath());
+        // A CDX listing only two of the four imageseries records, and one record twice
+        FileUtils.writeCollectionToFile(new File(WORKING_DIR, ARC_FILE1.getName() + ".cdx"), Arrays.asList(
+                "http://www.fyens.dk/picturecache/imageseries/getpicture.php?Width=100&pictureid=347 194.255.126.118 "
+                        + "20040511211249 image/jpeg 3121 fyensdk.arc 13426",
+                "http://www.fyens.dk/picturecache/imageseries/getpicture.php?Width=100&pictureid=331 194.255.126.118 "
+                        + "20040511211250 image/jpeg 2606 fyensdk.arc 23122",
+                "http://www.fyens.dk/picturecache/imageseries/getpicture.php?Width=100&pictureid=347 194.255.126.118 "
+                        + "20040511211249 image/jpeg 3121 fyensdk.arc 13426",
+                "http://www.fyens.dk/picturecache/article/getpicture.php?pictureid=117716&Width=198 194.255.126.118 "
+                        + "20040511211249 image/jpeg 6669 fyensdk.arc 150"));
+
+        UrlListingJob job = new UrlListingJob();
+        job.processOnlyRecordsMatching(new ArchiveHeaderPredicate(Pattern.compile(".*imageseries.*"), null));
+        assertTrue("Should process the file", job.processFile(ARC_FILE1, new ByteArrayOutputStream()));
+        assertEquals("Should only read the matching records in the CDX",
+                Arrays.asList("http://www.fyens.dk/picturecache/imageseries/getpicture.php?Width=100&pictureid=347",
+                        "http://www.fyens.dk/picturecache/imageseries/getpicture.php?Width=100&pictureid=331"),
+                job.urls);
+
+        job = new UrlListingJob();
+        job.processOnlyRecordsMatching(new ArchiveHeaderPredicate(Pattern.compile(".*imageseries.*"), null));
+        job.processFile(ARC_FILE2, new ByteArrayOutputStream());
+        assertEquals("Should read the whole file without a CDX", 4, job.urls.size());
+    }
+
+    /**
+     * A batch job listing the URLs of the records it processes.
+     */
+    private static class UrlListingJob extends ArchiveBatchJob {
+        private final List<String> urls = new ArrayList<String>();
+
+        @Override
+        public void initialize(OutputStream os) {
+        }
+
+        @Override
+        public void processRecord(ArchiveRecordBase record, OutputStream os) {
+            urls.add(record.getHeader().getUrl());
+        }
+
+        @Override
+        public void finish(OutputStream os) {
+        }
+    }
+}
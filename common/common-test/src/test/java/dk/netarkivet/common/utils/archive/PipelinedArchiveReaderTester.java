@@ -0,0 +1,282 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.archive.io.ArchiveReader;
+import org.archive.io.ArchiveReaderFactory;
+import org.archive.io.ArchiveRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Unit tests for the PipelinedArchiveReader class.
+ */
+public class PipelinedArchiveReaderTester {
+    private static final Logger log = LoggerFactory.getLogger(PipelinedArchiveReaderTester.class);
+
+    private static final File ARC_GZ_FILE = new File(
+            "tests/dk/netarkivet/common/utils/arc/data/input/NetarchiveSuite-netarkivet.arc.gz");
+    private static final File WARC_FILE = new File(
+            "tests/dk/netarkivet/common/utils/cdx/data/input/warcs/netarkivet-20081105135926-00000.warc");
+    private static final File WORKING_DIR = new File("tests/dk/netarkivet/common/utils/archive/working");
+    private static final File WARC_GZ_FILE = new File(WORKING_DIR, "netarkivet-20081105135926-00000.warc.gz");
+
+    private ReloadSettings rs = new ReloadSettings();
+
+    @Before
+    public void setUp() throws IOException {
+        rs.setUp();
+        FileUtils.createDir(WORKING_DIR);
+        compressPerRecord(WARC_FILE, WARC_GZ_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(WORKING_DIR);
+        rs.tearDown();
+    }
+
+    @Test
+    public void testCanRead() {
+        assertTrue(PipelinedArchiveReader.canRead(ARC_GZ_FILE));
+        assertTrue(PipelinedArchiveReader.canRead(WARC_GZ_FILE));
+        assertFalse(PipelinedArchiveReader.canRead(WARC_FILE));
+    }
+
+    @Test
+    public void testSameRecordsAsArchiveReader() throws IOException {
+        for (File file : new File[] {ARC_GZ_FILE, WARC_GZ_FILE}) {
+            List<String> expected = describeRecords(file, 0, 0, 0);
+            assertTrue("Should find records in " + file, expected.size() > 1);
+            assertEquals("Should read the same records from " + file, expected,
+                    describeRecords(file, 4, 1 << 20, 4L << 20));
+            assertEquals("Should read the same records from " + file + " when read ahead one at a time", expected,
+                    describeRecords(file, 1, 1 << 20, 1L << 20));
+            assertEquals("Should read the same records from " + file + " when they are read directly", expected,
+                    describeRecords(file, 4, 100, 400));
+            assertEquals("Should read the same records from " + file + " when the read-ahead is limited by size",
+                    expected, describeRecords(file, 32, 1 << 20, 1));
+        }
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException {
+        File truncated = new File(WORKING_DIR, "truncated.warc.gz");
+        RandomAccessFile in = new RandomAccessFile(WARC_GZ_FILE, "r");
+        byte[] start = new byte[(int) (in.length() / 2)];
+        in.readFully(start);
+        in.close();
+        OutputStream out = new FileOutputStream(truncated);
+        out.write(start);
+        out.close();
+
+        PipelinedArchiveReader reader = new PipelinedArchiveReader(truncated, 4, 1 << 20, 4L << 20);
+        int records = 0;
+        try {
+            while (reader.hasNext()) {
+                reader.next().close();
+                records++;
+            }
+            fail("Should fail at the end of the truncated file");
+        } catch (IOFailure e) {
+            // Expected
+        } finally {
+            reader.close();
+        }
+        assertTrue("Should return the records before the truncation", records > 0);
+    }
+
+    @Test
+    public void testArchiveBatchJobReadsAhead() {
+        Settings.set(CommonSettings.BATCH_READ_AHEAD_RECORDS, "0");
+        CountingJob direct = new CountingJob();
+        assertTrue(direct.processFile(WARC_GZ_FILE, System.out));
+        Settings.set(CommonSettings.BATCH_READ_AHEAD_RECORDS, "8");
+        CountingJob pipelined = new CountingJob();
+        assertTrue(pipelined.processFile(WARC_GZ_FILE, System.out));
+        assertEquals("Should process the same records", direct.urls, pipelined.urls);
+    }
+
+    /**
+     * Compares the throughput of reading the test files with and without reading ahead. The times are only logged, as
+     * they depend on the machine running the test.
+     */
+    @Test
+    public void testThroughput() throws IOException {
+        final int rounds = 5;
+        for (File file : new File[] {ARC_GZ_FILE, WARC_GZ_FILE}) {
+            describeRecords(file, 0, 0, 0);
+            long start = System.nanoTime();
+            int directRecords = 0;
+            for (int i = 0; i < rounds; i++) {
+                directRecords += describeRecords(file, 0, 0, 0).size();
+            }
+            long directNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            int pipelinedRecords = 0;
+            for (int i = 0; i < rounds; i++) {
+                pipelinedRecords += describeRecords(file, 32, 1 << 24, 1L << 26).size();
+            }
+            long pipelinedNanos = System.nanoTime() - start;
+            assertEquals(directRecords, pipelinedRecords);
+            log.info("Read {} records of '{}' in {} ms directly and in {} ms reading ahead", directRecords,
+                    file.getName(), directNanos / 1000000, pipelinedNanos / 1000000);
+        }
+    }
+
+    /**
+     * Read the records of a file and describe each by its offset, URL, mimetype, length and the digest of its content.
+     *
+     * @param file An archive file.
+     * @param readAhead The number of records to read ahead, or 0 to read the file with an ArchiveReader.
+     * @param maxRecordSize The largest record kept in memory when reading ahead.
+     * @param maxBufferedBytes The largest total size of the records kept in memory when reading ahead.
+     * @return The descriptions of the records.
+     */
+    private static List<String> describeRecords(File file, int readAhead, int maxRecordSize, long maxBufferedBytes)
+            throws IOException {
+        List<String> descriptions = new ArrayList<String>();
+        ArchiveReader archiveReader = null;
+        PipelinedArchiveReader pipelinedReader = null;
+        Iterator<ArchiveRecord> it;
+        if (readAhead == 0) {
+            archiveReader = ArchiveReaderFactory.get(file);
+            it = archiveReader.iterator();
+        } else {
+            pipelinedReader = new PipelinedArchiveReader(file, readAhead, maxRecordSize, maxBufferedBytes);
+            it = pipelinedReader;
+        }
+        try {
+            byte[] buffer = new byte[4096];
+            while (it.hasNext()) {
+                ArchiveRecord record = it.next();
+                MessageDigest digest = MessageDigest.getInstance("MD5");
+                int read;
+                while ((read = record.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+                descriptions.add(record.getHeader().getOffset() + " " + record.getHeader().getUrl() + " "
+                        + record.getHeader().getMimetype() + " " + record.getHeader().getLength() + " "
+                        + record.getHeader().getReaderIdentifier() + " " + toHex(digest.digest()));
+                record.close();
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        } finally {
+            if (archiveReader != null) {
+                archiveReader.close();
+            } else {
+                pipelinedReader.close();
+            }
+        }
+        return descriptions;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write an uncompressed archive file as a compressed one, with one gzip member per record.
+     */
+    private static void compressPerRecord(File from, File to) throws IOException {
+        List<Long> offsets = new ArrayList<Long>();
+        ArchiveReader reader = ArchiveReaderFactory.get(from);
+        for (ArchiveRecord record : reader) {
+            offsets.add(record.getHeader().getOffset());
+        }
+        reader.close();
+        offsets.add(from.length());
+        RandomAccessFile in = new RandomAccessFile(from, "r");
+        OutputStream out = new FileOutputStream(to);
+        try {
+            for (int i = 0; i < offsets.size() - 1; i++) {
+                byte[] bytes = new byte[(int) (offsets.get(i + 1) - offsets.get(i))];
+                in.seek(offsets.get(i));
+                in.readFully(bytes);
+                GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                    @Override
+                    public void close() {
+                        // Leave the underlying stream open for the next member
+                    }
+                };
+                gzip.write(bytes);
+                gzip.finish();
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    /**
+     * A batch job listing the URLs of the records it processes.
+     */
+    @SuppressWarnings({"serial"})
+    private static class CountingJob extends ArchiveBatchJob {
+        private final List<String> urls = new ArrayList<String>();
+
+        @Override
+        public void initialize(OutputStream os) {
+        }
+
+        @Override
+        public void processRecord(ArchiveRecordBase record, OutputStream os) {
+            urls.add(record.getHeader().getUrl() + " " + record.getHeader().getOffset());
+        }
+
+        @Override
+        public void finish(OutputStream os) {
+        }
+    }
+}
@@ -25,12 +25,15 @@ package dk.netarkivet.common.utils.batch;
 
 import static dk.netarkivet.testutils.CollectionUtils.list;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Test;
@@ -134,6 +137,41 @@ public class FileBatchJobTester {
                 f1.getFilenamePattern().pattern().startsWith("(" + patterns.get(0) + "|" + patterns.get(1)));
     }
 
+    /**
+     * Tests that the files selected by a job are restricted by exact names and job IDs, and that setting a pattern
+     * removes the restrictions.
+     */
+    @Test
+    public void testMatchesFilename() {
+        FileBatchJob f1 = new ConcreteFileBatchJob();
+        assertTrue("Should match everything from the start", f1.matchesFilename("42-117-2005-00000-host.arc"));
+        assertNull("Should not be restricted by name from the start", f1.getFilenamesToProcess());
+        assertNull("Should not be restricted by job from the start", f1.getJobIdsToProcess());
+
+        f1.processOnlyFilesNamed(list("a.arc", "b.arc"));
+        assertEquals("Should know the names", new HashSet<String>(list("a.arc", "b.arc")), f1.getFilenamesToProcess());
+        assertTrue("Should match a given name", f1.matchesFilename("b.arc"));
+        assertFalse("Should not match other names", f1.matchesFilename("c.arc"));
+
+        f1.processOnlyFilesMatching(".*-metadata-[0-9]+\\.warc");
+        assertNull("Setting a pattern should remove the names", f1.getFilenamesToProcess());
+        f1.processOnlyFilesOfJobs(list(42L, 43L));
+        assertTrue("Should match a file of one of the jobs", f1.matchesFilename("42-metadata-1.warc"));
+        assertTrue("Should match a file of one of the jobs", f1.matchesFilename("prefix-43-metadata-1.warc"));
+        assertFalse("Should not match a file of another job", f1.matchesFilename("142-metadata-1.warc"));
+        assertFalse("Should not match outside the pattern", f1.matchesFilename("42-117-2005-00000-host.warc"));
+        f1.processOnlyFilesMatching(".*");
+        f1.processOnlyFilesOfJobs(list(117L, 2005L, 0L));
+        assertFalse("The harvest ID, timestamp and serial number are not job IDs",
+                f1.matchesFilename("42-117-2005-00000-host.warc"));
+        assertEquals(Long.valueOf(42L), FileBatchJob.getJobIdOfFilename("netarkivet-42-117-2005-00000-host.warc"));
+        assertNull("A name without a job ID has none", FileBatchJob.getJobIdOfFilename("notes-2005.txt"));
+
+        f1.processOnlyFilesMatching(".*");
+        assertNull("Setting a pattern should remove the job IDs", f1.getJobIdsToProcess());
+        assertTrue("Should match other jobs again", f1.matchesFilename("142-metadata-1.warc"));
+    }
+
     private static class ConcreteFileBatchJob extends FileBatchJob {
 
         public void initialize(OutputStream os) {
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.cdx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.arc.ARCKey;
+
+/**
+ * Unit tests for the BlockCDXWriter and BlockCDXReader classes.
+ */
+@SuppressWarnings({"serial"})
+public class BlockCDXTester {
+    private static final File WORKING_DIR = new File("tests/dk/netarkivet/common/utils/cdx/working");
+    private static final File BLOCK_FILE1 = new File(WORKING_DIR, "Reader1.cdx.gz");
+    private static final File BLOCK_FILE2 = new File(WORKING_DIR, "Reader2.cdx.gz");
+
+    @Before
+    public void setUp() {
+        FileUtils.createDir(WORKING_DIR);
+        BlockCDXWriter.compress(TestInfo.CDX_FILE1, BLOCK_FILE1, 8);
+        BlockCDXWriter.compress(TestInfo.CDX_FILE2, BLOCK_FILE2, BlockCDXWriter.DEFAULT_LINES_PER_BLOCK);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(WORKING_DIR);
+    }
+
+    @Test
+    public void testWriteBlocks() {
+        assertTrue(BlockCDXReader.isBlockCDXFile(BLOCK_FILE1));
+        assertFalse(BlockCDXReader.isBlockCDXFile(TestInfo.CDX_FILE1));
+        assertEquals("Should write a block per 8 lines", 19, new BlockCDXReader(BLOCK_FILE1).getBlockCount());
+        assertEquals("Should write a single block", 1, new BlockCDXReader(BLOCK_FILE2).getBlockCount());
+        assertTrue("Should be smaller than the CDX file", BLOCK_FILE2.length() * 3 < TestInfo.CDX_FILE2.length());
+    }
+
+    @Test
+    public void testUnsortedLines() {
+        BlockCDXWriter writer = new BlockCDXWriter(new File(WORKING_DIR, "unsorted.cdx.gz"), 10);
+        writer.writeLine("http://b.dk/");
+        try {
+            writer.writeLine("http://a.dk/");
+            fail("Should not accept unsorted lines");
+        } catch (ArgumentNotValid e) {
+            // Expected
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testGetLinesInFile() {
+        BlockCDXReader reader = new BlockCDXReader(BLOCK_FILE1);
+        List<String> prefixes = new ArrayList<String>(Arrays.asList("", "dns:", "http://", "http://www.", "a", "zzz"));
+        for (String line : FileUtils.readListFromFile(TestInfo.CDX_FILE1)) {
+            String url = line.split(" ")[0];
+            prefixes.add(url);
+            prefixes.add(url.substring(0, url.length() / 2));
+        }
+        for (String prefix : prefixes) {
+            assertEquals("Should find the same lines as BinSearch for '" + prefix + "'",
+                    toList(BinSearch.getLinesInFile(TestInfo.CDX_FILE1, prefix).iterator()),
+                    toList(reader.getLinesInFile(prefix).iterator()));
+        }
+    }
+
+    @Test
+    public void testGetRecords() {
+        BlockCDXReader reader = new BlockCDXReader(BLOCK_FILE1);
+        List<CDXRecordFilter> filters = new ArrayList<CDXRecordFilter>();
+        int all = toList(reader.getRecords("http://", filters)).size();
+        filters.add(new SimpleCDXRecordFilter("gifs") {
+            public boolean process(CDXRecord cdxrec) {
+                return cdxrec.getMimetype().equals("image/gif");
+            }
+        });
+        List<CDXRecord> gifs = toList(reader.getRecords("http://", filters));
+        assertTrue("Should filter the records", gifs.size() > 0 && gifs.size() < all);
+        for (CDXRecord record : gifs) {
+            assertEquals("image/gif", record.getMimetype());
+        }
+        assertEquals(Collections.emptyList(), toList(reader.getRecords("ftp://", filters)));
+    }
+
+    @Test
+    public void testCDXReaderUsesBlocks() {
+        CDXReader reader = new CDXReader(BLOCK_FILE1);
+        reader.addCDXFile(BLOCK_FILE2);
+        ARCKey key = reader.getKey("http://debat.computerworld.dk/images/menu_idg.gif");
+        assertEquals("IAH-20040712071242-00000-pc770.sb.statsbiblioteket.dk.arc", key.getFile().getName());
+        assertEquals(219921, key.getOffset());
+        key = reader.getKey("http://web2.jp.dk/quiz/quiz/frame.asp?q=149");
+        assertEquals("IAH-20040708140334-00000-pc770.sb.statsbiblioteket.dk.arc", key.getFile().getName());
+        assertEquals(1283051, key.getOffset());
+        key = reader.getKey("http://www.jp.dk/common/today");
+        assertEquals("A prefix key should not get the wrong entry", 123063, key.getOffset());
+        assertEquals(null, reader.getKey("http://www.jp.dk/common/tomorrow"));
+    }
+
+    private static <T> List<T> toList(Iterator<T> it) {
+        List<T> list = new ArrayList<T>();
+        while (it.hasNext()) {
+            list.add(it.next());
+        }
+        return list;
+    }
+}
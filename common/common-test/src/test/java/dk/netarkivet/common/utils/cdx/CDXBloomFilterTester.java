@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.cdx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.arc.ARCKey;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Unit tests for the CDXBloomFilter class and its use in CDXReader.
+ */
+public class CDXBloomFilterTester {
+    private static final File WORKING_DIR = new File("tests/dk/netarkivet/common/utils/cdx/working");
+
+    private ReloadSettings rs = new ReloadSettings();
+    private List<File> cdxFiles = new ArrayList<File>();
+
+    @Before
+    public void setUp() {
+        rs.setUp();
+        FileUtils.createDir(WORKING_DIR);
+        for (File original : new File[] {TestInfo.CDX_FILE1, TestInfo.CDX_FILE2, TestInfo.CDX_FILE3,
+                TestInfo.CDX_FILE4}) {
+            File cdxFile = new File(WORKING_DIR, original.getName());
+            FileUtils.copyFile(original, cdxFile);
+            cdxFiles.add(cdxFile);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(WORKING_DIR);
+        rs.tearDown();
+    }
+
+    @Test
+    public void testMightContain() {
+        File cdxFile = cdxFiles.get(0);
+        CDXBloomFilter filter = CDXBloomFilter.writeFilterFor(cdxFile);
+        List<String> urls = new ArrayList<String>();
+        // Read the lines as CDXReader does
+        for (String line : BinSearch.getLinesInFile(cdxFile, "")) {
+            urls.add(line.split(" ")[0]);
+        }
+        CDXBloomFilter stored = CDXBloomFilter.readFilterFor(cdxFile);
+        int falsePositives = 0;
+        for (String url : urls) {
+            assertTrue("Should contain '" + url + "'", filter.mightContain(url));
+            assertTrue("Stored filter should contain '" + url + "'", stored.mightContain(url));
+            if (filter.mightContain(url + "/not/there")) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Should reject most other URLs, but accepted " + falsePositives, falsePositives < urls.size() / 10);
+    }
+
+    @Test
+    public void testEscapedQuery() {
+        CDXBloomFilter filter = new CDXBloomFilter(10, CDXBloomFilter.FALSE_POSITIVE_RATE);
+        filter.add("http://www.netarkivet.dk/search?q=%C3%A6bler&page=1");
+        assertTrue("Should contain URLs equal to an added URL",
+                filter.mightContain("http://www.netarkivet.dk/search?q=æbler&page=1"));
+        assertFalse(filter.mightContain("http://www.netarkivet.dk/search?q=p%C3%A6rer&page=1"));
+    }
+
+    @Test
+    public void testStaleFilterIgnored() {
+        File cdxFile = cdxFiles.get(0);
+        CDXBloomFilter.writeFilterFor(cdxFile);
+        CDXBloomFilter.getFilterFile(cdxFile).setLastModified(cdxFile.lastModified() - 10000);
+        assertNull("Should not use a filter older than the cdx file", CDXBloomFilter.readFilterFor(cdxFile));
+    }
+
+    @Test
+    public void testCDXReaderUsesFilters() {
+        String[] urls = new String[] {"http://debat.computerworld.dk/images/menu_idg.gif",
+                "http://adserver.adtech.de/robots.txt", "http://web2.jp.dk/quiz/quiz/frame.asp?q=149",
+                "http://www.jp.dk/common/today", "http://www.netarkivet.dk/testfile.html",
+                "http://www.netarkivet.dk/missing.html"};
+        List<String> expected = lookUp(urls);
+        for (File cdxFile : cdxFiles) {
+            CDXBloomFilter.writeFilterFor(cdxFile);
+        }
+        Settings.set(CommonSettings.CDX_SEARCH_THREADS, "1");
+        assertEquals("Should find the same entries with filters", expected, lookUp(urls));
+        Settings.set(CommonSettings.CDX_SEARCH_THREADS, "4");
+        assertEquals("Should find the same entries searching concurrently", expected, lookUp(urls));
+        Settings.set(CommonSettings.CDX_SEARCH_THREADS, "2");
+        assertEquals("Should find the same entries after changing the number of threads", expected, lookUp(urls));
+    }
+
+    private List<String> lookUp(String[] urls) {
+        CDXReader reader = new CDXReader();
+        for (File cdxFile : cdxFiles) {
+            reader.addCDXFile(cdxFile);
+        }
+        List<String> keys = new ArrayList<String>();
+        for (String url : urls) {
+            ARCKey key = reader.getKey(url);
+            keys.add(key == null ? null : key.getFile().getName() + " " + key.getOffset());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * Netarchivesuite - common
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.common.utils.cdx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.archive.ArchiveProfile;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Unit tests for the CDXUtils class.
+ */
+public class CDXUtilsTester {
+    private static final File WARC_DIR = new File("tests/dk/netarkivet/common/utils/cdx/data/input/warcs");
+    private static final File WORKING_DIR = new File("tests/dk/netarkivet/common/utils/cdx/working");
+    private static final File CDX_DIR = new File(WORKING_DIR, "cdx");
+
+    private ReloadSettings rs = new ReloadSettings();
+
+    @Before
+    public void setUp() {
+        rs.setUp();
+        FileUtils.createDir(CDX_DIR);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(WORKING_DIR);
+        rs.tearDown();
+    }
+
+    @Test
+    public void testGenerateCDXConcurrently() throws IOException {
+        Settings.set(CommonSettings.CDX_GENERATION_THREADS, "2");
+        File merged = new File(WORKING_DIR, "merged.cdx");
+        CDXUtils.generateCDX(ArchiveProfile.WARC_PROFILE, WARC_DIR, CDX_DIR, merged);
+
+        File[] warcFiles = WARC_DIR.listFiles(ArchiveProfile.WARC_PROFILE.filename_filter);
+        assertEquals("Should generate a cdx file per warc file", warcFiles.length, CDX_DIR.listFiles().length);
+        List<String> allLines = new ArrayList<String>();
+        for (File warcFile : warcFiles) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            CDXUtils.writeCDXInfo(warcFile, expected);
+            File cdxFile = new File(CDX_DIR, warcFile.getName() + FileUtils.CDX_EXTENSION);
+            assertEquals("Should write the same cdx as when indexing the file alone", expected.toString(),
+                    FileUtils.readFile(cdxFile));
+            allLines.addAll(FileUtils.readListFromFile(cdxFile));
+        }
+        assertTrue("Should find records", allLines.size() > warcFiles.length);
+        Collections.sort(allLines);
+        assertEquals("Should write all the lines sorted to the merged cdx", allLines,
+                FileUtils.readListFromFile(merged));
+    }
+
+    @Test
+    public void testGenerateCDXWithoutMerging() {
+        CDXUtils.generateCDX(ArchiveProfile.WARC_PROFILE, WARC_DIR, CDX_DIR);
+        assertEquals("Should only write the cdx files", Arrays.asList(CDX_DIR), Arrays.asList(WORKING_DIR.listFiles()));
+        assertEquals(3, CDX_DIR.listFiles().length);
+    }
+}
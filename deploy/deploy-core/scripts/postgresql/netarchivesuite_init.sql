@@ -78,11 +78,13 @@ INSERT INTO schemaversions ( tablename, version )
 INSERT INTO schemaversions ( tablename, version )
     VALUES ( 'schedules', 1);
 INSERT INTO schemaversions ( tablename, version )
-    VALUES ( 'ordertemplates', 2);
+    VALUES ( 'ordertemplates', 3);
 INSERT INTO schemaversions ( tablename, version )
-    VALUES ( 'jobs', 10);
+    VALUES ( 'jobs', 11);
 INSERT INTO schemaversions ( tablename, version )
     VALUES ( 'job_configs', 1);
+INSERT INTO schemaversions ( tablename, version )
+    VALUES ( 'jobdocuments', 1);
 INSERT INTO schemaversions (tablename, version )
     VALUES ( 'global_crawler_trap_lists', 1);
 INSERT INTO schemaversions (tablename, version )
@@ -347,7 +349,8 @@ CREATE TABLE ordertemplates (
     template_id bigint NOT NULL PRIMARY KEY,
     name varchar(300) NOT NULL UNIQUE,
     orderxml text NOT NULL,
-    isActive bool NOT NULL DEFAULT TRUE
+    isActive bool NOT NULL DEFAULT TRUE,
+    edition bigint NOT NULL DEFAULT 1
 );
 
 CREATE SEQUENCE ordertemplates_id_seq OWNED BY ordertemplates.template_id;
@@ -371,8 +374,10 @@ CREATE TABLE jobs (
     forcemaxcount bigint,
     forcemaxrunningtime bigint NOT NULL DEFAULT 0,
     orderxml varchar(300) NOT NULL,
-    orderxmldoc text NOT NULL,
-    seedlist text NOT NULL,
+    orderxmldoc text,
+    orderxmldoc_hash varchar(64),
+    seedlist text,
+    seedlist_hash varchar(64),
     harvest_num int NOT NULL,
     harvest_errors varchar(300),
     harvest_error_details varchar(10000),
@@ -405,6 +410,16 @@ CREATE INDEX jobconfigjob on job_configs(job_id) TABLESPACE tsindex;
 
 GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE job_configs TO netarchivesuite;
 
+-- -----------------------------------------------------------------------------
+-- The order templates and seed lists of jobs, stored once by content hash and
+-- referred to by jobs.orderxmldoc_hash and jobs.seedlist_hash.
+CREATE TABLE jobdocuments (
+    hash varchar(64) NOT NULL PRIMARY KEY,
+    content text NOT NULL
+);
+
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE jobdocuments TO netarchivesuite;
+
 -- *****************************************************************************
 -- Area: Global Crawler traps
 -- *****************************************************************************
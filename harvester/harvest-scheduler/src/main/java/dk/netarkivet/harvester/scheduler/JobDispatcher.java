@@ -37,6 +37,7 @@ import dk.netarkivet.common.utils.ExceptionUtils;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.harvester.HarvesterSettings;
 import dk.netarkivet.harvester.datamodel.AliasInfo;
+import dk.netarkivet.harvester.datamodel.GlobalCrawlerTrapListDAO;
 import dk.netarkivet.harvester.datamodel.HarvestChannel;
 import dk.netarkivet.harvester.datamodel.HarvestDefinitionDAO;
 import dk.netarkivet.harvester.datamodel.HeritrixTemplate;
@@ -130,7 +131,7 @@ public class JobDispatcher {
                     jobToSubmit.setStatus(JobStatus.FAILED);
                     jobToSubmit.appendHarvestErrors(message);
                     jobToSubmit.appendHarvestErrorDetails(ExceptionUtils.getStackTrace(t));
-                    jobDao.update(jobToSubmit);
+                    jobDao.updateStatus(jobToSubmit);
                 }
             }
         }
@@ -140,7 +141,8 @@ public class JobDispatcher {
      * Will read the next job ready to run from the database and set the job to submitted. If no jobs are ready, null will be
      * returned.
      * <p>
-     * Note the operation is synchronized, so only one thread may start the submission of a job.
+     * Note the operation is synchronized, so only one thread may start the submission of a job. Only the status of the
+     * job is written back, as its template, seed list and configurations are unchanged.
      *
      * @param channel the job channel.
      * @return A job ready to be submitted.
@@ -154,7 +156,7 @@ public class JobDispatcher {
             Job jobToSubmit = jobDao.read(jobID);
             jobToSubmit.setStatus(JobStatus.SUBMITTED);
             jobToSubmit.setSubmittedDate(new Date());
-            jobDao.update(jobToSubmit);
+            jobDao.updateStatus(jobToSubmit);
             return jobToSubmit;
         }
     }
@@ -188,6 +190,17 @@ public class JobDispatcher {
             metadata.add(duplicateReductionMetadataEntry);
             log.info("Added duplicateReductionMetadataEntry metadataEntry for job {} ", job.getJobID());
         }
+
+        if (job.getOrderXMLdoc().usesCrawlerTrapsFile()) {
+            // The crawler traps are not in the template, so they are sent to the harvester as metadata. They are the
+            // traps of the domains when the job is dispatched, not when it was created.
+            MetadataEntry crawlerTrapsMetadataEntry = MetadataEntry.makeCrawlerTrapsMetadataEntry(
+                    jobDao.getJobCrawlerTraps(job), GlobalCrawlerTrapListDAO.getInstance()
+                            .getAllActiveTrapExpressions(), job.getOrigHarvestDefinitionID(), job.getHarvestNum(),
+                    job.getJobID());
+            metadata.add(crawlerTrapsMetadataEntry);
+            log.info("Added crawlerTrapsMetadataEntry for job {} ", job.getJobID());
+        }
         return metadata;
     }
 
@@ -24,6 +24,7 @@ package dk.netarkivet.harvester.scheduler;
 
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -39,6 +40,7 @@ import dk.netarkivet.harvester.HarvesterSettings;
 import dk.netarkivet.harvester.datamodel.Job;
 import dk.netarkivet.harvester.datamodel.JobDAO;
 import dk.netarkivet.harvester.datamodel.JobStatus;
+import dk.netarkivet.harvester.datamodel.JobStatusInfo;
 
 /**
  * Responsible for cleaning obsolete jobs, see {@link #start()} for details.
@@ -110,29 +112,30 @@ public class JobSupervisor implements ComponentLifeCycle {
 
     /**
      * Stops any job that has been in status STARTED a very long time defined by the
-     * {@link HarvesterSettings#JOB_TIMEOUT_TIME} setting.
+     * {@link HarvesterSettings#JOB_TIMEOUT_TIME} setting. The start dates are taken from the job status information, so
+     * only the jobs that are to be stopped are read in full.
      * <p>
      * Package protected to allow unit testing.
      */
     void cleanOldJobs() {
         try {
-            final Iterator<Long> startedJobs = jobDaoProvider.get().getAllJobIds(JobStatus.STARTED);
+            final List<JobStatusInfo> startedJobs = jobDaoProvider.get().getStatusInfo(JobStatus.STARTED);
             int stoppedJobs = 0;
-            while (startedJobs.hasNext()) {
-                long id = startedJobs.next();
-                Job job = jobDaoProvider.get().read(id);
+            for (JobStatusInfo startedJob : startedJobs) {
+                long id = startedJob.getJobID();
 
                 long timeDiff = jobTimeoutTime * TimeUtils.SECOND_IN_MILLIS;
                 Date endTime = new Date();
-                endTime.setTime(job.getActualStart().getTime() + timeDiff);
+                endTime.setTime(startedJob.getStartDate().getTime() + timeDiff);
                 if (new Date().after(endTime)) {
                     final String msg = " Job " + id + " has exceeded its timeout of "
                             + (jobTimeoutTime / TimeUtils.HOUR_IN_MINUTES) + " minutes." + " Changing status to "
                             + "FAILED.";
                     log.warn(msg);
+                    Job job = jobDaoProvider.get().read(id);
                     job.setStatus(JobStatus.FAILED);
                     job.appendHarvestErrors(msg);
-                    jobDaoProvider.get().update(job);
+                    jobDaoProvider.get().updateStatus(job);
                     ++stoppedJobs;
                 }
             }
@@ -36,6 +36,7 @@ import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.harvester.HarvesterSettings;
 import dk.netarkivet.harvester.datamodel.Constants;
+import dk.netarkivet.harvester.datamodel.DAOCache;
 import dk.netarkivet.harvester.datamodel.DomainConfiguration;
 import dk.netarkivet.harvester.datamodel.FullHarvest;
 import dk.netarkivet.harvester.datamodel.GlobalCrawlerTrapListDAO;
@@ -82,6 +83,8 @@ abstract class AbstractJobGenerator implements JobGenerator {
         if (harvest.isSnapShot()) {
             HarvestDefinitionDAO.getInstance().update(harvest);
         }
+        // All the jobs of a harvest go to the same channel, so it is only looked up once.
+        final HarvestChannel channel = getChannel(harvest);
         while (domainConfigurations.hasNext()) {
             List<DomainConfiguration> subset = new ArrayList<DomainConfiguration>();
             while (domainConfigurations.hasNext() && subset.size() < DOMAIN_CONFIG_SUBSET_SIZE) {
@@ -97,7 +100,7 @@ abstract class AbstractJobGenerator implements JobGenerator {
             if (subset.size() == 0) {
                 log.warn("Processing a domain config subset of zero size for HD #{}.", harvest.getOid());
             }
-            jobsMade += processDomainConfigurationSubset(harvest, subset.iterator());
+            jobsMade += processDomainConfigurationSubset(harvest, channel, subset.iterator());
             if (jobsMade == 0) {
                 log.warn("Created 0 jobs for HD #{} from domain cfg subset size {}.", harvest.getOid(), subset.size());
             } else {
@@ -135,23 +138,38 @@ abstract class AbstractJobGenerator implements JobGenerator {
         }
 
         log.info("Finished generating {} jobs for harvestdefinition #{}", jobsMade, harvest.getOid());
+        if (log.isDebugEnabled()) {
+            log.debug("Use of the harvest metadata caches:\n{}", DAOCache.reportAll());
+        }
         return jobsMade;
     }
 
     /**
-     * Instantiates a new job.
+     * Finds the channel the jobs of a harvest are sent to: the channel mapped to the harvest, or the default channel
+     * for its kind of harvest if none is mapped.
      *
-     * @param cfg the {@link DomainConfiguration} being processed
      * @param harvest the {@link HarvestDefinition} being processed
-     * @return an instance of {@link Job}
+     * @return the {@link HarvestChannel} of the harvest
      */
-    public Job getNewJob(HarvestDefinition harvest, DomainConfiguration cfg) {
+    protected HarvestChannel getChannel(HarvestDefinition harvest) {
         HarvestChannelDAO harvestChannelDao = HarvestChannelDAO.getInstance();
         HarvestChannel channel = harvestChannelDao.getChannelForHarvestDefinition(harvest.getOid());
         if (channel == null) {
             log.info("No channel mapping registered for harvest id {}, will use default.", harvest.getOid());
             channel = harvestChannelDao.getDefaultChannel(harvest.isSnapShot());
         }
+        return channel;
+    }
+
+    /**
+     * Instantiates a new job.
+     *
+     * @param harvest the {@link HarvestDefinition} being processed
+     * @param channel the {@link HarvestChannel} of the harvest, as found by {@link #getChannel(HarvestDefinition)}
+     * @param cfg the {@link DomainConfiguration} being processed
+     * @return an instance of {@link Job}
+     */
+    public Job getNewJob(HarvestDefinition harvest, HarvestChannel channel, DomainConfiguration cfg) {
         HeritrixTemplate orderXMLdoc = loadOrderXMLdoc(cfg.getOrderXmlName());
         Job newJob;
         if (harvest.isSnapShot()) {
@@ -179,11 +197,12 @@ abstract class AbstractJobGenerator implements JobGenerator {
      * Create new jobs from a collection of configurations. All configurations must use the same order.xml file.Jobs
      *
      * @param harvest the {@link HarvestDefinition} being processed.
+     * @param channel the {@link HarvestChannel} of the harvest
      * @param domainConfSubset the configurations to use to create the jobs
      * @return The number of jobs created
      * @throws ArgumentNotValid if any of the parameters is null or if the cfglist does not contain any configurations
      */
-    protected abstract int processDomainConfigurationSubset(HarvestDefinition harvest,
+    protected abstract int processDomainConfigurationSubset(HarvestDefinition harvest, HarvestChannel channel,
             Iterator<DomainConfiguration> domainConfSubset);
 
     @Override
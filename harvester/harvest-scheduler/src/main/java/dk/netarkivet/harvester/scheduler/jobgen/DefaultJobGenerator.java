@@ -34,6 +34,7 @@ import dk.netarkivet.common.exceptions.UnknownID;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.harvester.HarvesterSettings;
 import dk.netarkivet.harvester.datamodel.DomainConfiguration;
+import dk.netarkivet.harvester.datamodel.HarvestChannel;
 import dk.netarkivet.harvester.datamodel.HarvestDefinition;
 import dk.netarkivet.harvester.datamodel.Job;
 import dk.netarkivet.harvester.datamodel.JobDAO;
@@ -147,12 +148,13 @@ public class DefaultJobGenerator extends AbstractJobGenerator {
      * Create new jobs from a collection of configurations. All configurations must use the same order.xml file.Jobs
      *
      * @param harvest the {@link HarvestDefinition} being processed.
+     * @param channel the {@link HarvestChannel} of the harvest
      * @param domainConfSubset the configurations to use to create the jobs
      * @return The number of jobs created
      * @throws ArgumentNotValid if any of the parameters is null or if the cfglist does not contain any configurations
      */
     @Override
-    protected int processDomainConfigurationSubset(HarvestDefinition harvest,
+    protected int processDomainConfigurationSubset(HarvestDefinition harvest, HarvestChannel channel,
             Iterator<DomainConfiguration> domainConfSubset) {
         int jobsMade = 0;
         Job job = null;
@@ -179,7 +181,7 @@ public class DefaultJobGenerator extends AbstractJobGenerator {
                     ++jobsMade;
                     dao.create(job);
                 }
-                job = getNewJob(harvest, cfg);
+                job = getNewJob(harvest, channel, cfg);
                 log.trace("Created new job for harvest #{} to add configuration {} for domain {}", harvest.getOid(),
                         cfg.getName(), cfg.getDomainName());
 
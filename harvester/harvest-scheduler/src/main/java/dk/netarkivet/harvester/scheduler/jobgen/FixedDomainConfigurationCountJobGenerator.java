@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.harvester.HarvesterSettings;
 import dk.netarkivet.harvester.datamodel.DomainConfiguration;
+import dk.netarkivet.harvester.datamodel.HarvestChannel;
 import dk.netarkivet.harvester.datamodel.HarvestDefinition;
 import dk.netarkivet.harvester.datamodel.Job;
 import dk.netarkivet.harvester.datamodel.JobDAO;
@@ -208,7 +209,7 @@ public class FixedDomainConfigurationCountJobGenerator extends AbstractJobGenera
     }
 
     @Override
-    protected int processDomainConfigurationSubset(HarvestDefinition harvest,
+    protected int processDomainConfigurationSubset(HarvestDefinition harvest, HarvestChannel channel,
             Iterator<DomainConfiguration> domainConfSubset) {
         HarvestJobGenerationState jobsUnderConstruction = getExistingStateForHarvest(harvest);
         int jobsComplete = 0;
@@ -231,7 +232,7 @@ public class FixedDomainConfigurationCountJobGenerator extends AbstractJobGenera
             log.debug("Processing config {} for HD #{}.", domainConfigKey, harvest.getOid());
             Job match = jobsUnderConstruction.get(domainConfigKey);
             if (match == null) {
-                match = initNewJob(harvest, cfg);
+                match = initNewJob(harvest, channel, cfg);
                 log.debug("No pre-existing job found for config {} for HD #{} so creating job {}.", domainConfigKey, harvest.getOid(), match);
             } else {
                 if (canAccept(match, cfg, null)) {
@@ -249,7 +250,7 @@ public class FixedDomainConfigurationCountJobGenerator extends AbstractJobGenera
                     ++jobsComplete;
 
                     // Start construction of a new job
-                    match = initNewJob(harvest, cfg);
+                    match = initNewJob(harvest, channel, cfg);
                     log.debug("Cannot add config {} for HD #{} to existing job so created new job{}.", domainConfigKey, harvest.getOid(), match);
 
                 }
@@ -262,12 +263,13 @@ public class FixedDomainConfigurationCountJobGenerator extends AbstractJobGenera
      * Initializes a new job.
      *
      * @param harvest the {@link HarvestDefinition} being processed.
+     * @param channel the {@link HarvestChannel} of the harvest.
      * @param cfg the first {@link DomainConfiguration} for this job.
      * @return the {@link Job} instance
      */
-    private Job initNewJob(HarvestDefinition harvest, DomainConfiguration cfg) {
+    private Job initNewJob(HarvestDefinition harvest, HarvestChannel channel, DomainConfiguration cfg) {
         HarvestJobGenerationState jobsUnderConstruction = getExistingStateForHarvest(harvest);
-        Job job = getNewJob(harvest, cfg);
+        Job job = getNewJob(harvest, channel, cfg);
         final DomainConfigurationKey domainConfigurationKey = new DomainConfigurationKey(cfg);
         jobsUnderConstruction.put(domainConfigurationKey, job);
         log.debug("Created new job {} for HD #{} with configuration key {}.", job.toString(), harvest.getOid(), domainConfigurationKey);
@@ -96,7 +96,7 @@ public class JobDispatcherTest {
         verify(jobMock).setStatus(JobStatus.SUBMITTED);
         verify(jobMock).setSubmittedDate(any(Date.class));
 
-        verify(jobDAO, new Times(1)).update(jobMock);
+        verify(jobDAO, new Times(1)).updateStatus(jobMock);
         
         verify(jmsConnection).send(crawlMessageCaptor.capture());
         
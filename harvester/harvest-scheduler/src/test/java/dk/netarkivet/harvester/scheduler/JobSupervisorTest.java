@@ -27,6 +27,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -39,6 +40,7 @@ import org.mockito.Matchers;
 import dk.netarkivet.harvester.datamodel.Job;
 import dk.netarkivet.harvester.datamodel.JobDAO;
 import dk.netarkivet.harvester.datamodel.JobStatus;
+import dk.netarkivet.harvester.datamodel.JobStatusInfo;
 
 public class JobSupervisorTest {
     private JobSupervisor jobSupervisor;
@@ -58,39 +60,36 @@ public class JobSupervisorTest {
         Long jobTimeoutTime = 1L;
         jobSupervisor = new JobSupervisor(jobDAOProvider, jobTimeoutTime);
 
-        List<Long> jobIDs = Arrays.asList(1L, 2L, 3L);
-        when(jobDaoMock.getAllJobIds(JobStatus.STARTED)).thenReturn(jobIDs.iterator());
+        JobStatusInfo pastObsoleteInfoMock = mock(JobStatusInfo.class);
+        JobStatusInfo pastActiveInfoMock = mock(JobStatusInfo.class);
+        JobStatusInfo futureActiveInfoMock = mock(JobStatusInfo.class);
+        when(jobDaoMock.getStatusInfo(JobStatus.STARTED)).thenReturn(
+                Arrays.asList(pastObsoleteInfoMock, pastActiveInfoMock, futureActiveInfoMock));
+        when(pastObsoleteInfoMock.getJobID()).thenReturn(1L);
+        when(pastActiveInfoMock.getJobID()).thenReturn(2L);
+        when(futureActiveInfoMock.getJobID()).thenReturn(3L);
         Job pastObsoleteJobMock = mock(Job.class);
-        Job pastActiveMock = mock(Job.class);
-        Job futureActiveMock = mock(Job.class);
         when(jobDaoMock.read(1L)).thenReturn(pastObsoleteJobMock);
-        when(jobDaoMock.read(2L)).thenReturn(pastActiveMock);
-        when(jobDaoMock.read(3L)).thenReturn(futureActiveMock);
 
         Date inTheObsoletePast = new Date(System.currentTimeMillis() - 10000);
         Date inTheActivePast = new Date(System.currentTimeMillis() - 1);
         Date inTheActiveFuture = new Date(System.currentTimeMillis() + 10000);
 
-        when(pastObsoleteJobMock.getActualStart()).thenReturn(inTheObsoletePast);
-        when(pastActiveMock.getActualStart()).thenReturn(inTheActivePast);
-        when(futureActiveMock.getActualStart()).thenReturn(inTheActiveFuture);
+        when(pastObsoleteInfoMock.getStartDate()).thenReturn(inTheObsoletePast);
+        when(pastActiveInfoMock.getStartDate()).thenReturn(inTheActivePast);
+        when(futureActiveInfoMock.getStartDate()).thenReturn(inTheActiveFuture);
 
         jobSupervisor.cleanOldJobs();
 
-        verify(jobDaoMock).getAllJobIds(JobStatus.STARTED);
+        verify(jobDaoMock).getStatusInfo(JobStatus.STARTED);
 
-        verify(jobDaoMock).read(jobIDs.get(0));
-        verify(jobDaoMock).read(jobIDs.get(1));
-        verify(jobDaoMock).read(jobIDs.get(2));
+        // Only the job to stop is read in full
+        verify(jobDaoMock).read(1L);
 
-        verify(pastObsoleteJobMock).getActualStart();
-        verify(pastActiveMock).getActualStart();
-        verify(futureActiveMock).getActualStart();
         verify(pastObsoleteJobMock).setStatus(JobStatus.FAILED);
         verify(pastObsoleteJobMock).appendHarvestErrors(Matchers.any(String.class));
-        verifyNoMoreInteractions(pastActiveMock, futureActiveMock);
 
-        verify(jobDaoMock).update(pastObsoleteJobMock);
+        verify(jobDaoMock).updateStatus(pastObsoleteJobMock);
         verifyNoMoreInteractions(jobDaoMock);
     }
 
@@ -99,12 +98,11 @@ public class JobSupervisorTest {
         Long jobTimeoutTime = 1L;
         jobSupervisor = new JobSupervisor(jobDAOProvider, jobTimeoutTime);
 
-        List<Long> jobIDs = Arrays.asList(new Long[] {});
-        when(jobDaoMock.getAllJobIds(JobStatus.STARTED)).thenReturn(jobIDs.iterator());
+        when(jobDaoMock.getStatusInfo(JobStatus.STARTED)).thenReturn(new ArrayList<JobStatusInfo>());
 
         jobSupervisor.cleanOldJobs();
 
-        verify(jobDaoMock).getAllJobIds(JobStatus.STARTED);
+        verify(jobDaoMock).getStatusInfo(JobStatus.STARTED);
         verifyNoMoreInteractions(jobDaoMock);
     }
 
@@ -96,6 +96,15 @@ public class HarvesterSettings {
      * Default schedule for selective harvesting,. No default by default.
      */
     public static String DOMAIN_CONFIG_SCHEDULE = "settings.harvester.datamodel.domain.defaultSchedule";
+
+    /**
+     * <b>settings.harvester.datamodel.cacheTimeToLive</b>: <br>
+     * The number of seconds harvest channels and global crawler traps read from the database are reused before they
+     * are read again. Changes made by another application, e.g. the GUI, are seen by the scheduler at the latest
+     * after this time. 0 turns this caching off. Templates, and the channel a harvest definition is mapped to, are
+     * always checked against the database. The default is 30.
+     */
+    public static String DAO_CACHE_TIME_TO_LIVE = "settings.harvester.datamodel.cacheTimeToLive";
     
     /**
      * <b>settings.harvester.scheduler.jobGen.config.errorFactorPrevResult</b>: <br>
@@ -709,6 +718,29 @@ public class HarvesterSettings {
      */
     public static String INDEXSERVER_INDEXING_TRY_TO_MIGRATE_DUPLICATION_RECORDS = "settings.harvester.indexserver.tryToMigrateDuplicationRecords";
 
+    /**
+     * <b>settings.harvester.indexserver.cacheJobSegments</b>: <br>
+     * Setting for whether the Lucene index made for each single job is kept in the index cache, so later indices
+     * containing the same job can reuse it instead of indexing the job again. The default is true.
+     */
+    public static String INDEXSERVER_INDEXING_CACHE_JOB_SEGMENTS = "settings.harvester.indexserver.cacheJobSegments";
+
+    /**
+     * <b>settings.harvester.indexserver.maxCachedJobSegments</b>: <br>
+     * Setting for the maximal number of single job Lucene indices kept in each index cache when
+     * settings.harvester.indexserver.cacheJobSegments is true. The least recently used indices are deleted when there
+     * are more. The default is 2000.
+     */
+    public static String INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS = "settings.harvester.indexserver.maxCachedJobSegments";
+
+    /**
+     * <b>settings.harvester.indexserver.maxCachedJobSegmentsBytes</b>: <br>
+     * Setting for the maximal total size in bytes of the single job Lucene indices kept in each index cache when
+     * settings.harvester.indexserver.cacheJobSegments is true. The least recently used indices are deleted when they
+     * take up more. The default is 10737418240 (10 GB).
+     */
+    public static String INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS_BYTES = "settings.harvester.indexserver.maxCachedJobSegmentsBytes";
+
     /**
      * <b>settings.harvester.indexserver.indexrequestserver.class</b>: <br>
      * Setting for which type of indexrequestserver to use. The default is:
@@ -741,6 +773,14 @@ public class HarvesterSettings {
      */
     public static String TRY_LOOKUP_URI_AS_FTP = "settings.harvester.viewerproxy.tryLookupUriAsFtp";
 
+    /**
+     * <b>settings.harvester.viewerproxy.indexWarmUpTerms</b>: <br/>
+     * The maximal number of URL terms read from a new index to warm it up before it replaces the index in use, when
+     * changing index in the viewerproxy. Lookups continue on the old index while the new one is warmed up. 0 disables
+     * the warm-up.
+     */
+    public static String VIEWERPROXY_INDEX_WARM_UP_TERMS = "settings.harvester.viewerproxy.indexWarmUpTerms";
+
     /**
      * <b>settings.viewerproxy.maxSizeInBrowser</b> The size (in bytes) of the largest object to be returned for viewing
      * in the browser window. Larger objects will be returned with the appropriate http header for saving them to a
@@ -754,6 +794,28 @@ public class HarvesterSettings {
      */
     public static String ALLOW_FILE_DOWNLOADS = "settings.harvester.viewerproxy.allowFileDownloads";
 
+    /**
+     * <b>settings.harvester.viewerproxy.crawlLogStore.enabled</b>: <br>
+     * If set to true, the crawl log queries of the QA pages are answered from a local store of the crawl logs of the
+     * jobs, which is filled with a single batch job per job. If false, every query runs a batch job against the
+     * archive. The default is false.
+     */
+    public static String CRAWLLOG_STORE_ENABLED = "settings.harvester.viewerproxy.crawlLogStore.enabled";
+
+    /**
+     * <b>settings.harvester.viewerproxy.crawlLogStore.maxJobsInMemory</b>: <br>
+     * The number of jobs whose crawl log index by domain is kept in memory by the crawl log store of the QA pages. The
+     * default is 5.
+     */
+    public static String CRAWLLOG_STORE_MAX_JOBS_IN_MEMORY = "settings.harvester.viewerproxy.crawlLogStore.maxJobsInMemory";
+
+    /**
+     * <b>settings.harvester.viewerproxy.crawlLogStore.maxSize</b>: <br>
+     * The maximal total size in bytes of the crawl logs kept by the crawl log store of the QA pages. When the store
+     * grows larger, the least recently used crawl logs are deleted. The default is 10737418240 (10 GiB).
+     */
+    public static String CRAWLLOG_STORE_MAX_SIZE = "settings.harvester.viewerproxy.crawlLogStore.maxSize";
+
     /**
      * <b>settings.harvester.webinterface.maxCrawlLogInBrowser</b>: The maximum length (in lines) of 
      * crawllog to be displayed in a browser window.
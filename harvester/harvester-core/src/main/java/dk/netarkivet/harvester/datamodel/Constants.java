@@ -111,6 +111,12 @@ public final class Constants {
      */
     public static final String GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME = "dk.netarkivet.global_crawler_traps";
 
+    /**
+     * The separator between the domain name and the trap on each line of the crawler traps file given to Heritrix3
+     * jobs using the DomainCrawlerTrapsDecideRule.
+     */
+    public static final char CRAWLER_TRAPS_DOMAIN_SEPARATOR = '\t';
+
     public static final long BYTES_PER_HERITRIX_BYTELIMIT_UNIT = 1024;
 
     /** Uncallable constructor. */
@@ -0,0 +1,272 @@
+/*
+ * #%L
+ * Netarchivesuite - harvester
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library,
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.datamodel;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.utils.BoundedLRUCache;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.harvester.HarvesterSettings;
+
+/**
+ * A read-through cache of rows read by a DAO, used for harvest metadata that is read far more often than it is
+ * changed, such as templates, harvest channels and crawler traps.
+ * <p>
+ * An entry is either versioned or timed. A versioned entry is stored with the edition of its row, and is only
+ * returned when the caller asks for that same edition, which the DAO finds with a cheap query. A timed entry is used
+ * for rows without an edition, and is returned until it is older than the time to live of the cache. Other
+ * processes, e.g. the GUI and the scheduler, share the database but not the cache, so a timed entry may be that much
+ * out of date in another process. A DAO must invalidate the entries of the rows it changes itself.
+ * <p>
+ * The cached values are shared, so they must not be changed by the DAO or given to the callers of the DAO. When the
+ * cache holds the maximal number of entries, the least recently used entry is evicted when a new entry is added. The
+ * number of hits, misses, evictions and invalidations is kept for reporting.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the cached values.
+ */
+public final class DAOCache<K, V> {
+
+    /** The maximal number of entries in a cache. */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /** The latest cache made in this process for each description, for reporting. */
+    private static final Map<String, DAOCache<?, ?>> CACHES = new TreeMap<String, DAOCache<?, ?>>();
+
+    /** The edition of timed entries. */
+    private static final long NO_EDITION = -1L;
+
+    /** The cached entries. */
+    private final BoundedLRUCache<K, Entry<V>> entries;
+    /** What the cache holds, for reporting. */
+    private final String description;
+    /** How long a timed entry may be used, in milliseconds. */
+    private final long timeToLive;
+    /** The number of lookups answered from the cache. */
+    private final AtomicLong hits = new AtomicLong();
+    /** The number of lookups that had to go to the database. */
+    private final AtomicLong misses = new AtomicLong();
+    /** The number of times entries have been invalidated by changes. */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Create a cache with the time to live given by {@link HarvesterSettings#DAO_CACHE_TIME_TO_LIVE} and the default
+     * maximal size, and register it for reporting.
+     *
+     * @param description What the cache holds.
+     * @throws ArgumentNotValid if description is null or empty, or the time to live is negative.
+     */
+    DAOCache(String description) {
+        this(description, Settings.getLong(HarvesterSettings.DAO_CACHE_TIME_TO_LIVE) * 1000L, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a cache and register it for reporting, replacing any earlier cache with the same description.
+     *
+     * @param description What the cache holds.
+     * @param timeToLive How long a timed entry may be used, in milliseconds. 0 means that timed entries are never used.
+     * @param maxSize The maximal number of entries in the cache.
+     * @throws ArgumentNotValid if description is null or empty, timeToLive is negative or maxSize is not positive.
+     */
+    DAOCache(String description, long timeToLive, int maxSize) {
+        ArgumentNotValid.checkNotNullOrEmpty(description, "String description");
+        ArgumentNotValid.checkNotNegative(timeToLive, "long timeToLive");
+        ArgumentNotValid.checkPositive(maxSize, "int maxSize");
+        this.description = description;
+        this.timeToLive = timeToLive;
+        // A single segment, so the least recently used entry of the whole cache is evicted.
+        this.entries = new BoundedLRUCache<K, Entry<V>>(maxSize, 1);
+        synchronized (CACHES) {
+            CACHES.put(description, this);
+        }
+    }
+
+    /**
+     * Get a timed entry.
+     *
+     * @param key The key of the entry.
+     * @return The cached value, or null if it is not cached or is older than the time to live.
+     */
+    V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.edition == NO_EDITION
+                && System.currentTimeMillis() - entry.created < timeToLive) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Get a versioned entry.
+     *
+     * @param key The key of the entry.
+     * @param edition The current edition of the row in the database.
+     * @return The cached value, or null if it is not cached or was cached for another edition.
+     */
+    V get(K key, long edition) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.edition == edition) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add a timed entry.
+     *
+     * @param key The key of the entry.
+     * @param value The value read from the database.
+     * @throws ArgumentNotValid if key or value is null.
+     */
+    void put(K key, V value) {
+        put(key, NO_EDITION, value);
+    }
+
+    /**
+     * Add a versioned entry.
+     *
+     * @param key The key of the entry.
+     * @param edition The edition of the row the value was read from.
+     * @param value The value read from the database.
+     * @throws ArgumentNotValid if key or value is null.
+     */
+    void put(K key, long edition, V value) {
+        ArgumentNotValid.checkNotNull(key, "K key");
+        ArgumentNotValid.checkNotNull(value, "V value");
+        if (edition == NO_EDITION && timeToLive == 0) {
+            return;
+        }
+        entries.put(key, new Entry<V>(value, edition, System.currentTimeMillis()));
+    }
+
+    /**
+     * Remove an entry, because its row has been changed.
+     *
+     * @param key The key of the entry.
+     */
+    void invalidate(K key) {
+        if (entries.remove(key) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove all entries, because rows have been changed in a way that may affect any of them.
+     */
+    void invalidateAll() {
+        if (entries.size() > 0) {
+            entries.clear();
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return The number of entries in the cache.
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that had to go to the database.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of entries evicted to make room for new entries.
+     */
+    public long getEvictions() {
+        return entries.getEvictions();
+    }
+
+    /**
+     * @return The number of times entries have been invalidated by changes.
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return The fraction of lookups answered from the cache, 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return A one line report of the use of the cache.
+     */
+    public String report() {
+        return description + ": " + getSize() + " entries (max " + entries.getMaxSize() + "), " + getHits()
+                + " hits, " + getMisses() + " misses (" + String.format("%.2f%%", 100 * getHitRate())
+                + " hit rate), " + getEvictions() + " evictions, " + getInvalidations() + " invalidations";
+    }
+
+    /**
+     * @return A report of the use of the caches made in this process, one line per cache.
+     */
+    public static String reportAll() {
+        StringBuilder ret = new StringBuilder();
+        synchronized (CACHES) {
+            for (DAOCache<?, ?> cache : CACHES.values()) {
+                ret.append(cache.report()).append("\n");
+            }
+        }
+        return ret.toString();
+    }
+
+    /** A cached value with the edition of its row and the time it was read. */
+    private static final class Entry<V> {
+        /** The cached value. */
+        final V value;
+        /** The edition of the row, or NO_EDITION for a timed entry. */
+        final long edition;
+        /** When the value was read from the database, in milliseconds since the epoch. */
+        final long created;
+
+        Entry(V value, long edition, long created) {
+            this.value = value;
+            this.edition = edition;
+            this.created = created;
+        }
+    }
+
+}
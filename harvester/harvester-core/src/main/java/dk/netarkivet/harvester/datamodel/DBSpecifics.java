@@ -155,6 +155,8 @@ public abstract class DBSpecifics extends SettingsFactory<DBSpecifics> {
             upgradeOrderTemplatesTable(currentVersion, toVersion);
         } else if (tableName.equals(HarvesterDatabaseTables.HARVESTCHANNELS.getTablename())) {
             upgradeHarvestchannelTable(currentVersion, toVersion);
+        } else if (tableName.equals(HarvesterDatabaseTables.JOBDOCUMENTS.getTablename())) {
+            upgradeJobdocumentsTable(currentVersion, toVersion);
         } else if (tableName.equals(HarvesterDatabaseTables.EAVTYPEATTRIBUTE.getTablename())) {
             upgradeEavTypeAttributeTable(currentVersion, toVersion);
         } else if (tableName.equals(HarvesterDatabaseTables.EAVATTRIBUTE.getTablename())) {
@@ -167,9 +169,13 @@ public abstract class DBSpecifics extends SettingsFactory<DBSpecifics> {
     }
 
     private void upgradeOrderTemplatesTable (int currentVersion, int toVersion) {
-        if (currentVersion == 1 && toVersion == 2 ) {
+        if (currentVersion == 1 && toVersion >= 2) {
             migrateOrderTemplatesTablev1tov2();
             currentVersion = 2;
+        }
+        if (currentVersion == 2 && toVersion >= 3) {
+            migrateOrderTemplatesTablev2tov3();
+            currentVersion = 3;
         }
          // insert new migrations here
         if (currentVersion != HarvesterDatabaseTables.ORDERTEMPLATES.getRequiredVersion()) {
@@ -393,6 +399,10 @@ public abstract class DBSpecifics extends SettingsFactory<DBSpecifics> {
             migrateJobsv9tov10();
             currentVersion = 10;
         }
+        if (currentVersion == 10 && toVersion >= 11) {
+            migrateJobsv10tov11();
+            currentVersion = 11;
+        }
         // future updates of the jobs table are inserted here
         if (currentVersion == HarvesterDatabaseTables.JOBS.getRequiredVersion()
                 && toVersion >= HarvesterDatabaseTables.JOBS.getRequiredVersion() + 1) {
@@ -507,6 +517,20 @@ public abstract class DBSpecifics extends SettingsFactory<DBSpecifics> {
 
     protected abstract void createHarvestChannelTable();
 
+    private void upgradeJobdocumentsTable(int currentVersion, int toVersion) {
+        if (currentVersion == 0 && toVersion >= 1) {
+            createJobdocumentsTable();
+            currentVersion = 1;
+        }
+    }
+
+    /**
+     * Create the 'jobdocuments' table, holding the order templates and seed lists of jobs by their content hash.
+     *
+     * @throws IOFailure in case of problems in interacting with the database
+     */
+    protected abstract void createJobdocumentsTable();
+
     /**
      * Migrates the 'jobs' table from version 3 to version 4 consisting of a change of the field forcemaxbytes from int
      * to bigint and setting its default to -1. Furthermore the default value for field num_configs is set to 0.
@@ -670,6 +694,13 @@ public abstract class DBSpecifics extends SettingsFactory<DBSpecifics> {
      */
     protected abstract void migrateJobsv9tov10();
 
+    /**
+     * Migrates the 'jobs' table from version 10 to version 11 consisting of adding the fields 'orderxmldoc_hash' and
+     * 'seedlist_hash' referring to the 'jobdocuments' table, and allowing the fields 'orderxmldoc' and 'seedlist' to be
+     * null.
+     */
+    protected abstract void migrateJobsv10tov11();
+
     /**
      * Migrates the 'ExtendedFieldTable' from version 1 to version 2 consisting of adding the maxlen field
      */
@@ -685,6 +716,12 @@ public abstract class DBSpecifics extends SettingsFactory<DBSpecifics> {
      */
     protected abstract void migrateOrderTemplatesTablev1tov2();
 
+    /**
+     * Migrates the table 'ordertemplates' from version 2 to version 3, adding an 'edition' field which is increased
+     * every time the template is updated.
+     */
+    protected abstract void migrateOrderTemplatesTablev2tov3();
+
     /**
      * Update all tables in the enum class {@link HarvesterDatabaseTables} to the required version. There is no attempt
      * to undo the update.
@@ -358,6 +358,21 @@ public abstract class DerbySpecifics extends DBSpecifics {
         HarvestDBConnection.updateTable("jobs", 10, sqlStatements);
     }
 
+    @Override
+    protected void migrateJobsv10tov11() {
+        String[] sqlStatements = {"ALTER TABLE jobs ADD COLUMN orderxmldoc_hash VARCHAR(64) DEFAULT NULL",
+                "ALTER TABLE jobs ADD COLUMN seedlist_hash VARCHAR(64) DEFAULT NULL",
+                "ALTER TABLE jobs ALTER COLUMN orderxmldoc NULL", "ALTER TABLE jobs ALTER COLUMN seedlist NULL"};
+        HarvestDBConnection.updateTable("jobs", 11, sqlStatements);
+    }
+
+    @Override
+    protected void createJobdocumentsTable() {
+        String createStatement = "CREATE TABLE jobdocuments (" + "hash VARCHAR(64) NOT NULL PRIMARY KEY, "
+                + "content CLOB(64M) NOT NULL" + ")";
+        HarvestDBConnection.updateTable("jobdocuments", 1, new String[] {createStatement});
+    }
+
     @Override
     public void createHarvestChannelTable() {
         String createStatement = "CREATE TABLE harvestchannel ("
@@ -397,6 +412,13 @@ public abstract class DerbySpecifics extends DBSpecifics {
         HarvestDBConnection.updateTable(tableName, 2, sqlStatements);
     }
 
+    @Override
+    protected void migrateOrderTemplatesTablev2tov3() {
+        String tableName = HarvesterDatabaseTables.ORDERTEMPLATES.getTablename();
+        String[] sqlStatements = {"ALTER TABLE " + tableName + " ADD COLUMN edition BIGINT NOT NULL DEFAULT 1"};
+        HarvestDBConnection.updateTable(tableName, 3, sqlStatements);
+    }
+
     @Override
     public void createEavTypeAttributeTable(int toVersion) {
         String tableName = HarvesterDatabaseTables.EAVTYPEATTRIBUTE.getTablename();
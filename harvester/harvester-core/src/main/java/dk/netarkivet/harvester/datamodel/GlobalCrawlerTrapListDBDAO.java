@@ -29,6 +29,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -48,6 +49,13 @@ public class GlobalCrawlerTrapListDBDAO extends GlobalCrawlerTrapListDAO {
     /** The logger for this class. */
     private static final Logger log = LoggerFactory.getLogger(GlobalCrawlerTrapListDBDAO.class);
 
+    /** The key of the active trap expressions in their cache. */
+    private static final String ACTIVE = "active";
+
+    /** The active trap expressions read, which are added to the template of every new job. */
+    private final DAOCache<String, List<String>> activeTrapExpressions = new DAOCache<String, List<String>>(
+            "Active global crawler trap expressions");
+
     /**
      * protected constructor of this class. Checks if any migration are needed before operation starts.
      */
@@ -106,6 +114,10 @@ public class GlobalCrawlerTrapListDBDAO extends GlobalCrawlerTrapListDAO {
 
     @Override
     public List<String> getAllActiveTrapExpressions() {
+        List<String> cached = activeTrapExpressions.get(ACTIVE);
+        if (cached != null) {
+            return new ArrayList<String>(cached);
+        }
         Connection conn = HarvestDBConnection.get();
         List<String> result = new ArrayList<String>();
         PreparedStatement stmt = null;
@@ -118,6 +130,7 @@ public class GlobalCrawlerTrapListDBDAO extends GlobalCrawlerTrapListDAO {
             while (rs.next()) {
                 result.add(rs.getString(1));
             }
+            activeTrapExpressions.put(ACTIVE, Collections.unmodifiableList(new ArrayList<String>(result)));
             return result;
         } catch (SQLException e) {
             String message = "Error retrieving expressions.\n" + ExceptionUtils.getSQLExceptionCause(e);
@@ -170,6 +183,7 @@ public class GlobalCrawlerTrapListDBDAO extends GlobalCrawlerTrapListDAO {
                 stmt.executeUpdate();
             }
             conn.commit();
+            activeTrapExpressions.invalidateAll();
         } catch (SQLException e) {
             String message = "SQL error creating global crawler trap list \n" + ExceptionUtils.getSQLExceptionCause(e);
             log.warn(message, e);
@@ -208,6 +222,7 @@ public class GlobalCrawlerTrapListDBDAO extends GlobalCrawlerTrapListDAO {
             stmt.setInt(1, id);
             stmt.executeUpdate();
             conn.commit();
+            activeTrapExpressions.invalidateAll();
         } catch (SQLException e) {
             String message = "Error deleting trap list: '" + id + "'\n" + ExceptionUtils.getSQLExceptionCause(e);
             log.warn(message, e);
@@ -259,6 +274,7 @@ public class GlobalCrawlerTrapListDBDAO extends GlobalCrawlerTrapListDAO {
                 stmt.close();
             }
             conn.commit();
+            activeTrapExpressions.invalidateAll();
         } catch (SQLException e) {
             String message = "Error updating trap list :'" + trapList.getId() + "'\n"
                     + ExceptionUtils.getSQLExceptionCause(e);
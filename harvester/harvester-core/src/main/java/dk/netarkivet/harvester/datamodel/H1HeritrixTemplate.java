@@ -322,6 +322,15 @@ public class H1HeritrixTemplate extends HeritrixTemplate implements Serializable
         return verified;
     }
 
+    @Override
+    public HeritrixTemplate copy() {
+        H1HeritrixTemplate copy = new H1HeritrixTemplate(template, false);
+        copy.template_id = template_id;
+        copy.verified = verified;
+        copy.setIsActive(isActive());
+        return copy;
+    }
+
     /**
      * Return HeritrixTemplate as XML.
      *
@@ -30,8 +30,11 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,10 +83,22 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
     /** Has this HeritrixTemplate been verified. */
     private boolean verified;
 
+    /**
+     * Crawlertraps inserted since the template was last rendered, as &lt;value&gt; elements. They are rendered into
+     * the template in one go, instead of rewriting the whole template for each domain added to a job.
+     */
+    private final StringBuilder pendingCrawlertraps = new StringBuilder();
+
+    /** Attribute values inserted since the template was last rendered, by the placeholder they replace. */
+    private final Map<String, String> pendingAttributeValues = new LinkedHashMap<String, String>();
+
     public final static String METADATA_ITEMS_PLACEHOLDER = "%{METADATA_ITEMS_PLACEHOLDER}";
     public static final String MAX_TIME_SECONDS_PLACEHOLDER = "%{MAX_TIME_SECONDS_PLACEHOLDER}";
     public static final String CRAWLERTRAPS_PLACEHOLDER = "%{CRAWLERTRAPS_PLACEHOLDER}";
 
+    /** The class of the decide rule that reads the crawler traps of the job from the crawler traps file. */
+    public static final String CRAWLERTRAPS_FILE_DECIDERULE_CLASS = "dk.netarkivet.harvester.harvesting.DomainCrawlerTrapsDecideRule";
+
     public static final Pattern DEDUPLICATION_BEAN_REFERENCE_PATTERN = Pattern.compile(".*ref.*bean.*DeDuplicator.*", Pattern.DOTALL);
 
     public static final Pattern DEDUPLICATION_BEAN_PATTERN =  Pattern.compile(".*bean.*id.*DeDuplicator.*", Pattern.DOTALL);
@@ -151,6 +166,29 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
             }
         }
     }
+
+    /**
+     * Constructor for copying a template, without looking for the metadata in it again.
+     *
+     * @param template_id The persistent id of the template in the database
+     * @param template The template as String object
+     * @param metadataInfoMap The metadata found in the template
+     */
+    private H3HeritrixTemplate(long template_id, String template, Map<MetadataInfo, String> metadataInfoMap) {
+        this.template_id = template_id;
+        this.template = template;
+        this.metadataInfoMap = new HashMap<MetadataInfo, String>(metadataInfoMap);
+    }
+
+    @Override
+    public HeritrixTemplate copy() {
+        H3HeritrixTemplate copy = new H3HeritrixTemplate(template_id, getXML(), metadataInfoMap);
+        copy.forceMaxbytesPerDomain = forceMaxbytesPerDomain;
+        copy.forceMaxobjectsPerDomain = forceMaxobjectsPerDomain;
+        copy.verified = verified;
+        copy.setIsActive(isActive());
+        return copy;
+    }
     
 	/**
      * return the template.
@@ -176,6 +214,7 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
      */
     @Override
     public String getXML() {
+        renderPendingInsertions();
         return template;
     }
     
@@ -470,6 +509,10 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
     	if (crawlertraps.isEmpty()) {
     		log.debug("No crawlertraps yet. No insertion is done");
     		return;
+    	} else if (usesCrawlerTrapsFile()) {
+    		log.debug("The template reads the crawlertraps from the crawlertraps file. {} traps were not inserted",
+    				crawlertraps.size());
+    		return;
     	} else if (!template.contains(CRAWLERTRAPS_PLACEHOLDER)) {	
     		log.warn("The placeholder '" + CRAWLERTRAPS_PLACEHOLDER 
     				+ "' is absent from the template. No insertion is done at all. {} traps were ignored", 
@@ -477,17 +520,67 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
     		return;
     	} else {
     		log.info("Inserting {} crawlertraps into the template", crawlertraps.size());
-    		StringBuilder sb = new StringBuilder();
     		for (String trap: crawlertraps) {
-    			sb.append("<value>" + trap + "</value>\n");
+    			pendingCrawlertraps.append("<value>").append(trap).append("</value>\n");
     		}
-    		// Adding the placeholder again to be able to insert crawlertraps multiple times.
-    		sb.append(CRAWLERTRAPS_PLACEHOLDER + "\n"); 
-    		String templateNew = template.replace(CRAWLERTRAPS_PLACEHOLDER, sb.toString());
-    		this.template = templateNew;
     	}
  	}
+
+	/**
+	 * Render the crawlertraps and attribute values inserted since the last rendering into the template. The
+	 * template is scanned once for placeholders, no matter how many domains have been added to the job.
+	 */
+	private void renderPendingInsertions() {
+		if (pendingCrawlertraps.length() == 0 && pendingAttributeValues.isEmpty()) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder(template.length() + pendingCrawlertraps.length());
+		Set<String> usedPlaceholders = new HashSet<String>();
+		int from = 0;
+		int start;
+		while ((start = template.indexOf("%{", from)) >= 0) {
+			int end = template.indexOf('}', start);
+			if (end < 0) {
+				break;
+			}
+			String placeholder = template.substring(start, end + 1);
+			String value;
+			if (CRAWLERTRAPS_PLACEHOLDER.equals(placeholder) && pendingCrawlertraps.length() > 0) {
+				// Adding the placeholder again to be able to insert crawlertraps multiple times.
+				value = pendingCrawlertraps + CRAWLERTRAPS_PLACEHOLDER + "\n";
+			} else {
+				value = pendingAttributeValues.get(placeholder);
+			}
+			if (value == null) {
+				sb.append(template, from, start + 2);
+				from = start + 2;
+			} else {
+				sb.append(template, from, start).append(value);
+				usedPlaceholders.add(placeholder);
+				from = end + 1;
+			}
+		}
+		sb.append(template, from, template.length());
+		for (Map.Entry<String, String> entry : pendingAttributeValues.entrySet()) {
+			if (!usedPlaceholders.contains(entry.getKey())) {
+				log.warn("Placeholder '{}' not found in template. Therefore not substituted by '{}' in this template",
+						entry.getKey(), entry.getValue());
+			}
+		}
+		this.template = sb.toString();
+		pendingCrawlertraps.setLength(0);
+		pendingAttributeValues.clear();
+	}
 	
+	/**
+	 * The crawlertraps file is used, if the template contains a
+	 * {@value #CRAWLERTRAPS_FILE_DECIDERULE_CLASS} bean.
+	 */
+	@Override
+	public boolean usesCrawlerTrapsFile() {
+		return template.contains(CRAWLERTRAPS_FILE_DECIDERULE_CLASS);
+	}
+
 	public String getMetadataInfo(MetadataInfo info) {
 		String infoStr = null;
 		if(metadataInfoMap.containsKey(info)) {
@@ -498,6 +591,7 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
 
 	@Override
 	public void writeTemplate(OutputStream os) throws IOFailure {
+		renderPendingInsertions();
 		try {
 			os.write(template.getBytes(Charset.forName("UTF-8")));
 		} catch (IOException e) {
@@ -513,6 +607,7 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
 
 	@Override
 	public void writeToFile(File orderXmlFile) {
+		renderPendingInsertions();
 		BufferedWriter writer = null;
 		try {
 			writer = new BufferedWriter( new FileWriter(orderXmlFile));
@@ -754,9 +849,9 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
 	            break;
 	        }
 	        String placeholder = "%{" + attributeType.name.toUpperCase() + "}";
-	        if (template.contains(placeholder)) {
-	            String templateNew = template.replace("%{" + attributeType.name.toUpperCase() + "}", val);
-	            this.template = templateNew;
+	        if (!pendingAttributeValues.containsKey(placeholder)) {
+	            // Substituted when the template is rendered
+	            pendingAttributeValues.put(placeholder, val);
 	        } else {
 	            log.warn("Placeholder '{}' not found in template. Therefore not substituted by '{}' in this template", 
 	                    placeholder, val); 
@@ -766,6 +861,7 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
 
 	@Override
 	public void writeTemplate(JspWriter out) throws IOFailure {
+		renderPendingInsertions();
 		try {
 			out.write(template);
 		} catch (IOException e) {
@@ -778,6 +874,7 @@ public class H3HeritrixTemplate extends HeritrixTemplate implements Serializable
 	 *  manipulation is completed.
 	 */
 	public void removePlaceholders() {
+		renderPendingInsertions();
 		template = template.replace(METADATA_ITEMS_PLACEHOLDER, "");
 		template = template.replace(CRAWLERTRAPS_PLACEHOLDER, "");
 		
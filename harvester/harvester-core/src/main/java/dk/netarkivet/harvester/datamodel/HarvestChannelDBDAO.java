@@ -42,6 +42,15 @@ import dk.netarkivet.common.exceptions.UnknownID;
  */
 public class HarvestChannelDBDAO extends HarvestChannelDAO {
 
+    /**
+     * The channels read, by id. The cached channels are never handed out, as the callers may change the channels they
+     * get.
+     */
+    private final DAOCache<Long, HarvestChannel> channelsById = new DAOCache<Long, HarvestChannel>("Harvest channels");
+    /** The default channels read, by whether they are for snapshot harvests. */
+    private final DAOCache<Boolean, HarvestChannel> defaultChannels = new DAOCache<Boolean, HarvestChannel>(
+            "Default harvest channels");
+
     /**
      * Create a new HarvestChannelDAO implemented using database. This constructor also tries to upgrade the jobs and
      * jobs_configs tables in the current database. Throws an {@link IllegalState} exception, if default channels are
@@ -72,6 +81,10 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
 
     @Override
     public HarvestChannel getById(final long id) throws ArgumentNotValid, UnknownID {
+        HarvestChannel cached = channelsById.get(id);
+        if (cached != null) {
+            return copyOf(cached);
+        }
         Connection connection = HarvestDBConnection.get();
         try {
             PreparedStatement stm = connection.prepareStatement(get_by_id_sql);
@@ -80,7 +93,9 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
             if (!rs.next()) {
                 throw new UnknownID("No harvestchannel with id " + id);
             }
-            return buildFromResultSet(rs);
+            HarvestChannel harvestChannel = buildFromResultSet(rs);
+            channelsById.put(id, harvestChannel);
+            return copyOf(harvestChannel);
         } catch (SQLException e) {
             throw new UnknownID("Failed to get harvestchannel with id " + id, e);
         } finally {
@@ -142,6 +157,7 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
             if (stm.executeUpdate() < 1) {
                 throw new IOFailure("Failed to create harvestchannel '" + harvestChan.getName() + "'");
             }
+            defaultChannels.invalidateAll();
         } catch (SQLException e) {
             throw new IOFailure("Failed to create harvestchannel '" + harvestChan.getName() + "'", e);
         } finally {
@@ -167,6 +183,8 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
             if (stm.executeUpdate() != 1) {
                 throw new IOFailure("Failed to update harvestchannel with id " + harvestChan.getId());
             }
+            channelsById.invalidate(harvestChan.getId());
+            defaultChannels.invalidateAll();
         } catch (SQLException e) {
             throw new IOFailure("Failed to update harvestchannel with id " + harvestChan.getId(), e);
         } finally {
@@ -223,6 +241,10 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
 
     @Override
     public HarvestChannel getDefaultChannel(boolean isSnapshot) {
+        HarvestChannel cached = defaultChannels.get(isSnapshot);
+        if (cached != null) {
+            return copyOf(cached);
+        }
         Connection connection = HarvestDBConnection.get();
         try {
             PreparedStatement stm = connection.prepareStatement(get_default_channel_sql);
@@ -231,7 +253,9 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
             if (!rs.next()) {
                 throw new IOFailure("No default harvest channel for snapshot=" + isSnapshot);
             }
-            return buildFromResultSet(rs);
+            HarvestChannel harvestChannel = buildFromResultSet(rs);
+            defaultChannels.put(isSnapshot, harvestChannel);
+            return copyOf(harvestChannel);
         } catch (SQLException e) {
             throw new IOFailure("Failed to get default harvest channel for snapshot=" + isSnapshot, e);
         } finally {
@@ -264,6 +288,11 @@ public class HarvestChannelDBDAO extends HarvestChannelDAO {
         }
     }
 
+    private static HarvestChannel copyOf(HarvestChannel harvestChannel) {
+        return new HarvestChannel(harvestChannel.getId(), harvestChannel.getName(), harvestChannel.isSnapshot(),
+                harvestChannel.isDefault(), harvestChannel.getComments());
+    }
+
     private HarvestChannel buildFromResultSet(ResultSet rs) throws SQLException {
         return new HarvestChannel(rs.getLong("id"), rs.getString("name"), rs.getBoolean("issnapshot"),
                 rs.getBoolean("isdefault"), rs.getString("comments"));
@@ -29,6 +29,7 @@ import java.util.Set;
 
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.exceptions.UnknownID;
 
 /**
@@ -290,10 +291,12 @@ public abstract class HarvestDefinitionDAO implements DAO, Iterable<HarvestDefin
     public abstract void addDomainConfiguration(PartialHarvest hdd, SparseDomainConfiguration sparseDomainConfiguration);
 
     /**
-     * Reset the list of domainconfiguration for a PartialHarvest.
+     * Reset the list of domainconfiguration for a PartialHarvest. The edition of the PartialHarvest is increased, as
+     * by {@link #update(HarvestDefinition)}.
      *
      * @param hdd a given PartialHarvest
      * @param dcList the new list of domainconfigurations
+     * @throws PermissionDenied if the PartialHarvest has been updated by somebody else since it was read
      */
     public abstract void resetDomainConfigurations(PartialHarvest hdd, List<DomainConfiguration> dcList);
 
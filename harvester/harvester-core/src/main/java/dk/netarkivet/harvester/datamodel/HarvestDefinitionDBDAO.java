@@ -37,6 +37,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -117,7 +118,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
 
     /**
      * Create a harvest definition in Database. The harvest definition object should not have its ID set unless we are
-     * in the middle of migrating.
+     * in the middle of migrating. Creation is synchronized, as new IDs are generated from the largest ID stored.
      *
      * @param harvestDefinition A new harvest definition to store in the database.
      * @return The harvestId for the just created harvest definition.
@@ -212,7 +213,10 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
     }
 
     /**
-     * Create the entries in the harvest_configs table that connect PartialHarvests and their configurations.
+     * Create the entries in the harvest_configs table that connect PartialHarvests and their configurations. Only the
+     * difference from the entries already stored is written: removed configurations are deleted in one batch, and
+     * added configurations are inserted with a single join against a temporary table of their names. Must be called
+     * with auto-commit disabled, as the temporary table only lives until the next commit.
      *
      * @param c harvest definition DB connection
      * @param ph The harvest to insert entries for.
@@ -220,22 +224,69 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
      * @throws SQLException If a database error occurs during the create process.
      */
     private void createHarvestConfigsEntries(Connection c, PartialHarvest ph, long id) throws SQLException {
-        try (PreparedStatement s = c.prepareStatement("DELETE FROM harvest_configs WHERE harvest_id = ?");) {
+        Map<SparseDomainConfiguration, Long> removedConfigs = new HashMap<SparseDomainConfiguration, Long>();
+        try (PreparedStatement s = c.prepareStatement("SELECT harvest_configs.config_id, domains.name, "
+                + "configurations.name FROM harvest_configs, configurations, domains "
+                + "WHERE harvest_configs.harvest_id = ?"
+                + "  AND configurations.config_id = harvest_configs.config_id"
+                + "  AND domains.domain_id = configurations.domain_id");) {
             s.setLong(1, id);
-            s.executeUpdate();
+            ResultSet res = s.executeQuery();
+            while (res.next()) {
+                removedConfigs.put(new SparseDomainConfiguration(res.getString(2), res.getString(3)), res.getLong(1));
+            }
         }
-        try (PreparedStatement s = c.prepareStatement("INSERT INTO harvest_configs " + "( harvest_id, config_id ) "
-                + "SELECT ?, config_id FROM configurations, domains "
-                + "WHERE domains.name = ? AND configurations.name = ?"
-                + "  AND domains.domain_id = configurations.domain_id");
-        ) {
-            Iterator<DomainConfiguration> dcs = ph.getDomainConfigurations();
-            while (dcs.hasNext()) {
-                DomainConfiguration dc = dcs.next();
-                s.setLong(1, id);
-                s.setString(2, dc.getDomainName());
-                s.setString(3, dc.getName());
-                s.executeUpdate();
+        Set<SparseDomainConfiguration> configs = new LinkedHashSet<SparseDomainConfiguration>();
+        Iterator<DomainConfiguration> dcs = ph.getDomainConfigurations();
+        while (dcs.hasNext()) {
+            configs.add(new SparseDomainConfiguration(dcs.next()));
+        }
+        List<SparseDomainConfiguration> addedConfigs = new ArrayList<SparseDomainConfiguration>();
+        for (SparseDomainConfiguration config : configs) {
+            if (removedConfigs.remove(config) == null) {
+                addedConfigs.add(config);
+            }
+        }
+        log.debug("Updating configurations of harvest #{}: {} added, {} removed", id, addedConfigs.size(),
+                removedConfigs.size());
+
+        if (!removedConfigs.isEmpty()) {
+            try (PreparedStatement s = c.prepareStatement("DELETE FROM harvest_configs "
+                    + "WHERE harvest_id = ? AND config_id = ?");) {
+                for (Long configId : removedConfigs.values()) {
+                    s.setLong(1, id);
+                    s.setLong(2, configId);
+                    s.addBatch();
+                }
+                s.executeBatch();
+            }
+        }
+        if (!addedConfigs.isEmpty()) {
+            String tmpTable = DBSpecifics.getInstance().getJobConfigsTmpTable(c);
+            try {
+                try (PreparedStatement s = c.prepareStatement("INSERT INTO " + tmpTable
+                        + " ( domain_name, config_name ) VALUES ( ?, ? )");) {
+                    for (SparseDomainConfiguration config : addedConfigs) {
+                        s.setString(1, config.getDomainName());
+                        s.setString(2, config.getConfigurationName());
+                        s.addBatch();
+                    }
+                    s.executeBatch();
+                }
+                try (PreparedStatement s = c.prepareStatement("INSERT INTO harvest_configs ( harvest_id, config_id ) "
+                        + "SELECT ?, configurations.config_id FROM domains, configurations, " + tmpTable
+                        + " WHERE domains.name = " + tmpTable + ".domain_name"
+                        + "   AND domains.domain_id = configurations.domain_id"
+                        + "   AND configurations.name = " + tmpTable + ".config_name");) {
+                    s.setLong(1, id);
+                    int rows = s.executeUpdate();
+                    if (rows != addedConfigs.size()) {
+                        log.debug("Domain or configuration in table for harvest #{} missing: Should have {}, got {}",
+                                id, addedConfigs.size(), rows);
+                    }
+                }
+            } finally {
+                DBSpecifics.getInstance().dropJobConfigsTmpTable(c, tmpTable);
             }
         }
     }
@@ -265,7 +316,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
      * @see HarvestDefinitionDAO#read(Long)
      */
     @Override
-    public synchronized HarvestDefinition read(Long harvestDefinitionID) throws UnknownID, IOFailure {
+    public HarvestDefinition read(Long harvestDefinitionID) throws UnknownID, IOFailure {
         Connection c = HarvestDBConnection.get();
         try {
             return read(c, harvestDefinitionID);
@@ -415,12 +466,13 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
     }
 
     /**
-     * Update an existing harvest definition with new info.
+     * Update an existing harvest definition with new info. Concurrent updates of the same harvest definition are
+     * detected by its edition, so updates of different harvest definitions do not wait for each other.
      *
      * @param hd An updated harvest definition
      * @see HarvestDefinitionDAO#update(HarvestDefinition)
      */
-    public synchronized void update(HarvestDefinition hd) {
+    public void update(HarvestDefinition hd) {
         ArgumentNotValid.checkNotNull(hd, "HarvestDefinition hd");
         if (hd.getOid() == null || !exists(hd.getOid())) {
             final String message = "Cannot update non-existing " + "harvestdefinition '" + hd.getName() + "'";
@@ -520,7 +572,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
      * @param harvestDefinition the harvest definition object.
      */
     @Override
-    public synchronized void flipActive(SparsePartialHarvest harvestDefinition) {
+    public void flipActive(SparsePartialHarvest harvestDefinition) {
         ArgumentNotValid.checkNotNull(harvestDefinition, "HarvestDefinition harvestDefinition");
 
         Connection c = HarvestDBConnection.get();
@@ -578,7 +630,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
     }
 
     @Override
-    public synchronized boolean exists(String name) {
+    public boolean exists(String name) {
         ArgumentNotValid.checkNotNullOrEmpty(name, "String name");
         Connection c = HarvestDBConnection.get();
         try {
@@ -590,7 +642,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
     }
 
     @Override
-    public synchronized boolean exists(Long oid) {
+    public boolean exists(Long oid) {
         ArgumentNotValid.checkNotNull(oid, "Long oid");
         Connection c = HarvestDBConnection.get();
         try {
@@ -619,7 +671,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
      * @return An iterator that give the existing harvest definitions in turn
      */
     @Override
-    public synchronized Iterator<HarvestDefinition> getAllHarvestDefinitions() {
+    public Iterator<HarvestDefinition> getAllHarvestDefinitions() {
         Connection c = HarvestDBConnection.get();
         try {
             List<Long> hds = DBUtils.selectLongList(c, "SELECT harvest_id FROM harvestdefinitions ORDER BY name");
@@ -644,7 +696,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
      * @return Iterator containing the default DomainConfiguration for all domains that are not aliases
      */
     @Override
-    public synchronized Iterator<DomainConfiguration> getSnapShotConfigurations() {
+    public Iterator<DomainConfiguration> getSnapShotConfigurations() {
         return new FilterIterator<Domain, DomainConfiguration>(DomainDAO.getInstance()
                 .getAllDomainsInSnapshotHarvestOrder()) {
             public DomainConfiguration filter(Domain domain) {
@@ -697,7 +749,7 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
      * @return The HarvestDefinition object with that name, or null if none has that name.
      */
     @Override
-    public synchronized HarvestDefinition getHarvestDefinition(String name) {
+    public HarvestDefinition getHarvestDefinition(String name) {
         ArgumentNotValid.checkNotNullOrEmpty(name, "String name");
         log.debug("Reading harvestdefinition w/ name '{}'", name);
         Connection c = HarvestDBConnection.get();
@@ -1344,11 +1396,34 @@ public class HarvestDefinitionDBDAO extends HarvestDefinitionDAO {
         ArgumentNotValid.checkNotNull(ph, "PartialHarvest ph");
         ArgumentNotValid.checkNotNull(dcList, "List<DomainConfiguration> dcList");
 
-        try (Connection connection = HarvestDBConnection.get()) {
+        Connection connection = HarvestDBConnection.get();
+        PreparedStatement s = null;
+        try {
+            connection.setAutoCommit(false);
+            // Increasing the edition locks the harvest definition until commit, so concurrent changes of its
+            // configurations are not interleaved
+            s = connection.prepareStatement("UPDATE harvestdefinitions SET edition = ? "
+                    + "WHERE harvest_id = ? AND edition = ?");
+            long nextEdition = ph.getEdition() + 1;
+            s.setLong(1, nextEdition);
+            s.setLong(2, ph.getOid());
+            s.setLong(3, ph.getEdition());
+            if (s.executeUpdate() == 0) {
+                String message = "Somebody else must have updated " + ph + " since edition " + ph.getEdition()
+                        + ", not resetting domainConfigurations";
+                log.debug(message);
+                throw new PermissionDenied(message);
+            }
             createHarvestConfigsEntries(connection, ph, ph.getOid());
+            connection.commit();
+            ph.setEdition(nextEdition);
         } catch (SQLException e) {
             log.warn("Exception thrown while resetting domainConfigurations: {}",
                     ExceptionUtils.getSQLExceptionCause(e), e);
+        } finally {
+            DBUtils.closeStatementIfOpen(s);
+            DBUtils.rollbackIfNeeded(connection, "resetting domainConfigurations of", ph);
+            HarvestDBConnection.release(connection);
         }
     }
 
@@ -237,7 +237,7 @@ public enum HarvesterDatabaseTables {
     /** The table containing information about Heritrix templates. */
     ORDERTEMPLATES {
         static final String NAME = "ordertemplates";
-        static final int REQUIRED_VERSION = 2;
+        static final int REQUIRED_VERSION = 3;
 
         @Override
         public int getRequiredVersion() {
@@ -252,7 +252,7 @@ public enum HarvesterDatabaseTables {
     /** The table containing information about jobs. */
     JOBS {
         static final String NAME = "jobs";
-        static final int REQUIRED_VERSION = 10;
+        static final int REQUIRED_VERSION = 11;
 
         @Override
         public int getRequiredVersion() {
@@ -279,6 +279,21 @@ public enum HarvesterDatabaseTables {
             return NAME;
         }
     },
+    /** The table containing the order templates and seed lists of jobs, stored once by content hash. */
+    JOBDOCUMENTS {
+        static final String NAME = "jobdocuments";
+        static final int REQUIRED_VERSION = 1;
+
+        @Override
+        public int getRequiredVersion() {
+            return REQUIRED_VERSION;
+        }
+
+        @Override
+        public String getTablename() {
+            return NAME;
+        }
+    },
     /** The table containing information about list of global crawlertraps. */
     GLOBALCRAWLERTRAPLISTS {
         static final String NAME = "global_crawler_trap_lists";
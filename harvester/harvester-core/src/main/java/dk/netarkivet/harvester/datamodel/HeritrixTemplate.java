@@ -123,6 +123,13 @@ public abstract class HeritrixTemplate implements Serializable {
 	 */
 	public abstract String getXML();
 
+	/**
+	 * Make a copy of this template, without parsing it again. The copy can be changed without changing this template.
+	 *
+	 * @return A copy of this template
+	 */
+	public abstract HeritrixTemplate copy();
+
 	/**
 	 * Method to add a list of crawler traps with a given element name. It is used both to add per-domain traps and
 	 * global traps.
@@ -132,6 +139,14 @@ public abstract class HeritrixTemplate implements Serializable {
 	 */
 	public abstract void insertCrawlerTraps(String elementName, List<String> crawlertraps);
 
+	/**
+	 * @return true, if the crawler reads the crawler traps of the job from a separate crawler traps file instead of
+	 * having them inserted into the template, otherwise false.
+	 */
+	public boolean usesCrawlerTrapsFile() {
+		return false;
+	}
+
 	/**
 	 * Make sure that Heritrix will archive its data in the chosen archiveFormat.
 	 *
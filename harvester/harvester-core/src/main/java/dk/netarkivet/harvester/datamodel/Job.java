@@ -22,27 +22,24 @@
  */
 package dk.netarkivet.harvester.datamodel;
 
-import gnu.inet.encoding.IDNA;
-import gnu.inet.encoding.IDNAException;
-
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -111,9 +108,10 @@ public class Job implements Serializable, JobInfo {
    
     /**
      * A set of seeds involved in this job. Outside the SetSeedList() method, the set of seeds is updated in the
-     * addConfiguration() method.
+     * addConfiguration() method. The seeds are kept sorted, so jobs with the same seeds have the same seedlist, and
+     * share the stored copy of it.
      */
-    private Set<String> seedListSet = new HashSet<String>();
+    private Set<String> seedListSet = new TreeSet<String>();
     /** Which run of the harvest definition this is. */
     private int harvestNum;
     /** Errors during harvesting. */
@@ -323,6 +321,32 @@ public class Job implements Serializable, JobInfo {
     Job(Long harvestID, Map<String, String> configurations, String channel, boolean snapshot,
             long forceMaxObjectsPerDomain, long forceMaxBytesPerDomain, long forceMaxJobRunningTime, JobStatus status,
             String orderXMLname, HeritrixTemplate orderXMLdoc, String seedlist, int harvestNum, Long continuationOf) {
+        this(harvestID, configurations, channel, snapshot, forceMaxObjectsPerDomain, forceMaxBytesPerDomain,
+                forceMaxJobRunningTime, status, orderXMLname, orderXMLdoc, checkSeedList(seedlist), harvestNum,
+                continuationOf);
+    }
+
+    /**
+     * Create a new Job object from basic information stored in the DAO, reading the combined seedlist from a Reader so
+     * it is never held as one String.
+     *
+     * @param harvestID the id of the harvestdefinition
+     * @param configurations the configurations to base the Job on
+     * @param channel the name of the channel on which the job will be submitted.
+     * @param snapshot whether the job belongs to a snapshot harvest
+     * @param forceMaxObjectsPerDomain the maximum number of objects harvested from a domain, overrides individual
+     * configuration settings. 0 means no limit.
+     * @param forceMaxBytesPerDomain The maximum number of objects harvested from a domain, or -1 for no limit.
+     * @param forceMaxJobRunningTime The max time in seconds given to the harvester for this job
+     * @param status the current status of the job.
+     * @param orderXMLname the name of the order template used.
+     * @param orderXMLdoc the (possibly modified) template
+     * @param seedlist the combined seedlist from all configs, one seed per line.
+     * @param harvestNum the run number of the harvest definition
+     */
+    Job(Long harvestID, Map<String, String> configurations, String channel, boolean snapshot,
+            long forceMaxObjectsPerDomain, long forceMaxBytesPerDomain, long forceMaxJobRunningTime, JobStatus status,
+            String orderXMLname, HeritrixTemplate orderXMLdoc, Reader seedlist, int harvestNum, Long continuationOf) {
         origHarvestDefinitionID = harvestID;
         domainConfigurationMap = configurations;
         this.channel = channel;
@@ -333,7 +357,7 @@ public class Job implements Serializable, JobInfo {
         this.status = status;
         this.orderXMLname = orderXMLname;
         this.orderXMLdoc = orderXMLdoc;
-        this.setSeedList(seedlist);
+        this.readSeedList(seedlist);
         this.harvestNum = harvestNum;
         this.continuationOF = continuationOf;
         
@@ -371,48 +395,14 @@ public class Job implements Serializable, JobInfo {
 
         domainConfigurationMap.put(cfg.getDomainName(), cfg.getName());
 
-        // Add the seeds from the configuration to the Job seeds.
-        // Take care of duplicates.
+        // Add the seeds from the configuration to the Job seeds, along with the ASCII forms of the seeds with
+        // internationalized domain names.
+        // Duplicates are silently ignored.
+        // TODO remove the ASCII forms when heritrix implements this functionality
         for (Iterator<SeedList> itt = cfg.getSeedLists(); itt.hasNext();) {
             SeedList seed = itt.next();
-            List<String> seeds = seed.getSeeds();
-            for (String seedUrl : seeds) {
-                seedListSet.add(seedUrl); // duplicates is silently ignored
-
-                // TODO remove when heritrix implements this functionality
-                // try to convert a seed into a Internationalized Domain Name
-                try {
-                    String seedASCII = seedUrl;
-                    // It is rare to see these seeds, but they need to be
-                    // correctly idnaized
-                    if (seedUrl.contains(":") || seedUrl.contains("/")) {
-                        String normalizedUrl = seedUrl;
-                        if (!normalizedUrl.matches("^[a-zA-Z]+:.*")) {
-                            // If no protocol is given, assume http
-                            normalizedUrl = "http://" + normalizedUrl;
-                        }
-                        URL url = new URL(normalizedUrl);
-                        String domainName = url.getHost();
-                        String domainNameASCII = IDNA.toASCII(domainName);
-                        if (!domainName.equals(domainNameASCII)) {
-                            // If the domain name changed, replace that in the
-                            // seed.
-                            seedASCII = seedUrl.replaceFirst(Pattern.quote(domainName), domainNameASCII);
-                        }
-                    } else {
-                        seedASCII = IDNA.toASCII(seedUrl);
-                    }
-                    if (!seedASCII.equals(seedUrl)) {
-                        log.trace("Converted {} to {}", seedUrl, seedASCII);
-                        // Note that duplicates is silently ignored
-                        seedListSet.add(seedASCII);
-                    }
-                } catch (IDNAException e) {
-                    log.trace("Cannot convert seed {} to ASCII", seedUrl, e);
-                } catch (MalformedURLException e) {
-                    log.trace("Cannot convert seed {} to ASCII", seedUrl, e);
-                }
-            }
+            seedListSet.addAll(seed.getSeeds());
+            seedListSet.addAll(seed.getASCIISeeds());
         }
 
         orderXMLdoc.editOrderXMLAddPerDomainCrawlerTraps(cfg);
@@ -588,25 +578,47 @@ public class Job implements Serializable, JobInfo {
      * @param seedList List of seeds as one String
      */
     public void setSeedList(String seedList) {
+        readSeedList(checkSeedList(seedList));
+    }
+
+    /**
+     * Check that a seedlist given as a String is not empty.
+     *
+     * @param seedList List of seeds as one String
+     * @return A Reader of the seeds
+     * @throws ArgumentNotValid if seedList is null or empty
+     */
+    private static Reader checkSeedList(String seedList) {
         ArgumentNotValid.checkNotNullOrEmpty(seedList, "seedList");
-        seedListSet = new HashSet<>();
-        BufferedReader reader = new BufferedReader(new StringReader(seedList));
+        return new StringReader(seedList);
+    }
+
+    /**
+     * Set the seedlist of the job from a Reader giving one seed per line. Duplicate seeds are removed. The reader is
+     * closed afterwards.
+     *
+     * @param seedList Reader of the seeds
+     * @throws IOFailure if reading the seeds fails
+     */
+    public void readSeedList(Reader seedList) {
+        ArgumentNotValid.checkNotNull(seedList, "Reader seedList");
+        Set<String> seeds = new TreeSet<>();
+        BufferedReader reader = new BufferedReader(seedList);
         String seed;
         try {
             while ((seed = reader.readLine()) != null) {
-                seedListSet.add(seed); // add to seedlist if not already there
+                seeds.add(seed); // add to seedlist if not already there
             }
         } catch (IOException e) {
-            // This never happens, as we're reading from a string!
-            throw new IOFailure("IOException reading from seed string", e);
+            throw new IOFailure("IOException reading seeds", e);
         } finally {
             IOUtils.closeQuietly(reader);
         }
+        seedListSet = seeds;
     }
 
     /**
-     * Get the seedlist as a String. The individual seeds are separated by the character '\n'. The order of the seeds
-     * are unknown.
+     * Get the seedlist as a String. The individual seeds are separated by the character '\n'. The seeds are sorted.
      *
      * @return the seedlist as a String
      */
@@ -614,6 +626,25 @@ public class Job implements Serializable, JobInfo {
         return StringUtils.conjoin("\n", seedListSet);
     }
 
+    /**
+     * Write the seedlist to a Writer, in the same form as returned by {@link #getSeedListAsString()}, without building
+     * it as one String.
+     *
+     * @param writer the Writer to write the seeds to. It is not closed.
+     * @throws IOException if writing the seeds fails
+     */
+    public void writeSeedList(Writer writer) throws IOException {
+        ArgumentNotValid.checkNotNull(writer, "Writer writer");
+        boolean first = true;
+        for (String seed : seedListSet) {
+            if (!first) {
+                writer.write('\n');
+            }
+            writer.write(seed);
+            first = false;
+        }
+    }
+
     /**
      * Get the current status of this Job.
      *
@@ -24,6 +24,7 @@ package dk.netarkivet.harvester.datamodel;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
@@ -107,6 +108,19 @@ public abstract class JobDAO implements DAO, Iterable<Job> {
      */
     public abstract void update(Job job) throws IOFailure;
 
+    /**
+     * Update only the status, dates and error messages of a Job in persistent storage. The order template, seed list
+     * and domain configurations of the job are left as they are, so this is much cheaper than {@link #update(Job)} for
+     * the status changes made by the scheduler.
+     *
+     * @param job The Job to update
+     * @throws ArgumentNotValid If the Job is null, or its domain configurations have been changed
+     * @throws UnknownID If the Job doesn't exist in the DAO
+     * @throws IOFailure If writing the job to persistent storage fails
+     * @throws PermissionDenied If the job has been updated behind our backs
+     */
+    public abstract void updateStatus(Job job) throws IOFailure;
+
     /**
      * Reset the DAO instance. Only for use from within tests.
      */
@@ -115,7 +129,7 @@ public abstract class JobDAO implements DAO, Iterable<Job> {
     }
 
     /**
-     * Return a list of all jobs with the given status.
+     * Return a list of all jobs with the given status. The jobs are read one at a time as the iterator advances.
      *
      * @param status A given status.
      * @return A list of all job with given status
@@ -142,7 +156,7 @@ public abstract class JobDAO implements DAO, Iterable<Job> {
     public abstract Iterator<Long> getAllJobIds(JobStatus status, HarvestChannel channel);
 
     /**
-     * Return a list of all jobs .
+     * Return a list of all jobs. The jobs are read one at a time as the iterator advances.
      *
      * @return A list of all jobs
      */
@@ -227,4 +241,14 @@ public abstract class JobDAO implements DAO, Iterable<Job> {
      * @return a list of AliasInfo objects for all the domains included in the job.
      */
     public abstract List<AliasInfo> getJobAliasInfo(Job job);
+
+    /**
+     * Get the crawler traps of all the domains included in the job, read in one go from the database. The traps are
+     * the current traps of the domains, which may have changed since the job was created.
+     *
+     * @param job A job known by the database
+     * @return a map from domain name to the non-empty crawler traps of that domain. Domains without crawler traps are
+     * left out.
+     */
+    public abstract Map<String, List<String>> getJobCrawlerTraps(Job job);
 }
@@ -23,11 +23,27 @@
 
 package dk.netarkivet.harvester.datamodel;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -37,6 +53,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ProxyWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,8 +64,10 @@ import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.IllegalState;
 import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.exceptions.UnknownID;
+import dk.netarkivet.common.utils.ChecksumCalculator;
 import dk.netarkivet.common.utils.DBUtils;
 import dk.netarkivet.common.utils.ExceptionUtils;
+import dk.netarkivet.common.utils.FileUtils;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.StringUtils;
 import dk.netarkivet.harvester.webinterface.HarvestStatus;
@@ -63,6 +83,12 @@ public class JobDBDAO extends JobDAO {
     /** The logger for this class. */
     private static final Logger log = LoggerFactory.getLogger(JobDBDAO.class);
 
+    /** The encoding of the job documents when calculating their hashes. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The class of the SQL states of integrity constraint violations. */
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
     /**
      * Create a new JobDAO implemented using database. This constructor also tries to upgrade the jobs and jobs_configs
      * tables in the current database. throws and IllegalState exception, if it is impossible to make the necessary
@@ -73,6 +99,7 @@ public class JobDBDAO extends JobDAO {
         try {
             HarvesterDatabaseTables.checkVersion(connection, HarvesterDatabaseTables.JOBS);
             HarvesterDatabaseTables.checkVersion(connection, HarvesterDatabaseTables.JOBCONFIGS);
+            HarvesterDatabaseTables.checkVersion(connection, HarvesterDatabaseTables.JOBDOCUMENTS);
         } finally {
             HarvestDBConnection.release(connection);
         }
@@ -120,7 +147,7 @@ public class JobDBDAO extends JobDAO {
             connection.setAutoCommit(false);
             statement = connection.prepareStatement("INSERT INTO jobs "
                     + "(job_id, harvest_id, status, channel, forcemaxcount, "
-                    + "forcemaxbytes, forcemaxrunningtime, orderxml, " + "orderxmldoc, seedlist, "
+                    + "forcemaxbytes, forcemaxrunningtime, orderxml, " + "orderxmldoc_hash, seedlist_hash, "
                     + "harvest_num, startdate, enddate, submitteddate, creationdate, "
                     + "num_configs, edition, resubmitted_as_job, harvestname_prefix, snapshot) "
                     + "VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?," + "?, ?, ?, ?, ?, ?)");
@@ -135,9 +162,9 @@ public class JobDBDAO extends JobDAO {
             DBUtils.setStringMaxLength(statement, 8, job.getOrderXMLName(), Constants.MAX_NAME_SIZE, job,
                     "order.xml name");
             final String orderString = job.getOrderXMLdoc().getXML();
-            DBUtils.setClobMaxLength(statement, 9, orderString, Constants.MAX_ORDERXML_SIZE, job, "order.xml");
-            DBUtils.setClobMaxLength(statement, 10, job.getSeedListAsString(), Constants.MAX_COMBINED_SEED_LIST_SIZE,
-                    job, "seedlist");
+            statement.setString(9,
+                    storeJobDocument(connection, orderString, Constants.MAX_ORDERXML_SIZE, job, "order.xml"));
+            statement.setString(10, storeJobSeedList(connection, job));
             statement.setInt(11, job.getHarvestNum());
             DBUtils.setDateMaybeNull(statement, 12, job.getActualStart());
             DBUtils.setDateMaybeNull(statement, 13, job.getActualStop());
@@ -218,6 +245,171 @@ public class JobDBDAO extends JobDAO {
         }
     }
 
+    /**
+     * Store a document of a job, that is its order template or seed list, in the jobdocuments table by the hash of its
+     * contents. Most jobs share one of a few order templates, so a document is only written the first time it is seen.
+     *
+     * @param connection an open connection to the harvestDatabase
+     * @param document the contents of the document
+     * @param maxSize the maximum size of the document
+     * @param job the job the document belongs to (used for error messages)
+     * @param fieldName the name of the document (used for error messages)
+     * @return the hash identifying the document
+     * @throws SQLException If storing the document fails
+     */
+    private static String storeJobDocument(Connection connection, String document, long maxSize, Job job,
+            String fieldName) throws SQLException {
+        String hash = ChecksumCalculator.calculateSha1(new ByteArrayInputStream(document.getBytes(UTF8)));
+        if (!jobDocumentExists(connection, hash)) {
+            insertJobDocument(connection, hash, new StringReader(document), document.length(), maxSize, job,
+                    fieldName);
+        }
+        return hash;
+    }
+
+    /**
+     * Store the seed list of a job in the jobdocuments table, as done by
+     * {@link #storeJobDocument(Connection, String, long, Job, String)}, without building it as one String. The seeds
+     * are written to a temporary file, calculating the hash and counting the characters on the way, and the document
+     * is inserted as a character stream from that file if it has not been stored before.
+     *
+     * @param connection an open connection to the harvestDatabase
+     * @param job the job whose seed list is stored
+     * @return the hash identifying the seed list
+     * @throws SQLException If storing the seed list fails
+     * @throws IOFailure If writing or reading the temporary file fails
+     */
+    private static String storeJobSeedList(Connection connection, Job job) throws SQLException {
+        MessageDigest digest = ChecksumCalculator.getMessageDigest(ChecksumCalculator.SHA1);
+        final long[] length = new long[1];
+        File seedsFile = null;
+        Reader reader = null;
+        try {
+            seedsFile = File.createTempFile("seedlist", ".txt", FileUtils.getTempDir());
+            Writer writer = new ProxyWriter(new OutputStreamWriter(new DigestOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(seedsFile)), digest), UTF8)) {
+                @Override
+                protected void beforeWrite(int n) {
+                    length[0] += n;
+                }
+            };
+            try {
+                job.writeSeedList(writer);
+            } finally {
+                writer.close();
+            }
+            String hash = ChecksumCalculator.toHex(digest.digest());
+            if (!jobDocumentExists(connection, hash)) {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(seedsFile), UTF8));
+                insertJobDocument(connection, hash, reader, length[0], Constants.MAX_COMBINED_SEED_LIST_SIZE, job,
+                        "seedlist");
+            }
+            return hash;
+        } catch (IOException e) {
+            throw new IOFailure("Error writing the seed list of job " + job.getJobID() + " to a temporary file", e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+            if (seedsFile != null) {
+                FileUtils.remove(seedsFile);
+            }
+        }
+    }
+
+    /**
+     * @param connection an open connection to the harvestDatabase
+     * @param hash the hash of a document
+     * @return true, if a document with the given hash is stored in the jobdocuments table
+     */
+    private static boolean jobDocumentExists(Connection connection, String hash) {
+        return DBUtils.selectLongValue(connection, "SELECT COUNT(*) FROM jobdocuments WHERE hash = ?", hash) > 0;
+    }
+
+    /**
+     * Insert a document in the jobdocuments table. The document may have been inserted by another job since it was
+     * looked for, in which case the insert fails with an integrity constraint violation. The document is then already
+     * stored, so that is not an error. In a transaction, the failed insert is rolled back to a savepoint, so the
+     * transaction can continue.
+     *
+     * @param connection an open connection to the harvestDatabase
+     * @param hash the hash of the document
+     * @param document the contents of the document. It is not closed.
+     * @param length the number of characters in the document
+     * @param maxSize the maximum size of the document. A longer document is truncated to this size.
+     * @param job the job the document belongs to (used for error messages)
+     * @param fieldName the name of the document (used for error messages)
+     * @throws SQLException If inserting the document fails
+     */
+    private static void insertJobDocument(Connection connection, String hash, Reader document, long length,
+            long maxSize, Job job, String fieldName) throws SQLException {
+        long storedLength = Math.min(length, Math.min(maxSize, Integer.MAX_VALUE));
+        if (storedLength < length) {
+            log.warn("The field '{}' of job {} is {} characters long, which is longer than the allowed {} characters. "
+                    + "The contents is now truncated to length {}", fieldName, job.getJobID(), length, maxSize,
+                    storedLength);
+        }
+        Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+        PreparedStatement statement = connection
+                .prepareStatement("INSERT INTO jobdocuments (hash, content) VALUES (?, ?)");
+        try {
+            statement.setString(1, hash);
+            statement.setCharacterStream(2, document, (int) storedLength);
+            statement.executeUpdate();
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+        } catch (SQLException e) {
+            // SQL states of class 23 are integrity constraint violations, such as a duplicate key
+            if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                throw e;
+            }
+            if (savepoint != null) {
+                connection.rollback(savepoint);
+            }
+            if (!jobDocumentExists(connection, hash)) {
+                throw e;
+            }
+            log.debug("The {} of job {} with hash {} was stored by another job at the same time", fieldName,
+                    job.getJobID(), hash);
+        } finally {
+            DBUtils.closeStatementIfOpen(statement);
+        }
+    }
+
+    /**
+     * Get a text column from a result set, reading it as a Clob if the database uses Clobs for text.
+     *
+     * @param result a result set positioned on a row
+     * @param columnIndex the index of the column
+     * @param useClobs true, if the column is a Clob
+     * @return the text of the column, or null if the column is null
+     * @throws SQLException If reading the column fails
+     */
+    private static String getStringMaybeClob(ResultSet result, int columnIndex, boolean useClobs) throws SQLException {
+        if (useClobs) {
+            Clob clob = result.getClob(columnIndex);
+            return clob == null ? null : clob.getSubString(1L, (int) clob.length());
+        }
+        return result.getString(columnIndex);
+    }
+
+    /**
+     * Get a text column from a result set as a stream, reading it as a Clob if the database uses Clobs for text.
+     *
+     * @param result a result set positioned on a row
+     * @param columnIndex the index of the column
+     * @param useClobs true, if the column is a Clob
+     * @return a Reader of the text of the column, or null if the column is null
+     * @throws SQLException If reading the column fails
+     */
+    private static Reader getReaderMaybeClob(ResultSet result, int columnIndex, boolean useClobs)
+            throws SQLException {
+        if (useClobs) {
+            Clob clob = result.getClob(columnIndex);
+            return clob == null ? null : clob.getCharacterStream();
+        }
+        return result.getCharacterStream(columnIndex);
+    }
+
     /**
      * Check whether a particular job exists.
      *
@@ -294,7 +486,8 @@ public class JobDBDAO extends JobDAO {
             connection.setAutoCommit(false);
             statement = connection.prepareStatement("UPDATE jobs SET " + "harvest_id = ?, status = ?, channel = ?, "
                     + "forcemaxcount = ?, forcemaxbytes = ?, " + "forcemaxrunningtime = ?," + "orderxml = ?, "
-                    + "orderxmldoc = ?, seedlist = ?, " + "harvest_num = ?, harvest_errors = ?, "
+                    + "orderxmldoc = NULL, seedlist = NULL, " + "orderxmldoc_hash = ?, seedlist_hash = ?, "
+                    + "harvest_num = ?, harvest_errors = ?, "
                     + "harvest_error_details = ?, upload_errors = ?, " + "upload_error_details = ?, startdate = ?,"
                     + "enddate = ?, num_configs = ?, edition = ?, " + "submitteddate = ?, creationdate = ?, "
                     + "resubmitted_as_job = ?, harvestname_prefix = ?," + "snapshot = ?"
@@ -308,9 +501,9 @@ public class JobDBDAO extends JobDAO {
             DBUtils.setStringMaxLength(statement, 7, job.getOrderXMLName(), Constants.MAX_NAME_SIZE, job,
                     "order.xml name");
             final String orderreader = job.getOrderXMLdoc().getXML();
-            DBUtils.setClobMaxLength(statement, 8, orderreader, Constants.MAX_ORDERXML_SIZE, job, "order.xml");
-            DBUtils.setClobMaxLength(statement, 9, job.getSeedListAsString(), Constants.MAX_COMBINED_SEED_LIST_SIZE,
-                    job, "seedlist");
+            statement.setString(8,
+                    storeJobDocument(connection, orderreader, Constants.MAX_ORDERXML_SIZE, job, "order.xml"));
+            statement.setString(9, storeJobSeedList(connection, job));
             statement.setInt(10, job.getHarvestNum()); // Not in job yet
             DBUtils.setStringMaxLength(statement, 11, job.getHarvestErrors(), Constants.MAX_ERROR_SIZE, job,
                     "harvest_error");
@@ -352,6 +545,62 @@ public class JobDBDAO extends JobDAO {
         }
     }
 
+    @Override
+    public synchronized void updateStatus(Job job) {
+        ArgumentNotValid.checkNotNull(job, "job");
+        ArgumentNotValid.checkTrue(!job.configsChanged, "The configurations of job " + job.getJobID()
+                + " have changed, use update()");
+
+        Connection connection = HarvestDBConnection.get();
+        PreparedStatement statement = null;
+        try {
+            final Long jobID = job.getJobID();
+            if (!exists(connection, jobID)) {
+                throw new UnknownID("Job id " + jobID + " is not known in persistent storage");
+            }
+
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement("UPDATE jobs SET status = ?, harvest_errors = ?, "
+                    + "harvest_error_details = ?, upload_errors = ?, upload_error_details = ?, startdate = ?, "
+                    + "enddate = ?, submitteddate = ?, resubmitted_as_job = ?, edition = ?"
+                    + " WHERE job_id = ? AND edition = ?");
+            statement.setInt(1, job.getStatus().ordinal());
+            DBUtils.setStringMaxLength(statement, 2, job.getHarvestErrors(), Constants.MAX_ERROR_SIZE, job,
+                    "harvest_error");
+            DBUtils.setStringMaxLength(statement, 3, job.getHarvestErrorDetails(), Constants.MAX_ERROR_DETAIL_SIZE,
+                    job, "harvest_error_details");
+            DBUtils.setStringMaxLength(statement, 4, job.getUploadErrors(), Constants.MAX_ERROR_SIZE, job,
+                    "upload_error");
+            DBUtils.setStringMaxLength(statement, 5, job.getUploadErrorDetails(), Constants.MAX_ERROR_DETAIL_SIZE,
+                    job, "upload_error_details");
+            DBUtils.setDateMaybeNull(statement, 6, job.getActualStart());
+            DBUtils.setDateMaybeNull(statement, 7, job.getActualStop());
+            DBUtils.setDateMaybeNull(statement, 8, job.getSubmittedDate());
+            DBUtils.setLongMaybeNull(statement, 9, job.getResubmittedAsJob());
+            long edition = job.getEdition() + 1;
+            statement.setLong(10, edition);
+            statement.setLong(11, jobID);
+            statement.setLong(12, job.getEdition());
+            final int rows = statement.executeUpdate();
+            if (rows == 0) {
+                String message = "Edition " + job.getEdition() + " has expired, not updating";
+                log.debug(message);
+                throw new PermissionDenied(message);
+            }
+            connection.commit();
+            job.setEdition(edition);
+        } catch (SQLException e) {
+            String message = "SQL error updating status of job " + job + " in database" + "\n"
+                    + ExceptionUtils.getSQLExceptionCause(e);
+            log.warn(message, e);
+            throw new IOFailure(message, e);
+        } finally {
+            DBUtils.closeStatementIfOpen(statement);
+            DBUtils.rollbackIfNeeded(connection, "update status of job", job);
+            HarvestDBConnection.release(connection);
+        }
+    }
+
     /**
      * Read a single job from the job database.
      *
@@ -394,8 +643,13 @@ public class JobDBDAO extends JobDAO {
 	            + "resubmitted_as_job,"
 	            + "continuationof,"
 	            + "harvestname_prefix,"
-	            + "snapshot "
-            + "FROM jobs WHERE job_id = ?";
+	            + "snapshot,"
+	            + "orderxmldocs.content,"
+	            + "seedlists.content "
+            + "FROM jobs "
+            + "LEFT OUTER JOIN jobdocuments orderxmldocs ON orderxmldocs.hash = jobs.orderxmldoc_hash "
+            + "LEFT OUTER JOIN jobdocuments seedlists ON seedlists.hash = jobs.seedlist_hash "
+            + "WHERE jobs.job_id = ?";
 
     /**
      * Read a single job from the job database.
@@ -412,9 +666,33 @@ public class JobDBDAO extends JobDAO {
         }
         PreparedStatement statement = null;
         try {
-            statement = connection.prepareStatement(GET_JOB_BY_ID_SQL);
+            // IDs should match up in a natural join
+            // The following if-block is an attempt to fix Bug 1856, an
+            // unexplained derby deadlock, by making this statement a dirty
+            // read.
+            String domainStatement = "SELECT domains.name, configurations.name "
+                    + "FROM domains, configurations, job_configs " + "WHERE job_configs.job_id = ?"
+                    + "  AND job_configs.config_id = configurations.config_id"
+                    + "  AND domains.domain_id = configurations.domain_id";
+            if (Settings.get(CommonSettings.DB_SPECIFICS_CLASS).contains(CommonSettings.DB_IS_DERBY_IF_CONTAINS)) {
+                statement = connection.prepareStatement(domainStatement + " WITH UR");
+            } else {
+                statement = connection.prepareStatement(domainStatement);
+            }
             statement.setLong(1, jobID);
             ResultSet result = statement.executeQuery();
+            Map<String, String> configurationMap = new HashMap<String, String>();
+            while (result.next()) {
+                String domainName = result.getString(1);
+                String configName = result.getString(2);
+                configurationMap.put(domainName, configName);
+            }
+            statement.close();
+
+            // The seedlist is read as a stream while the job is constructed, so the statement is kept open until then
+            statement = connection.prepareStatement(GET_JOB_BY_ID_SQL);
+            statement.setLong(1, jobID);
+            result = statement.executeQuery();
             result.next();
             long harvestID = result.getLong(1);
             JobStatus status = JobStatus.fromOrdinal(result.getInt(2));
@@ -423,26 +701,6 @@ public class JobDBDAO extends JobDAO {
             long forceMaxBytes = result.getLong(5);
             long forceMaxRunningTime = result.getLong(6);
             String orderxml = result.getString(7);
-
-            HeritrixTemplate orderXMLdoc = null;
-
-            boolean useClobs = DBSpecifics.getInstance().supportsClob();
-            String tmpStr;
-            if (useClobs) {
-                Clob clob = result.getClob(8);
-                tmpStr = clob.getSubString(1L, (int)clob.length());
-            } else {
-                tmpStr = result.getString(8);
-            }
-            orderXMLdoc = HeritrixTemplate.getTemplateFromString(-1, tmpStr);
-            String seedlist = "";
-            if (useClobs) {
-                Clob clob = result.getClob(9);
-                seedlist = clob.getSubString(1, (int) clob.length());
-            } else {
-                seedlist = result.getString(9);
-            }
-
             int harvestNum = result.getInt(10);
             String harvestErrors = result.getString(11);
             String harvestErrorDetails = result.getString(12);
@@ -457,27 +715,18 @@ public class JobDBDAO extends JobDAO {
             Long continuationOfJob = DBUtils.getLongMaybeNull(result, 21);
             String harvestnamePrefix = result.getString(22);
             boolean snapshot = result.getBoolean(23);
-            statement.close();
-            // IDs should match up in a natural join
-            // The following if-block is an attempt to fix Bug 1856, an
-            // unexplained derby deadlock, by making this statement a dirty
-            // read.
-            String domainStatement = "SELECT domains.name, configurations.name "
-                    + "FROM domains, configurations, job_configs " + "WHERE job_configs.job_id = ?"
-                    + "  AND job_configs.config_id = configurations.config_id"
-                    + "  AND domains.domain_id = configurations.domain_id";
-            if (Settings.get(CommonSettings.DB_SPECIFICS_CLASS).contains(CommonSettings.DB_IS_DERBY_IF_CONTAINS)) {
-                statement = connection.prepareStatement(domainStatement + " WITH UR");
-            } else {
-                statement = connection.prepareStatement(domainStatement);
+
+            // The documents are read last, as reading another column may close the stream of the seedlist
+            boolean useClobs = DBSpecifics.getInstance().supportsClob();
+            // Jobs created before the jobdocuments table existed have the documents inline
+            String tmpStr = getStringMaybeClob(result, 24, useClobs);
+            if (tmpStr == null) {
+                tmpStr = getStringMaybeClob(result, 8, useClobs);
             }
-            statement.setLong(1, jobID);
-            result = statement.executeQuery();
-            Map<String, String> configurationMap = new HashMap<String, String>();
-            while (result.next()) {
-                String domainName = result.getString(1);
-                String configName = result.getString(2);
-                configurationMap.put(domainName, configName);
+            HeritrixTemplate orderXMLdoc = HeritrixTemplate.getTemplateFromString(-1, tmpStr);
+            Reader seedlist = getReaderMaybeClob(result, 25, useClobs);
+            if (seedlist == null) {
+                seedlist = getReaderMaybeClob(result, 9, useClobs);
             }
             final Job job = new Job(harvestID, configurationMap, channel, snapshot, forceMaxCount, forceMaxBytes,
                     forceMaxRunningTime, status, orderxml, orderXMLdoc, seedlist, harvestNum, continuationOfJob);
@@ -536,21 +785,9 @@ public class JobDBDAO extends JobDAO {
      * @return A list of all job with given status
      */
     @Override
-    public synchronized Iterator<Job> getAll(JobStatus status) {
+    public Iterator<Job> getAll(JobStatus status) {
         ArgumentNotValid.checkNotNull(status, "JobStatus status");
-
-        Connection c = HarvestDBConnection.get();
-        try {
-            List<Long> idList = DBUtils.selectLongList(c, "SELECT job_id FROM jobs WHERE status = ? "
-                    + "ORDER BY job_id", status.ordinal());
-            List<Job> orderedJobs = new LinkedList<Job>();
-            for (Long jobId : idList) {
-                orderedJobs.add(read(c, jobId));
-            }
-            return orderedJobs.iterator();
-        } finally {
-            HarvestDBConnection.release(c);
-        }
+        return new JobIterator(getAllJobIds(status));
     }
 
     /**
@@ -595,17 +832,37 @@ public class JobDBDAO extends JobDAO {
      * @return A list of all jobs
      */
     @Override
-    public synchronized Iterator<Job> getAll() {
-        Connection c = HarvestDBConnection.get();
-        try {
-            List<Long> idList = DBUtils.selectLongList(c, "SELECT job_id FROM jobs ORDER BY job_id");
-            List<Job> orderedJobs = new LinkedList<Job>();
-            for (Long jobId : idList) {
-                orderedJobs.add(read(c, jobId));
-            }
-            return orderedJobs.iterator();
-        } finally {
-            HarvestDBConnection.release(c);
+    public Iterator<Job> getAll() {
+        return new JobIterator(getAllJobIds());
+    }
+
+    /**
+     * An iterator over jobs that reads each job when it is reached, so only one job is held in memory at a time.
+     */
+    private class JobIterator implements Iterator<Job> {
+        /** The IDs of the jobs to iterate over. */
+        private final Iterator<Long> jobIDs;
+
+        /**
+         * @param jobIDs the IDs of the jobs to iterate over
+         */
+        JobIterator(Iterator<Long> jobIDs) {
+            this.jobIDs = jobIDs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return jobIDs.hasNext();
+        }
+
+        @Override
+        public Job next() {
+            return read(jobIDs.next());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Jobs cannot be removed");
         }
     }
 
@@ -862,9 +1119,11 @@ public class JobDBDAO extends JobDAO {
 
             statement = connection.prepareStatement("INSERT INTO jobs "
                     + " (job_id, harvest_id, channel, snapshot, status," + "  forcemaxcount, forcemaxbytes, orderxml,"
-                    + "  orderxmldoc, seedlist, harvest_num," + "  num_configs, edition, continuationof) "
+                    + "  orderxmldoc, seedlist, orderxmldoc_hash, seedlist_hash, harvest_num,"
+                    + "  num_configs, edition, continuationof) "
                     + " SELECT ?, harvest_id, channel, snapshot, ?," + "  forcemaxcount, forcemaxbytes, orderxml,"
-                    + "  orderxmldoc, seedlist, harvest_num," + " num_configs, ?, ?" + " FROM jobs WHERE job_id = ?");
+                    + "  orderxmldoc, seedlist, orderxmldoc_hash, seedlist_hash, harvest_num,"
+                    + " num_configs, ?, ?" + " FROM jobs WHERE job_id = ?");
             statement.setLong(1, newJobID);
             statement.setLong(2, JobStatus.NEW.ordinal());
             long initialEdition = 1;
@@ -1190,4 +1449,51 @@ public class JobDBDAO extends JobDAO {
         }
         return aliases;
     }
+
+    /**
+     * Get the crawler traps of all the domains included in the job. The traps are fetched with a single join over the
+     * job_configs table, rather than one query per domain.
+     *
+     * @param job A job known by the database
+     * @return a map from domain name to the non-empty crawler traps of that domain. Domains without crawler traps are
+     * left out.
+     * @throws IOFailure on trouble reading from the database
+     */
+    public Map<String, List<String>> getJobCrawlerTraps(Job job) {
+        ArgumentNotValid.checkNotNull(job, "Job job");
+        ArgumentNotValid.checkNotNull(job.getJobID(), "job.getJobID()");
+        Map<String, List<String>> trapsByDomain = new HashMap<String, List<String>>();
+        Connection c = HarvestDBConnection.get();
+        PreparedStatement s = null;
+        try {
+            s = c.prepareStatement("SELECT domains.name, domains.crawlertraps "
+                    + "FROM domains, configurations, job_configs WHERE job_configs.job_id = ?"
+                    + "  AND job_configs.config_id = configurations.config_id"
+                    + "  AND domains.domain_id = configurations.domain_id");
+            s.setLong(1, job.getJobID());
+            ResultSet res = s.executeQuery();
+            while (res.next()) {
+                String traps = res.getString(2);
+                if (traps == null) {
+                    continue;
+                }
+                List<String> domainTraps = new ArrayList<String>();
+                for (String trap : traps.split("\n")) {
+                    if (!trap.trim().isEmpty()) {
+                        domainTraps.add(trap);
+                    }
+                }
+                if (!domainTraps.isEmpty()) {
+                    trapsByDomain.put(res.getString(1), domainTraps);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOFailure("Error while fetching crawlertraps for job " + job.getJobID() + ": "
+                    + ExceptionUtils.getSQLExceptionCause(e), e);
+        } finally {
+            DBUtils.closeStatementIfOpen(s);
+            HarvestDBConnection.release(c);
+        }
+        return trapsByDomain;
+    }
 }
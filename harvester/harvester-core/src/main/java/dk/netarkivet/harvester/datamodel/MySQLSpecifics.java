@@ -370,6 +370,21 @@ public class MySQLSpecifics extends DBSpecifics {
         HarvestDBConnection.updateTable("jobs", 10, sqlStatements);
     }
 
+    @Override
+    protected void migrateJobsv10tov11() {
+        String[] sqlStatements = {"ALTER TABLE jobs ADD COLUMN orderxmldoc_hash VARCHAR(64) DEFAULT NULL",
+                "ALTER TABLE jobs ADD COLUMN seedlist_hash VARCHAR(64) DEFAULT NULL",
+                "ALTER TABLE jobs MODIFY orderxmldoc LONGTEXT NULL", "ALTER TABLE jobs MODIFY seedlist LONGTEXT NULL"};
+        HarvestDBConnection.updateTable("jobs", 11, sqlStatements);
+    }
+
+    @Override
+    protected void createJobdocumentsTable() {
+        String createStatement = "CREATE TABLE jobdocuments (" + "hash VARCHAR(64) NOT NULL PRIMARY KEY, "
+                + "content LONGTEXT NOT NULL" + ")";
+        HarvestDBConnection.updateTable("jobdocuments", 1, new String[] {createStatement});
+    }
+
     @Override
     protected void createHarvestChannelTable() {
         String createStatement = "CREATE TABLE harvestchannel (" + "id BIGINT NOT NULL PRIMARY KEY, "
@@ -410,6 +425,13 @@ public class MySQLSpecifics extends DBSpecifics {
         HarvestDBConnection.updateTable(tableName, 2, sqlStatements);
     }
 
+    @Override
+    protected void migrateOrderTemplatesTablev2tov3() {
+        String tableName = HarvesterDatabaseTables.ORDERTEMPLATES.getTablename();
+        String[] sqlStatements = {"ALTER TABLE " + tableName + " ADD COLUMN edition bigint not null default 1"};
+        HarvestDBConnection.updateTable(tableName, 3, sqlStatements);
+    }
+
     @Override
     public void createEavTypeAttributeTable(int toVersion) {
         String tableName = HarvesterDatabaseTables.EAVTYPEATTRIBUTE.getTablename();
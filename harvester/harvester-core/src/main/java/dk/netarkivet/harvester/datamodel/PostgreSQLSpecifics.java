@@ -311,6 +311,24 @@ public class PostgreSQLSpecifics extends DBSpecifics {
         HarvestDBConnection.updateTable("jobs", 10, sqlStatements);
     }
 
+    @Override
+    protected void migrateJobsv10tov11() {
+        String[] sqlStatements = {"ALTER TABLE jobs ADD COLUMN orderxmldoc_hash VARCHAR(64) DEFAULT NULL",
+                "ALTER TABLE jobs ADD COLUMN seedlist_hash VARCHAR(64) DEFAULT NULL",
+                "ALTER TABLE jobs ALTER COLUMN orderxmldoc DROP NOT NULL",
+                "ALTER TABLE jobs ALTER COLUMN seedlist DROP NOT NULL"};
+        HarvestDBConnection.updateTable("jobs", 11, sqlStatements);
+    }
+
+    @Override
+    protected void createJobdocumentsTable() {
+        String createStatement = "CREATE TABLE jobdocuments (" + "hash VARCHAR(64) NOT NULL PRIMARY KEY, "
+                + "content TEXT NOT NULL" + ")";
+        String[] sqlStatements = {createStatement,
+                "GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE jobdocuments TO netarchivesuite"};
+        HarvestDBConnection.updateTable("jobdocuments", 1, sqlStatements);
+    }
+
     @Override
     protected void createHarvestChannelTable() {
         String createStatement = "CREATE TABLE harvestchannel (" + "id BIGINT NOT NULL PRIMARY KEY, "
@@ -352,6 +370,13 @@ public class PostgreSQLSpecifics extends DBSpecifics {
         HarvestDBConnection.updateTable(tablename, 2, sqlStatements);
     }
 
+    @Override
+    protected void migrateOrderTemplatesTablev2tov3() {
+        final String tablename = HarvesterDatabaseTables.ORDERTEMPLATES.getTablename();
+        String[] sqlStatements = {"ALTER TABLE " + tablename + " ADD COLUMN edition BIGINT NOT NULL DEFAULT 1"};
+        HarvestDBConnection.updateTable(tablename, 3, sqlStatements);
+    }
+
     @Override
     public void createEavTypeAttributeTable(int toVersion) {
         String tableName = HarvesterDatabaseTables.EAVTYPEATTRIBUTE.getTablename();
@@ -29,6 +29,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -42,7 +43,6 @@ import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.exceptions.UnknownID;
 import dk.netarkivet.common.utils.DBUtils;
 import dk.netarkivet.common.utils.ExceptionUtils;
-import dk.netarkivet.common.utils.FilterIterator;
 
 /**
  * A database-based implementation of the ScheduleDAO.
@@ -54,6 +54,10 @@ public class ScheduleDBDAO extends ScheduleDAO {
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(ScheduleDBDAO.class);
 
+    /** The columns of schedules needed to make a Schedule, in the order expected by scheduleFromResultSet. */
+    private static final String SCHEDULE_COLUMNS = "schedule_id, comments, startdate, enddate, maxrepeats, timeunit, "
+            + "numtimeunits, anytime, onminute, onhour, ondayofweek, ondayofmonth, edition, name";
+
     /**
      * Constructor for this class, that only checks that the schedules table has the expected version.
      */
@@ -178,45 +182,13 @@ public class ScheduleDBDAO extends ScheduleDAO {
         Connection c = HarvestDBConnection.get();
         PreparedStatement s = null;
         try {
-            s = c.prepareStatement("SELECT schedule_id, comments, startdate, " + "enddate, maxrepeats, timeunit, "
-                    + "numtimeunits, anytime, onminute, " + "onhour, ondayofweek, ondayofmonth, edition "
-                    + "FROM schedules WHERE name = ?");
+            s = c.prepareStatement("SELECT " + SCHEDULE_COLUMNS + " FROM schedules WHERE name = ?");
             s.setString(1, scheduleName);
             ResultSet rs = s.executeQuery();
             if (!rs.next()) {
                 throw new UnknownID("No schedule named '" + scheduleName + "' found");
             }
-            long id = rs.getLong(1);
-            boolean isTimedSchedule;
-            String comments = rs.getString(2);
-            Date startdate = DBUtils.getDateMaybeNull(rs, 3);
-            Date enddate = DBUtils.getDateMaybeNull(rs, 4);
-            int maxrepeats = rs.getInt(5);
-            isTimedSchedule = rs.wasNull();
-            int timeunit = rs.getInt(6);
-            int numtimeunits = rs.getInt(7);
-            boolean anytime = rs.getBoolean(8);
-            Integer minute = DBUtils.getIntegerMaybeNull(rs, 9);
-            Integer hour = DBUtils.getIntegerMaybeNull(rs, 10);
-            Integer dayofweek = DBUtils.getIntegerMaybeNull(rs, 11);
-            Integer dayofmonth = DBUtils.getIntegerMaybeNull(rs, 12);
-            if (log.isDebugEnabled()) {
-                log.debug("Creating frequency for (timeunit,anytime,numtimeunits,hour, minute, dayofweek, dayofmonth)"
-                        + " = ({},{},{},{},{},{},{},)", timeunit, anytime, numtimeunits, minute, hour, dayofweek,
-                        dayofmonth);
-            }
-            Frequency freq = Frequency.getNewInstance(timeunit, anytime, numtimeunits, minute, hour, dayofweek,
-                    dayofmonth);
-            long edition = rs.getLong(13);
-            final Schedule schedule;
-            if (isTimedSchedule) {
-                schedule = Schedule.getInstance(startdate, enddate, freq, scheduleName, comments);
-            } else {
-                schedule = Schedule.getInstance(startdate, maxrepeats, freq, scheduleName, comments);
-            }
-            schedule.setID(id);
-            schedule.setEdition(edition);
-            return schedule;
+            return scheduleFromResultSet(rs);
         } catch (SQLException e) {
             throw new IOFailure("SQL error reading schedule " + scheduleName + "\n"
                     + ExceptionUtils.getSQLExceptionCause(e), e);
@@ -226,6 +198,48 @@ public class ScheduleDBDAO extends ScheduleDAO {
         }
     }
 
+    /**
+     * Make a schedule from a row of schedules with the columns {@link #SCHEDULE_COLUMNS}.
+     *
+     * @param rs A result set positioned on a row
+     * @return The schedule of the row
+     * @throws SQLException If reading the row fails
+     */
+    private static Schedule scheduleFromResultSet(ResultSet rs) throws SQLException {
+        String scheduleName = rs.getString(14);
+        long id = rs.getLong(1);
+        boolean isTimedSchedule;
+        String comments = rs.getString(2);
+        Date startdate = DBUtils.getDateMaybeNull(rs, 3);
+        Date enddate = DBUtils.getDateMaybeNull(rs, 4);
+        int maxrepeats = rs.getInt(5);
+        isTimedSchedule = rs.wasNull();
+        int timeunit = rs.getInt(6);
+        int numtimeunits = rs.getInt(7);
+        boolean anytime = rs.getBoolean(8);
+        Integer minute = DBUtils.getIntegerMaybeNull(rs, 9);
+        Integer hour = DBUtils.getIntegerMaybeNull(rs, 10);
+        Integer dayofweek = DBUtils.getIntegerMaybeNull(rs, 11);
+        Integer dayofmonth = DBUtils.getIntegerMaybeNull(rs, 12);
+        if (log.isDebugEnabled()) {
+            log.debug("Creating frequency for (timeunit,anytime,numtimeunits,hour, minute, dayofweek, dayofmonth)"
+                    + " = ({},{},{},{},{},{},{},)", timeunit, anytime, numtimeunits, minute, hour, dayofweek,
+                    dayofmonth);
+        }
+        Frequency freq = Frequency.getNewInstance(timeunit, anytime, numtimeunits, minute, hour, dayofweek,
+                dayofmonth);
+        long edition = rs.getLong(13);
+        final Schedule schedule;
+        if (isTimedSchedule) {
+            schedule = Schedule.getInstance(startdate, enddate, freq, scheduleName, comments);
+        } else {
+            schedule = Schedule.getInstance(startdate, maxrepeats, freq, scheduleName, comments);
+        }
+        schedule.setID(id);
+        schedule.setEdition(edition);
+        return schedule;
+    }
+
     /**
      * Update a schedule in the DAO.
      *
@@ -269,26 +283,25 @@ public class ScheduleDBDAO extends ScheduleDAO {
     }
 
     /**
-     * Get iterator to all available schedules.
+     * Get iterator to all available schedules. All schedules are read with a single query.
      *
      * @return iterator to all available schedules
      */
     public synchronized Iterator<Schedule> getAllSchedules() {
         Connection c = HarvestDBConnection.get();
+        PreparedStatement s = null;
         try {
-            List<String> names = DBUtils.selectStringList(c, "SELECT name FROM schedules ORDER BY name");
-            return new FilterIterator<String, Schedule>(names.iterator()) {
-                /**
-                 * Returns the object corresponding to the given object, or null if that object is to be skipped.
-                 *
-                 * @param s An object in the source iterator domain
-                 * @return An object in this iterators domain, or null
-                 */
-                public Schedule filter(String s) {
-                    return read(s);
-                }
-            };
+            s = c.prepareStatement("SELECT " + SCHEDULE_COLUMNS + " FROM schedules ORDER BY name");
+            ResultSet rs = s.executeQuery();
+            List<Schedule> schedules = new ArrayList<Schedule>();
+            while (rs.next()) {
+                schedules.add(scheduleFromResultSet(rs));
+            }
+            return schedules.iterator();
+        } catch (SQLException e) {
+            throw new IOFailure("SQL error reading schedules\n" + ExceptionUtils.getSQLExceptionCause(e), e);
         } finally {
+            DBUtils.closeStatementIfOpen(s);
             HarvestDBConnection.release(c);
         }
     }
@@ -29,12 +29,15 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
@@ -48,6 +51,9 @@ import dk.netarkivet.harvester.HarvesterSettings;
 @SuppressWarnings({"serial"})
 public class SeedList implements Serializable, Named {
 
+    /** The logger to use. */
+    private static final Logger log = LoggerFactory.getLogger(SeedList.class);
+
     /** The name of the seedlist. Used for sorting. */
     private String name;
     /** The List of Seeds; Each String in the List holds one seed. */
@@ -58,6 +64,9 @@ public class SeedList implements Serializable, Named {
     /** ID autogenerated by DB, ignored otherwise. */
     private Long id;
 
+    /** The ASCII forms of the seeds with internationalized host names, found when first asked for. */
+    private transient List<String> asciiSeeds;
+
     /**
      * Create new seedlist. Helper constructor that takes the seeds as a newline separated string.
      *
@@ -71,10 +80,11 @@ public class SeedList implements Serializable, Named {
 
         BufferedReader urlreader = new BufferedReader(new StringReader(seedsAsString));
         seeds = new LinkedList<String>();
+        Pattern validSeedPattern = Pattern.compile(Settings.get(HarvesterSettings.VALID_SEED_REGEX));
         String url;
         try {
             while ((url = urlreader.readLine()) != null) {
-                if (isAcceptableURL(url)) {
+                if (validSeedPattern.matcher(url).matches()) {
                     seeds.add(url);
                 } else {
                     throw new ArgumentNotValid("The URL '" + url + "' is not valid");
@@ -87,21 +97,6 @@ public class SeedList implements Serializable, Named {
         this.comments = "";
     }
 
-    /**
-     * Check urls for validity. Valid seeds are controlled by a configurable regular expression
-     *
-     * @param url The url to check
-     * @return true, if it is accepted
-     * @see HarvesterSettings#VALID_SEED_REGEX
-     */
-    private boolean isAcceptableURL(String url) {
-        Pattern validSeedPattern = Pattern.compile(Settings.get(HarvesterSettings.VALID_SEED_REGEX));
-        if (!validSeedPattern.matcher(url).matches()) {
-            return false;
-        }
-        return true;
-    }
-
     /**
      * Create new seedlist.
      *
@@ -127,6 +122,28 @@ public class SeedList implements Serializable, Named {
         return seeds;
     }
 
+    /**
+     * Gets the ASCII forms of the seeds that have internationalized host names, as found by
+     * {@link SeedNormalizer#toASCII(String)}. The forms are found once for each seedlist, and are not part of the
+     * seedlist as stored.
+     *
+     * @return The ASCII forms of the seeds that differ from the seeds themselves
+     */
+    public synchronized List<String> getASCIISeeds() {
+        if (asciiSeeds == null) {
+            List<String> converted = new ArrayList<String>();
+            for (String seed : seeds) {
+                String seedASCII = SeedNormalizer.toASCII(seed);
+                if (!seedASCII.equals(seed)) {
+                    log.trace("Converted {} to {}", seed, seedASCII);
+                    converted.add(seedASCII);
+                }
+            }
+            asciiSeeds = converted;
+        }
+        return asciiSeeds;
+    }
+
     /**
      * Gets the seeds. Seeds are separated by newline,
      *
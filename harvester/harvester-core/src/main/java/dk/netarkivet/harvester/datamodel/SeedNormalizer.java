@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * Netarchivesuite - harvester
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.datamodel;
+
+import gnu.inet.encoding.IDNA;
+import gnu.inet.encoding.IDNAException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * Converts seeds with internationalized host names to their ASCII (punycode) form, so that both forms can be given to
+ * the harvester. Seeds whose host name is plain ASCII are returned as they are without any parsing beyond finding the
+ * host name, and the ASCII form of each internationalized host name is cached, as the same few hosts are seen again
+ * and again when jobs are generated.
+ * <p>
+ * The host name is found as {@link java.net.URL#getHost()} would find it, but without building a URL. Seeds without a
+ * scheme are assumed to be http URLs, and seeds without ':' and '/' are taken to be host names.
+ */
+public final class SeedNormalizer {
+
+    /** The logger to use. */
+    private static final Logger log = LoggerFactory.getLogger(SeedNormalizer.class);
+
+    /** The maximal number of host names in the cache. */
+    static final int MAX_CACHED_HOSTS = 10000;
+
+    /** The value cached for host names that cannot be converted, as the map cannot hold null. */
+    private static final String NOT_CONVERTIBLE = "";
+
+    /** The ASCII form of each cached internationalized host name, or NOT_CONVERTIBLE. */
+    private static final ConcurrentMap<String, String> asciiHosts = new ConcurrentHashMap<String, String>();
+
+    /** Utility class, do not instantiate. */
+    private SeedNormalizer() {
+    }
+
+    /**
+     * Get the ASCII form of a seed.
+     *
+     * @param seed A seed, either a URL or a host name.
+     * @return The seed with its host name converted to ASCII, or the seed itself if its host name is already ASCII or
+     * cannot be converted.
+     * @throws ArgumentNotValid if seed is null.
+     */
+    public static String toASCII(String seed) {
+        ArgumentNotValid.checkNotNull(seed, "String seed");
+        if (isASCII(seed, 0, seed.length())) {
+            return seed;
+        }
+        int hostStart;
+        int hostEnd;
+        if (seed.indexOf(':') < 0 && seed.indexOf('/') < 0) {
+            hostStart = 0;
+            hostEnd = seed.length();
+        } else {
+            int schemeEnd = getSchemeLength(seed);
+            if (schemeEnd > 0 && !seed.startsWith("//", schemeEnd + 1)) {
+                // A URL with a scheme but no authority, e.g. mailto:, has no host name
+                return seed;
+            }
+            // If no scheme is given, the seed is read as an http URL after the "http://"
+            hostStart = schemeEnd > 0 ? schemeEnd + 3 : 0;
+            int authorityEnd = seed.length();
+            for (int i = hostStart; i < authorityEnd; i++) {
+                char c = seed.charAt(i);
+                if (c == '/' || c == '?' || c == '#') {
+                    authorityEnd = i;
+                }
+            }
+            int userInfoEnd = seed.lastIndexOf('@', authorityEnd - 1);
+            if (userInfoEnd >= hostStart) {
+                hostStart = userInfoEnd + 1;
+            }
+            hostEnd = authorityEnd;
+            int portStart = seed.lastIndexOf(':', authorityEnd - 1);
+            if (portStart >= hostStart) {
+                hostEnd = portStart;
+            }
+        }
+        if (hostStart >= hostEnd || isASCII(seed, hostStart, hostEnd)) {
+            return seed;
+        }
+        String host = seed.substring(hostStart, hostEnd);
+        String asciiHost = getASCIIHost(host);
+        if (asciiHost == NOT_CONVERTIBLE || asciiHost.equals(host)) {
+            return seed;
+        }
+        // Replace the first occurrence of the host name, as done before the host names were cached
+        int replaceStart = seed.indexOf(host);
+        return seed.substring(0, replaceStart) + asciiHost + seed.substring(replaceStart + host.length());
+    }
+
+    /**
+     * Get the ASCII form of an internationalized host name from the cache, converting it if it is not cached.
+     *
+     * @param host A host name.
+     * @return The ASCII form of the host name, or NOT_CONVERTIBLE if it cannot be converted.
+     */
+    private static String getASCIIHost(String host) {
+        String asciiHost = asciiHosts.get(host);
+        if (asciiHost == null) {
+            try {
+                asciiHost = IDNA.toASCII(host);
+            } catch (IDNAException e) {
+                log.trace("Cannot convert host name {} to ASCII", host, e);
+                asciiHost = NOT_CONVERTIBLE;
+            }
+            if (asciiHosts.size() >= MAX_CACHED_HOSTS) {
+                asciiHosts.clear();
+            }
+            asciiHosts.put(host, asciiHost);
+        }
+        return asciiHost;
+    }
+
+    /**
+     * Find the length of the scheme of a URL, as matched by "^[a-zA-Z]+:".
+     *
+     * @param url A URL.
+     * @return The number of characters before the ':' ending the scheme, or 0 if the URL has no scheme.
+     */
+    private static int getSchemeLength(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                return i;
+            }
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param s A string.
+     * @param start The index of the first character to check.
+     * @param end The index after the last character to check.
+     * @return true, if the characters from start to end are all ASCII.
+     */
+    private static boolean isASCII(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
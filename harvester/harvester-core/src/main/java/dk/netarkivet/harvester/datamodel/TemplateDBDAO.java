@@ -23,7 +23,6 @@
 
 package dk.netarkivet.harvester.datamodel;
 
-import java.io.Reader;
 import java.io.StringReader;
 import java.sql.Clob;
 import java.sql.Connection;
@@ -54,6 +53,13 @@ public class TemplateDBDAO extends TemplateDAO {
     /** the log. */
     private static final Logger log = LoggerFactory.getLogger(TemplateDBDAO.class);
 
+    /**
+     * The templates read, by name. An entry is only used while the edition of its template is unchanged. The callers
+     * change the templates they get, so they get a copy of the cached template.
+     */
+    private final DAOCache<String, HeritrixTemplate> templates = new DAOCache<String, HeritrixTemplate>("Templates",
+            0, DAOCache.DEFAULT_MAX_SIZE);
+
     /**
      * Default constructor. Only used by TemplateDAO,getInstance().
      */
@@ -67,7 +73,8 @@ public class TemplateDBDAO extends TemplateDAO {
     }
 
     /**
-     * Read an XML order file for the named order XML.
+     * Read an XML order file for the named order XML. The edition of the template is read first, and the XML is only
+     * fetched and parsed if the template has not been read before or has been changed since.
      *
      * @param orderXmlName The name of the order.xml document
      * @return The contents of this order.xml document
@@ -76,33 +83,44 @@ public class TemplateDBDAO extends TemplateDAO {
         ArgumentNotValid.checkNotNullOrEmpty(orderXmlName, "String orderXmlName");
         Connection c = HarvestDBConnection.get();
         PreparedStatement s = null;
-        log.debug("Reading template {} from database", orderXmlName);
         try {
-            s = c.prepareStatement("SELECT template_id, orderxml, isActive FROM ordertemplates WHERE name = ?");
+            s = c.prepareStatement("SELECT template_id, isActive, edition FROM ordertemplates WHERE name = ?");
             s.setString(1, orderXmlName);
             ResultSet res = s.executeQuery();
             if (!res.next()) {
                 throw new UnknownID("Can't find template " + orderXmlName);
             }
-            Reader orderTemplateReader = null;
-        	long template_id = res.getLong(1);
-            if (DBSpecifics.getInstance().supportsClob()) {
-                Clob clob = res.getClob(2);
-                orderTemplateReader = clob.getCharacterStream();
-            } else {
-                String string = res.getString(2);
-                orderTemplateReader = new StringReader(string);
-            } 
-            HeritrixTemplate heritrixTemplate = HeritrixTemplate.read(template_id, orderTemplateReader);
-            heritrixTemplate.setIsActive(res.getBoolean(3));
-            return heritrixTemplate;
+            long templateId = res.getLong(1);
+            boolean isActive = res.getBoolean(2);
+            long edition = res.getLong(3);
+            HeritrixTemplate template = templates.get(orderXmlName, edition);
+            if (template == null) {
+                log.debug("Reading template {} from database", orderXmlName);
+                s.close();
+                s = c.prepareStatement("SELECT orderxml FROM ordertemplates WHERE template_id = ?");
+                s.setLong(1, templateId);
+                res = s.executeQuery();
+                if (!res.next()) {
+                    throw new UnknownID("Can't find template " + orderXmlName);
+                }
+                String orderXml;
+                if (DBSpecifics.getInstance().supportsClob()) {
+                    Clob clob = res.getClob(1);
+                    orderXml = clob.getSubString(1L, (int) clob.length());
+                } else {
+                    orderXml = res.getString(1);
+                }
+                template = HeritrixTemplate.read(templateId, new StringReader(orderXml));
+                template.setIsActive(isActive);
+                templates.put(orderXmlName, edition, template);
+            }
+            return template.copy();
         } catch (SQLException e) {
             final String message = "SQL error finding order.xml for " + orderXmlName + "\n"
                     + ExceptionUtils.getSQLExceptionCause(e);
             log.warn(message, e);
             throw new IOFailure(message, e);
-        }
-         finally {
+        } finally {
             DBUtils.closeStatementIfOpen(s);
             HarvestDBConnection.release(c);
         }
@@ -215,11 +233,13 @@ public class TemplateDBDAO extends TemplateDAO {
                 throw new PermissionDenied("No order template called " + orderXmlName + " exists");
             }
 
-            s = c.prepareStatement("UPDATE ordertemplates SET orderxml = ?, isActive= ? WHERE name = ?");
+            s = c.prepareStatement("UPDATE ordertemplates SET orderxml = ?, isActive = ?, edition = edition + 1 "
+                    + "WHERE name = ?");
             DBUtils.setClobMaxLength(s, 1, orderXml.getXML(), Constants.MAX_ORDERXML_SIZE, "size", orderXmlName);
             s.setBoolean(2, orderXml.isActive());
             s.setString(3, orderXmlName);
             s.executeUpdate();
+            templates.invalidate(orderXmlName);
         } catch (SQLException e) {
             throw new IOFailure("SQL error updating template " + orderXmlName + "\n"
                     + ExceptionUtils.getSQLExceptionCause(e), e);
@@ -23,11 +23,14 @@
 
 package dk.netarkivet.harvester.harvesting;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -41,6 +44,7 @@ import dk.netarkivet.common.utils.FileUtils;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.StreamUtils;
 import dk.netarkivet.harvester.datamodel.HeritrixTemplate;
+import dk.netarkivet.harvester.datamodel.Job;
 
 /**
  * This class encapsulates all the files that Heritrix gets from our system, and all files we read from Heritrix.
@@ -226,6 +230,28 @@ public class HeritrixFiles {
         FileUtils.writeBinaryFile(getSeedsTxtFile(), seeds.getBytes());
     }
 
+    /**
+     * Writes the seeds of a job to the seeds.txt file, without building the seeds as one String.
+     *
+     * @param job The job whose seeds are the intended content of seeds.txt
+     * @throws ArgumentNotValid if job is null
+     * @throws IOFailure if writing the seeds fails
+     */
+    public void writeSeedsTxt(Job job) {
+        ArgumentNotValid.checkNotNull(job, "Job job");
+        log.debug("Writing seeds to disk as file: {}", getSeedsTxtFile().getAbsolutePath());
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getSeedsTxtFile())));
+            job.writeSeedList(writer);
+            writer.close();
+        } catch (IOException e) {
+            throw new IOFailure("Unable to write seeds to " + getSeedsTxtFile().getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
     /**
      * Writes the given order.xml content to the order.xml file.
      *
@@ -32,6 +32,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
@@ -45,6 +46,7 @@ import dk.netarkivet.common.exceptions.IllegalState;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.StringUtils;
 import dk.netarkivet.harvester.datamodel.AliasInfo;
+import dk.netarkivet.harvester.datamodel.Constants;
 
 /**
  * Class used to carry metadata in DoOneCrawl messages, including the URL and mimetype necessary to write the metadata
@@ -86,6 +88,9 @@ public class MetadataEntry implements Serializable {
     /** Metadata URL template for aliases. */
     private static final String ALIAS_METADATA_URL_TEMPLATE = "metadata://%s/crawl/setup/aliases" + METADATA_URL_SUFFIX;
 
+    /** Common template prefix for all crawler trap metadata URLs. */
+    private static final String CRAWLERTRAPS_METADATA_URL_PREFIX_TEMPLATE = "metadata://%s/crawl/setup/crawlertraps";
+
     /** Common template prefix for all deduplication metadata URLs. */
     private static final String DUPLICATEREDUCTION_METADATA_URL_PREFIX_TEMPLATE = "metadata://%s/crawl/setup/duplicatereductionjobs";
 
@@ -176,6 +181,55 @@ public class MetadataEntry implements Serializable {
                 StringUtils.conjoin(",", jobIDsForDuplicateReduction));
     }
 
+    /**
+     * Generate a MetadataEntry holding the crawler traps of a job, one trap per line, each line prefixed with the
+     * domain the trap belongs to and {@link Constants#CRAWLER_TRAPS_DOMAIN_SEPARATOR}. Global crawler traps are
+     * prefixed with {@link Constants#GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME}. Empty traps are skipped.
+     *
+     * @param trapsByDomain the crawler traps of the job, grouped by domain name (possibly empty)
+     * @param globalTraps the active global crawler traps (possibly empty)
+     * @param origHarvestDefinitionID The harvestdefinition that is behind the job with the given jobId
+     * @param harvestNum The number of the harvest that the job with the given jobid belongs to
+     * @param jobId The id of the Job, which this metadata belongs to
+     * @return a MetadataEntry with the crawler traps of the job, possibly with no data.
+     */
+    public static MetadataEntry makeCrawlerTrapsMetadataEntry(Map<String, List<String>> trapsByDomain,
+            List<String> globalTraps, Long origHarvestDefinitionID, int harvestNum, Long jobId) {
+        ArgumentNotValid.checkNotNull(trapsByDomain, "Map<String, List<String>> trapsByDomain");
+        ArgumentNotValid.checkNotNull(globalTraps, "List<String> globalTraps");
+        ArgumentNotValid.checkNotNull(origHarvestDefinitionID, "Long origHarvestDefinitionID");
+        ArgumentNotValid.checkNotNegative(harvestNum, "int harvestNum");
+        ArgumentNotValid.checkNotNull(jobId, "Long jobId");
+
+        String organization = Settings.get(CommonSettings.ORGANIZATION);
+        // construct a metadata-URL for this MetadataEntry
+        String metadataUrl = String.format(CRAWLERTRAPS_METADATA_URL_PREFIX_TEMPLATE + METADATA_URL_SUFFIX,
+                organization, origHarvestDefinitionID, harvestNum, jobId);
+
+        StringBuilder sb = new StringBuilder();
+        appendCrawlerTraps(sb, Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME, globalTraps);
+        for (Map.Entry<String, List<String>> entry : trapsByDomain.entrySet()) {
+            appendCrawlerTraps(sb, entry.getKey(), entry.getValue());
+        }
+        return new MetadataEntry(metadataUrl, MIMETYPE_TEXT_PLAIN, sb.toString());
+    }
+
+    /**
+     * Append the given crawler traps to a StringBuilder, one trap per line prefixed with the given domain name.
+     *
+     * @param sb The StringBuilder to append to
+     * @param domainName The name of the domain the traps belong to
+     * @param traps The traps to append
+     */
+    private static void appendCrawlerTraps(StringBuilder sb, String domainName, List<String> traps) {
+        for (String trap : traps) {
+            if (trap == null || trap.trim().isEmpty()) {
+                continue;
+            }
+            sb.append(domainName).append(Constants.CRAWLER_TRAPS_DOMAIN_SEPARATOR).append(trap.trim()).append("\n");
+        }
+    }
+
     /**
      * @return Returns the data.
      */
@@ -277,6 +331,16 @@ public class MetadataEntry implements Serializable {
         return this.getURL().startsWith(MetadataEntry.getDuplicatereductionMetadataURLPrefix());
     }
 
+    /**
+     * Checks, if this is a crawler traps MetadataEntry.
+     *
+     * @return true, if this is a crawler traps MetadataEntry, otherwise false.
+     */
+    public boolean isCrawlerTrapsMetadataEntry() {
+        String organization = Settings.get(CommonSettings.ORGANIZATION);
+        return this.getURL().startsWith(String.format(CRAWLERTRAPS_METADATA_URL_PREFIX_TEMPLATE, organization));
+    }
+
     private static String getDuplicatereductionMetadataURLPrefix() {
         String organization = Settings.get(CommonSettings.ORGANIZATION);
         return String.format(DUPLICATEREDUCTION_METADATA_URL_PREFIX_TEMPLATE, organization);
@@ -33,10 +33,13 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
+import dk.netarkivet.common.CommonSettings;
 import dk.netarkivet.common.distribute.indexserver.JobIndexCache;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.NotImplementedException;
 import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.cdx.CDXBloomFilter;
 
 /**
  * A cache that serves CDX index files for job IDs.
@@ -47,6 +50,9 @@ import dk.netarkivet.common.utils.FileUtils;
  * <p>
  * This cache uses the Unix sort(1) command as an external process call, as that one is optimized for handling large,
  * disk-based sorts.
+ * <p>
+ * If the setting {@link CommonSettings#CDX_WRITE_BLOOM_FILTERS} is true, a {@link CDXBloomFilter} of the URLs of each
+ * sorted index is stored next to it, where a CDXReader reading the index finds it.
  */
 public class CDXIndexCache extends CombiningMultiFileBasedCache<Long> implements JobIndexCache {
 
@@ -61,7 +67,7 @@ public class CDXIndexCache extends CombiningMultiFileBasedCache<Long> implements
     }
 
     /**
-     * Combine parts of an index into one big index.
+     * Combine parts of an index into one big sorted index, and store its Bloom filter if filters are enabled.
      *
      * @param filesFound A map of IDs and the files caching their content.
      */
@@ -76,6 +82,9 @@ public class CDXIndexCache extends CombiningMultiFileBasedCache<Long> implements
         } finally {
             FileUtils.remove(workFile);
         }
+        if (Settings.getBoolean(CommonSettings.CDX_WRITE_BLOOM_FILTERS)) {
+            CDXBloomFilter.writeFilterFor(resultFile);
+        }
     }
 
     /**
@@ -27,8 +27,13 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -47,6 +52,7 @@ import org.slf4j.LoggerFactory;
 
 import dk.netarkivet.common.distribute.indexserver.JobIndexCache;
 import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.utils.ChecksumCalculator;
 import dk.netarkivet.common.utils.FileUtils;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.TimeUtils;
@@ -82,6 +88,35 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
     /** Number to separate logs the different combine tasks. */
     private int indexingJobCount = 0;
 
+    /**
+     * The version of the kept indices of single jobs. Increase this when a change in the code changes the contents of
+     * the indices, so indices made by earlier versions are no longer used.
+     */
+    private static final int JOB_SEGMENT_VERSION = 1;
+
+    /** Whether the index made for each single job is kept for reuse in later combine tasks. */
+    private final boolean cacheJobSegments = Settings
+            .getBoolean(HarvesterSettings.INDEXSERVER_INDEXING_CACHE_JOB_SEGMENTS);
+
+    /** The maximal number of kept indices of single jobs. */
+    private final int maxJobSegments = Settings.getInt(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS);
+
+    /** The maximal total size in bytes of the kept indices of single jobs. */
+    private final long maxJobSegmentsBytes = Settings
+            .getLong(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS_BYTES);
+
+    /**
+     * The name of the directory for the kept indices of single jobs. It depends on everything that changes the
+     * contents of the indices, so indices made with other settings are not used.
+     */
+    private final String jobSegmentsKey;
+
+    /**
+     * The number of combine tasks using the kept index of each job. An index is not evicted while it is in use. Also
+     * used for synchronizing the keeping and evicting of indices.
+     */
+    private final Map<Long, Integer> jobSegmentsInUse = new HashMap<Long, Integer>();
+
     /**
      * Constructor for the CrawlLogIndexCache class.
      *
@@ -93,6 +128,10 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
         super(name, new CrawlLogDataCache());
         useBlacklist = blacklist;
         this.mimeFilter = mimeFilter;
+        String segmentSettings = "version=" + JOB_SEGMENT_VERSION + ";blacklist=" + blacklist + ";mimeFilter="
+                + mimeFilter + ";tryToMigrateDuplicationRecords="
+                + Settings.getBoolean(HarvesterSettings.INDEXSERVER_INDEXING_TRY_TO_MIGRATE_DUPLICATION_RECORDS);
+        jobSegmentsKey = ChecksumCalculator.calculateMd5(segmentSettings.getBytes());
     }
 
     /**
@@ -123,6 +162,10 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
     /**
      * Combine a number of crawl.log files into one Lucene index. This index is placed as gzip files under the directory
      * returned by getCacheFile().
+     * <p>
+     * Each crawl.log is first indexed on its own, and the resulting indices are added to the combined index. If
+     * {@link HarvesterSettings#INDEXSERVER_INDEXING_CACHE_JOB_SEGMENTS} is set, the index for each job is kept in the
+     * directory returned by getJobSegmentDir(), and jobs that have already been indexed are not indexed again.
      *
      * @param rawfiles The map from job ID into crawl.log contents. No null values are allowed in this map.
      */
@@ -148,11 +191,30 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
 
             executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
 
+            // The already indexed jobs, and the indices for jobs that are indexed as part of this task.
+            Set<Directory> subindices = new HashSet<Directory>();
+            int reusedSegments = 0;
+            if (cacheJobSegments) {
+                FileUtils.createDir(getJobSegmentsDir());
+                useJobSegments(rawfiles.keySet(), true);
+            }
+
             for (Map.Entry<Long, File> entry : rawfiles.entrySet()) {
                 Long jobId = entry.getKey();
                 File crawlLog = entry.getValue();
-                // Generate UUID to ensure a unique filedir for the index.
-                File tmpFile = new File(FileUtils.getTempDir(), UUID.randomUUID().toString());
+                if (cacheJobSegments && getJobSegmentDir(jobId).isDirectory()) {
+                    log.debug("Reusing the existing index of job {}", jobId);
+                    File segmentDir = getJobSegmentDir(jobId);
+                    // Mark the index as recently used, so it is evicted last.
+                    segmentDir.setLastModified(System.currentTimeMillis());
+                    subindices.add(new SimpleFSDirectory(segmentDir));
+                    ++reusedSegments;
+                    continue;
+                }
+                // Generate UUID to ensure a unique filedir for the index. When keeping the job index, it is made
+                // next to its final location, so it can be moved there when complete.
+                File tmpFile = new File(cacheJobSegments ? getJobSegmentsDir() : FileUtils.getTempDir(), UUID
+                        .randomUUID().toString());
                 tmpfiles.add(tmpFile);
                 String localindexLocation = tmpFile.getAbsolutePath();
                 Long cached = cdxcache.cache(jobId);
@@ -175,9 +237,10 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
                 outstandingJobs.add(new IndexingState(jobId, localindexLocation, result));
             }
 
-            // wait for all the outstanding subtasks to complete.
-            Set<Directory> subindices = new HashSet<Directory>();
+            log.info("Combine task #{} reuses the existing index of {} jobs, and indexes {} jobs", indexingJobCount,
+                    reusedSegments, count);
 
+            // wait for all the outstanding subtasks to complete.
             // Deadline for the combine-task
             long combineTimeout = Settings.getLong(HarvesterSettings.INDEXSERVER_INDEXING_TIMEOUT);
             long timeOutTime = System.currentTimeMillis() + combineTimeout;
@@ -207,7 +270,11 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
                         try {
                             // check, if the indexing failed
                             if (nextResult.get()) {
-                                subindices.add(new SimpleFSDirectory(new File(next.getIndex())));
+                                File subindex = new File(next.getIndex());
+                                if (cacheJobSegments) {
+                                    subindex = keepJobSegment(next.getJobIdentifier(), subindex);
+                                }
+                                subindices.add(new SimpleFSDirectory(subindex));
                             } else {
                                 log.warn("Indexing of job {} failed.", next.getJobIdentifier());
                             }
@@ -278,7 +345,170 @@ public abstract class CrawlLogIndexCache extends CombiningMultiFileBasedCache<Lo
             for (File temporaryFile : tmpfiles) {
                 FileUtils.removeRecursively(temporaryFile);
             }
+            if (cacheJobSegments) {
+                useJobSegments(rawfiles.keySet(), false);
+                evictJobSegments();
+            }
+        }
+    }
+
+    /**
+     * Get the directory in which the index of a single job is kept for reuse.
+     *
+     * @param jobId The ID of a job.
+     * @return The directory for the index of the given job. The directory exists only if the job has been indexed.
+     */
+    protected File getJobSegmentDir(Long jobId) {
+        return new File(getJobSegmentsDir(), jobId.toString());
+    }
+
+    /**
+     * @return The directory containing the kept indices of single jobs made with the current settings.
+     */
+    private File getJobSegmentsDir() {
+        return new File(getAllJobSegmentsDir(), jobSegmentsKey);
+    }
+
+    /**
+     * @return The directory containing the directories of kept indices of single jobs for all settings.
+     */
+    private File getAllJobSegmentsDir() {
+        return new File(getCacheDir(), "jobsegments");
+    }
+
+    /**
+     * Register that a combine task starts or stops using the kept indices of the given jobs.
+     *
+     * @param jobIds The IDs of the jobs combined by the task.
+     * @param inUse true when the task starts, false when it stops.
+     */
+    private void useJobSegments(Set<Long> jobIds, boolean inUse) {
+        synchronized (jobSegmentsInUse) {
+            for (Long jobId : jobIds) {
+                Integer users = jobSegmentsInUse.get(jobId);
+                int newUsers = (users == null ? 0 : users) + (inUse ? 1 : -1);
+                if (newUsers > 0) {
+                    jobSegmentsInUse.put(jobId, newUsers);
+                } else {
+                    jobSegmentsInUse.remove(jobId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used kept indices of single jobs, so at most
+     * {@link HarvesterSettings#INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS} indices taking up at most
+     * {@link HarvesterSettings#INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS_BYTES} bytes are kept. Indices used by
+     * running combine tasks are not deleted. Indices made with other settings than the current are all deleted.
+     */
+    void evictJobSegments() {
+        synchronized (jobSegmentsInUse) {
+            File[] keyDirs = getAllJobSegmentsDir().listFiles();
+            if (keyDirs == null) {
+                return;
+            }
+            for (File keyDir : keyDirs) {
+                if (!keyDir.getName().equals(jobSegmentsKey)) {
+                    log.info("Deleting the kept job indices in '{}', as they were made with other settings", keyDir);
+                    FileUtils.removeRecursively(keyDir);
+                }
+            }
+            List<File> segmentDirs = new ArrayList<File>();
+            Map<File, Long> sizes = new HashMap<File, Long>();
+            File[] files = getJobSegmentsDir().listFiles();
+            if (files == null) {
+                return;
+            }
+            int kept = 0;
+            long keptBytes = 0;
+            for (File segmentDir : files) {
+                Long jobId = getJobIdOfSegment(segmentDir);
+                if (jobId != null) {
+                    long size = getSize(segmentDir);
+                    ++kept;
+                    keptBytes += size;
+                    if (!jobSegmentsInUse.containsKey(jobId)) {
+                        segmentDirs.add(segmentDir);
+                        sizes.put(segmentDir, size);
+                    }
+                }
+            }
+            if (kept <= maxJobSegments && keptBytes <= maxJobSegmentsBytes) {
+                return;
+            }
+            Collections.sort(segmentDirs, new Comparator<File>() {
+                @Override
+                public int compare(File f1, File f2) {
+                    return Long.compare(f1.lastModified(), f2.lastModified());
+                }
+            });
+            log.info("Deleting least recently used of {} kept job indices taking up {} bytes", kept, keptBytes);
+            for (File segmentDir : segmentDirs) {
+                if (kept <= maxJobSegments && keptBytes <= maxJobSegmentsBytes) {
+                    break;
+                }
+                FileUtils.removeRecursively(segmentDir);
+                --kept;
+                keptBytes -= sizes.get(segmentDir);
+            }
+            if (kept > maxJobSegments || keptBytes > maxJobSegmentsBytes) {
+                log.warn("{} job indices taking up {} bytes are still kept, as the rest are in use", kept, keptBytes);
+            }
+        }
+    }
+
+    /**
+     * Get the total size of the files in a directory and its subdirectories.
+     *
+     * @param dir A directory.
+     * @return The total size in bytes of the files in the directory.
+     */
+    private static long getSize(File dir) {
+        long size = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                size += f.isDirectory() ? getSize(f) : f.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the ID of the job whose kept index is in the given directory.
+     *
+     * @param segmentDir A directory in the directory of kept indices.
+     * @return The job ID, or null if the directory is not a kept index, e.g. an index being made.
+     */
+    private static Long getJobIdOfSegment(File segmentDir) {
+        try {
+            return Long.valueOf(segmentDir.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Move a completed index for a single job to the directory returned by getJobSegmentDir(), so it can be reused by
+     * later combine tasks. If another combine task has already kept an index for the job, the given index is left
+     * where it is.
+     *
+     * @param jobId The ID of the indexed job.
+     * @param subindex The completed index for the job.
+     * @return The directory now containing the index.
+     */
+    private File keepJobSegment(Long jobId, File subindex) {
+        File segmentDir = getJobSegmentDir(jobId);
+        synchronized (jobSegmentsInUse) {
+            if (!segmentDir.exists() && subindex.renameTo(segmentDir)) {
+                log.debug("Kept the index of job {} in '{}'", jobId, segmentDir);
+                return segmentDir;
+            }
         }
+        log.debug("Unable to keep the index of job {} in '{}'; using '{}' for this combine task only", jobId,
+                segmentDir, subindex);
+        return subindex;
     }
 
     /**
@@ -82,6 +82,9 @@ public class ARCArchiveAccess implements URIResolver {
      */
     private static final boolean tryToLookupUriAsFtp = Settings.getBoolean(HarvesterSettings.TRY_LOOKUP_URI_AS_FTP);
 
+    /** The maximal number of URL terms read to warm up a new index before it is used. */
+    private static final int indexWarmUpTerms = Settings.getInt(HarvesterSettings.VIEWERPROXY_INDEX_WARM_UP_TERMS);
+
     /**
      * Initialise new ARCArchiveAccess with no index file.
      *
@@ -92,11 +95,13 @@ public class ARCArchiveAccess implements URIResolver {
         ArgumentNotValid.checkNotNull(arcRepositoryClient, "ArcRepositoryClient arcRepositoryClient");
         lookup = new ARCLookup(arcRepositoryClient);
         lookup.setTryToLookupUriAsFtp(tryToLookupUriAsFtp);
+        lookup.setWarmUpTerms(indexWarmUpTerms);
         log.info("Constructed instance of ARCArchiveAccess with TryToLookupUriAsFtp: {}", tryToLookupUriAsFtp);
     }
 
     /**
-     * This method resets the Lucene index this object works on, and replaces it with the given index.
+     * This method resets the Lucene index this object works on, and replaces it with the given index. The new index is
+     * warmed up before it replaces the old one, which keeps serving lookups in the meantime.
      *
      * @param index The new index file, a directory containing Lucene files.
      * @throws ArgumentNotValid If argument is null
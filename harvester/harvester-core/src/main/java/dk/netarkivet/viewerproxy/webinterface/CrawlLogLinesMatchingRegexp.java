@@ -27,6 +27,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,7 @@ import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.archive.ArchiveBatchJob;
+import dk.netarkivet.common.utils.archive.ArchiveHeaderPredicate;
 import dk.netarkivet.common.utils.archive.ArchiveRecordBase;
 import dk.netarkivet.common.utils.batch.ArchiveBatchFilter;
 
@@ -71,6 +73,8 @@ public class CrawlLogLinesMatchingRegexp extends ArchiveBatchJob {
          * One week in milliseconds.
          */
         batchJobTimeout = 7 * Constants.ONE_DAY_IN_MILLIES;
+        processOnlyRecordsMatching(new ArchiveHeaderPredicate(Pattern.compile(Pattern.quote(SETUP_URL_FORMAT) + ".*"),
+                null));
     }
 
     /**
@@ -0,0 +1,888 @@
+/*
+ * #%L
+ * Netarchivesuite - harvester
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.viewerproxy.webinterface;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.distribute.arcrepository.ArcRepositoryClientFactory;
+import dk.netarkivet.common.distribute.arcrepository.BatchStatus;
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.exceptions.IOFailure;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.batch.FileBatchJob;
+import dk.netarkivet.harvester.HarvesterSettings;
+
+/**
+ * A local store of the crawl logs of harvest jobs, used for answering the crawl log queries of the QA pages without
+ * running a batch job against the bitarchive for each query.
+ * <p>
+ * The first query for a job extracts the complete crawl log of the job from its metadata files with a single batch
+ * job, sorts it on timestamp and keeps it in the store directory. The lines of the sorted crawl log are indexed by
+ * the domains of their URL and discovery URL, so lines for a domain are read directly from the file in timestamp
+ * order. The indices of the most recently used jobs are kept in memory, and are rebuilt from the stored crawl log when
+ * needed again.
+ * <p>
+ * When the stored crawl logs take up more than the maximal size of the store, the least recently used crawl logs are
+ * deleted. Crawl logs that are being read are not deleted until they have been read. A crawl log is only kept when the batch job extracting it processed all metadata files of the job without
+ * failures. Otherwise it is only used while its index is in memory, and at most for
+ * {@link #INCOMPLETE_CRAWL_LOG_LIFETIME} milliseconds, after which it is fetched again.
+ */
+public class CrawlLogStore {
+
+    /** The logger for this class. */
+    private static final Logger log = LoggerFactory.getLogger(CrawlLogStore.class);
+
+    /** The name of the directory in the cache directory used by the store. */
+    private static final String STORE_DIR_NAME = "qacrawllog";
+
+    /** Regexp matching every crawl log line. */
+    private static final String EVERY_LINE_REGEXP = ".*";
+
+    /** The suffix of the names of the stored crawl logs. */
+    private static final String CRAWL_LOG_SUFFIX = "-crawl.log";
+
+    /** The suffix of the names of crawl logs that are missing lines, because the batch job had failures. */
+    private static final String INCOMPLETE_SUFFIX = ".incomplete";
+
+    /** How long an incomplete crawl log is used before it is fetched again, in milliseconds. */
+    static final long INCOMPLETE_CRAWL_LOG_LIFETIME = 10 * 60 * 1000L;
+
+    /** The charset of the stored crawl logs, as written by the batch jobs. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The index of the URL part of a crawl log line. */
+    private static final int URL_PART_INDEX = 3;
+
+    /** The index of the discovery URL part of a crawl log line. */
+    private static final int DISCOVERY_URL_PART_INDEX = 5;
+
+    /** The singleton instance. */
+    private static CrawlLogStore instance;
+
+    /** The directory holding the sorted crawl logs. */
+    private final File storeDir;
+
+    /** The maximal total size of the stored crawl logs, in bytes. */
+    private final long maxStoreSize;
+
+    /** The crawl logs of the most recently used jobs, by job ID, in access order. */
+    private final Map<Long, JobCrawlLog> crawlLogs;
+
+    /** The number of current readers of each stored crawl log that is being read. Guarded by this store. */
+    private final Map<File, Integer> readers = new HashMap<File, Integer>();
+
+    /** The number of times reading a crawl log is attempted if it is evicted before it can be read. */
+    private static final int READ_ATTEMPTS = 3;
+
+    /**
+     * The result of extracting the crawl log of a job from the archive.
+     */
+    enum FetchResult {
+        /** No metadata files with a crawl log were processed. */
+        NOT_FOUND,
+        /** Some metadata files of the job could not be processed, so lines may be missing. */
+        INCOMPLETE,
+        /** All metadata files of the job were processed. */
+        COMPLETE
+    }
+
+    /**
+     * Create a store of crawl logs. Incomplete crawl logs left in the directory are deleted.
+     *
+     * @param storeDir The directory to keep the sorted crawl logs in. Created if it does not exist.
+     * @param maxJobsInMemory The number of jobs whose domain index is kept in memory.
+     * @param maxStoreSize The maximal total size of the stored crawl logs, in bytes.
+     * @throws ArgumentNotValid if storeDir is null, or maxJobsInMemory or maxStoreSize is not positive.
+     */
+    CrawlLogStore(File storeDir, final int maxJobsInMemory, long maxStoreSize) {
+        ArgumentNotValid.checkNotNull(storeDir, "File storeDir");
+        ArgumentNotValid.checkPositive(maxJobsInMemory, "int maxJobsInMemory");
+        ArgumentNotValid.checkPositive(maxStoreSize, "long maxStoreSize");
+        this.storeDir = storeDir;
+        this.maxStoreSize = maxStoreSize;
+        FileUtils.createDir(storeDir);
+        for (File f : getStoredFiles()) {
+            if (f.getName().endsWith(INCOMPLETE_SUFFIX)) {
+                FileUtils.remove(f);
+            }
+        }
+        crawlLogs = new LinkedHashMap<Long, JobCrawlLog>(maxJobsInMemory + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, JobCrawlLog> eldest) {
+                return size() > maxJobsInMemory;
+            }
+        };
+        log.info("Crawl logs for QA are stored in '{}' using at most {} bytes, keeping the index of {} jobs in memory",
+                storeDir.getAbsolutePath(), maxStoreSize, maxJobsInMemory);
+    }
+
+    /**
+     * Get the store, using the directory, number of jobs and size given by the settings. A new store is created if the
+     * cache directory has changed.
+     *
+     * @return The crawl log store.
+     */
+    public static synchronized CrawlLogStore getInstance() {
+        File dir = new File(Settings.get(CommonSettings.CACHE_DIR), STORE_DIR_NAME).getAbsoluteFile();
+        if (instance == null || !instance.storeDir.equals(dir)) {
+            instance = new CrawlLogStore(dir, Settings.getInt(HarvesterSettings.CRAWLLOG_STORE_MAX_JOBS_IN_MEMORY),
+                    Settings.getLong(HarvesterSettings.CRAWLLOG_STORE_MAX_SIZE));
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether the QA pages should answer crawl log queries from the store.
+     *
+     * @return true if the store is enabled by the settings.
+     */
+    public static boolean isEnabled() {
+        return Settings.getBoolean(HarvesterSettings.CRAWLLOG_STORE_ENABLED);
+    }
+
+    /**
+     * Get the number of crawl log lines for a domain in a job.
+     *
+     * @param jobId The ID of the job.
+     * @param domain The domain.
+     * @return The number of lines whose URL or discovery URL belong to the domain.
+     * @throws ArgumentNotValid if jobId is not positive or domain is null or empty.
+     * @throws IOFailure if the crawl log cannot be fetched or read.
+     */
+    public int getLineCountForDomain(long jobId, String domain) {
+        ArgumentNotValid.checkPositive(jobId, "long jobId");
+        ArgumentNotValid.checkNotNullOrEmpty(domain, "String domain");
+        OffsetList offsets = getJobCrawlLog(jobId).getOffsets(domain);
+        return offsets == null ? 0 : offsets.size;
+    }
+
+    /**
+     * Get a page of the crawl log lines for a domain in a job, sorted on timestamp.
+     *
+     * @param jobId The ID of the job.
+     * @param domain The domain.
+     * @param offset The number of lines to skip.
+     * @param limit The maximum number of lines to return.
+     * @return The lines whose URL or discovery URL belong to the domain.
+     * @throws ArgumentNotValid if jobId or limit is not positive, domain is null or empty, or offset is negative.
+     * @throws IOFailure if the crawl log cannot be fetched or read.
+     */
+    public List<String> getLinesForDomain(long jobId, String domain, int offset, int limit) {
+        ArgumentNotValid.checkPositive(jobId, "long jobId");
+        ArgumentNotValid.checkNotNullOrEmpty(domain, "String domain");
+        ArgumentNotValid.checkNotNegative(offset, "int offset");
+        ArgumentNotValid.checkPositive(limit, "int limit");
+        JobCrawlLog crawlLog = getJobCrawlLog(jobId);
+        File crawlLogFile = acquireFile(crawlLog);
+        if (crawlLogFile == null) {
+            return Collections.emptyList();
+        }
+        try {
+            OffsetList offsets = crawlLog.getOffsets(domain);
+            if (offsets == null || offset >= offsets.size) {
+                return Collections.emptyList();
+            }
+            int end = (int) Math.min((long) offset + limit, offsets.size);
+            return crawlLog.readLines(crawlLogFile, offsets.offsets, offset, end);
+        } finally {
+            releaseFile(crawlLogFile);
+        }
+    }
+
+    /**
+     * Write all crawl log lines for a domain in a job to a file, sorted on timestamp.
+     *
+     * @param jobId The ID of the job.
+     * @param domain The domain.
+     * @param toFile The file to write the lines to.
+     * @throws ArgumentNotValid if jobId is not positive, domain is null or empty, or toFile is null.
+     * @throws IOFailure if the crawl log cannot be fetched or read, or the file cannot be written.
+     */
+    public void writeLinesForDomain(long jobId, String domain, File toFile) {
+        ArgumentNotValid.checkPositive(jobId, "long jobId");
+        ArgumentNotValid.checkNotNullOrEmpty(domain, "String domain");
+        ArgumentNotValid.checkNotNull(toFile, "File toFile");
+        JobCrawlLog crawlLog = getJobCrawlLog(jobId);
+        File crawlLogFile = acquireFile(crawlLog);
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(toFile));
+            OffsetList offsets = crawlLog.getOffsets(domain);
+            if (crawlLogFile != null && offsets != null) {
+                crawlLog.writeLines(crawlLogFile, offsets.offsets, offsets.size, out);
+            }
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            throw new IOFailure("Unable to write crawl log lines to '" + toFile + "'", e);
+        } finally {
+            IOUtils.closeQuietly(out);
+            releaseFile(crawlLogFile);
+        }
+    }
+
+    /**
+     * Get a page of the crawl log lines of a job matching a regular expression, sorted on timestamp.
+     *
+     * @param jobId The ID of the job.
+     * @param regexp A regular expression that must match whole lines.
+     * @param offset The number of matching lines to skip.
+     * @param limit The maximum number of lines to return.
+     * @return The matching lines.
+     * @throws ArgumentNotValid if jobId or limit is not positive, regexp is null or empty, or offset is negative.
+     * @throws IOFailure if the crawl log cannot be fetched or read.
+     */
+    public List<String> getLinesMatchingRegexp(long jobId, String regexp, int offset, int limit) {
+        ArgumentNotValid.checkPositive(jobId, "long jobId");
+        ArgumentNotValid.checkNotNullOrEmpty(regexp, "String regexp");
+        ArgumentNotValid.checkNotNegative(offset, "int offset");
+        ArgumentNotValid.checkPositive(limit, "int limit");
+        Pattern pattern = Pattern.compile(regexp);
+        File crawlLogFile = acquireCrawlLogFile(jobId);
+        List<String> lines = new ArrayList<String>();
+        if (crawlLogFile == null) {
+            return lines;
+        }
+        try {
+            int matches = 0;
+            LineReader reader = new LineReader(crawlLogFile);
+            try {
+                for (String line = reader.readLine(); line != null && lines.size() < limit; line = reader.readLine()) {
+                    if (pattern.matcher(line).matches() && matches++ >= offset) {
+                        lines.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            releaseFile(crawlLogFile);
+        }
+        return lines;
+    }
+
+    /**
+     * Write all crawl log lines of a job matching a regular expression to a file, sorted on timestamp.
+     *
+     * @param jobId The ID of the job.
+     * @param regexp A regular expression that must match whole lines.
+     * @param toFile The file to write the lines to.
+     * @throws ArgumentNotValid if jobId is not positive, regexp is null or empty, or toFile is null.
+     * @throws IOFailure if the crawl log cannot be fetched or read, or the file cannot be written.
+     */
+    public void writeLinesMatchingRegexp(long jobId, String regexp, File toFile) {
+        ArgumentNotValid.checkPositive(jobId, "long jobId");
+        ArgumentNotValid.checkNotNullOrEmpty(regexp, "String regexp");
+        ArgumentNotValid.checkNotNull(toFile, "File toFile");
+        Pattern pattern = Pattern.compile(regexp);
+        File crawlLogFile = acquireCrawlLogFile(jobId);
+        OutputStream out = null;
+        LineReader reader = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(toFile));
+            if (crawlLogFile != null) {
+                reader = new LineReader(crawlLogFile);
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (pattern.matcher(line).matches()) {
+                        out.write(line.getBytes(UTF8));
+                        out.write('\n');
+                    }
+                }
+            }
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            throw new IOFailure("Unable to write crawl log lines to '" + toFile + "'", e);
+        } finally {
+            IOUtils.closeQuietly(out);
+            if (reader != null) {
+                reader.close();
+            }
+            releaseFile(crawlLogFile);
+        }
+    }
+
+    /**
+     * Get the crawl log of a job, fetching it from the archive if it is not in the store.
+     *
+     * @param jobId The ID of the job.
+     * @return The crawl log of the job.
+     * @throws IOFailure if the crawl log cannot be fetched or read.
+     */
+    private JobCrawlLog getJobCrawlLog(long jobId) {
+        JobCrawlLog crawlLog;
+        synchronized (crawlLogs) {
+            crawlLog = crawlLogs.get(jobId);
+            if (crawlLog == null) {
+                crawlLog = new JobCrawlLog(jobId);
+                crawlLogs.put(jobId, crawlLog);
+            }
+        }
+        crawlLog.load();
+        return crawlLog;
+    }
+
+    /**
+     * Get the sorted crawl log file of a job for reading, fetching it from the archive if it is not in the store. The
+     * file is not evicted from the store until it is given back with {@link #releaseFile(File)}.
+     *
+     * @param jobId The ID of the job.
+     * @return The sorted crawl log file, or null if the crawl log could not be found in the archive.
+     * @throws IOFailure if the crawl log cannot be fetched or read.
+     */
+    File acquireCrawlLogFile(long jobId) {
+        return acquireFile(getJobCrawlLog(jobId));
+    }
+
+    /**
+     * Get the sorted crawl log file of a loaded crawl log for reading. The file is not evicted from the store until it
+     * is given back with {@link #releaseFile(File)}. If the file is evicted before it could be acquired, the crawl log
+     * is loaded again.
+     *
+     * @param crawlLog A loaded crawl log.
+     * @return The sorted crawl log file, or null if the crawl log could not be found in the archive.
+     * @throws IOFailure if the crawl log cannot be fetched or read, or keeps being evicted before it can be read.
+     */
+    private File acquireFile(JobCrawlLog crawlLog) {
+        for (int attempt = 1; attempt <= READ_ATTEMPTS; attempt++) {
+            File f = crawlLog.getFile();
+            if (f == null) {
+                return null;
+            }
+            synchronized (this) {
+                if (f.isFile()) {
+                    Integer count = readers.get(f);
+                    readers.put(f, count == null ? 1 : count + 1);
+                    return f;
+                }
+            }
+            log.debug("Crawl log '{}' was evicted before it could be read, loading it again", f);
+            crawlLog.load();
+        }
+        throw new IOFailure("The crawl log of job " + crawlLog.jobId + " was evicted from the store " + READ_ATTEMPTS
+                + " times before it could be read");
+    }
+
+    /**
+     * Give back a crawl log file acquired with {@link #acquireFile(JobCrawlLog)}, so it may be evicted again.
+     *
+     * @param f The crawl log file, or null if none was acquired.
+     */
+    synchronized void releaseFile(File f) {
+        if (f == null) {
+            return;
+        }
+        Integer count = readers.get(f);
+        if (count == null || count <= 1) {
+            readers.remove(f);
+        } else {
+            readers.put(f, count - 1);
+        }
+    }
+
+    /**
+     * Get the file that holds the sorted crawl log of a job.
+     *
+     * @param jobId The ID of the job.
+     * @return The file, which may not exist.
+     */
+    File getCrawlLogFile(long jobId) {
+        return new File(storeDir, jobId + CRAWL_LOG_SUFFIX);
+    }
+
+    /**
+     * Get the file that holds the sorted crawl log of a job, while it is missing lines.
+     *
+     * @param jobId The ID of the job.
+     * @return The file, which may not exist.
+     */
+    File getIncompleteCrawlLogFile(long jobId) {
+        return new File(storeDir, jobId + CRAWL_LOG_SUFFIX + INCOMPLETE_SUFFIX);
+    }
+
+    /**
+     * @return The complete and incomplete crawl logs in the store directory.
+     */
+    private List<File> getStoredFiles() {
+        List<File> storedFiles = new ArrayList<File>();
+        File[] files = storeDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                if (name.endsWith(CRAWL_LOG_SUFFIX) || name.endsWith(CRAWL_LOG_SUFFIX + INCOMPLETE_SUFFIX)) {
+                    storedFiles.add(f);
+                }
+            }
+        }
+        return storedFiles;
+    }
+
+    /**
+     * Delete the least recently used crawl logs until the stored crawl logs take up no more than the maximal size of
+     * the store. Crawl logs that are being read are not deleted.
+     *
+     * @param keep A crawl log that is in use, and must not be deleted.
+     */
+    synchronized void evict(File keep) {
+        List<File> storedFiles = getStoredFiles();
+        long size = 0;
+        for (File f : storedFiles) {
+            size += f.length();
+        }
+        if (size <= maxStoreSize) {
+            return;
+        }
+        Collections.sort(storedFiles, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File f : storedFiles) {
+            if (size <= maxStoreSize) {
+                break;
+            }
+            if (!f.equals(keep) && !readers.containsKey(f)) {
+                long length = f.length();
+                if (FileUtils.remove(f)) {
+                    size -= length;
+                    log.info("Evicted crawl log '{}' of {} bytes from the store", f, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extract the unsorted crawl log of a job from its metadata files in the archive.
+     *
+     * @param jobId The ID of the job.
+     * @param toFile The file to write the crawl log lines to.
+     * @return Whether the crawl log was found, and whether all metadata files were processed. If it was not found,
+     * nothing may have been written.
+     */
+    protected FetchResult fetchCrawlLog(long jobId, File toFile) {
+        FileBatchJob crawlLogBatchJob = new CrawlLogLinesMatchingRegexp(EVERY_LINE_REGEXP);
+        crawlLogBatchJob.processOnlyFilesMatching(Reporting.getMetadataFilePatternForJobId(jobId));
+        crawlLogBatchJob.processOnlyFilesOfJobs(Collections.singletonList(jobId));
+        BatchStatus status = ArcRepositoryClientFactory.getViewerInstance().batch(crawlLogBatchJob,
+                Settings.get(CommonSettings.USE_REPLICA_ID));
+        if (!status.hasResultFile() || status.getNoOfFilesProcessed() <= status.getFilesFailed().size()) {
+            log.info("No metadata files with a crawl log were processed for job {}", jobId);
+            return FetchResult.NOT_FOUND;
+        }
+        status.getResultFile().copyTo(toFile);
+        if (!status.getFilesFailed().isEmpty() || !status.getExceptions().isEmpty()) {
+            log.warn("The crawl log of job {} may be incomplete, as {} metadata files failed", jobId,
+                    status.getFilesFailed().size());
+            return FetchResult.INCOMPLETE;
+        }
+        return FetchResult.COMPLETE;
+    }
+
+    /**
+     * The sorted crawl log of a single job, and the index of its lines by domain.
+     */
+    private final class JobCrawlLog {
+
+        /** The ID of the job. */
+        private final long jobId;
+
+        /** The sorted crawl log, or null if it has not been loaded. */
+        private File file;
+
+        /** Whether the loaded crawl log has all lines of the job. */
+        private boolean complete;
+
+        /** When the crawl log was loaded, in milliseconds since the epoch. */
+        private long loaded;
+
+        /** Offsets of the lines in the sorted crawl log, by the domains of their URL and discovery URL. */
+        private Map<String, OffsetList> offsetsByDomain;
+
+        /**
+         * Create a crawl log that is not loaded yet.
+         *
+         * @param jobId The ID of the job.
+         */
+        private JobCrawlLog(long jobId) {
+            this.jobId = jobId;
+        }
+
+        /**
+         * Make sure the sorted crawl log is in the store, and that the index is built. If the crawl log of the job
+         * cannot be found in the archive, the crawl log is left empty and will be looked for again on the next call.
+         * An incomplete crawl log is fetched again when it is older than {@link #INCOMPLETE_CRAWL_LOG_LIFETIME}.
+         *
+         * @throws IOFailure if the crawl log cannot be fetched, sorted or read.
+         */
+        private synchronized void load() {
+            long now = System.currentTimeMillis();
+            if (offsetsByDomain != null && file.isFile() && (complete || now - loaded < INCOMPLETE_CRAWL_LOG_LIFETIME)) {
+                // Mark the crawl log as recently used, so it is evicted last.
+                file.setLastModified(now);
+                return;
+            }
+            file = null;
+            offsetsByDomain = null;
+            File crawlLogFile = getCrawlLogFile(jobId);
+            if (crawlLogFile.isFile()) {
+                crawlLogFile.setLastModified(now);
+                complete = true;
+            } else {
+                FetchResult result = fetchAndSort();
+                if (result == FetchResult.NOT_FOUND) {
+                    return;
+                }
+                complete = result == FetchResult.COMPLETE;
+                if (!complete) {
+                    crawlLogFile = getIncompleteCrawlLogFile(jobId);
+                }
+            }
+            long start = System.currentTimeMillis();
+            offsetsByDomain = buildIndex(crawlLogFile);
+            file = crawlLogFile;
+            loaded = now;
+            log.info("Indexed crawl log of job {} with {} domains in {} ms", jobId, offsetsByDomain.size(),
+                    System.currentTimeMillis() - start);
+        }
+
+        /**
+         * Fetch the crawl log of the job and store it sorted on timestamp. A complete crawl log is stored in the file
+         * given by getCrawlLogFile(), and an incomplete one in the file given by getIncompleteCrawlLogFile(). The
+         * least recently used crawl logs are then evicted if the store has grown too large.
+         *
+         * @return Whether the crawl log was found, and whether it is complete.
+         * @throws IOFailure if the crawl log cannot be fetched or sorted.
+         */
+        private FetchResult fetchAndSort() {
+            FileUtils.createDir(storeDir);
+            final String uuid = UUID.randomUUID().toString();
+            File unsorted = new File(storeDir, jobId + "-" + uuid + ".txt");
+            File sorted = new File(storeDir, jobId + "-" + uuid + "-sorted.txt");
+            File incompleteFile = getIncompleteCrawlLogFile(jobId);
+            try {
+                long start = System.currentTimeMillis();
+                FetchResult result = fetchCrawlLog(jobId, unsorted);
+                if (result == FetchResult.NOT_FOUND) {
+                    return result;
+                }
+                FileUtils.sortCrawlLogOnTimestamp(unsorted, sorted);
+                File storedFile = result == FetchResult.COMPLETE ? getCrawlLogFile(jobId) : incompleteFile;
+                FileUtils.remove(incompleteFile);
+                if (!sorted.renameTo(storedFile)) {
+                    throw new IOFailure("Could not move sorted crawl log '" + sorted + "' to '" + storedFile + "'");
+                }
+                log.info("Stored sorted {} crawl log of job {} in '{}' in {} ms",
+                        result == FetchResult.COMPLETE ? "complete" : "incomplete", jobId, storedFile,
+                        System.currentTimeMillis() - start);
+                evict(storedFile);
+                return result;
+            } finally {
+                FileUtils.remove(unsorted);
+                FileUtils.remove(sorted);
+            }
+        }
+
+        /**
+         * @return The sorted crawl log, or null if it could not be found in the archive.
+         */
+        private synchronized File getFile() {
+            return file;
+        }
+
+        /**
+         * Get the offsets of the lines for a domain.
+         *
+         * @param domain The domain.
+         * @return The offsets in timestamp order, or null if there are no lines for the domain.
+         */
+        private synchronized OffsetList getOffsets(String domain) {
+            return offsetsByDomain == null ? null : offsetsByDomain.get(domain);
+        }
+
+        /**
+         * Read the lines starting at some of the given offsets in the sorted crawl log.
+         *
+         * @param crawlLogFile The sorted crawl log, acquired for reading.
+         * @param offsets The offsets of the lines.
+         * @param from The index of the first offset to read a line for.
+         * @param to The index after the last offset to read a line for.
+         * @return The lines.
+         * @throws IOFailure if the crawl log cannot be read.
+         */
+        private List<String> readLines(File crawlLogFile, long[] offsets, int from, int to) {
+            List<String> lines = new ArrayList<String>(to - from);
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(crawlLogFile, "r");
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int i = from; i < to; i++) {
+                    line.reset();
+                    copyLine(raf, offsets[i], buffer, line);
+                    lines.add(new String(line.toByteArray(), UTF8));
+                }
+            } catch (IOException e) {
+                throw new IOFailure("Unable to read crawl log lines for job " + jobId, e);
+            } finally {
+                IOUtils.closeQuietly(raf);
+            }
+            return lines;
+        }
+
+        /**
+         * Write the lines starting at the first of the given offsets in the sorted crawl log to a stream, each
+         * followed by a newline.
+         *
+         * @param crawlLogFile The sorted crawl log, acquired for reading.
+         * @param offsets The offsets of the lines.
+         * @param count The number of offsets to write lines for.
+         * @param out The stream to write the lines to.
+         * @throws IOException if the lines cannot be written.
+         * @throws IOFailure if the crawl log cannot be read.
+         */
+        private void writeLines(File crawlLogFile, long[] offsets, int count, OutputStream out) throws IOException {
+            RandomAccessFile raf;
+            try {
+                raf = new RandomAccessFile(crawlLogFile, "r");
+            } catch (IOException e) {
+                throw new IOFailure("Unable to read crawl log lines for job " + jobId, e);
+            }
+            try {
+                byte[] buffer = new byte[8192];
+                for (int i = 0; i < count; i++) {
+                    copyLine(raf, offsets[i], buffer, out);
+                    out.write('\n');
+                }
+            } finally {
+                IOUtils.closeQuietly(raf);
+            }
+        }
+
+        /**
+         * Copy the line starting at an offset in the sorted crawl log to a stream, without the line terminator.
+         *
+         * @param raf The sorted crawl log.
+         * @param offset The offset of the line.
+         * @param buffer A buffer to read the crawl log through.
+         * @param out The stream to copy the line to.
+         * @throws IOException if the crawl log cannot be read or the stream cannot be written.
+         */
+        private void copyLine(RandomAccessFile raf, long offset, byte[] buffer, OutputStream out)
+                throws IOException {
+            raf.seek(offset);
+            boolean endOfLine = false;
+            int read;
+            while (!endOfLine && (read = raf.read(buffer)) > 0) {
+                int length = 0;
+                while (length < read && buffer[length] != '\n') {
+                    length++;
+                }
+                endOfLine = length < read;
+                out.write(buffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Index the lines of a crawl log by the domains of their URL and discovery URL, in the same way as the
+     * {@link HarvestedUrlsForDomainBatchJob}.
+     *
+     * @param crawlLogFile The crawl log.
+     * @return The offsets of the lines by domain.
+     * @throws IOFailure if the crawl log cannot be read.
+     */
+    static Map<String, OffsetList> buildIndex(File crawlLogFile) {
+        Map<String, OffsetList> offsetsByDomain = new HashMap<String, OffsetList>();
+        LineReader reader = new LineReader(crawlLogFile);
+        try {
+            long offset = reader.getOffset();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] parts = line.split("\\s+");
+                String urlDomain = null;
+                if (parts.length > URL_PART_INDEX) {
+                    urlDomain = HarvestedUrlsForDomainBatchJob.getDomainFromUrlPart(parts[URL_PART_INDEX]);
+                    addOffset(offsetsByDomain, urlDomain, offset);
+                }
+                if (parts.length > DISCOVERY_URL_PART_INDEX && !parts[DISCOVERY_URL_PART_INDEX].equals("-")) {
+                    String discoveryDomain = HarvestedUrlsForDomainBatchJob
+                            .getDomainFromUrlPart(parts[DISCOVERY_URL_PART_INDEX]);
+                    if (!discoveryDomain.equals(urlDomain)) {
+                        addOffset(offsetsByDomain, discoveryDomain, offset);
+                    }
+                }
+                offset = reader.getOffset();
+            }
+        } finally {
+            reader.close();
+        }
+        return offsetsByDomain;
+    }
+
+    /**
+     * Add the offset of a line to the offsets of a domain.
+     *
+     * @param offsetsByDomain The offsets by domain.
+     * @param domain The domain, ignored if empty.
+     * @param offset The offset of the line.
+     */
+    private static void addOffset(Map<String, OffsetList> offsetsByDomain, String domain, long offset) {
+        if (domain.isEmpty()) {
+            return;
+        }
+        OffsetList offsets = offsetsByDomain.get(domain);
+        if (offsets == null) {
+            offsets = new OffsetList();
+            offsetsByDomain.put(domain, offsets);
+        }
+        offsets.add(offset);
+    }
+
+    /**
+     * A growable list of line offsets, avoiding a Long object per line.
+     */
+    static final class OffsetList {
+
+        /** The offsets. */
+        private long[] offsets = new long[4];
+
+        /** The number of offsets in the list. */
+        private int size;
+
+        /**
+         * Add an offset to the list.
+         *
+         * @param offset The offset.
+         */
+        private void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        /**
+         * @return The number of offsets in the list.
+         */
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Reads UTF-8 lines from a file while keeping track of the byte offset of the next line.
+     */
+    private static final class LineReader {
+
+        /** The file being read. */
+        private final File file;
+
+        /** The stream reading the file. */
+        private final InputStream in;
+
+        /** The buffer holding the current line. */
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        /** The byte offset of the next line. */
+        private long offset;
+
+        /**
+         * Open a file for reading lines.
+         *
+         * @param file The file.
+         * @throws IOFailure if the file cannot be opened.
+         */
+        private LineReader(File file) {
+            this.file = file;
+            try {
+                in = new BufferedInputStream(new FileInputStream(file));
+            } catch (IOException e) {
+                throw new IOFailure("Unable to open crawl log '" + file + "'", e);
+            }
+        }
+
+        /**
+         * Read the next line.
+         *
+         * @return The line without the line terminator, or null at the end of the file.
+         * @throws IOFailure if the file cannot be read.
+         */
+        private String readLine() {
+            line.reset();
+            try {
+                int b = in.read();
+                if (b < 0) {
+                    return null;
+                }
+                while (b >= 0 && b != '\n') {
+                    line.write(b);
+                    b = in.read();
+                }
+                offset += line.size() + (b < 0 ? 0 : 1);
+            } catch (IOException e) {
+                throw new IOFailure("Unable to read crawl log '" + file + "'", e);
+            }
+            return new String(line.toByteArray(), UTF8);
+        }
+
+        /**
+         * @return The byte offset of the next line.
+         */
+        private long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Close the file.
+         */
+        private void close() {
+            IOUtils.closeQuietly(in);
+        }
+    }
+}
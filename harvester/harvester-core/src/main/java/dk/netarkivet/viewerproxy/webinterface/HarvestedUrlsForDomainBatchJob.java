@@ -27,6 +27,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +40,7 @@ import dk.netarkivet.common.utils.DomainUtils;
 import dk.netarkivet.common.utils.FixedUURI;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.archive.ArchiveBatchJob;
+import dk.netarkivet.common.utils.archive.ArchiveHeaderPredicate;
 import dk.netarkivet.common.utils.archive.ArchiveRecordBase;
 import dk.netarkivet.common.utils.batch.ArchiveBatchFilter;
 
@@ -72,6 +74,8 @@ public class HarvestedUrlsForDomainBatchJob extends ArchiveBatchJob {
          * Two week in milliseconds.
          */
         batchJobTimeout = 7 * Constants.ONE_DAY_IN_MILLIES;
+        processOnlyRecordsMatching(new ArchiveHeaderPredicate(Pattern.compile(Pattern.quote(SETUP_URL_FORMAT) + ".*"),
+                null));
     }
 
     /**
@@ -167,7 +171,7 @@ public class HarvestedUrlsForDomainBatchJob extends ArchiveBatchJob {
      * @param urlpart One of the URL part of the crawllog-line.
      * @return domain from urlpart, if feasibly. Return empty string otherwise
      */
-    private String getDomainFromUrlPart(String urlpart) {
+    static String getDomainFromUrlPart(String urlpart) {
         String domain = null;
         try {
             domain = DomainUtils.domainNameFromHostname(new FixedUURI(urlpart, true).getReferencedHost());
@@ -123,6 +123,7 @@ public class Reporting {
         };
         String metadataFileSearchPattern = getMetadataFilePatternForJobId(jobid);
         cdxJob.processOnlyFilesMatching(metadataFileSearchPattern);
+        cdxJob.processOnlyFilesOfJobs(Collections.singletonList(jobid));
 
         File f;
         try {
@@ -163,11 +164,64 @@ public class Reporting {
     public static File getCrawlLogForDomainInJob(String domain, long jobid) {
         ArgumentNotValid.checkPositive(jobid, "jobid");
         ArgumentNotValid.checkNotNullOrEmpty(domain, "String domain");
+        if (CrawlLogStore.isEnabled()) {
+            File f = createResultFile();
+            CrawlLogStore.getInstance().writeLinesForDomain(jobid, domain, f);
+            return f;
+        }
         FileBatchJob urlsForDomainBatchJob = new HarvestedUrlsForDomainBatchJob(domain);
         urlsForDomainBatchJob.processOnlyFilesMatching(getMetadataFilePatternForJobId(jobid));
+        urlsForDomainBatchJob.processOnlyFilesOfJobs(Collections.singletonList(jobid));
         return getResultFile(urlsForDomainBatchJob);
     }
 
+    /**
+     * Read a page of the lines of a crawl log query result, and delete the result file.
+     *
+     * @param f The result file.
+     * @param offset The number of lines to skip.
+     * @param limit The maximum number of lines to return.
+     * @return The lines of the page.
+     * @throws IOFailure if the file cannot be read.
+     */
+    private static List<String> readPage(File f, int offset, int limit) {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(f));
+            int skipped = 0;
+            for (String line = reader.readLine(); line != null && lines.size() < limit; line = reader.readLine()) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new IOFailure("Unable to read results from file '" + f + "'", e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+            FileUtils.remove(f);
+        }
+        return lines;
+    }
+
+    /**
+     * Create a temporary file for the result of a crawl log query.
+     *
+     * @return The new file. It is deleted on exit.
+     */
+    private static File createResultFile() {
+        try {
+            File f = File.createTempFile("temp", UUID.randomUUID().toString() + "-sorted.txt",
+                    FileUtils.getTempDir());
+            f.deleteOnExit();
+            return f;
+        } catch (IOException e) {
+            throw new IOFailure("Unable to create temporary file", e);
+        }
+    }
+
     /**
      * Helper method to get result from a batchjob.
      *
@@ -204,17 +258,47 @@ public class Reporting {
     public static File getCrawlLoglinesMatchingRegexp(long jobid, String regexp) {
         ArgumentNotValid.checkPositive(jobid, "jobid");
         ArgumentNotValid.checkNotNullOrEmpty(regexp, "String regexp");
+        if (CrawlLogStore.isEnabled()) {
+            File f = createResultFile();
+            CrawlLogStore.getInstance().writeLinesMatchingRegexp(jobid, regexp, f);
+            return f;
+        }
         FileBatchJob crawlLogBatchJob = new CrawlLogLinesMatchingRegexp(regexp);
         crawlLogBatchJob.processOnlyFilesMatching(getMetadataFilePatternForJobId(jobid));
+        crawlLogBatchJob.processOnlyFilesOfJobs(Collections.singletonList(jobid));
         return getResultFile(crawlLogBatchJob);
     }
     
+    /**
+     * Get a page of the crawl log lines for a given jobid matching the given regular expression, sorted on timestamp.
+     * If the {@link CrawlLogStore} is enabled, the lines are read from the store, which fetches the crawl log of the
+     * job from the archive on first use. Otherwise a batch job is submitted.
+     *
+     * @param jobid The jobid
+     * @param regexp A regular expression
+     * @param offset The number of matching lines to skip.
+     * @param limit The maximum number of lines to return.
+     * @return The matching lines of the page.
+     * @throws ArgumentNotValid On non-positive jobids or limits, negative offsets, or if regexp is null or the empty
+     * string.
+     */
+    public static List<String> getCrawlLoglinesMatchingRegexp(long jobid, String regexp, int offset, int limit) {
+        ArgumentNotValid.checkPositive(jobid, "jobid");
+        ArgumentNotValid.checkNotNullOrEmpty(regexp, "String regexp");
+        ArgumentNotValid.checkNotNegative(offset, "int offset");
+        ArgumentNotValid.checkPositive(limit, "int limit");
+        if (CrawlLogStore.isEnabled()) {
+            return CrawlLogStore.getInstance().getLinesMatchingRegexp(jobid, regexp, offset, limit);
+        }
+        return readPage(getCrawlLoglinesMatchingRegexp(jobid, regexp), offset, limit);
+    }
+
     /**
      * Construct the correct metadatafilepattern for a given jobID.
      * @param jobid a given harvest jobID
      * @return metadatafilePattern for the given jobid
      */
-    private static String getMetadataFilePatternForJobId(long jobid) {
+    static String getMetadataFilePatternForJobId(long jobid) {
     	return "(.*-)?" + jobid + "(-.*)?" + metadatafile_suffix;
     }
 }
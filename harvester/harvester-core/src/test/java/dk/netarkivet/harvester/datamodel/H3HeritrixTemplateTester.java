@@ -5,7 +5,9 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
 
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
@@ -66,6 +68,36 @@ public class H3HeritrixTemplateTester {
 			fail("Shouldn't have thrown IllegalState with placeholder available");
 		}
 	}
+
+	/**
+	 * Insert crawlertraps for a job with 10,000 domains, and check that all traps are rendered into the template
+	 * exactly once, leaving a single placeholder for further traps.
+	 */
+	@Test
+	public void testInsertCrawlerTrapsForManyDomains() throws IOException {
+		URL url = this.getClass().getClassLoader().getResource("heritrix3");
+	    File basedir = new File(url.getFile());
+	    File beansWithPlaceholders = new File(basedir, correctTemplateName);
+		H3HeritrixTemplate template = new H3HeritrixTemplate(100L, FileUtils.readFile(beansWithPlaceholders));
+		int domains = 10000;
+		for (int i = 0; i < domains; i++) {
+			template.insertCrawlerTraps("domain" + i + ".dk",
+					Arrays.asList(".*domain" + i + "\\.dk/a/.*", ".*domain" + i + "\\.dk/b/.*"));
+		}
+		String xml = template.getXML();
+		assertEquals("All traps should be inserted once", 2 * domains, StringUtils.countMatches(xml, "<value>.*domain"));
+		assertTrue("The traps should keep the order of insertion",
+				xml.indexOf("domain0\\.dk/a/") < xml.indexOf("domain" + (domains - 1) + "\\.dk/b/"));
+		assertEquals("A single placeholder should be left for further traps", 1,
+				StringUtils.countMatches(xml, H3HeritrixTemplate.CRAWLERTRAPS_PLACEHOLDER));
+
+		template.insertCrawlerTraps("late.dk", Arrays.asList(".*late\\.dk/.*"));
+		template.removePlaceholders();
+		xml = template.getXML();
+		assertTrue("Traps inserted after rendering should be rendered too", xml.contains("<value>.*late\\.dk/.*</value>"));
+		assertFalse("The placeholder should be removed", xml.contains(H3HeritrixTemplate.CRAWLERTRAPS_PLACEHOLDER));
+	}
+
 	@Test
 	public void test() {
 		URL url = this.getClass().getClassLoader().getResource("heritrix3");
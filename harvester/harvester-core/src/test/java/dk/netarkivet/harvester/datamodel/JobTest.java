@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -83,6 +84,32 @@ public class JobTest {
         assertEquals(seedListAsSet, seedsFromJob);
     }
 
+    @Test
+    public void testWriteSeedListMatchesSeedListAsString() throws IOException {
+        Job job = createDefaultJob();
+        job.setSeedList("seed1.org\nseed2.org\nseed3.org\nseed2.org");
+
+        StringWriter writer = new StringWriter();
+        job.writeSeedList(writer);
+        assertEquals(job.getSeedListAsString(), writer.toString());
+
+        Job job2 = createDefaultJob();
+        job2.readSeedList(new StringReader(writer.toString()));
+        assertEquals(job.getSeedListAsString(), job2.getSeedListAsString());
+    }
+
+    @Test
+    public void testSeedListIsSorted() {
+        Job job = createDefaultJob();
+        job.setSeedList("seed3.org\nseed1.org\nseed2.org");
+        Job job2 = createDefaultJob();
+        job2.setSeedList("seed2.org\nseed3.org\nseed1.org");
+
+        assertEquals("seed1.org\nseed2.org\nseed3.org", job.getSeedListAsString());
+        assertEquals("Jobs with the same seeds should have the same seedlist", job.getSeedListAsString(),
+                job2.getSeedListAsString());
+    }
+
     /**
      * Tests that seedlists have ascii versions added.
      */
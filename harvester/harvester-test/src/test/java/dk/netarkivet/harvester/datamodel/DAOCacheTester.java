@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * Netarchivesuite - harvester - test
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library,
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.datamodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DAOCacheTester {
+
+    @Test
+    public void testVersionedEntriesAreOnlyUsedForTheirEdition() {
+        DAOCache<String, String> cache = new DAOCache<String, String>("Versioned test cache", 0, 10);
+        assertNull("Nothing should be cached yet", cache.get("template", 1L));
+        cache.put("template", 1L, "edition 1");
+        assertEquals("The cached edition should be found", "edition 1", cache.get("template", 1L));
+        assertNull("Another edition should not be found", cache.get("template", 2L));
+        assertNull("A versioned entry should not be found as a timed entry", cache.get("template"));
+        assertEquals("Hits should be counted", 1, cache.getHits());
+        assertEquals("Misses should be counted", 3, cache.getMisses());
+
+        cache.invalidate("template");
+        assertNull("An invalidated entry should not be found", cache.get("template", 1L));
+        assertEquals("Invalidations should be counted", 1, cache.getInvalidations());
+    }
+
+    @Test
+    public void testTimedEntriesAreUsedUntilInvalidated() {
+        DAOCache<Long, String> cache = new DAOCache<Long, String>("Timed test cache", 60000L, 10);
+        cache.put(42L, "channel");
+        assertEquals("The timed entry should be found", "channel", cache.get(42L));
+        cache.invalidateAll();
+        assertNull("No entry should be found after invalidating all", cache.get(42L));
+        assertEquals("The cache should be empty", 0, cache.getSize());
+    }
+
+    @Test
+    public void testTimedEntriesAreNotCachedWithoutTimeToLive() {
+        DAOCache<Long, String> cache = new DAOCache<Long, String>("Uncached test cache", 0, 10);
+        cache.put(42L, "channel");
+        assertNull("Timed entries should not be used without a time to live", cache.get(42L));
+        assertEquals("Nothing should be cached", 0, cache.getSize());
+    }
+
+    @Test
+    public void testFullCacheEvictsLeastRecentlyUsedAndIsReported() {
+        DAOCache<Integer, String> cache = new DAOCache<Integer, String>("Full test cache", 0, 2);
+        cache.put(1, 1L, "one");
+        cache.put(2, 1L, "two");
+        assertEquals("The first entry should be cached", "one", cache.get(1, 1L));
+        cache.put(3, 1L, "three");
+        assertEquals("A full cache should stay full", 2, cache.getSize());
+        assertEquals("One entry should be evicted", 1, cache.getEvictions());
+        assertEquals("The recently used entry should be kept", "one", cache.get(1, 1L));
+        assertEquals("The newest entry should be kept", "three", cache.get(3, 1L));
+        assertNull("The least recently used entry should be evicted", cache.get(2, 1L));
+        assertTrue("The cache should be in the report of all caches",
+                DAOCache.reportAll().contains("Full test cache: 2 entries (max 2)"));
+    }
+
+}
@@ -29,7 +29,9 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -43,6 +45,7 @@ import org.junit.experimental.categories.Category;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.exceptions.UnknownID;
+import dk.netarkivet.common.utils.DBUtils;
 import dk.netarkivet.common.utils.IteratorUtils;
 import dk.netarkivet.common.utils.SlowTest;
 import dk.netarkivet.testutils.CollectionAsserts;
@@ -622,6 +625,129 @@ public class HarvestDefinitionDAOTester extends DataModelTestCase {
         assertTrue("DC should have been removed", configList.size() == configsize - 1);
     }
 
+    @Category(SlowTest.class)
+    @Test
+    public void testUpdateAddsDomainConfigurations() {
+        HarvestDefinitionDAO hddao = HarvestDefinitionDAO.getInstance();
+        PartialHarvest ph = (PartialHarvest) hddao.read(42L);
+        List<String> configs = getStoredConfigurations(42L);
+        DomainConfiguration added = DomainDAOTester.getDomain("addedconfig.dk").getDefaultConfiguration();
+        ph.addDomainConfiguration(added);
+        hddao.update(ph);
+
+        List<String> updatedConfigs = getStoredConfigurations(42L);
+        assertEquals("One configuration should be added", configs.size() + 1, updatedConfigs.size());
+        assertTrue("The added configuration should be stored",
+                updatedConfigs.contains(added.getDomainName() + "/" + added.getName()));
+        assertTrue("The other configurations should be kept", updatedConfigs.containsAll(configs));
+        assertEquals("The added configuration should be read", configs.size() + 1,
+                IteratorUtils.toList(((PartialHarvest) hddao.read(42L)).getDomainConfigurations()).size());
+    }
+
+    @Category(SlowTest.class)
+    @Test
+    public void testUpdateRemovesDomainConfigurations() {
+        HarvestDefinitionDAO hddao = HarvestDefinitionDAO.getInstance();
+        PartialHarvest ph = (PartialHarvest) hddao.read(42L);
+        List<String> configs = getStoredConfigurations(42L);
+        DomainConfiguration removed = ph.getDomainConfigurations().next();
+        ph.removeDomainConfiguration(new SparseDomainConfiguration(removed));
+        hddao.update(ph);
+
+        List<String> updatedConfigs = getStoredConfigurations(42L);
+        assertEquals("One configuration should be removed", configs.size() - 1, updatedConfigs.size());
+        assertFalse("The removed configuration should not be stored",
+                updatedConfigs.contains(removed.getDomainName() + "/" + removed.getName()));
+        assertTrue("The other configurations should be kept", configs.containsAll(updatedConfigs));
+    }
+
+    @Category(SlowTest.class)
+    @Test
+    public void testUpdateWithUnchangedDomainConfigurations() throws SQLException {
+        HarvestDefinitionDAO hddao = HarvestDefinitionDAO.getInstance();
+        PartialHarvest ph = (PartialHarvest) hddao.read(42L);
+        List<String> configs = getStoredConfigurations(42L);
+        countHarvestConfigsWrites();
+        ph.setNumEvents(ph.getNumEvents() + 1);
+        hddao.update(ph);
+
+        assertEquals("No harvest_configs rows should be written", 0, getHarvestConfigsWrites());
+        assertEquals("The configurations should be unchanged", configs, getStoredConfigurations(42L));
+    }
+
+    @Category(SlowTest.class)
+    @Test
+    public void testResetDomainConfigurations() {
+        HarvestDefinitionDAO hddao = HarvestDefinitionDAO.getInstance();
+        PartialHarvest ph = (PartialHarvest) hddao.read(42L);
+        PartialHarvest stalePh = (PartialHarvest) hddao.read(42L);
+        List<String> configs = getStoredConfigurations(42L);
+        DomainConfiguration added = DomainDAOTester.getDomain("addedconfig.dk").getDefaultConfiguration();
+        ph.addDomainConfiguration(added);
+        long edition = ph.getEdition();
+        hddao.resetDomainConfigurations(ph, IteratorUtils.toList(ph.getDomainConfigurations()));
+
+        List<String> updatedConfigs = getStoredConfigurations(42L);
+        assertEquals("One configuration should be added", configs.size() + 1, updatedConfigs.size());
+        assertTrue("The added configuration should be stored",
+                updatedConfigs.contains(added.getDomainName() + "/" + added.getName()));
+        assertEquals("The edition should be increased", edition + 1, ph.getEdition());
+        assertEquals("The edition should be stored", ph.getEdition(), hddao.read(42L).getEdition());
+
+        stalePh.removeDomainConfiguration(new SparseDomainConfiguration(stalePh.getDomainConfigurations().next()));
+        try {
+            hddao.resetDomainConfigurations(stalePh, IteratorUtils.toList(stalePh.getDomainConfigurations()));
+            fail("Should not reset the configurations of an expired edition");
+        } catch (PermissionDenied e) {
+            // expected
+        }
+        assertEquals("The configurations should not be reset from an expired edition", updatedConfigs,
+                getStoredConfigurations(42L));
+    }
+
+    /**
+     * Get the configurations of a harvest definition as stored in the harvest_configs table.
+     *
+     * @param harvestId The id of the harvest definition
+     * @return The configurations as domain name/configuration name, sorted, with any duplicate rows kept
+     */
+    private static List<String> getStoredConfigurations(long harvestId) {
+        Connection c = HarvestDBConnection.get();
+        try {
+            return DBUtils.selectStringList(c, "SELECT domains.name || '/' || configurations.name "
+                    + "FROM harvest_configs, configurations, domains WHERE harvest_configs.harvest_id = ?"
+                    + "  AND configurations.config_id = harvest_configs.config_id"
+                    + "  AND domains.domain_id = configurations.domain_id "
+                    + "ORDER BY domains.name, configurations.name", harvestId);
+        } finally {
+            HarvestDBConnection.release(c);
+        }
+    }
+
+    /** Count the rows inserted into and deleted from the harvest_configs table from now on. */
+    private static void countHarvestConfigsWrites() throws SQLException {
+        Connection c = HarvestDBConnection.get();
+        try (Statement s = c.createStatement()) {
+            s.executeUpdate("CREATE TABLE harvest_configs_writes (written INT)");
+            s.executeUpdate("CREATE TRIGGER harvest_configs_inserted AFTER INSERT ON harvest_configs "
+                    + "FOR EACH ROW INSERT INTO harvest_configs_writes VALUES (1)");
+            s.executeUpdate("CREATE TRIGGER harvest_configs_deleted AFTER DELETE ON harvest_configs "
+                    + "FOR EACH ROW INSERT INTO harvest_configs_writes VALUES (1)");
+        } finally {
+            HarvestDBConnection.release(c);
+        }
+    }
+
+    /** @return The number of rows inserted into and deleted from harvest_configs since countHarvestConfigsWrites. */
+    private static long getHarvestConfigsWrites() {
+        Connection c = HarvestDBConnection.get();
+        try {
+            return DBUtils.selectLongValue(c, "SELECT COUNT(*) FROM harvest_configs_writes");
+        } finally {
+            HarvestDBConnection.release(c);
+        }
+    }
+
     @Category(SlowTest.class)
     @Test
     public void testUpdateNextDate() {
@@ -51,7 +51,9 @@ import org.junit.experimental.categories.Category;
 import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.exceptions.IOFailure;
 import dk.netarkivet.common.exceptions.IllegalState;
+import dk.netarkivet.common.exceptions.PermissionDenied;
 import dk.netarkivet.common.exceptions.UnknownID;
+import dk.netarkivet.common.utils.DBUtils;
 import dk.netarkivet.common.utils.SlowTest;
 import dk.netarkivet.harvester.test.utils.OrderXmlBuilder;
 import dk.netarkivet.harvester.webinterface.DomainDefinition;
@@ -131,6 +133,30 @@ public class JobDAOTester extends DataModelTestCase {
         // - but we probably do (at least nice to have)
     }
 
+    /**
+     * Tests that a job with a seedlist large enough to be streamed from the database is read completely, together with
+     * the fields read from the same row.
+     */
+    @Test
+    public void testJobReadWithLargeSeedList() {
+        StringBuilder seeds = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            seeds.append("http://www.seed").append(i).append(".dk/\n");
+        }
+        Job job = createDefaultJob(0);
+        job.setSeedList(seeds.toString());
+        createJobInDB(job);
+
+        Job readJob = jobDAO.read(job.getJobID());
+        assertEquals("The whole seedlist should be read", job.getSeedListAsString(), readJob.getSeedListAsString());
+        assertEquals("The fields read before the seedlist should be read", job.getStatus(), readJob.getStatus());
+        assertEquals("The fields read after the seedlist should be read", job.getHarvestFilenamePrefix(),
+                readJob.getHarvestFilenamePrefix());
+        assertEquals("The fields read after the seedlist should be read", job.getEdition(), readJob.getEdition());
+        assertEquals("The fields read after the seedlist should be read", job.getCreationDate(),
+                readJob.getCreationDate());
+    }
+
     @Test(expected = UnknownID.class)
     public void testJobReadUnknownID() {
         jobDAO.read(42424242);
@@ -674,6 +700,154 @@ public class JobDAOTester extends DataModelTestCase {
         }
     }
 
+    @Test
+    public void testUpdateStatus() {
+        Job job = createDefaultJobInDB(0);
+        Job readJob = jobDAO.read(job.getJobID());
+        String harvestnamePrefix = readJob.getHarvestFilenamePrefix();
+        readJob.setStatus(JobStatus.FAILED);
+        readJob.appendHarvestErrors("Harvest failed");
+        Date start = new Date();
+        readJob.setActualStart(start);
+        // Only the status and its related fields are written by updateStatus
+        readJob.setHarvestFilenamePrefix("not-stored");
+        jobDAO.updateStatus(readJob);
+        assertEquals("The edition should be increased", job.getEdition() + 1, readJob.getEdition());
+
+        Job updatedJob = jobDAO.read(job.getJobID());
+        assertEquals("The status should be updated", JobStatus.FAILED, updatedJob.getStatus());
+        assertEquals("The harvest errors should be updated", "Harvest failed", updatedJob.getHarvestErrors());
+        assertEquals("The start date should be updated", start, updatedJob.getActualStart());
+        assertEquals("The edition should be updated", readJob.getEdition(), updatedJob.getEdition());
+        assertEquals("Other fields should not be updated", harvestnamePrefix, updatedJob.getHarvestFilenamePrefix());
+        assertEquals("The configurations should not be updated", job.getDomainConfigurationMap(),
+                updatedJob.getDomainConfigurationMap());
+        assertEquals("The seedlist should not be updated", job.getSeedListAsString(),
+                updatedJob.getSeedListAsString());
+    }
+
+    @Test(expected = PermissionDenied.class)
+    public void testUpdateStatusWithExpiredEdition() {
+        Job job = createDefaultJobInDB(0);
+        Job readJob1 = jobDAO.read(job.getJobID());
+        Job readJob2 = jobDAO.read(job.getJobID());
+        readJob1.setStatus(JobStatus.SUBMITTED);
+        jobDAO.updateStatus(readJob1);
+        readJob2.setStatus(JobStatus.FAILED);
+        jobDAO.updateStatus(readJob2);
+    }
+
+    @Test(expected = ArgumentNotValid.class)
+    public void testUpdateStatusWithChangedConfigurations() {
+        Job job = createDefaultJobInDB(0);
+        Job readJob = jobDAO.read(job.getJobID());
+        readJob.addConfiguration(TestInfo.getDefaultConfig(DomainDAOTester.getDomain(TestInfo.DEFAULTNEWDOMAINNAME)));
+        jobDAO.updateStatus(readJob);
+    }
+
+    @Test(expected = UnknownID.class)
+    public void testUpdateStatusUnknownID() {
+        Job job = createDefaultJob(0);
+        job.setJobID(42424242L);
+        job.configsChanged = false;
+        jobDAO.updateStatus(job);
+    }
+
+    /**
+     * Tests that the test database is migrated to the version of the jobs table with the order.xml and seedlist kept
+     * in the jobdocuments table.
+     */
+    @Test
+    public void testJobsTableIsMigratedToJobDocuments() {
+        Connection c = HarvestDBConnection.get();
+        try {
+            assertEquals("The jobs table should be migrated to version 11", 11, DBUtils.getTableVersion(c, "jobs"));
+            assertEquals("The jobdocuments table should be created", 1, DBUtils.getTableVersion(c, "jobdocuments"));
+        } finally {
+            HarvestDBConnection.release(c);
+        }
+        Job job = createDefaultJobInDB(0);
+        assertNotNull("The order.xml of a new job should be stored in jobdocuments",
+                getJobDocumentHash(job, "orderxmldoc_hash"));
+        assertNotNull("The seedlist of a new job should be stored in jobdocuments",
+                getJobDocumentHash(job, "seedlist_hash"));
+    }
+
+    /**
+     * Tests that jobs with the same order.xml and seedlist share the rows of them in the jobdocuments table.
+     */
+    @Test
+    public void testJobsShareJobDocuments() {
+        Job job1 = createDefaultJobInDB(0);
+        long documents = countJobDocuments();
+        Job job2 = createDefaultJobInDB(1);
+        assertEquals("The second job should not store new documents", documents, countJobDocuments());
+        assertEquals("The jobs should share the order.xml", getJobDocumentHash(job1, "orderxmldoc_hash"),
+                getJobDocumentHash(job2, "orderxmldoc_hash"));
+        assertEquals("The jobs should share the seedlist", getJobDocumentHash(job1, "seedlist_hash"),
+                getJobDocumentHash(job2, "seedlist_hash"));
+        assertEquals("The jobs should have the same seedlist", jobDAO.read(job1.getJobID()).getSeedListAsString(),
+                jobDAO.read(job2.getJobID()).getSeedListAsString());
+    }
+
+    /**
+     * Tests that a job created before the jobdocuments table existed, with the order.xml and seedlist in the jobs
+     * table, can be read, and that its documents are moved to the jobdocuments table when it is updated.
+     */
+    @Test
+    public void testReadJobWithDocumentsInJobsTable() throws SQLException {
+        Job job = createDefaultJobInDB(0);
+        String orderXml = job.getOrderXMLdoc().getXML();
+        String seedList = job.getSeedListAsString();
+        Connection c = HarvestDBConnection.get();
+        PreparedStatement s = null;
+        try {
+            s = c.prepareStatement("UPDATE jobs SET orderxmldoc = ?, seedlist = ?, orderxmldoc_hash = NULL, "
+                    + "seedlist_hash = NULL WHERE job_id = ?");
+            s.setString(1, orderXml);
+            s.setString(2, seedList);
+            s.setLong(3, job.getJobID());
+            s.executeUpdate();
+        } finally {
+            DBUtils.closeStatementIfOpen(s);
+            HarvestDBConnection.release(c);
+        }
+
+        Job readJob = jobDAO.read(job.getJobID());
+        assertEquals("The seedlist should be read from the jobs table", seedList, readJob.getSeedListAsString());
+        assertEquals("The order.xml should be read from the jobs table", job.getOrderXMLName(),
+                readJob.getOrderXMLName());
+        assertNotNull("The order.xml should be read from the jobs table", readJob.getOrderXMLdoc());
+
+        readJob.setStatus(JobStatus.SUBMITTED);
+        jobDAO.update(readJob);
+        assertNotNull("The order.xml should be moved to jobdocuments",
+                getJobDocumentHash(readJob, "orderxmldoc_hash"));
+        assertNotNull("The seedlist should be moved to jobdocuments", getJobDocumentHash(readJob, "seedlist_hash"));
+        assertEquals("The seedlist should be read from jobdocuments", seedList,
+                jobDAO.read(job.getJobID()).getSeedListAsString());
+    }
+
+    /** Get one of the jobdocuments hashes of a job from the jobs table. */
+    private static String getJobDocumentHash(Job job, String column) {
+        Connection c = HarvestDBConnection.get();
+        try {
+            return DBUtils.selectStringValue(c, "SELECT " + column + " FROM jobs WHERE job_id = ?", job.getJobID());
+        } finally {
+            HarvestDBConnection.release(c);
+        }
+    }
+
+    /** Count the rows of the jobdocuments table. */
+    private static long countJobDocuments() {
+        Connection c = HarvestDBConnection.get();
+        try {
+            return DBUtils.selectLongValue(c, "SELECT COUNT(*) FROM jobdocuments");
+        } finally {
+            HarvestDBConnection.release(c);
+        }
+    }
+
     private static Job createDefaultJob(int harvestNum) {
     	HeritrixTemplate ht = new H1HeritrixTemplate(OrderXmlBuilder.createDefault().getDoc());
         return new Job(
@@ -0,0 +1,58 @@
+/*
+ * #%L
+ * Netarchivesuite - harvester - test
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.datamodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SeedNormalizerTester {
+
+    @Test
+    public void testToASCIIConvertsInternationalizedHostNames() {
+        String[][] seeds = { {"http://www.pølse.dk/enfil", "http://www.xn--plse-gra.dk/enfil"},
+                {"http://www.pølse.dk/enpølse", "http://www.xn--plse-gra.dk/enpølse"},
+                {"http://www.pølse.dk:8080/port", "http://www.xn--plse-gra.dk:8080/port"},
+                {"http://www.pølse.dk:8090", "http://www.xn--plse-gra.dk:8090"},
+                {"https://user@www.pølse.dk/", "https://user@www.xn--plse-gra.dk/"},
+                {"www.pølse.dk:8091", "www.xn--plse-gra.dk:8091"},
+                {"www.pølse.dk/andenfil", "www.xn--plse-gra.dk/andenfil"},
+                {"pølse.dk", "xn--plse-gra.dk"}};
+        for (String[] seed : seeds) {
+            assertEquals("Seed " + seed[0] + " should be converted", seed[1], SeedNormalizer.toASCII(seed[0]));
+            // Converting again uses the cached host name
+            assertEquals("Seed " + seed[0] + " should be converted", seed[1], SeedNormalizer.toASCII(seed[0]));
+        }
+    }
+
+    @Test
+    public void testToASCIIKeepsASCIIHostNames() {
+        String[] seeds = {"http://www.uden.dk/enpølse", "http://www.uden.dk/", "www.uden.dk", "mailto:pølse@uden.dk",
+                "http://www.xn--plse-gra.dk/"};
+        for (String seed : seeds) {
+            assertSame("Seed " + seed + " should not be converted", seed, SeedNormalizer.toASCII(seed));
+        }
+    }
+
+}
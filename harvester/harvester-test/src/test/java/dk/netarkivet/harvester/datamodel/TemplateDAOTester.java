@@ -163,6 +163,23 @@ public class TemplateDAOTester extends DataModelTestCase {
         assertFalse("New version of template object should be inactive.", readTemplate.isActive());
     }
 
+    @Category(SlowTest.class)
+    @Test
+    public void testReadReturnsIndependentCopies() throws Exception {
+        TemplateDAO dao = TemplateDAO.getInstance();
+        String defaultOrderXmlName = Settings.get(HarvesterSettings.DOMAIN_DEFAULT_ORDERXML);
+        HeritrixTemplate template1 = dao.read(defaultOrderXmlName);
+        String xml = template1.getXML();
+        template1.setMaxBytesPerDomain(1234L);
+        template1.setIsActive(!template1.isActive());
+
+        HeritrixTemplate template2 = dao.read(defaultOrderXmlName);
+        assertEquals("Changing a template read should not change the next template read", xml, template2.getXML());
+        assertEquals("Changing a template read should not change the next template read", !template1.isActive(),
+                template2.isActive());
+        assertEquals("The template id should be kept", template1.template_id, template2.template_id);
+    }
+
     /**
      * Reset the template DAO singleton. Only for use from tests!
      */
@@ -33,8 +33,11 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -196,6 +199,23 @@ public class MetadataEntryTester {
         assertTrue("The returned MetadataEntry should be null", md == null);
     }
 
+    /**
+     * Test that makeCrawlerTrapsMetadataEntry() writes one line per non-empty trap, prefixed with the domain of the
+     * trap, and that the entry is recognized as a crawler traps MetadataEntry.
+     */
+    @Test
+    public void testMakeCrawlerTrapsMetadataEntry() {
+        Map<String, List<String>> trapsByDomain = Collections.singletonMap("netarkivet.dk",
+                Arrays.asList(".*/print/.*", " "));
+        List<String> globalTraps = Arrays.asList(".*/calendar/.*");
+        MetadataEntry md = MetadataEntry.makeCrawlerTrapsMetadataEntry(trapsByDomain, globalTraps, 1L, 1, 1L);
+        assertTrue("md should be recognized as a crawlertraps metadataEntry", md.isCrawlerTrapsMetadataEntry());
+        assertFalse("md should not be recognized as a duplicatereduction metadataEntry",
+                md.isDuplicateReductionMetadataEntry());
+        assertEquals("Unexpected crawlertraps", Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME + "\t.*/calendar/.*\n"
+                + "netarkivet.dk\t.*/print/.*\n", new String(md.getData()));
+    }
+
     /**
      * Test serializability.
      */
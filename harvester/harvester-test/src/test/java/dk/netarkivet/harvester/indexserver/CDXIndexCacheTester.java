@@ -22,7 +22,14 @@
  */
 package dk.netarkivet.harvester.indexserver;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -32,7 +39,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import dk.netarkivet.common.CommonSettings;
 import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.common.utils.arc.ARCKey;
+import dk.netarkivet.common.utils.cdx.CDXBloomFilter;
+import dk.netarkivet.common.utils.cdx.CDXReader;
 import dk.netarkivet.testutils.FileAsserts;
 
 /**
@@ -72,4 +84,43 @@ public class CDXIndexCacheTester extends CacheTestCase {
         FileAsserts.assertFileContains("Must have lines sorted", "metadata file 3 block 2\nmetadata file 4 block 1",
                 cacheFile);
     }
+
+    /**
+     * The combined and sorted index gets a Bloom filter when filters are enabled, and a CDXReader reading the index
+     * uses it.
+     */
+    @Test
+    public void testCombineWritesBloomFilter() throws Exception {
+        File cdx3 = new File(TestInfo.WORKING_DIR, "3.cdx");
+        FileUtils.writeCollectionToFile(cdx3, Arrays.asList("http://netarkivet.dk/b.html 1.2.3.4 20060329081338 "
+                + "text/html 478 3-2-20060329081336-00000-host.arc 10002 d2dd49050c5ad82230471ab5b9beed9a"));
+        File cdx4 = new File(TestInfo.WORKING_DIR, "4.cdx");
+        FileUtils.writeCollectionToFile(cdx4, Arrays.asList("http://netarkivet.dk/a.html 1.2.3.4 20060329081339 "
+                + "text/html 638 4-2-20060329081336-00000-host.arc 10564 7f72154fad5e7721af2f5f178b559e40"));
+        Map<Long, File> files = new HashMap<Long, File>();
+        files.put(3L, cdx3);
+        files.put(4L, cdx4);
+
+        Settings.set(CommonSettings.CDX_WRITE_BLOOM_FILTERS, "false");
+        CDXIndexCache cache = new CDXIndexCache();
+        cache.combine(files);
+        File cacheFile = cache.getCacheFile(files.keySet());
+        assertFalse("Should not write a filter when filters are disabled",
+                CDXBloomFilter.getFilterFile(cacheFile).exists());
+
+        Settings.set(CommonSettings.CDX_WRITE_BLOOM_FILTERS, "true");
+        cache.combine(files);
+        CDXBloomFilter filter = CDXBloomFilter.readFilterFor(cacheFile);
+        assertNotNull("Should store a current filter next to the sorted index", filter);
+        assertTrue(filter.mightContain("http://netarkivet.dk/a.html"));
+        assertTrue(filter.mightContain("http://netarkivet.dk/b.html"));
+        assertFalse(filter.mightContain("http://netarkivet.dk/c.html"));
+
+        CDXReader reader = new CDXReader(cacheFile);
+        ARCKey key = reader.getKey("http://netarkivet.dk/a.html");
+        assertNotNull("Should find a URL of the index through the filter", key);
+        assertEquals("4-2-20060329081336-00000-host.arc", key.getFile().getName());
+        assertEquals(10564L, key.getOffset());
+        assertNull("Should not find a URL rejected by the filter", reader.getKey("http://netarkivet.dk/c.html"));
+    }
 }
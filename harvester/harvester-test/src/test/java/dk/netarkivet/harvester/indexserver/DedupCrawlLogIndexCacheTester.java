@@ -58,7 +58,9 @@ import org.junit.Test;
 
 import dk.netarkivet.common.utils.AllDocsCollector;
 import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.StringUtils;
+import dk.netarkivet.harvester.HarvesterSettings;
 import is.hi.bok.deduplicator.DigestIndexer;
 
 /**
@@ -113,25 +115,7 @@ public class DedupCrawlLogIndexCacheTester extends CacheTestCase {
         assertTrue("Result file should have contents after combining", resultFile.length() > 0);
         assertFalse("Should not have left an unzipped lucene index",
                 new File(resultFile.getAbsolutePath().substring(0, resultFile.getAbsolutePath().length() - 4)).exists());
-        File unzipDir = new File(TestInfo.WORKING_DIR, "luceneindex");
-        if (!unzipDir.mkdir()) {
-            fail("Unable to create unzipDir '" + unzipDir.getAbsolutePath() + "' for luceneindex: ");
-        }
-        File[] resultFiles = resultFile.listFiles();
-        for (File f : resultFiles) {
-            if (f.getName().endsWith(".gz")) {
-                InputStream in = new GZIPInputStream(new FileInputStream(f));
-                FileUtils.writeStreamToFile(in,
-                        new File(unzipDir, f.getName().substring(0, f.getName().length() - ".gz".length())));
-                in.close();
-            }
-        }
-
-        Directory luceneDirectory = new MMapDirectory(unzipDir);
-        IndexReader reader = DirectoryReader.open(luceneDirectory);
-
-        // System.out.println("doc-count: " + reader.maxDoc());
-        IndexSearcher index = new IndexSearcher(reader);
+        IndexSearcher index = openIndex(resultFile, "luceneindex");
         // QueryParser queryParser = new QueryParser("url",
         // new WhitespaceAnalyzer(dk.netarkivet.common.constants.LUCENE_VERSION));
         // QueryParser queryParser = new QueryParser(dk.netarkivet.common.Constants.LUCENE_VERSION, "url",
@@ -158,6 +142,128 @@ public class DedupCrawlLogIndexCacheTester extends CacheTestCase {
                 origins.isEmpty());
     }
 
+    /**
+     * An index of a job that has been indexed before is reused from the kept job indices, and the least recently
+     * used job indices are evicted when there are too many.
+     */
+    @Test
+    public void testCombineReusesKeptJobIndex() throws Exception {
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_CACHE_JOB_SEGMENTS, "true");
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS, "2");
+        DedupCrawlLogIndexCache cache = new DedupCrawlLogIndexCache();
+        Map<Long, File> files = new HashMap<Long, File>();
+        files.put(1L, TestInfo.CRAWL_LOG_1);
+        files.put(4L, TestInfo.CRAWL_LOG_4);
+        cache.combine(files);
+        assertTrue("The index of job 1 should be kept", cache.getJobSegmentDir(1L).isDirectory());
+        assertTrue("The index of job 4 should be kept", cache.getJobSegmentDir(4L).isDirectory());
+
+        // The crawl log of job 4 is not available now, so its origins can only come from the kept index.
+        Map<Long, File> again = Collections.singletonMap(4L, new File(TestInfo.WORKING_DIR, "no-such-crawl.log"));
+        File resultFile = cache.getCacheFile(again.keySet());
+        cache.combine(again);
+        Map<String, String> origins = new HashMap<String, String>();
+        origins.put("http://www.kb.dk/bevarbogen/images/menu_03.gif",
+                "54-8-20050620183552-00016-kb-prod-har-001.kb.dk.arc,92248220,20050506114818000");
+        origins.put("http://www.kb.dk/bevarbogen/images/menu_06.gif",
+                "54-8-20050620183552-00016-kb-prod-har-001.kb.dk.arc,95056820,20050506114822000");
+        origins.put("http://www.kb.dk/bevarbogen/images/menu_07.gif",
+                "54-8-20050620183552-00016-kb-prod-har-001.kb.dk.arc,95468220,20050506114816000");
+        origins.put("http://www.kb.dk/bevarbogen/images/menutop.gif",
+                "54-8-20050620183552-00016-kb-prod-har-002.kb.dk.arc,42,20050506114820000");
+        origins.put("http://www.kb.dk/bevarbogen/script.js", "check-arc,42");
+        verifySearchResult(origins, openIndex(resultFile, "reusedindex"));
+        assertTrue("Should have found all origins of job 4 in the kept index, but have still " + origins.size()
+                + " left: " + origins, origins.isEmpty());
+
+        // Job 1 is now the least recently used index, and is evicted when only one index may be kept.
+        cache.getJobSegmentDir(1L).setLastModified(System.currentTimeMillis() - 60000L);
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS, "1");
+        cache = new DedupCrawlLogIndexCache();
+        cache.evictJobSegments();
+        assertFalse("The least recently used index should be evicted", cache.getJobSegmentDir(1L).exists());
+        assertTrue("The most recently used index should be kept", cache.getJobSegmentDir(4L).isDirectory());
+    }
+
+    /**
+     * The least recently used job indices are evicted when the kept job indices take up more bytes than allowed, even
+     * if there are not too many of them.
+     */
+    @Test
+    public void testKeptJobIndicesAreEvictedBySize() throws Exception {
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_CACHE_JOB_SEGMENTS, "true");
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS, "2000");
+        DedupCrawlLogIndexCache cache = new DedupCrawlLogIndexCache();
+        Map<Long, File> files = new HashMap<Long, File>();
+        files.put(1L, TestInfo.CRAWL_LOG_1);
+        files.put(4L, TestInfo.CRAWL_LOG_4);
+        cache.combine(files);
+        cache.getJobSegmentDir(1L).setLastModified(System.currentTimeMillis() - 60000L);
+        long sizeOfJob4 = 0;
+        for (File f : cache.getJobSegmentDir(4L).listFiles()) {
+            sizeOfJob4 += f.length();
+        }
+
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS_BYTES, Long.toString(sizeOfJob4));
+        cache = new DedupCrawlLogIndexCache();
+        cache.evictJobSegments();
+        assertFalse("The least recently used index should be evicted", cache.getJobSegmentDir(1L).exists());
+        assertTrue("The most recently used index fits in the budget and should be kept", cache.getJobSegmentDir(4L)
+                .isDirectory());
+
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_MAX_CACHED_JOB_SEGMENTS_BYTES, "0");
+        cache = new DedupCrawlLogIndexCache();
+        cache.evictJobSegments();
+        assertFalse("No index fits in an empty budget", cache.getJobSegmentDir(4L).exists());
+    }
+
+    /**
+     * Job indices kept with other settings that change the contents of the indices are not reused, and are deleted.
+     */
+    @Test
+    public void testKeptJobIndexDependsOnSettings() throws Exception {
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_CACHE_JOB_SEGMENTS, "true");
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_TRY_TO_MIGRATE_DUPLICATION_RECORDS, "false");
+        DedupCrawlLogIndexCache cache = new DedupCrawlLogIndexCache();
+        cache.combine(Collections.singletonMap(4L, TestInfo.CRAWL_LOG_4));
+        File oldSegmentDir = cache.getJobSegmentDir(4L);
+        assertTrue("The index of job 4 should be kept", oldSegmentDir.isDirectory());
+
+        Settings.set(HarvesterSettings.INDEXSERVER_INDEXING_TRY_TO_MIGRATE_DUPLICATION_RECORDS, "true");
+        DedupCrawlLogIndexCache otherCache = new DedupCrawlLogIndexCache();
+        assertFalse("An index made with other settings should not be reused", otherCache.getJobSegmentDir(4L)
+                .exists());
+        otherCache.evictJobSegments();
+        assertFalse("Indices made with other settings should be deleted", oldSegmentDir.exists());
+    }
+
+    /**
+     * Unzip a combined index, and open it for searching.
+     *
+     * @param resultFile The directory of gzipped index files.
+     * @param unzipDirName The name of the directory to unzip into.
+     * @return A searcher for the index.
+     */
+    private IndexSearcher openIndex(File resultFile, String unzipDirName) throws IOException {
+        File unzipDir = new File(TestInfo.WORKING_DIR, unzipDirName);
+        if (!unzipDir.mkdir()) {
+            fail("Unable to create unzipDir '" + unzipDir.getAbsolutePath() + "' for luceneindex: ");
+        }
+        File[] resultFiles = resultFile.listFiles();
+        for (File f : resultFiles) {
+            if (f.getName().endsWith(".gz")) {
+                InputStream in = new GZIPInputStream(new FileInputStream(f));
+                FileUtils.writeStreamToFile(in,
+                        new File(unzipDir, f.getName().substring(0, f.getName().length() - ".gz".length())));
+                in.close();
+            }
+        }
+
+        Directory luceneDirectory = new MMapDirectory(unzipDir);
+        IndexReader reader = DirectoryReader.open(luceneDirectory);
+        return new IndexSearcher(reader);
+    }
+
     private void verifySearchResult(Map<String, String> origins, IndexSearcher index) throws IOException {
         Set<String> urls = new HashSet<String>(origins.keySet());
         List<String> errors = new ArrayList<String>();
@@ -38,7 +38,9 @@ public abstract class AbstractJobGeneratorTest extends DataModelTestCase {
         trapDao.create(list1);
         trapDao.create(list2);
         HarvestDefinition harvestDefinition = mock(HarvestDefinition.class);
-        Job job = createJobGenerator().getNewJob(harvestDefinition, TestInfo.getDRConfiguration());
+        AbstractJobGenerator jobGenerator = createJobGenerator();
+        Job job = jobGenerator.getNewJob(harvestDefinition, jobGenerator.getChannel(harvestDefinition),
+                TestInfo.getDRConfiguration());
         /*
          * FIXME only appropriate for H1
         Document doc = job.getOrderXMLdoc();
@@ -0,0 +1,197 @@
+/*
+ * #%L
+ * Netarchivesuite - harvester
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.viewerproxy.webinterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dk.netarkivet.common.CommonSettings;
+import dk.netarkivet.common.utils.FileUtils;
+import dk.netarkivet.common.utils.Settings;
+import dk.netarkivet.testutils.preconfigured.ReloadSettings;
+
+/**
+ * Unit tests for the CrawlLogStore class.
+ */
+public class CrawlLogStoreTester {
+    private ReloadSettings rs = new ReloadSettings();
+    private File working = new File("tests/dk/netarkivet/viewerproxy/data/working");
+
+    /** An unsorted crawl log, as extracted by the batch job. */
+    private static final List<String> CRAWL_LOG = Arrays.asList(
+            "2008-06-01T12:00:03.000Z   200  1000 http://www.netarkivet.dk/index.html - - text/html #1 20080601120003000+10 - -",
+            "2008-06-01T12:00:01.000Z     1    60 dns:www.netarkivet.dk P http://www.netarkivet.dk/ text/dns #2 - - -",
+            "2008-06-01T12:00:04.000Z   200   500 http://kaarefc.dk/ L http://www.netarkivet.dk/index.html text/html #1 - - -",
+            "2008-06-01T12:00:02.000Z   200   100 http://www.netarkivet.dk/robots.txt P http://www.netarkivet.dk/ text/plain #3 - - -",
+            "2008-06-01T12:00:05.000Z   200   300 http://kaarefc.dk/a.html L http://kaarefc.dk/ text/html #1 - - -");
+
+    /** The number of times the crawl log has been fetched. */
+    private int fetches;
+
+    private CrawlLogStore store;
+
+    @Before
+    public void setUp() {
+        rs.setUp();
+        working.mkdirs();
+        Settings.set(CommonSettings.DIR_COMMONTEMPDIR, new File(working, "commontempdir").getAbsolutePath());
+        store = createStore(Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a store keeping one job in memory, where jobs 2 and 5 have the test crawl log, job 3 has the test crawl
+     * log with some metadata files failing, and other jobs have no crawl log.
+     *
+     * @param maxStoreSize The maximal size of the store.
+     * @return The store.
+     */
+    private CrawlLogStore createStore(long maxStoreSize) {
+        return new CrawlLogStore(new File(working, "store"), 1, maxStoreSize) {
+            @Override
+            protected FetchResult fetchCrawlLog(long jobId, File toFile) {
+                fetches++;
+                if (jobId != 2 && jobId != 3 && jobId != 5) {
+                    return FetchResult.NOT_FOUND;
+                }
+                FileUtils.writeCollectionToFile(toFile, CRAWL_LOG);
+                return jobId == 3 ? FetchResult.INCOMPLETE : FetchResult.COMPLETE;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.removeRecursively(working);
+        rs.tearDown();
+    }
+
+    @Test
+    public void testGetLinesForDomain() {
+        assertEquals("Should count lines of the URL and discovery URL domains", 4,
+                store.getLineCountForDomain(2, "netarkivet.dk"));
+        assertEquals("Should count lines of the domain", 2, store.getLineCountForDomain(2, "kaarefc.dk"));
+        List<String> lines = store.getLinesForDomain(2, "netarkivet.dk", 0, 10);
+        assertEquals("Should give all lines of the domain", 4, lines.size());
+        assertTrue("Should be sorted on timestamp", lines.get(0).contains("dns:www.netarkivet.dk"));
+        assertTrue("Should be sorted on timestamp", lines.get(3).contains("http://kaarefc.dk/ "));
+
+        List<String> page = store.getLinesForDomain(2, "netarkivet.dk", 1, 2);
+        assertEquals("Should give the page", lines.subList(1, 3), page);
+        assertEquals("Should give nothing after the last line", 0,
+                store.getLinesForDomain(2, "netarkivet.dk", 4, 2).size());
+        assertEquals("Should give nothing for an unknown domain", 0,
+                store.getLinesForDomain(2, "doesnotexist.dk", 0, 2).size());
+        assertEquals("Should only fetch the crawl log once", 1, fetches);
+
+        File f = new File(working, "result.txt");
+        store.writeLinesForDomain(2, "netarkivet.dk", f);
+        assertEquals("Should write all lines of the domain", lines, FileUtils.readListFromFile(f));
+        store.writeLinesForDomain(2, "doesnotexist.dk", f);
+        assertEquals("Should write nothing for an unknown domain", 0, f.length());
+    }
+
+    @Test
+    public void testGetLinesMatchingRegexp() {
+        List<String> lines = store.getLinesMatchingRegexp(2, ".*text/html.*", 0, 10);
+        assertEquals("Should give the matching lines", 3, lines.size());
+        assertTrue("Should be sorted on timestamp", lines.get(0).contains("index.html"));
+        assertEquals("Should give the page", lines.subList(1, 2), store.getLinesMatchingRegexp(2, ".*text/html.*", 1, 1));
+
+        File f = new File(working, "result.txt");
+        store.writeLinesMatchingRegexp(2, ".*text/html.*", f);
+        assertEquals("Should write the matching lines", lines, FileUtils.readListFromFile(f));
+    }
+
+    @Test
+    public void testMissingAndEvictedJobs() {
+        assertEquals("Should give nothing for a job without crawl log", 0, store.getLineCountForDomain(4, "kaarefc.dk"));
+        assertEquals("Should look for a missing crawl log again", 0, store.getLineCountForDomain(4, "kaarefc.dk"));
+        assertEquals("Should have looked for the crawl log twice", 2, fetches);
+
+        assertEquals(2, store.getLineCountForDomain(2, "kaarefc.dk"));
+        store.getLineCountForDomain(4, "kaarefc.dk");
+        assertEquals("Should rebuild the index of an evicted job from the store", 2,
+                store.getLineCountForDomain(2, "kaarefc.dk"));
+        assertEquals("Should not fetch a stored crawl log again", 4, fetches);
+    }
+
+    @Test
+    public void testIncompleteCrawlLogIsNotKept() {
+        assertEquals("Should use an incomplete crawl log", 2, store.getLineCountForDomain(3, "kaarefc.dk"));
+        assertEquals("Should keep using an incomplete crawl log in memory", 2,
+                store.getLineCountForDomain(3, "kaarefc.dk"));
+        assertEquals("Should have fetched the crawl log once", 1, fetches);
+        assertFalse("Should not store an incomplete crawl log", store.getCrawlLogFile(3).exists());
+
+        store.getLineCountForDomain(2, "kaarefc.dk");
+        assertEquals("Should fetch an incomplete crawl log again when it is needed again", 2,
+                store.getLineCountForDomain(3, "kaarefc.dk"));
+        assertEquals("Should have fetched the incomplete crawl log twice", 3, fetches);
+
+        createStore(Long.MAX_VALUE);
+        assertFalse("Should delete incomplete crawl logs on startup", store.getIncompleteCrawlLogFile(3).exists());
+        assertTrue("Should keep complete crawl logs on startup", store.getCrawlLogFile(2).exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedCrawlLogsAreEvicted() {
+        store.getLineCountForDomain(2, "kaarefc.dk");
+        long crawlLogSize = store.getCrawlLogFile(2).length();
+        store.getCrawlLogFile(2).setLastModified(System.currentTimeMillis() - 60000L);
+
+        store = createStore(crawlLogSize);
+        store.getLineCountForDomain(5, "kaarefc.dk");
+        assertFalse("Should evict the least recently used crawl log", store.getCrawlLogFile(2).exists());
+        assertTrue("Should keep the crawl log in use", store.getCrawlLogFile(5).exists());
+        assertEquals("Should fetch an evicted crawl log again", 2, store.getLineCountForDomain(2, "kaarefc.dk"));
+        assertEquals("Should have fetched three times", 3, fetches);
+    }
+
+    @Test
+    public void testCrawlLogsBeingReadAreNotEvicted() {
+        store.getLineCountForDomain(2, "kaarefc.dk");
+        long crawlLogSize = store.getCrawlLogFile(2).length();
+        store.getCrawlLogFile(2).setLastModified(System.currentTimeMillis() - 60000L);
+
+        store = createStore(crawlLogSize);
+        File beingRead = store.acquireCrawlLogFile(2);
+        assertEquals(store.getCrawlLogFile(2), beingRead);
+        store.getLineCountForDomain(5, "kaarefc.dk");
+        assertTrue("Should not evict a crawl log being read", beingRead.exists());
+        assertTrue("Should keep the crawl log in use", store.getCrawlLogFile(5).exists());
+
+        store.releaseFile(beingRead);
+        beingRead.setLastModified(System.currentTimeMillis() - 60000L);
+        store.evict(null);
+        assertFalse("Should evict the crawl log when it is no longer read", beingRead.exists());
+    }
+}
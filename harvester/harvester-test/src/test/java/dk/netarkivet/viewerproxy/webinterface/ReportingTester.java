@@ -40,6 +40,7 @@ import dk.netarkivet.common.exceptions.ArgumentNotValid;
 import dk.netarkivet.common.utils.FileUtils;
 import dk.netarkivet.common.utils.Settings;
 import dk.netarkivet.common.utils.cdx.CDXRecord;
+import dk.netarkivet.harvester.HarvesterSettings;
 import dk.netarkivet.testutils.CollectionAsserts;
 import dk.netarkivet.testutils.ReflectUtils;
 import dk.netarkivet.testutils.StringAsserts;
@@ -64,6 +65,7 @@ public class ReportingTester {
         utrf.setUp();
         working.mkdirs();
         Settings.set(CommonSettings.DIR_COMMONTEMPDIR, tempdir.getAbsolutePath());
+        Settings.set(CommonSettings.CACHE_DIR, new File(working, "cache").getAbsolutePath());
         Settings.set(CommonSettings.ARC_REPOSITORY_CLIENT, TrivialArcRepositoryClient.class.getName());
         ArcRepositoryClientFactory.getViewerInstance().close();
         tarc = (TrivialArcRepositoryClient) ArcRepositoryClientFactory.getViewerInstance();
@@ -201,4 +203,32 @@ public class ReportingTester {
         assertEquals("Should be empty, no job 4", 0, lines.size());
     }
 
+    /**
+     * Tests that the paged crawl log queries give the same lines with and without the crawl log store.
+     */
+    @Test
+    public void testGetCrawlLogPagesWithAndWithoutStore() throws Exception {
+        try {
+            Reporting.getCrawlLoglinesMatchingRegexp(2, ".*", -1, 10);
+            fail("Should fail on negative offset");
+        } catch (ArgumentNotValid e) {
+            // Expected
+        }
+        try {
+            Reporting.getCrawlLoglinesMatchingRegexp(2, ".*", 0, 0);
+            fail("Should fail on zero limit");
+        } catch (ArgumentNotValid e) {
+            // Expected
+        }
+
+        List<String> allMatching = FileUtils.readListFromFile(Reporting.getCrawlLoglinesMatchingRegexp(2,
+                ".*text/html.*"));
+        assertTrue("Should have found matching lines", allMatching.size() > 2);
+        for (String enabled : new String[] {"false", "true"}) {
+            Settings.set(HarvesterSettings.CRAWLLOG_STORE_ENABLED, enabled);
+            assertEquals("Should give the page of matching lines (store enabled: " + enabled + ")",
+                    allMatching.subList(1, 3), Reporting.getCrawlLoglinesMatchingRegexp(2, ".*text/html.*", 1, 2));
+        }
+    }
+
 }
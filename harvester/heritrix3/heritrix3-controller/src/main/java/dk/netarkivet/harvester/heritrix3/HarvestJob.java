@@ -162,7 +162,10 @@ public class HarvestJob {
         // Create jobId-preharvest-metadata-1.arc for this job
         writePreharvestMetadata(job, metadataEntries, crawldir);
 
-        files.writeSeedsTxt(job.getSeedListAsString());
+        files.writeSeedsTxt(job);
+        if (job.getOrderXMLdoc().usesCrawlerTrapsFile()) {
+            files.writeCrawlerTrapsTxt(getCrawlerTraps(job, metadataEntries));
+        }
 
         files.writeOrderXml(job.getOrderXMLdoc());
         // Only retrieve index if deduplication is not disabled in the template.
@@ -176,6 +179,24 @@ public class HarvestJob {
         return files;
     }
 
+    /**
+     * Find the crawlertraps sent along with the job. The DomainCrawlerTrapsDecideRule requires the crawlertraps
+     * file to exist, so an empty list of traps is returned, if the scheduler sent none.
+     *
+     * @param job a given Job.
+     * @param metadataEntries the metadata entries sent along with the job.
+     * @return the contents of the crawlertraps file.
+     */
+    private byte[] getCrawlerTraps(Job job, List<MetadataEntry> metadataEntries) {
+        for (MetadataEntry entry : metadataEntries) {
+            if (entry.isCrawlerTrapsMetadataEntry()) {
+                return entry.getData();
+            }
+        }
+        log.warn("No crawlertraps were sent along with job {}. Writing an empty crawlertraps file", job.getJobID());
+        return new byte[0];
+    }
+
     /**
      * Writes pre-harvest metadata to the "metadata" directory.
      *
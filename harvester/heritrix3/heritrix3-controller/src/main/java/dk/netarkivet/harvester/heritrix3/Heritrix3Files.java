@@ -22,8 +22,14 @@
  */
 package dk.netarkivet.harvester.heritrix3;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +69,8 @@ public class Heritrix3Files {
 
 	private File seedsFile;
 
+	private File crawlerTrapsFile;
+
 	private File orderFile;
 	
 	public static Heritrix3Files getH3HeritrixFiles(File crawldir, PersistentJobData harvestInfo) {
@@ -125,6 +133,7 @@ public class Heritrix3Files {
 	private void setCrawldir(File crawldir) {
 		this.crawlDir = crawldir;
 		this.seedsFile = new File(crawldir, "seeds.txt");
+		this.crawlerTrapsFile = new File(crawldir, "crawlertraps.txt");
 		this.orderFile = new File(crawldir, "crawler-beans.cxml");
 	}
 
@@ -140,11 +149,44 @@ public class Heritrix3Files {
 		LOG.debug("Writing seeds to disk as file: " + seedsFile.getAbsolutePath());
 		FileUtils.writeBinaryFile(seedsFile, seedListAsString.getBytes());
 	}
+
+	/**
+	 * Write the seeds of a job to the seeds file, without building the seeds as one String.
+	 * @param job The job whose seeds are written
+	 */
+	public void writeSeedsTxt(Job job) {
+		ArgumentNotValid.checkNotNull(job, "Job job");
+		LOG.debug("Writing seeds to disk as file: " + seedsFile.getAbsolutePath());
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(seedsFile)));
+			job.writeSeedList(writer);
+			writer.close();
+		} catch (IOException e) {
+			throw new IOFailure("Unable to write seeds to " + seedsFile.getAbsolutePath(), e);
+		} finally {
+			IOUtils.closeQuietly(writer);
+		}
+	}
 	
 	public File getSeedsFile() {		
 		return this.seedsFile;
 	}
 	
+	/**
+	 * Write the crawlertraps file read by the DomainCrawlerTrapsDecideRule of the job.
+	 * @param crawlerTraps The crawlertraps, one trap per line prefixed with the domain of the trap (possibly empty)
+	 */
+	public void writeCrawlerTrapsTxt(byte[] crawlerTraps) {
+		ArgumentNotValid.checkNotNull(crawlerTraps, "byte[] crawlerTraps");
+		LOG.debug("Writing crawlertraps to disk as file: " + crawlerTrapsFile.getAbsolutePath());
+		FileUtils.writeBinaryFile(crawlerTrapsFile, crawlerTraps);
+	}
+
+	public File getCrawlerTrapsFile() {
+		return this.crawlerTrapsFile;
+	}
+
 	public File getOrderFile() {		
 		return this.orderFile;
 	}
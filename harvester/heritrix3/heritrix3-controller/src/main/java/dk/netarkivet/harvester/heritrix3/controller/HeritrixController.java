@@ -147,6 +147,11 @@ public class HeritrixController extends AbstractRestHeritrixController {
   			log.info("Copying the crawler-beans.cxml file and seeds.txt to the heritrix3 jobdir '{}'", jobDir);
   			Heritrix3Wrapper.copyFile( cxmlFile, jobDir );
   			Heritrix3Wrapper.copyFileAs( seedsFile, jobDir, "seeds.txt" ); 
+  			File crawlerTrapsFile = getHeritrixFiles().getCrawlerTrapsFile();
+  			if (crawlerTrapsFile.isFile()) {
+  				log.info("Copying the crawlertraps.txt file to the heritrix3 jobdir '{}'", jobDir);
+  				Heritrix3Wrapper.copyFileAs( crawlerTrapsFile, jobDir, "crawlertraps.txt" );
+  			}
   		} catch (IOException e) {
   			throw new IOFailure("Problem occurred during the copying of files to our heritrix job", e);
   		}
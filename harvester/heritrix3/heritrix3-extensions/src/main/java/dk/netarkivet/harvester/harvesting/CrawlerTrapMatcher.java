@@ -0,0 +1,234 @@
+/*
+ * #%L
+ * Netarchivesuite - Heritrix 3 extensions
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.harvesting;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.harvester.datamodel.Constants;
+
+/**
+ * Matches URIs against crawler traps grouped by domain, so a URI is only tested against the global traps and the
+ * traps of its own domain. The traps of each group are compiled into a single regular expression matching any of
+ * them. Traps that cannot safely be combined, such as traps with back references, are kept as separate expressions.
+ * <p>
+ * The traps are read from lines of the form <code>domain&lt;TAB&gt;regexp</code>. Global traps have the domain
+ * {@link Constants#GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME}, and so have lines without a TAB. Empty lines and invalid
+ * regular expressions are ignored. Like the MatchesListRegexDecideRule, a trap matches a URI if the regular expression
+ * matches the whole URI.
+ */
+public class CrawlerTrapMatcher {
+
+    /** The separator between the domain and the regular expression of a trap. */
+    public static final char DOMAIN_SEPARATOR = Constants.CRAWLER_TRAPS_DOMAIN_SEPARATOR;
+
+    /**
+     * Recognises constructs that may change meaning when a trap is combined with others: back references, which refer
+     * to groups by number or name, quotes without an end and comments, which may swallow the following traps.
+     */
+    private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\([1-9]|k<|Q)|\\(\\?[a-zA-Z-]*x");
+
+    private static final Log log = LogFactory.getLog(CrawlerTrapMatcher.class);
+
+    /** The global traps. */
+    private final TrapGroup globalTraps;
+    /** The traps of each domain. */
+    private final Map<String, TrapGroup> domainTraps = new HashMap<String, TrapGroup>();
+    /** The number of valid traps. */
+    private int trapCount;
+
+    /**
+     * Create a matcher for the given traps.
+     *
+     * @param trapsByDomain The traps of each domain. The global traps have the domain
+     * {@link Constants#GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME}.
+     * @throws ArgumentNotValid if trapsByDomain is null.
+     */
+    public CrawlerTrapMatcher(Map<String, List<String>> trapsByDomain) {
+        ArgumentNotValid.checkNotNull(trapsByDomain, "Map<String, List<String>> trapsByDomain");
+        TrapGroup global = null;
+        for (Map.Entry<String, List<String>> entry : trapsByDomain.entrySet()) {
+            TrapGroup group = compile(entry.getKey(), entry.getValue());
+            if (group == null) {
+                continue;
+            }
+            if (Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME.equals(entry.getKey())) {
+                global = group;
+            } else {
+                domainTraps.put(entry.getKey(), group);
+            }
+        }
+        globalTraps = global;
+    }
+
+    /**
+     * Read traps from lines of the form <code>domain&lt;TAB&gt;regexp</code>.
+     *
+     * @param reader The source of the lines. It is not closed.
+     * @return A matcher for the traps read.
+     * @throws IOException if reading fails.
+     * @throws ArgumentNotValid if reader is null.
+     */
+    public static CrawlerTrapMatcher read(Reader reader) throws IOException {
+        ArgumentNotValid.checkNotNull(reader, "Reader reader");
+        Map<String, List<String>> trapsByDomain = new LinkedHashMap<String, List<String>>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            int separator = line.indexOf(DOMAIN_SEPARATOR);
+            String domain = separator < 0 ? Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME : line.substring(0, separator);
+            List<String> traps = trapsByDomain.get(domain);
+            if (traps == null) {
+                traps = new ArrayList<String>();
+                trapsByDomain.put(domain, traps);
+            }
+            traps.add(line.substring(separator + 1));
+        }
+        return new CrawlerTrapMatcher(trapsByDomain);
+    }
+
+    /**
+     * Check whether a URI is caught by a global trap or a trap of the given domain.
+     *
+     * @param domain The domain of the URI, or null if it has none.
+     * @param uri The URI.
+     * @return true if a trap matches the URI.
+     */
+    public boolean matches(String domain, String uri) {
+        if (globalTraps != null && globalTraps.matches(uri)) {
+            return true;
+        }
+        if (domain == null) {
+            return false;
+        }
+        TrapGroup group = domainTraps.get(domain);
+        return group != null && group.matches(uri);
+    }
+
+    /**
+     * @return The number of valid traps.
+     */
+    public int getTrapCount() {
+        return trapCount;
+    }
+
+    /**
+     * @return The number of domains with traps, not counting the global traps.
+     */
+    public int getDomainCount() {
+        return domainTraps.size();
+    }
+
+    /**
+     * Compile the traps of a domain. Invalid and empty traps are logged and left out.
+     *
+     * @param domain The domain, for logging.
+     * @param traps The regular expressions of the traps.
+     * @return The compiled traps, or null if there are no valid traps.
+     */
+    private TrapGroup compile(String domain, List<String> traps) {
+        StringBuilder combined = new StringBuilder();
+        List<String> combinable = new ArrayList<String>();
+        List<Pattern> separate = new ArrayList<Pattern>();
+        for (String trap : traps) {
+            if (trap.isEmpty()) {
+                continue;
+            }
+            try {
+                Pattern pattern = Pattern.compile(trap);
+                if (NOT_COMBINABLE.matcher(trap).find()) {
+                    separate.add(pattern);
+                } else {
+                    if (combined.length() > 0) {
+                        combined.append('|');
+                    }
+                    combined.append("(?:").append(trap).append(')');
+                    combinable.add(trap);
+                }
+                trapCount++;
+            } catch (PatternSyntaxException e) {
+                log.warn("Ignoring invalid crawler trap '" + trap + "' for '" + domain + "'", e);
+            }
+        }
+        Pattern combinedPattern = null;
+        if (!combinable.isEmpty()) {
+            try {
+                combinedPattern = Pattern.compile(combined.toString());
+            } catch (PatternSyntaxException e) {
+                // E.g. the same group name used in two traps. Fall back to matching the traps one by one.
+                log.debug("Unable to combine the crawler traps for '" + domain + "', matching them separately", e);
+                for (String trap : combinable) {
+                    separate.add(Pattern.compile(trap));
+                }
+            }
+        }
+        if (combinedPattern == null && separate.isEmpty()) {
+            return null;
+        }
+        return new TrapGroup(combinedPattern, separate.toArray(new Pattern[separate.size()]));
+    }
+
+    /** The compiled traps of a domain. */
+    private static final class TrapGroup {
+        /** The traps combined into one regular expression, or null if there are none. */
+        private final Pattern combined;
+        /** The traps that could not be combined. */
+        private final Pattern[] separate;
+
+        TrapGroup(Pattern combined, Pattern[] separate) {
+            this.combined = combined;
+            this.separate = separate;
+        }
+
+        /**
+         * @param uri A URI.
+         * @return true if one of the traps matches the whole URI.
+         */
+        boolean matches(String uri) {
+            if (combined != null && combined.matcher(uri).matches()) {
+                return true;
+            }
+            for (Pattern pattern : separate) {
+                if (pattern.matcher(uri).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
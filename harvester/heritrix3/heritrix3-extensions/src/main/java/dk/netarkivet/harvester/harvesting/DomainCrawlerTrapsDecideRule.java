@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * Netarchivesuite - Heritrix 3 extensions
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.harvesting;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.httpclient.URIException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.archive.io.ReadSource;
+import org.archive.modules.CrawlURI;
+import org.archive.modules.deciderules.DecideResult;
+import org.archive.modules.deciderules.PredicatedDecideRule;
+
+import dk.netarkivet.common.exceptions.IOFailure;
+
+/**
+ * Decide rule applying the global crawler traps and the crawler traps of the domain of each URI, read from a side
+ * file written by NetarchiveSuite next to the seeds. Unlike a MatchesListRegexDecideRule holding all the traps, a URI
+ * is only tested against the traps of its own domain, and the traps of a domain are tested with one combined regular
+ * expression. See {@link CrawlerTrapMatcher} for the format of the file.
+ * <p>
+ * This changes which traps apply compared to templates with the crawler traps placeholder:
+ * <ul>
+ * <li>A crawler trap of a domain only applies to URIs of that domain. A trap of one domain written to match URIs of
+ * another domain, e.g. a trap of foo.dk matching URIs on bar.dk, is no longer applied to those URIs. Such traps must be
+ * moved to the other domain or to a global crawler trap list.</li>
+ * <li>The crawler traps of the domains are read from the database when the job is dispatched to a harvester, and not
+ * when the job is created, so changes to the traps of a domain made while the job is waiting also apply to it.</li>
+ * </ul>
+ * <p>
+ * A template uses this rule instead of the MatchesListRegexDecideRule with the crawler traps placeholder:
+ * <pre>
+ * &lt;bean class="dk.netarkivet.harvester.harvesting.DomainCrawlerTrapsDecideRule"&gt;
+ *   &lt;property name="trapsSource"&gt;
+ *     &lt;bean class="org.archive.spring.ConfigFile"&gt;
+ *       &lt;property name="path" value="crawlertraps.txt" /&gt;
+ *     &lt;/bean&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ */
+public class DomainCrawlerTrapsDecideRule extends PredicatedDecideRule {
+
+    private static final long serialVersionUID = -3468193850273468401L;
+
+    private static final Log log = LogFactory.getLog(DomainCrawlerTrapsDecideRule.class);
+
+    /** The source of the crawler traps. */
+    protected ReadSource trapsSource = null;
+
+    /** The traps read from the source, read when the first URI is evaluated. */
+    private transient volatile CrawlerTrapMatcher matcher;
+
+    public DomainCrawlerTrapsDecideRule() {
+        setDecision(DecideResult.REJECT);
+    }
+
+    public ReadSource getTrapsSource() {
+        return trapsSource;
+    }
+
+    public void setTrapsSource(ReadSource trapsSource) {
+        this.trapsSource = trapsSource;
+    }
+
+    /**
+     * Evaluate whether the URI is caught by a global crawler trap or a crawler trap of its domain.
+     *
+     * @param uri The URI to evaluate.
+     * @return true if the URI is caught by a crawler trap.
+     */
+    @Override
+    protected boolean evaluate(CrawlURI uri) {
+        String domain = null;
+        try {
+            String host = uri.getUURI().getReferencedHost();
+            if (host != null) {
+                domain = HostDomainCache.getInstance().getDomain(host);
+            }
+        } catch (URIException e) {
+            log.debug("Unable to find the host of '" + uri + "', only global crawler traps apply", e);
+        }
+        return getMatcher().matches(domain, uri.toString());
+    }
+
+    /**
+     * @return The crawler traps, read from the traps source the first time.
+     * @throws IOFailure if the traps cannot be read.
+     */
+    private CrawlerTrapMatcher getMatcher() {
+        CrawlerTrapMatcher result = matcher;
+        if (result == null) {
+            synchronized (this) {
+                result = matcher;
+                if (result == null) {
+                    result = readTraps();
+                    matcher = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The crawler traps read from the traps source, or no traps if there is no source.
+     * @throws IOFailure if the traps cannot be read.
+     */
+    private CrawlerTrapMatcher readTraps() {
+        if (trapsSource == null) {
+            log.warn("No crawler traps source given, no crawler traps will be applied");
+            return new CrawlerTrapMatcher(new HashMap<String, List<String>>());
+        }
+        Reader reader = trapsSource.obtainReader();
+        try {
+            CrawlerTrapMatcher result = CrawlerTrapMatcher.read(reader);
+            log.info("Read " + result.getTrapCount() + " crawler traps for " + result.getDomainCount()
+                    + " domains from " + trapsSource);
+            return result;
+        } catch (IOException e) {
+            throw new IOFailure("Unable to read crawler traps from " + trapsSource, e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Netarchivesuite - Heritrix 3 extensions
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.harvesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+import dk.netarkivet.common.utils.BoundedLRUCache;
+import dk.netarkivet.common.utils.DomainUtils;
+
+/**
+ * A bounded cache of the domain names of host names, as found by {@link DomainUtils#domainNameFromHostname(String)}.
+ * A crawl visits a limited set of hosts many times, so the queue assignment policies and decide rules that need the
+ * domain of every URI share this cache instead of finding the domain again for each URI.
+ * <p>
+ * The cache may be used by many threads. It is split into segments locked independently, so the toe threads of a
+ * crawl rarely wait for each other. When a segment is full, its least recently used host name is evicted to make room
+ * for a new one, so the host names of the hosts being crawled stay cached. The number of hits, misses and evictions
+ * is kept for reporting.
+ */
+public final class HostDomainCache {
+
+    /** The maximal number of host names in the shared cache. */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    /** The cache shared by the queue assignment policies and decide rules of a crawl. */
+    private static final HostDomainCache INSTANCE = new HostDomainCache(DEFAULT_MAX_SIZE);
+
+    /** The number of independently locked segments of the cache. */
+    private static final int SEGMENTS = 16;
+
+    /** The value cached for host names that have no valid domain, as the map cannot hold null. */
+    private static final String NO_DOMAIN = "";
+
+    /** The domain of each cached host name, or NO_DOMAIN. */
+    private final BoundedLRUCache<String, String> domains;
+    /** The number of lookups answered from the cache. */
+    private final AtomicLong hits = new AtomicLong();
+    /** The number of lookups that had to find the domain. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize The maximal number of host names in the cache.
+     * @throws ArgumentNotValid if maxSize is not positive.
+     */
+    HostDomainCache(int maxSize) {
+        ArgumentNotValid.checkPositive(maxSize, "int maxSize");
+        domains = new BoundedLRUCache<String, String>(maxSize, SEGMENTS);
+    }
+
+    /**
+     * @return The cache shared by the queue assignment policies and decide rules of a crawl.
+     */
+    public static HostDomainCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the domain name of a host name.
+     *
+     * @param hostname A host name or IP address.
+     * @return The domain name, as returned by {@link DomainUtils#domainNameFromHostname(String)}, or null if the host
+     * name has no valid domain.
+     * @throws ArgumentNotValid if hostname is null.
+     */
+    public String getDomain(String hostname) {
+        ArgumentNotValid.checkNotNull(hostname, "String hostname");
+        String domain = domains.get(hostname);
+        if (domain != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            domain = DomainUtils.domainNameFromHostname(hostname);
+            if (domain == null) {
+                domain = NO_DOMAIN;
+            }
+            domains.put(hostname, domain);
+        }
+        return domain.isEmpty() ? null : domain;
+    }
+
+    /**
+     * Empty the cache, e.g. after the TLDs have been changed. The statistics are kept.
+     */
+    public void clear() {
+        domains.clear();
+    }
+
+    /**
+     * @return The number of host names in the cache.
+     */
+    public int getSize() {
+        return domains.size();
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that had to find the domain.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of host names evicted to make room for new host names.
+     */
+    public long getEvictions() {
+        return domains.getEvictions();
+    }
+
+    /**
+     * @return The fraction of lookups answered from the cache, 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Return a report of the use of the cache, in the style of the Heritrix processor reports.
+     *
+     * @return the report.
+     */
+    public String report() {
+        StringBuilder ret = new StringBuilder();
+        ret.append("Cache: ").append(HostDomainCache.class.getName()).append("\n");
+        ret.append("  Function:          Cache the domain names of host names\n");
+        ret.append("  Host names cached: ").append(getSize()).append(" (max ").append(domains.getMaxSize())
+                .append(")\n");
+        ret.append("  Hits:              ").append(getHits()).append("\n");
+        ret.append("  Misses:            ").append(getMisses()).append("\n");
+        ret.append("  Hit rate:          ").append(String.format("%.2f%%", 100 * getHitRate())).append("\n");
+        ret.append("  Evicted:           ").append(getEvictions()).append("\n");
+        return ret.toString();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * Netarchivesuite - Heritrix 3 extensions
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.harvesting;
+
+import java.io.PrintWriter;
+
+import org.archive.crawler.reporting.Report;
+import org.archive.crawler.reporting.StatisticsTracker;
+
+/**
+ * Heritrix report of the use of the shared {@link HostDomainCache}. Add it to the reports of the statisticsTracker
+ * bean to get the report written with the other reports of the crawl, and thereby stored in the metadata:
+ * <pre>
+ * &lt;bean class="dk.netarkivet.harvester.harvesting.HostDomainCacheReport" /&gt;
+ * </pre>
+ */
+public class HostDomainCacheReport extends Report {
+
+    /** The name of the report file. */
+    public static final String REPORT_FILE_NAME = "hostdomaincache-report.txt";
+
+    @Override
+    public void write(PrintWriter writer, StatisticsTracker stats) {
+        writer.print(HostDomainCache.getInstance().report());
+    }
+
+    @Override
+    public String getFilename() {
+        return REPORT_FILE_NAME;
+    }
+}
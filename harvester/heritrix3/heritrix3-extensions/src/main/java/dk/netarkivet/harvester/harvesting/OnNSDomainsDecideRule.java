@@ -53,6 +53,10 @@ public class OnNSDomainsDecideRule extends SurtPrefixedDecideRule {
     /** Pattern that matches the first part of SURT - until ?? */
     public static final Pattern SURT_FIRSTPART_PATTERN
         = Pattern.compile("http\\://\\([^\\)]*");
+
+    /** The policy used to find the domains of URIs. It finds domains through the shared {@link HostDomainCache}. */
+    private static final DomainnameQueueAssignmentPolicy DOMAIN_POLICY = new DomainnameQueueAssignmentPolicy();
+
     /** 
      * Constructor for the class OnNSDomainsDecideRule.
      * Makes the configured decision 
@@ -135,9 +139,6 @@ public class OnNSDomainsDecideRule extends SurtPrefixedDecideRule {
      */
     public static String convertToDomain(String uri) {
         ArgumentNotValid.checkNotNullOrEmpty(uri, "String uri");
-        DomainnameQueueAssignmentPolicy policy
-                = new DomainnameQueueAssignmentPolicy();
-
         UURI uuri = null;
         try {
             uuri = UURIFactory.getInstance(uri);
@@ -151,7 +152,7 @@ public class OnNSDomainsDecideRule extends SurtPrefixedDecideRule {
                          
         }
         try {          
-            return policy.getClassKey(new CrawlURI(uuri));
+            return DOMAIN_POLICY.getClassKey(new CrawlURI(uuri));
         } catch (Throwable e) {
             // illegal URI - return a SURT that will not match any real URIs
             return NON_VALID_DOMAIN;
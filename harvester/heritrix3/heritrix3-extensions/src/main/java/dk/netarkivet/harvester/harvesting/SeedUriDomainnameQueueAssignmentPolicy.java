@@ -30,8 +30,6 @@ import org.archive.crawler.frontier.HostnameQueueAssignmentPolicy;
 import org.archive.modules.CrawlURI;
 import org.archive.net.UURIFactory;
 
-import dk.netarkivet.common.utils.DomainUtils;
-
 /**
  * This is a modified version of the {@link DomainnameQueueAssignmentPolicy}
  * where domainname returned is the domainname of the candidateURI
@@ -118,7 +116,7 @@ public class SeedUriDomainnameQueueAssignmentPolicy extends HostnameQueueAssignm
         if (key != null) {
             String[] hostnameandportnr = key.split("#");
             if (hostnameandportnr.length == 1 || hostnameandportnr.length == 2) {
-                key = DomainUtils.domainNameFromHostname(hostnameandportnr[0]);
+                key = HostDomainCache.getInstance().getDomain(hostnameandportnr[0]);
             } else {
                 log.debug("Illegal class key candidate from superclass: '" + key + "' for '" + cauri + "'");
                 key = null;
@@ -136,7 +134,7 @@ public class SeedUriDomainnameQueueAssignmentPolicy extends HostnameQueueAssignm
     private String getKeyFromSeed(CrawlURI cauri) {
         String key = null;
         try {
-            key = DomainUtils.domainNameFromHostname(UURIFactory.getInstance(cauri.getSourceTag()).getHost());
+            key = HostDomainCache.getInstance().getDomain(UURIFactory.getInstance(cauri.getSourceTag()).getHost());
         } catch (Exception e) {
             e.printStackTrace();
         }
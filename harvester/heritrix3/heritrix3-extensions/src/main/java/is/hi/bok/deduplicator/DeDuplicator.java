@@ -40,14 +40,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermRangeFilter;
-import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.archive.modules.CrawlURI;
 import org.archive.modules.ProcessResult;
@@ -60,6 +57,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import dk.netarkivet.common.utils.AllDocsCollector;
+import dk.netarkivet.common.utils.LuceneSearcherCache;
 
 /**
  * Heritrix compatible processor.
@@ -344,7 +342,8 @@ public class DeDuplicator extends Processor implements InitializingBean {
     
     // Member variables.
     protected IndexSearcher indexSearcher = null;
-    protected IndexReader indexReader = null;
+    /** The lease on the shared searcher, released when the processor is stopped. */
+    protected LuceneSearcherCache.Lease index = null;
     
     
     protected boolean lookupByURL = true;
@@ -363,19 +362,7 @@ public class DeDuplicator extends Processor implements InitializingBean {
             logger.info(this.getClass().getName() + " disabled.");
             return;
         }
-        // Index location
-        String indexLocation = getIndexLocation();
-        try {
-        	FSDirectory indexDir = FSDirectory.open(new File(indexLocation));
-            // https://issues.apache.org/jira/browse/LUCENE-1566
-            // Reduce chunksize to avoid OOM to half the size of the default (=100 MB)
-            int chunksize = indexDir.getReadChunkSize();
-            indexDir.setReadChunkSize(chunksize / 2);
-            indexReader = DirectoryReader.open(indexDir);
-            indexSearcher = new IndexSearcher(indexReader);    
-        } catch (Exception e) {
-        	throw new IllegalArgumentException("Unable to find/open index at " + indexLocation,e);
-        } 
+        openIndex();
         
         // Matching method
         MatchingMethod matchingMethod = getMatchingMethod();
@@ -401,7 +388,44 @@ public class DeDuplicator extends Processor implements InitializingBean {
             perHostStats = new HashMap<String, Statistics>();
         }
     }
-    
+
+    /**
+     * Leases a searcher on the index from the shared searcher cache. The index is memory-mapped and shared with other
+     * crawls in this JVM using the same index.
+     */
+    protected void openIndex() {
+        String indexLocation = getIndexLocation();
+        try {
+            index = LuceneSearcherCache.getInstance().acquire(new File(indexLocation));
+            indexSearcher = index.getSearcher();
+        } catch (Exception e) {
+        	throw new IllegalArgumentException("Unable to find/open index at " + indexLocation,e);
+        }
+    }
+
+    /**
+     * Reacquires the index searcher if the processor is restarted after having been stopped.
+     */
+    @Override
+    public void start() {
+        if (getEnabled() && index == null) {
+            openIndex();
+        }
+        super.start();
+    }
+
+    /**
+     * Releases the index searcher before stopping the processor.
+     */
+    @Override
+    public void stop() {
+        if (index != null) {
+            index.close();
+            index = null;
+            indexSearcher = null;
+        }
+        super.stop();
+    }
 
 	@Override
 	protected boolean shouldProcess(CrawlURI curi) {
@@ -0,0 +1,104 @@
+/*
+ * #%L
+ * Netarchivesuite - Heritrix 3 extensions
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.harvesting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import dk.netarkivet.harvester.datamodel.Constants;
+
+/**
+ * Tests of the CrawlerTrapMatcher.
+ */
+public class CrawlerTrapMatcherTester {
+
+    @Test
+    public void testMatchesOnlyOwnDomainAndGlobalTraps() {
+        Map<String, List<String>> traps = new HashMap<String, List<String>>();
+        traps.put(Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME, Arrays.asList(".*/calendar/.*"));
+        traps.put("foo.dk", Arrays.asList(".*\\?page=\\d+", ".*/print/.*", ""));
+        traps.put("bar.dk", Arrays.asList(".*/archive/.*"));
+        CrawlerTrapMatcher matcher = new CrawlerTrapMatcher(traps);
+
+        assertEquals("Should count the non-empty traps", 4, matcher.getTrapCount());
+        assertEquals("Should count the domains", 2, matcher.getDomainCount());
+        assertTrue("Global trap should apply to all domains", matcher.matches("bar.dk", "http://www.bar.dk/calendar/1"));
+        assertTrue("Global trap should apply to URIs without domain", matcher.matches(null, "http://x/calendar/1"));
+        assertTrue("Domain trap should apply to its domain", matcher.matches("foo.dk", "http://www.foo.dk/a?page=12"));
+        assertTrue("All domain traps should apply", matcher.matches("foo.dk", "http://www.foo.dk/print/a"));
+        assertFalse("Domain trap should not apply to other domains",
+                matcher.matches("bar.dk", "http://www.bar.dk/a?page=12"));
+        assertFalse("Traps should match the whole URI", matcher.matches("foo.dk", "http://www.foo.dk/a?page=12x"));
+        assertFalse("Domains without traps should only get global traps",
+                matcher.matches("baz.dk", "http://www.baz.dk/archive/a"));
+    }
+
+    @Test
+    public void testCrossDomainTrapIsNotApplied() {
+        Map<String, List<String>> traps = new HashMap<String, List<String>>();
+        traps.put("foo.dk", Arrays.asList("http://www\\.bar\\.dk/archive/.*"));
+        CrawlerTrapMatcher matcher = new CrawlerTrapMatcher(traps);
+        assertFalse("A trap of one domain should not apply to URIs of another domain, even if it matches them",
+                matcher.matches("bar.dk", "http://www.bar.dk/archive/1"));
+
+        traps.put(Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME, traps.remove("foo.dk"));
+        matcher = new CrawlerTrapMatcher(traps);
+        assertTrue("The same trap as a global crawler trap should apply to URIs of any domain",
+                matcher.matches("bar.dk", "http://www.bar.dk/archive/1"));
+    }
+
+    @Test
+    public void testTrapsThatCannotBeCombined() {
+        Map<String, List<String>> traps = new HashMap<String, List<String>>();
+        traps.put("foo.dk", Arrays.asList(".*(/[^/]+)\\1\\1.*", "\\Qhttp://foo.dk/a?b", ".*/[invalid", ".*/x"));
+        CrawlerTrapMatcher matcher = new CrawlerTrapMatcher(traps);
+        assertEquals("Should ignore the invalid trap", 3, matcher.getTrapCount());
+        assertTrue("Should match the back reference", matcher.matches("foo.dk", "http://foo.dk/a/b/b/b/c"));
+        assertFalse("Should apply the back reference", matcher.matches("foo.dk", "http://foo.dk/a/b/c/d/e"));
+        assertTrue("Should match the quoted trap", matcher.matches("foo.dk", "http://foo.dk/a?b"));
+        assertTrue("Should match the trap after the quoted trap", matcher.matches("foo.dk", "http://foo.dk/x"));
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        String lines = ".*/calendar/.*\n" + "\n" + "foo.dk\t.*/print/.*\n"
+                + Constants.GLOBAL_CRAWLER_TRAPS_ELEMENT_NAME + "\t.*/login.*\n";
+        CrawlerTrapMatcher matcher = CrawlerTrapMatcher.read(new StringReader(lines));
+        assertEquals("Should read all traps", 3, matcher.getTrapCount());
+        assertEquals("Should read one domain", 1, matcher.getDomainCount());
+        assertTrue("Lines without domain should be global traps", matcher.matches("bar.dk", "http://bar.dk/calendar/"));
+        assertTrue("Global domain lines should be global traps", matcher.matches("bar.dk", "http://bar.dk/login"));
+        assertTrue("Domain lines should be domain traps", matcher.matches("foo.dk", "http://foo.dk/print/a"));
+        assertFalse("Domain lines should only apply to the domain", matcher.matches("bar.dk", "http://bar.dk/print/a"));
+    }
+}
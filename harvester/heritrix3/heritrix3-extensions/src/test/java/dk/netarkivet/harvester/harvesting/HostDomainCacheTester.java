@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * Netarchivesuite - Heritrix 3 extensions
+ * %%
+ * Copyright (C) 2005 - 2018 The Royal Danish Library, 
+ *             the National Library of France and the Austrian National Library.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package dk.netarkivet.harvester.harvesting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import dk.netarkivet.common.exceptions.ArgumentNotValid;
+
+/**
+ * Tests of the HostDomainCache.
+ */
+public class HostDomainCacheTester {
+
+    @Test
+    public void testGetDomain() {
+        HostDomainCache cache = new HostDomainCache(10);
+        assertEquals("Should find domain of host name", "bbc.co.uk", cache.getDomain("news.bbc.co.uk"));
+        assertEquals("Should find cached domain of host name", "bbc.co.uk", cache.getDomain("news.bbc.co.uk"));
+        assertEquals("Should keep IP address", "192.168.0.10", cache.getDomain("192.168.0.10"));
+        assertNull("Should get null for illegal host name", cache.getDomain("x.fnord.barbar"));
+        assertNull("Should get null for cached illegal host name", cache.getDomain("x.fnord.barbar"));
+        assertEquals("Should count lookups answered from the cache", 2, cache.getHits());
+        assertEquals("Should count lookups not answered from the cache", 3, cache.getMisses());
+        assertEquals("Should have cached all host names", 3, cache.getSize());
+        assertEquals("Should compute hit rate", 0.4, cache.getHitRate(), 0.0001);
+        assertTrue("Report should contain the hit rate", cache.report().contains("40.00%"));
+    }
+
+    @Test
+    public void testMaxSize() {
+        HostDomainCache cache = new HostDomainCache(2);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Should find domain when the cache is full", "foo" + i + ".dk",
+                    cache.getDomain("www.foo" + i + ".dk"));
+        }
+        assertEquals("Should not hold more than the maximal number of host names", 2, cache.getSize());
+        assertEquals("Should count the evicted host names", 8, cache.getEvictions());
+        assertTrue("Report should contain the evictions", cache.report().contains("Evicted:           8"));
+        cache.clear();
+        assertEquals("Should have no host names after clearing", 0, cache.getSize());
+    }
+
+    @Test
+    public void testWorkingSetIsKeptWhenFull() {
+        HostDomainCache cache = new HostDomainCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.getDomain("www.kb.dk");
+            cache.getDomain("host" + i + ".example.dk");
+        }
+        assertEquals("Should keep the host name used all the time", 999, cache.getHits());
+    }
+
+    @Test(expected = ArgumentNotValid.class)
+    public void testNullHostname() {
+        HostDomainCache.getInstance().getDomain(null);
+    }
+}
@@ -52,6 +52,8 @@ domain - the domain to get the log for
 <%@ page import="java.io.FileReader" %>
 <%@ page import="dk.netarkivet.common.utils.Settings" %>
 <%@ page import="dk.netarkivet.harvester.HarvesterSettings" %>
+<%@ page import="dk.netarkivet.viewerproxy.webinterface.CrawlLogStore" %>
+<%@ page import="java.util.List" %>
 <%@taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt"
 %><fmt:setLocale value="<%=HTMLUtils.getLocale(request)%>" scope="page"
 /><fmt:setBundle scope="page" basename="<%=dk.netarkivet.viewerproxy.Constants.TRANSLATIONS_BUNDLE%>"/><%!
@@ -62,7 +64,8 @@ domain - the domain to get the log for
     String domain;
     String regexp;
     int jobid;
-    File crawlLogExtract;
+    File crawlLogExtract = null;
+    List<String> crawlLogLines = null;
     try {
         HTMLUtils.forwardOnMissingParameter(pageContext, Constants.JOBID_PARAM);
         regexp = request.getParameter(Constants.REGEXP_PARAM);
@@ -78,20 +81,31 @@ domain - the domain to get the log for
         }
         jobid = HTMLUtils.parseAndCheckInteger(pageContext, Constants.JOBID_PARAM, 1,
                 Integer.MAX_VALUE);
-        if (regexp != null && regexp.length() != 0 ) {
-            crawlLogExtract = Reporting.getCrawlLoglinesMatchingRegexp(jobid, regexp);
-        } else { // use 'domain' as the regular expression
+        if (regexp == null || regexp.length() == 0) { // use 'domain' as the regular expression
         	//regexp = ".*" + domain.replaceAll("\\.", "\\\\.") + ".*";
            	regexp = ".*(https?:\\/\\/(www\\.)?|dns:|ftp:\\/\\/)([\\w_-]+\\.)?([\\w_-]+\\.)?([\\w_-]+\\.)?" 
             		+ domain.replaceAll("\\.", "\\\\.") +  "($|\\/|\\w|\\s).*";
-        	crawlLogExtract = Reporting.getCrawlLoglinesMatchingRegexp(jobid, regexp);
         }
-        LineNumberReader reader = new LineNumberReader(new FileReader(crawlLogExtract));
-        reader.skip(Long.MAX_VALUE);
-        int linesInFile = reader.getLineNumber();
         int maxLinesInBrowser =
                 Settings.getInt(HarvesterSettings.MAX_CRAWLLOG_IN_BROWSER);
-        if (linesInFile > maxLinesInBrowser) {
+        boolean tooManyLines;
+        if (CrawlLogStore.isEnabled()) {
+            // Only the lines shown in the browser, and one more to tell whether there are too many, are read from the
+            // store. The complete extract is only made when it must be downloaded.
+            crawlLogLines = Reporting.getCrawlLoglinesMatchingRegexp(jobid, regexp, 0, maxLinesInBrowser + 1);
+            tooManyLines = crawlLogLines.size() > maxLinesInBrowser;
+            if (tooManyLines) {
+                crawlLogExtract = Reporting.getCrawlLoglinesMatchingRegexp(jobid, regexp);
+            }
+        } else {
+            crawlLogExtract = Reporting.getCrawlLoglinesMatchingRegexp(jobid, regexp);
+            LineNumberReader reader = new LineNumberReader(new FileReader(crawlLogExtract));
+            reader.skip(Long.MAX_VALUE);
+            int linesInFile = reader.getLineNumber();
+            reader.close();
+            tooManyLines = linesInFile > maxLinesInBrowser;
+        }
+        if (tooManyLines) {
             response.setHeader("Content-Type", "binary/octet-stream");
             response.setHeader("Content-Disposition", "Attachment; filename=crawl_log_extract.txt");
             final ServletOutputStream outputStream = response.getOutputStream();
@@ -112,8 +126,14 @@ domain - the domain to get the log for
 </fmt:message></h3>
 <pre>
 <%
-    StreamUtils.copyInputStreamToJspWriter(new FileInputStream(crawlLogExtract), out);
-    FileUtils.remove(crawlLogExtract);
+    if (crawlLogLines != null) {
+        for (String line : crawlLogLines) {
+            out.println(line);
+        }
+    } else {
+        StreamUtils.copyInputStreamToJspWriter(new FileInputStream(crawlLogExtract), out);
+        FileUtils.remove(crawlLogExtract);
+    }
 %>
 </pre>
 <%